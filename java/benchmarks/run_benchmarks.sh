@@ -0,0 +1,3 @@
+#!/bin/bash
+# Runs the benchmarks with the allocation profiler, e.g. ./run_benchmarks.sh ParseBenchmark -p rows=1000000
+java -jar "$(dirname $0)/target/benchmarks.jar" -prof gc "$@"
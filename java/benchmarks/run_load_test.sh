@@ -0,0 +1,3 @@
+#!/bin/bash
+# Uploads generated files to a running serve_population.sh, e.g. ./run_load_test.sh --concurrency=500 --requests=5000
+java -cp "$(dirname $0)/target/benchmarks.jar" com.interset.interview.ServerLoadGenerator "$@"
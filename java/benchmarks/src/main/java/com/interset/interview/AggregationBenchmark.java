@@ -0,0 +1,62 @@
+package com.interset.interview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregating entries already in memory, and the time zone conversion it does for every entry. One operation goes over
+ * all {@link PopulationData#rows}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+
+    @Benchmark
+    public int getLocalDateTime(PopulationData data) {
+        int months = 0;
+        for (PopulationEntryDto entry : data.entries) {
+            months += PopulationCalcUtil.getLocalDateTime(entry).getMonthValue();
+        }
+        return months;
+    }
+
+    @Benchmark
+    public int getBirthMonth(PopulationData data) {
+        int months = 0;
+        for (PopulationEntryDto entry : data.entries) {
+            months += PopulationCalcUtil.getBirthMonth(entry.getBirthTimeStamp(), entry.getBirthTimezone()).getValue();
+        }
+        return months;
+    }
+
+    /**
+     * Adding to the result only, without de-duplication.
+     */
+    @Benchmark
+    public PopulationResult addToResult(PopulationData data) {
+        PopulationResult result = new PopulationResult();
+        for (PopulationEntryDto entry : data.entries) {
+            PopulationCalcUtil.addPopulationDtoToResult(result, entry);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public PopulationResult aggregate(PopulationData data) {
+        PopulationAggregator aggregator = new PopulationAggregator();
+        for (PopulationEntryDto entry : data.entries) {
+            aggregator.add(entry);
+        }
+        return aggregator.getResult();
+    }
+}
@@ -0,0 +1,64 @@
+package com.interset.interview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing and de-duplicating entries already in memory. One operation goes over all {@link PopulationData#rows}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DedupBenchmark {
+
+    @Benchmark
+    public int hashCodes(PopulationData data) {
+        int hash = 0;
+        for (PopulationEntryDto entry : data.entries) {
+            hash += entry.hashCode();
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public long fingerprints(PopulationData data) {
+        PopulationFingerprint fingerprint = new PopulationFingerprint();
+        long hash = 0;
+        for (PopulationEntryDto entry : data.entries) {
+            hash += fingerprint.hash(entry).getLo();
+        }
+        return hash;
+    }
+
+    /**
+     * De-duplication by keeping every entry, as it used to be done.
+     */
+    @Benchmark
+    public int hashSet(PopulationData data) {
+        Set<PopulationEntryDto> unique = new HashSet<>();
+        for (PopulationEntryDto entry : data.entries) {
+            unique.add(entry);
+        }
+        return unique.size();
+    }
+
+    @Benchmark
+    public long fingerprintSet(PopulationData data) {
+        PopulationDeduplicator deduplicator = new PopulationDeduplicator();
+        for (PopulationEntryDto entry : data.entries) {
+            deduplicator.add(entry);
+        }
+        return deduplicator.getUniqueCount();
+    }
+}
@@ -0,0 +1,54 @@
+package com.interset.interview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parsing a GZIP compressed CSV file, decompressed on the parsing thread or on others (see
+ * {@link PipelinedGzipInputStream}), as one GZIP member or as BGZF. One operation is one file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GzipBenchmark {
+
+    @Param({"gzip", "bgzf"})
+    public String compression;
+
+    @Benchmark
+    public void sameThread(PopulationData data, Blackhole blackhole) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(new FileInputStream(getPath(data)), 64 * 1024)) {
+            new PopulationCsvReader().read(inputStream, false, blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void pipelined(PopulationData data, Blackhole blackhole) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        try (InputStream inputStream = new PipelinedGzipInputStream(getPath(data), threads)) {
+            new PopulationCsvReader().read(inputStream, false, blackhole::consume);
+        }
+    }
+
+    private String getPath(PopulationData data) {
+        return data.getFile(compression.equals("bgzf") ? "bgzf.csv.gz" : "csv.gz").getPath();
+    }
+}
@@ -0,0 +1,61 @@
+package com.interset.interview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a whole file, plain or GZIP compressed. One operation is one file of {@link PopulationData#rows} rows.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"plain", "gzip"})
+    public String compression;
+
+    @Benchmark
+    public void parseCsv(PopulationData data, Blackhole blackhole) throws IOException {
+        try (InputStream inputStream = open(data, "csv")) {
+            Runner.parseCsv(inputStream, blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void parseJson(PopulationData data, Blackhole blackhole) throws IOException {
+        try (InputStream inputStream = open(data, "json")) {
+            Runner.parseJson(inputStream, blackhole::consume);
+        }
+    }
+
+    /**
+     * The hand-written CSV parser used for aggregation, see {@link PopulationCsvReader}.
+     */
+    @Benchmark
+    public void readCsvRecords(PopulationData data, Blackhole blackhole) throws IOException {
+        try (InputStream inputStream = open(data, "csv")) {
+            new PopulationCsvReader().read(inputStream, false, blackhole::consume);
+        }
+    }
+
+    private InputStream open(PopulationData data, String format) throws IOException {
+        String extension = compression.equals("gzip") ? format + ".gz" : format;
+        return Runner.openInputStream(data.getFile(extension).getPath());
+    }
+}
@@ -0,0 +1,68 @@
+package com.interset.interview;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Population files written once per trial by {@link PopulationGenerator}, with a given number of rows and share of
+ * duplicates, so that the benchmarks can be compared across input sizes. The data is random, but always the same for the
+ * same parameters.
+ */
+@State(Scope.Benchmark)
+public class PopulationData {
+
+    private static final String[] EXTENSIONS = {"csv", "csv.gz", "json", "json.gz"};
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    @Param({"0.0", "0.1"})
+    public double duplicateRatio;
+
+    public List<PopulationEntryDto> entries;
+    public File directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("population-benchmark").toFile();
+        PopulationGenerator generator = new PopulationGenerator(PopulationGeneratorOptions.parse(new String[]{
+                "--rows=" + rows, "--duplicates=" + duplicateRatio, getFile("csv").getPath()}));
+        for (String extension : EXTENSIONS) {
+            generator.write(getFile(extension).getPath());
+        }
+        new PopulationGenerator(PopulationGeneratorOptions.parse(new String[]{"--rows=" + rows,
+                "--duplicates=" + duplicateRatio, "--bgzf", getFile("csv").getPath()}))
+                .write(getFile("bgzf.csv.gz").getPath());
+
+        entries = new ArrayList<>(rows);
+        try (InputStream inputStream = Runner.openInputStream(getFile("csv").getPath())) {
+            Runner.parseCsv(inputStream, entries::add);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * @param extension "csv", "json", "csv.gz", "json.gz", or "bgzf.csv.gz" for the CSV file compressed as BGZF.
+     */
+    public File getFile(String extension) {
+        return new File(directory, "population." + extension);
+    }
+}
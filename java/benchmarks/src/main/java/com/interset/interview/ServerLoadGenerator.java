@@ -0,0 +1,123 @@
+package com.interset.interview;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Uploads a file written by {@link PopulationGenerator} to a running {@link PopulationServer}, from many virtual
+ * threads at once, and prints the throughput and latencies.
+ *
+ * Every upload sends the same body, and its answer is checked against the first one. Options:
+ *   --url=URL          Server to upload to (default: http://localhost:8080/aggregate).
+ *   --concurrency=N    Uploads in flight at once (default: 200).
+ *   --requests=N       Uploads in total (default: 2000).
+ *   --rows=N           Rows of the uploaded file (default: 10000).
+ *   --format=F         Format of the uploaded file: csv, json or ndjson, with .gz to compress it (default: csv).
+ */
+public class ServerLoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:" + PopulationServer.DEFAULT_PORT + "/aggregate";
+        int concurrency = 200;
+        int requests = 2000;
+        int rows = 10_000;
+        String format = "csv";
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--url=")) {
+                url = value;
+            } else if (arg.startsWith("--concurrency=")) {
+                concurrency = Integer.parseInt(value);
+            } else if (arg.startsWith("--requests=")) {
+                requests = Integer.parseInt(value);
+            } else if (arg.startsWith("--rows=")) {
+                rows = Integer.parseInt(value);
+            } else if (arg.startsWith("--format=")) {
+                format = value;
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        boolean gzip = format.endsWith(".gz");
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try (OutputStream outputStream = gzip ? new GZIPOutputStream(file) : file) {
+            new PopulationGenerator(PopulationGeneratorOptions.parse(new String[]{"--rows=" + rows,
+                    "--duplicates=0.1", "upload." + format})).write(outputStream, format.replace(".gz", ""));
+        }
+        byte[] body = file.toByteArray();
+        URI uri = URI.create(url + "?format=" + format);
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        String expected = upload(client, uri, body);
+        System.out.println("Uploading " + requests + " files of " + body.length + " bytes, " + concurrency
+                + " at once: " + expected);
+
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[requests];
+        AtomicLong failures = new AtomicLong();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                inFlight.acquire();
+                int request = i;
+                futures.add(executor.submit(() -> {
+                    long requestStart = System.nanoTime();
+                    try {
+                        if (!expected.equals(upload(client, uri, body))) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        latencies[request] = System.nanoTime() - requestStart;
+                        inFlight.release();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.println(String.format("%d uploads in %.2fs: %.0f uploads/s, %.1f MB/s, %d failed", requests,
+                seconds, requests / seconds, requests * (double) body.length / seconds / 1e6, failures.get()));
+        System.out.println(String.format("Latency: p50 %.1fms, p90 %.1fms, p99 %.1fms, max %.1fms",
+                percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                latencies[latencies.length - 1] / 1e6));
+    }
+
+    private static String upload(HttpClient client, URI uri, byte[] body) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new Exception("Status " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        return sortedNanos[(int) Math.min(sortedNanos.length - 1, sortedNanos.length * percentile)] / 1e6;
+    }
+}
@@ -0,0 +1,63 @@
+package com.interset.interview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.management.JMException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of {@link PopulationStats}: the fastest paths, aggregating entries already in memory and reading a mapped
+ * CSV file, with the stats enabled or not. Disabled, the aggregator only checks that it has no recorder, so the scores
+ * should match {@link AggregationBenchmark#aggregate} and {@link EndToEndBenchmark} on CSV files, less the printing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean stats;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JMException {
+        if (stats) {
+            PopulationStats.enable();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws JMException {
+        PopulationStats.disable();
+    }
+
+    @Benchmark
+    public PopulationResult aggregate(PopulationData data) {
+        PopulationAggregator aggregator = new PopulationAggregator();
+        for (PopulationEntryDto entry : data.entries) {
+            aggregator.add(entry);
+        }
+        return aggregator.getResult();
+    }
+
+    @Benchmark
+    public PopulationResult mappedCsv(PopulationData data) throws Exception {
+        PopulationAggregator aggregator = new PopulationAggregator();
+        new MappedCsvReader().read(data.getFile("csv").getPath(), aggregator);
+        return aggregator.getResult();
+    }
+}
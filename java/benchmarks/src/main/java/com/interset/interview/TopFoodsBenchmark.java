@@ -0,0 +1,56 @@
+package com.interset.interview;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking the favourite foods out of a result with many distinct foods.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TopFoodsBenchmark {
+
+    @Param({"1000", "100000"})
+    public int foods;
+
+    @Param({"3", "50", "500"})
+    public int k;
+
+    private PopulationResult result;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        result = new PopulationResult();
+        for (int food = 0; food < foods; food++) {
+            // Skewed counts, with many ties in the tail.
+            int count = 1 + (int) (1000 / (1 + food * random.nextDouble()));
+            for (int i = 0; i < count; i++) {
+                result.addFavouriteFood("food " + food);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<String> getTopFoods() {
+        return PopulationCalcUtil.getTopFoods(result, k);
+    }
+}
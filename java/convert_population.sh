@@ -0,0 +1,2 @@
+#!/usr/bin/env bash
+java -cp "$(dirname $0)/target/interview-1.0-SNAPSHOT.jar" com.interset.interview.ColumnarWriter "$@"
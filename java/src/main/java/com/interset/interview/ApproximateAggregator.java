@@ -0,0 +1,124 @@
+package com.interset.interview;
+
+import java.time.Month;
+
+/**
+ * Single pass aggregation in a fixed amount of memory, whatever the size of the input, for the --approximate mode of
+ * {@link Runner}.
+ *
+ * Removing duplicates exactly needs memory for every distinct entry, so this aggregator does not remove them: every row
+ * is counted. The number of distinct people is estimated instead, with a {@link HyperLogLog} over the row fingerprints.
+ * The favourite foods are counted in a {@link SpaceSaving} sketch keyed by a hash of the sanitized food, which gives the
+ * most frequent foods with a bound on the error of each count. The sibling sum and birth month counts are a few numbers,
+ * so they stay exact.
+ *
+ * The memory budget is split between the two sketches: up to an eighth for the HyperLogLog registers, and the rest for
+ * the Space-Saving counters.
+ *
+ * Not thread safe.
+ */
+public class ApproximateAggregator implements PopulationSink {
+
+    static final long DEFAULT_MEMORY_BYTES = 4 * 1024 * 1024;
+
+    private static final Month[] MONTHS = Month.values();
+
+    private final HyperLogLog people;
+    private final SpaceSaving foods;
+    private final PopulationFingerprint fingerprint = new PopulationFingerprint();
+
+    private long rows = 0;
+    private long siblingSum = 0;
+    private final long[] birthMonthCounts = new long[MONTHS.length];
+
+    public ApproximateAggregator() {
+        this(DEFAULT_MEMORY_BYTES);
+    }
+
+    /**
+     * @param memoryBytes Memory to use for the sketches.
+     */
+    public ApproximateAggregator(long memoryBytes) {
+        this.people = new HyperLogLog(HyperLogLog.precisionFor(memoryBytes / 8));
+        long counters = (memoryBytes - people.getMemoryBytes()) / SpaceSaving.BYTES_PER_COUNTER;
+        this.foods = new SpaceSaving((int) Math.max(1, Math.min(counters, Integer.MAX_VALUE / 4)));
+    }
+
+    @Override
+    public boolean add(PopulationEntryDto populationEntryDto) {
+        fingerprint.hash(populationEntryDto);
+        add(fingerprint.getHi(), fingerprint.getLo(), populationEntryDto.getSiblings(),
+                populationEntryDto.getFavouriteFood(), populationEntryDto.getBirthTimezone(),
+                populationEntryDto.getBirthTimeStamp());
+        return true;
+    }
+
+    @Override
+    public boolean add(PopulationRecord populationRecord) {
+        add(populationRecord.getFingerprintHi(), populationRecord.getFingerprintLo(), populationRecord.getSiblings(),
+                populationRecord.getFavouriteFood(), populationRecord.getBirthTimezone(),
+                populationRecord.getBirthTimeStamp());
+        return true;
+    }
+
+    private void add(long fingerprintHi, long fingerprintLo, int siblings, String favouriteFood, String birthTimezone,
+                     long birthTimeStamp) {
+        rows++;
+        siblingSum += siblings;
+        people.add(fingerprintHi, fingerprintLo);
+
+        // The food is only sanitized into a String when it takes a counter, otherwise it is only hashed.
+        fingerprint.reset().putSanitizedFood(favouriteFood).finish();
+        int counter = foods.increment(fingerprint.getHi());
+        if (counter < 0) {
+            foods.setLabel(-1 - counter, PopulationEntryDto.sanitizeFood(favouriteFood));
+        }
+
+        birthMonthCounts[PopulationCalcUtil.getBirthMonth(birthTimeStamp, birthTimezone).ordinal()]++;
+    }
+
+    @Override
+    public boolean needsNames() {
+        return false;
+    }
+
+    /**
+     * @return Number of rows read, duplicates included.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    public long getSiblingSum() {
+        return siblingSum;
+    }
+
+    /**
+     * @return Estimated number of distinct entries, see {@link #getDistinctPeopleError()}.
+     */
+    public long getDistinctPeople() {
+        return people.estimate();
+    }
+
+    /**
+     * @return Relative standard error of {@link #getDistinctPeople()}.
+     */
+    public double getDistinctPeopleError() {
+        return people.getStandardError();
+    }
+
+    public SpaceSaving getFoods() {
+        return foods;
+    }
+
+    /**
+     * @return Number of rows born in the given month, exact.
+     */
+    public long getBirthMonthFrequency(Month month) {
+        return birthMonthCounts[month.ordinal()];
+    }
+
+    public long getMemoryBytes() {
+        return people.getMemoryBytes() + foods.getMemoryBytes();
+    }
+}
@@ -0,0 +1,138 @@
+package com.interset.interview;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes BGZF (blocked GZIP, as in the SAM/BAM specification): a series of GZIP members of at most 64KB each, whose
+ * header gives the compressed size of the member. It is still a valid GZIP file for any GZIP reader, and
+ * {@link PipelinedGzipInputStream} can inflate its members in parallel.
+ *
+ * Not thread safe.
+ */
+public class BgzfOutputStream extends FilterOutputStream {
+
+    // Uncompressed bytes per member, as bgzip does, so that the compressed member nearly always fits in 64KB.
+    static final int BLOCK_BYTES = 0xff00;
+    private static final int MAX_MEMBER_BYTES = 64 * 1024;
+    private static final int HEADER_BYTES = 18;
+    private static final int TRAILER_BYTES = 8;
+
+    // The empty member that ends a BGZF file.
+    private static final byte[] EOF_MEMBER = {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+            0x1b, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+
+    private final byte[] block = new byte[BLOCK_BYTES];
+    private final byte[] member = new byte[MAX_MEMBER_BYTES];
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private int length = 0;
+    private boolean closed = false;
+
+    /**
+     * @param level Compression level, see {@link Deflater}.
+     */
+    public BgzfOutputStream(OutputStream outputStream, int level) {
+        super(outputStream);
+        this.deflater = new Deflater(level, true);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (length == block.length) {
+            writeBlock();
+        }
+        block[length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (length == block.length) {
+                writeBlock();
+            }
+            int copied = Math.min(len, block.length - length);
+            System.arraycopy(b, off, block, length, copied);
+            length += copied;
+            off += copied;
+            len -= copied;
+        }
+    }
+
+    /**
+     * Only flushes whole members, the last one is written on {@link #close()}.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (length > 0) {
+                writeBlock();
+            }
+            out.write(EOF_MEMBER);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        writeMember(0, length);
+        length = 0;
+    }
+
+    private void writeMember(int offset, int uncompressed) throws IOException {
+        deflater.reset();
+        deflater.setInput(block, offset, uncompressed);
+        deflater.finish();
+        int compressed = deflater.deflate(member, HEADER_BYTES, member.length - HEADER_BYTES - TRAILER_BYTES);
+        if (!deflater.finished()) {
+            // Too random to fit, split it in two.
+            int half = uncompressed / 2;
+            writeMember(offset, half);
+            writeMember(offset + half, uncompressed - half);
+            return;
+        }
+
+        int size = HEADER_BYTES + compressed + TRAILER_BYTES;
+        member[0] = 0x1f;
+        member[1] = (byte) 0x8b;
+        member[2] = 8;
+        member[3] = 4;
+        putInt(member, 4, 0);
+        member[8] = 0;
+        member[9] = (byte) 0xff;
+        putShort(member, 10, 6);
+        member[12] = 'B';
+        member[13] = 'C';
+        putShort(member, 14, 2);
+        putShort(member, 16, size - 1);
+
+        crc.reset();
+        crc.update(block, offset, uncompressed);
+        putInt(member, HEADER_BYTES + compressed, (int) crc.getValue());
+        putInt(member, HEADER_BYTES + compressed + 4, uncompressed);
+        out.write(member, 0, size);
+    }
+
+    private static void putShort(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        putShort(bytes, offset, value);
+        putShort(bytes, offset + 2, value >>> 16);
+    }
+}
@@ -0,0 +1,269 @@
+package com.interset.interview;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the month of a birth timestamp in its timezone, as
+ * {@code LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.of(timezone)).getMonth()} would.
+ *
+ * There are only a few hundred distinct timezones in the data, so the zone rules are looked up once per timezone
+ * String. For each timezone, the instants at which the local month changes are precomputed into a sorted long[], over
+ * the years the timestamps fall in, and finding a month is then a lookup in that array. The table holds every instant at
+ * which the local month can change: the start of each month in every offset valid at that time, and the offset
+ * transitions, since a DST change can move the local time across a month boundary (e.g. back from 00:00 on the 1st to
+ * 23:00 on the last day of the previous month). The month between two of those instants can't change, so the table
+ * gives the same answer as java.time.
+ *
+ * Building a table costs about as much as a few hundred lookups with java.time, so a timezone only gets one once
+ * {@link #TABLE_LOOKUPS} of its timestamps have been looked up with java.time, covering the years seen so far: a small
+ * file is done before the tables would pay off. When a timestamp falls outside a timezone's table, a larger table is
+ * built to cover it. Timestamps outside of years 1 to 9999 fall back to java.time. Past {@link #MAX_ZONES} timezones,
+ * new ones are not kept, so only callers holding on to their {@link Zone} benefit from its table.
+ *
+ * Thread safe: the tables are never changed once built, only replaced.
+ */
+public class BirthMonthResolver {
+
+    static final int MAX_ZONES = 4096;
+    static final int TABLE_LOOKUPS = 64;
+
+    private static final int MIN_YEAR = 1;
+    private static final int MAX_YEAR = 9999;
+    private static final Month[] MONTHS = Month.values();
+    // 400 Gregorian years have 146097 days
+    private static final double ENTRIES_PER_MILLI = 400.0 * 12 / (146097L * 24 * 3600 * 1000);
+
+    private final Map<String, Zone> zones = new ConcurrentHashMap<>();
+
+    /**
+     * @param birthTimeStamp Milliseconds since the epoch.
+     * @param birthTimezone Any timezone accepted by {@link ZoneId#of(String)}.
+     * @throws java.time.DateTimeException If the timezone is not valid.
+     */
+    public Month getMonth(long birthTimeStamp, String birthTimezone) {
+        return getZone(birthTimezone).getMonth(birthTimeStamp);
+    }
+
+    /**
+     * @return The months of a timezone, which can be kept to skip looking the timezone up for every timestamp.
+     * @throws java.time.DateTimeException If the timezone is not valid.
+     */
+    public Zone getZone(String birthTimezone) {
+        Zone zone = zones.get(birthTimezone);
+        if (zone == null) {
+            zone = new Zone(ZoneId.of(birthTimezone));
+            if (zones.size() < MAX_ZONES) {
+                Zone previous = zones.putIfAbsent(birthTimezone, zone);
+                zone = previous != null ? previous : zone;
+            }
+        }
+        return zone;
+    }
+
+    int getZoneCount() {
+        return zones.size();
+    }
+
+    /**
+     * One timezone, with its month table.
+     */
+    public static final class Zone {
+
+        private final ZoneId zoneId;
+        private volatile ZoneMonths months;
+
+        // Lookups with java.time and the years they fell in, until the table is built. Only counted loosely across
+        // threads, which can build the table a little later or cover a year less.
+        private int slowLookups = 0;
+        private int minYear = MAX_YEAR;
+        private int maxYear = MIN_YEAR;
+
+        private Zone(ZoneId zoneId) {
+            this.zoneId = zoneId;
+        }
+
+        /**
+         * @param birthTimeStamp Milliseconds since the epoch.
+         */
+        public Month getMonth(long birthTimeStamp) {
+            ZoneMonths zoneMonths = months;
+            if (zoneMonths != null && zoneMonths.covers(birthTimeStamp)) {
+                return zoneMonths.getMonth(birthTimeStamp);
+            }
+            return getMonthSlow(birthTimeStamp, zoneMonths);
+        }
+
+        /**
+         * @return True once the month table has been built, see {@link #TABLE_LOOKUPS}.
+         */
+        boolean hasTable() {
+            return months != null;
+        }
+
+        private Month getMonthSlow(long birthTimeStamp, ZoneMonths zoneMonths) {
+            LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(birthTimeStamp), zoneId);
+            int year = date.getYear();
+            if (year < MIN_YEAR || year > MAX_YEAR) {
+                return date.getMonth();
+            }
+
+            int fromYear = year - 1;
+            int toYear = year + 2;
+            if (zoneMonths == null) {
+                minYear = Math.min(minYear, year);
+                maxYear = Math.max(maxYear, year);
+                if (++slowLookups < TABLE_LOOKUPS) {
+                    return date.getMonth();
+                }
+                fromYear = minYear - 1;
+                toYear = maxYear + 2;
+            } else {
+                // Grow by at least the current span, so that spread out timestamps only rebuild it a few times.
+                int span = zoneMonths.toYear - zoneMonths.fromYear;
+                fromYear = Math.min(zoneMonths.fromYear, fromYear < zoneMonths.fromYear ? fromYear - span : fromYear);
+                toYear = Math.max(zoneMonths.toYear, toYear > zoneMonths.toYear ? toYear + span : toYear);
+            }
+            fromYear = Math.max(fromYear, MIN_YEAR);
+            toYear = Math.min(toYear, MAX_YEAR + 1);
+
+            months = new ZoneMonths(zoneId, fromYear, toYear);
+            return date.getMonth();
+        }
+    }
+
+    /**
+     * The months of one timezone, from the start of fromYear to the start of toYear.
+     */
+    private static final class ZoneMonths {
+
+        private final int fromYear;
+        private final int toYear;
+
+        // starts[i] is the first instant of months[i], which lasts until starts[i + 1], or until end for the last one.
+        private final long[] starts;
+        private final byte[] months;
+        private final long end;
+
+        ZoneMonths(ZoneId zone, int fromYear, int toYear) {
+            this.fromYear = fromYear;
+            this.toYear = toYear;
+            ZoneRules rules = zone.getRules();
+
+            int monthCount = (toYear - fromYear) * 12 + 1;
+            LongList changes = new LongList(monthCount + 16);
+            long start = Long.MAX_VALUE;
+            for (int i = 0; i < monthCount; i++) {
+                LocalDateTime monthStart = LocalDateTime.of(fromYear + i / 12, i % 12 + 1, 1, 0, 0);
+                List<ZoneOffset> offsets = rules.getValidOffsets(monthStart);
+                if (offsets.isEmpty()) {
+                    // In a gap, the month starts when the clocks jump over it.
+                    changes.add(rules.getTransition(monthStart).getInstant().toEpochMilli());
+                }
+                for (ZoneOffset offset : offsets) {
+                    changes.add(monthStart.toInstant(offset).toEpochMilli());
+                }
+                if (i == 0) {
+                    start = changes.min();
+                }
+            }
+            long end = changes.max();
+
+            ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(start));
+            while (transition != null && transition.getInstant().toEpochMilli() < end) {
+                changes.add(transition.getInstant().toEpochMilli());
+                transition = rules.nextTransition(transition.getInstant());
+            }
+
+            long[] sorted = changes.toSortedArray();
+            long[] starts = new long[sorted.length];
+            byte[] months = new byte[sorted.length];
+            int size = 0;
+            for (long instant : sorted) {
+                if (instant < start || instant >= end || (size > 0 && starts[size - 1] == instant)) {
+                    continue;
+                }
+                Instant at = Instant.ofEpochMilli(instant);
+                byte month = (byte) LocalDateTime.ofInstant(at, zone).getMonthValue();
+                if (size > 0 && months[size - 1] == month) {
+                    continue;
+                }
+                starts[size] = instant;
+                months[size] = month;
+                size++;
+            }
+            this.starts = Arrays.copyOf(starts, size);
+            this.months = Arrays.copyOf(months, size);
+            this.end = end;
+        }
+
+        boolean covers(long timestamp) {
+            return timestamp >= starts[0] && timestamp < end;
+        }
+
+        Month getMonth(long timestamp) {
+            // Consecutive entries always have different months, so there is about one entry per month, and the entry
+            // can be guessed from the time since the start. The guess is off by one at most, except for the rare
+            // month that a DST change enters twice, which walking from the guess still gets right.
+            int index = (int) ((timestamp - starts[0]) * ENTRIES_PER_MILLI);
+            if (index >= starts.length) {
+                index = starts.length - 1;
+            }
+            while (starts[index] > timestamp) {
+                index--;
+            }
+            while (index + 1 < starts.length && starts[index + 1] <= timestamp) {
+                index++;
+            }
+            return MONTHS[months[index] - 1];
+        }
+    }
+
+    private static final class LongList {
+
+        private long[] values;
+        private int size = 0;
+
+        LongList(int capacity) {
+            values = new long[capacity];
+        }
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long min() {
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                min = Math.min(min, values[i]);
+            }
+            return min;
+        }
+
+        long max() {
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, values[i]);
+            }
+            return max;
+        }
+
+        long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.interset.interview;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes UTF-8 fields to Strings, handing back the same String every time the same bytes are seen.
+ *
+ * Meant for low cardinality fields like the favourite food and the birth timezone, where a few hundred distinct values
+ * are spread over millions of rows: once a value has been seen, looking it up again does not create anything. Once the
+ * cache is full, new values are decoded without being cached.
+ *
+ * Not thread safe.
+ */
+class ByteStringCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+
+    private final int maxEntries;
+
+    // Wrapped once when cached, so that comparing against them does not create anything.
+    private ByteBuffer[] keys = new ByteBuffer[64];
+    private String[] values = new String[64];
+    private int[] hashes = new int[64];
+    private int size = 0;
+
+    ByteStringCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    ByteStringCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return The bytes between start and end of the buffer, decoded as UTF-8.
+     */
+    String get(ByteBuffer buffer, int start, int end) {
+        int hash = hash(buffer, start, end);
+        int mask = keys.length - 1;
+        int slot = mix(hash) & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && matches(keys[slot], buffer, start, end)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        String value = PopulationFingerprint.decodeUtf8(buffer, start, end);
+        if (size < maxEntries) {
+            byte[] key = new byte[end - start];
+            for (int i = start; i < end; i++) {
+                key[i - start] = buffer.get(i);
+            }
+            keys[slot] = ByteBuffer.wrap(key);
+            values[slot] = value;
+            hashes[slot] = hash;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+        return value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        ByteBuffer[] oldKeys = keys;
+        String[] oldValues = values;
+        int[] oldHashes = hashes;
+        keys = new ByteBuffer[oldKeys.length * 2];
+        values = new String[oldKeys.length * 2];
+        hashes = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = mix(oldHashes[i]) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    private static int hash(ByteBuffer buffer, int start, int end) {
+        long hash = end - start;
+        int i = start;
+        for (; i + 8 <= end; i += 8) {
+            hash = hash * 0x9e3779b97f4a7c15L + buffer.getLong(i);
+        }
+        for (; i < end; i++) {
+            hash = hash * 31 + buffer.get(i);
+        }
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static boolean matches(ByteBuffer key, ByteBuffer buffer, int start, int end) {
+        int length = key.capacity();
+        if (length != end - start) {
+            return false;
+        }
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            if (key.getLong(i) != buffer.getLong(start + i)) {
+                return false;
+            }
+        }
+        for (; i < length; i++) {
+            if (key.get(i) != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,225 @@
+package com.interset.interview;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * What a run of {@link IncrementalReader} read, saved so that the next run only reads what changed since.
+ *
+ * A checkpoint holds the aggregated counts, the fingerprint of every unique entry so that duplicates of the entries
+ * already counted are still found, and a {@link FileState} per file read. The file starts with a magic number and a
+ * version, and ends with the magic number again so that a file cut short is noticed. It is written to a temporary
+ * file first, then moved over the previous checkpoint, so that an interrupted run leaves the previous one intact.
+ */
+public class Checkpoint {
+
+    private static final int MAGIC = 0x504f5043;
+    private static final int VERSION = 2;
+
+    private final PopulationResult result;
+    private final FingerprintStore fingerprints;
+    private final Map<String, FileState> files;
+
+    public Checkpoint(PopulationResult result, FingerprintStore fingerprints, Map<String, FileState> files) {
+        this.result = result;
+        this.fingerprints = fingerprints;
+        this.files = files;
+    }
+
+    /**
+     * @param threads Number of threads that will add fingerprints to the loaded ones.
+     * @return The checkpoint, with its fingerprints in a {@link ConcurrentFingerprintSet}, or null if there is no file
+     * at the path.
+     * @throws IOException If the file is not a checkpoint of this version, or is incomplete.
+     */
+    public static Checkpoint read(String checkpointPath, int threads) throws IOException {
+        Path path = Paths.get(checkpointPath);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path),
+                1 << 20))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a checkpoint: " + checkpointPath);
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version + ": " + checkpointPath);
+            }
+
+            int fileCount = input.readInt();
+            Map<String, FileState> files = new LinkedHashMap<>();
+            for (int i = 0; i < fileCount; i++) {
+                files.put(input.readUTF(), new FileState(input.readLong(), input.readInt(), input.readInt(),
+                        input.readByte()));
+            }
+            PopulationResult result = PopulationResult.read(input);
+            long fingerprintCount = input.readLong();
+            FingerprintStore fingerprints = new ConcurrentFingerprintSet(threads, fingerprintCount);
+            for (long i = 0; i < fingerprintCount; i++) {
+                fingerprints.add(input.readLong(), input.readLong());
+            }
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Incomplete checkpoint: " + checkpointPath);
+            }
+            return new Checkpoint(result, fingerprints, files);
+        }
+    }
+
+    /**
+     * Replaces the checkpoint at the path with this one.
+     */
+    public void write(String checkpointPath) throws IOException {
+        Path path = Paths.get(checkpointPath).toAbsolutePath();
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp), 1 << 20))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(files.size());
+                for (Map.Entry<String, FileState> file : files.entrySet()) {
+                    output.writeUTF(file.getKey());
+                    FileState state = file.getValue();
+                    output.writeLong(state.offset);
+                    output.writeInt(state.headCrc);
+                    output.writeInt(state.tailCrc);
+                    output.writeByte(state.lastByte);
+                }
+                result.write(output);
+                output.writeLong(fingerprints.size());
+                fingerprints.forEach((hi, lo) -> {
+                    try {
+                        output.writeLong(hi);
+                        output.writeLong(lo);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                output.writeInt(MAGIC);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public PopulationResult getResult() {
+        return result;
+    }
+
+    public FingerprintStore getFingerprints() {
+        return fingerprints;
+    }
+
+    /**
+     * @return State of each file read, by real path.
+     */
+    public Map<String, FileState> getFiles() {
+        return files;
+    }
+
+    /**
+     * How much of a file was read, and enough of its content to tell whether those bytes changed since.
+     *
+     * The CRCs cover the first and the last {@link #SAMPLE_BYTES} bytes read, rather than all of them, so that checking
+     * a file does not cost as much as reading it again. This catches a file that was rewritten, but not a change in
+     * the middle of a big file that kept its size.
+     */
+    public static class FileState {
+
+        static final int SAMPLE_BYTES = 64 * 1024;
+
+        private final long offset;
+        private final int headCrc;
+        private final int tailCrc;
+        private final byte lastByte;
+
+        FileState(long offset, int headCrc, int tailCrc, byte lastByte) {
+            this.offset = offset;
+            this.headCrc = headCrc;
+            this.tailCrc = tailCrc;
+            this.lastByte = lastByte;
+        }
+
+        /**
+         * @return State of the first bytes of the file, up to offset.
+         */
+        static FileState of(FileChannel channel, long offset) throws IOException {
+            long sample = Math.min(SAMPLE_BYTES, offset);
+            byte[] tail = readFully(channel, offset - sample, (int) sample);
+            return new FileState(offset, crc(readFully(channel, 0, (int) sample)), crc(tail),
+                    tail.length == 0 ? 0 : tail[tail.length - 1]);
+        }
+
+        /**
+         * @return True if the first bytes of the file still look like the ones read.
+         */
+        boolean matches(FileChannel channel) throws IOException {
+            return channel.size() >= offset && equals(of(channel, offset));
+        }
+
+        /**
+         * @return Number of bytes read.
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return True if the bytes read ended with a line feed, so that what was appended starts a new line.
+         */
+        boolean endsWithNewline() {
+            return lastByte == '\n';
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FileState other = (FileState) o;
+            return offset == other.offset && headCrc == other.headCrc && tailCrc == other.tailCrc
+                    && lastByte == other.lastByte;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(offset) * 31 + headCrc;
+        }
+
+        private static int crc(byte[] bytes) {
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            return (int) crc.getValue();
+        }
+    }
+
+    static byte[] readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buffer.array();
+    }
+}
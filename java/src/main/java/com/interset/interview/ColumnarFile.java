@@ -0,0 +1,217 @@
+package com.interset.interview;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads the columnar files written by {@link ColumnarWriter}: the unique entries of population files, stored so that
+ * the analysis can be run again without parsing any text.
+ *
+ * The file is little endian, with:
+ * - A header: magic, version, number of entries, offset of the dictionaries, offset of the block index, number of
+ *   blocks.
+ * - Blocks of up to {@link #BLOCK_ROWS} entries. Each one has a small header (entries, smallest sibling count, the
+ *   width in bytes of the three columns below, the first timestamp and the size of the timestamps), then one column
+ *   after the other: the siblings minus the smallest, the food ids and the timezone ids, each packed in 1, 2 or 4
+ *   bytes as the largest value of the block needs, then the birth timestamps. The entries of a block are sorted by
+ *   timestamp, so the timestamps are stored as the variable length, zig-zag encoded differences between each one and
+ *   the previous.
+ * - The dictionaries of sanitized foods and of timezones, as counts then lengths and UTF-8 bytes.
+ * - The offsets of the blocks, and the end of the last one.
+ *
+ * A block is mapped at a time and each column scanned in turn, into counts indexed by food id and month. The blocks
+ * can be scanned on several threads, each one counting its blocks into its own arrays.
+ */
+public class ColumnarFile {
+
+    static final String EXTENSION = ".pcol";
+    static final int MAGIC = 0x4c4f4350;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 40;
+    static final int BLOCK_HEADER_BYTES = 24;
+    // Row indexes within a block must fit in 16 bits, see ColumnarWriter.sortByTimestamp().
+    static final int BLOCK_ROWS = 1 << 16;
+
+    private ColumnarFile() {
+    }
+
+    /**
+     * @return True if the file is a columnar file, by its extension.
+     */
+    public static boolean supports(String filePath) {
+        return filePath.toLowerCase().endsWith(EXTENSION);
+    }
+
+    /**
+     * @return Number of bytes needed to store values from 0 to the given one.
+     */
+    static int width(long max) {
+        return max < 1 << 8 ? 1 : max < 1 << 16 ? 2 : 4;
+    }
+
+    /**
+     * Aggregates the entries of the file. They are already unique, so nothing is de-duplicated.
+     *
+     * @param threads Number of threads to scan the blocks on.
+     * @throws IOException If the file is not a columnar file of this version.
+     */
+    public static PopulationResult aggregate(String filePath, int threads) throws Exception {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            MappedByteBuffer header = map(channel, 0, Math.min(HEADER_BYTES, channel.size()));
+            if (header.capacity() < HEADER_BYTES || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a columnar population file: " + filePath);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported columnar file version " + header.getInt(4) + ": " + filePath);
+            }
+            long dictionaryOffset = header.getLong(16);
+            long indexOffset = header.getLong(24);
+            int blocks = header.getInt(32);
+
+            MappedByteBuffer dictionaries = map(channel, dictionaryOffset, indexOffset - dictionaryOffset);
+            String[] foods = readDictionary(dictionaries);
+            String[] timezones = readDictionary(dictionaries);
+            BirthMonthResolver.Zone[] zones = new BirthMonthResolver.Zone[timezones.length];
+            for (int i = 0; i < zones.length; i++) {
+                zones[i] = PopulationCalcUtil.getBirthZone(timezones[i]);
+            }
+            MappedByteBuffer index = map(channel, indexOffset, Long.BYTES * (blocks + 1L));
+            long[] blockOffsets = new long[blocks + 1];
+            for (int i = 0; i <= blocks; i++) {
+                blockOffsets[i] = index.getLong(i * Long.BYTES);
+            }
+
+            // Contiguous ranges of blocks, one per thread.
+            int tasks = Math.max(1, Math.min(threads, blocks));
+            List<Counts> counts = new ArrayList<>();
+            ExecutorService executor = Executors.newFixedThreadPool(tasks);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int task = 0; task < tasks; task++) {
+                    Counts taskCounts = new Counts(foods.length);
+                    counts.add(taskCounts);
+                    int from = (int) ((long) blocks * task / tasks);
+                    int to = (int) ((long) blocks * (task + 1) / tasks);
+                    futures.add(executor.submit(() -> {
+                        for (int block = from; block < to; block++) {
+                            taskCounts.scan(map(channel, blockOffsets[block],
+                                    blockOffsets[block + 1] - blockOffsets[block]), zones);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            Counts total = new Counts(foods.length);
+            for (Counts taskCounts : counts) {
+                total.add(taskCounts);
+            }
+            PopulationResult result = new PopulationResult();
+            result.addCounts(total.siblings, foods, total.foodCounts, total.birthMonthCounts);
+            return result;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Reads a dictionary from the position of the buffer, and moves the position past it.
+     */
+    private static String[] readDictionary(MappedByteBuffer buffer) {
+        String[] values = new String[buffer.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    /**
+     * Counts of the blocks scanned by one thread.
+     */
+    private static class Counts {
+
+        private final SiblingHistogram siblings = new SiblingHistogram();
+        private final long[] foodCounts;
+        private final long[] birthMonthCounts = new long[Month.values().length];
+
+        Counts(int foods) {
+            foodCounts = new long[foods];
+        }
+
+        void scan(MappedByteBuffer block, BirthMonthResolver.Zone[] zones) {
+            int rows = block.getInt(0);
+            int minSiblings = block.getInt(4);
+            int siblingsWidth = block.get(8);
+            int foodWidth = block.get(9);
+            int zoneWidth = block.get(10);
+            long timestamp = block.getLong(12);
+
+            int position = BLOCK_HEADER_BYTES;
+            for (int i = 0; i < rows; i++, position += siblingsWidth) {
+                siblings.add(minSiblings + (int) get(block, position, siblingsWidth));
+            }
+
+            for (int i = 0; i < rows; i++, position += foodWidth) {
+                foodCounts[(int) get(block, position, foodWidth)]++;
+            }
+
+            int zonePosition = position;
+            position += rows * zoneWidth;
+            for (int i = 0; i < rows; i++, zonePosition += zoneWidth) {
+                long value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = block.get(position++);
+                    value |= (long) (b & 0x7f) << shift;
+                    shift += 7;
+                } while (b < 0);
+                timestamp += (value >>> 1) ^ -(value & 1);
+                birthMonthCounts[zones[(int) get(block, zonePosition, zoneWidth)].getMonth(timestamp).ordinal()]++;
+            }
+        }
+
+        void add(Counts other) {
+            siblings.merge(other.siblings);
+            for (int i = 0; i < foodCounts.length; i++) {
+                foodCounts[i] += other.foodCounts[i];
+            }
+            for (int i = 0; i < birthMonthCounts.length; i++) {
+                birthMonthCounts[i] += other.birthMonthCounts[i];
+            }
+        }
+
+        private static long get(MappedByteBuffer block, int position, int width) {
+            switch (width) {
+                case 1:
+                    return block.get(position) & 0xff;
+                case 2:
+                    return block.getShort(position) & 0xffff;
+                default:
+                    return block.getInt(position) & 0xffffffffL;
+            }
+        }
+    }
+}
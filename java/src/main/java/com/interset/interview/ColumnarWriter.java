@@ -0,0 +1,310 @@
+package com.interset.interview;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Converts population files into a {@link ColumnarFile}, keeping the unique entries only.
+ *
+ * The entries are buffered a block at a time, then written column by column (see {@link ColumnarFile} for the
+ * layout). The foods are sanitized and the timezones validated here, so that reading the file back only has to count.
+ * The dictionaries and block index are written at the end, and the header last. The file is written to a temporary
+ * file next to it and moved in place by {@link #finish()}, so that a failed conversion leaves no file behind.
+ *
+ * Usage: convert_population.sh <path/to/json_or_csv>... <path/to/output.pcol>
+ */
+public class ColumnarWriter implements PopulationSink, Closeable {
+
+    private final Path path;
+    private final Path temp;
+    private final FileChannel channel;
+    private final PopulationDeduplicator deduplicator;
+
+    private final FoodZoneDictionary dictionary = new FoodZoneDictionary();
+
+    private final int[] siblings = new int[ColumnarFile.BLOCK_ROWS];
+    private final int[] foodIds = new int[ColumnarFile.BLOCK_ROWS];
+    private final int[] zoneIds = new int[ColumnarFile.BLOCK_ROWS];
+    private final long[] timestamps = new long[ColumnarFile.BLOCK_ROWS];
+    private final long[] order = new long[ColumnarFile.BLOCK_ROWS];
+    private int blockRows = 0;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(ColumnarFile.BLOCK_HEADER_BYTES
+            + ColumnarFile.BLOCK_ROWS * (3 * Integer.BYTES + 10)).order(ByteOrder.LITTLE_ENDIAN);
+    private final List<Long> blockOffsets = new ArrayList<>();
+    private long rows = 0;
+    private boolean finished = false;
+
+    /**
+     * @param filePath File to write, replaced if it exists once {@link #finish()} is called.
+     * @param deduplicator Finds the duplicates, which are not written.
+     */
+    public ColumnarWriter(String filePath, PopulationDeduplicator deduplicator) throws IOException {
+        this.path = Paths.get(filePath).toAbsolutePath();
+        this.temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        this.channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+        this.deduplicator = deduplicator;
+        channel.position(ColumnarFile.HEADER_BYTES);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || !ColumnarFile.supports(args[args.length - 1])) {
+            System.out.println("Usage: convert_population.sh <path/to/json_or_csv>... <path/to/output"
+                    + ColumnarFile.EXTENSION + ">");
+            System.exit(1);
+        }
+        String output = args[args.length - 1];
+        List<String> filePaths = InputFiles.expand(Arrays.asList(args).subList(0, args.length - 1));
+        long inputBytes = 0;
+        PopulationDeduplicator deduplicator = new PopulationDeduplicator();
+        try (ColumnarWriter writer = new ColumnarWriter(output, deduplicator)) {
+            for (String filePath : filePaths) {
+                new Runner().streamPopulation(filePath, writer);
+                inputBytes += Files.size(Paths.get(filePath));
+            }
+            writer.finish();
+            System.out.println(String.format("%,d unique entries (%,d duplicates dropped)", writer.getRows(),
+                    deduplicator.getDuplicates()));
+        }
+        long outputBytes = Files.size(Paths.get(output));
+        System.out.println(String.format("%,d bytes read, %,d bytes written (%.1f%%)", inputBytes, outputBytes,
+                outputBytes * 100.0 / Math.max(1, inputBytes)));
+    }
+
+    @Override
+    public boolean add(PopulationEntryDto populationEntryDto) {
+        if (!deduplicator.add(populationEntryDto)) {
+            return false;
+        }
+        append(populationEntryDto.getSiblings(), populationEntryDto.getFavouriteFood(),
+                populationEntryDto.getBirthTimezone(), populationEntryDto.getBirthTimeStamp());
+        return true;
+    }
+
+    @Override
+    public boolean add(PopulationRecord populationRecord) {
+        if (!deduplicator.add(populationRecord)) {
+            return false;
+        }
+        append(populationRecord.getSiblings(), populationRecord.getFavouriteFood(),
+                populationRecord.getBirthTimezone(), populationRecord.getBirthTimeStamp());
+        return true;
+    }
+
+    @Override
+    public boolean needsNames() {
+        return deduplicator.isExactVerify();
+    }
+
+    /**
+     * @return Number of entries written so far.
+     */
+    public long getRows() {
+        return rows + blockRows;
+    }
+
+    private void append(int siblingCount, String favouriteFood, String birthTimezone, long birthTimeStamp) {
+        int foodId = dictionary.foodId(favouriteFood);
+        // Fails on an invalid timezone, as aggregating would.
+        int zoneId = dictionary.zoneId(birthTimezone);
+
+        siblings[blockRows] = siblingCount;
+        foodIds[blockRows] = foodId;
+        zoneIds[blockRows] = zoneId;
+        timestamps[blockRows] = birthTimeStamp;
+        blockRows++;
+        if (blockRows == ColumnarFile.BLOCK_ROWS) {
+            try {
+                writeBlock();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (blockRows == 0) {
+            return;
+        }
+        sortByTimestamp();
+        long minSiblings = Long.MAX_VALUE;
+        long maxSiblings = Long.MIN_VALUE;
+        int maxFoodId = 0;
+        int maxZoneId = 0;
+        for (int i = 0; i < blockRows; i++) {
+            minSiblings = Math.min(minSiblings, siblings[i]);
+            maxSiblings = Math.max(maxSiblings, siblings[i]);
+            maxFoodId = Math.max(maxFoodId, foodIds[i]);
+            maxZoneId = Math.max(maxZoneId, zoneIds[i]);
+        }
+        int siblingsWidth = ColumnarFile.width(maxSiblings - minSiblings);
+        int foodWidth = ColumnarFile.width(maxFoodId);
+        int zoneWidth = ColumnarFile.width(maxZoneId);
+
+        buffer.clear();
+        buffer.putInt(blockRows);
+        buffer.putInt((int) minSiblings);
+        buffer.put((byte) siblingsWidth);
+        buffer.put((byte) foodWidth);
+        buffer.put((byte) zoneWidth);
+        buffer.put((byte) 0);
+        buffer.putLong(timestamps[row(0)]);
+        int timestampBytesAt = buffer.position();
+        buffer.putInt(0);
+        for (int i = 0; i < blockRows; i++) {
+            put(buffer, siblings[row(i)] - (int) minSiblings, siblingsWidth);
+        }
+        for (int i = 0; i < blockRows; i++) {
+            put(buffer, foodIds[row(i)], foodWidth);
+        }
+        for (int i = 0; i < blockRows; i++) {
+            put(buffer, zoneIds[row(i)], zoneWidth);
+        }
+        int timestampsStart = buffer.position();
+        long previous = timestamps[row(0)];
+        for (int i = 0; i < blockRows; i++) {
+            long timestamp = timestamps[row(i)];
+            long delta = timestamp - previous;
+            previous = timestamp;
+            // Zig-zag, so that small negative deltas are small too.
+            long value = (delta << 1) ^ (delta >> 63);
+            while ((value & ~0x7fL) != 0) {
+                buffer.put((byte) (value | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+        buffer.putInt(timestampBytesAt, buffer.position() - timestampsStart);
+
+        blockOffsets.add(channel.position());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        rows += blockRows;
+        blockRows = 0;
+    }
+
+    /**
+     * Orders the rows of the block by timestamp, in {@link #order}, so that the deltas between them are small. If the
+     * timestamps are too far apart to sort them this way, which would be thousands of years, they keep their order.
+     */
+    private void sortByTimestamp() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < blockRows; i++) {
+            min = Math.min(min, timestamps[i]);
+            max = Math.max(max, timestamps[i]);
+        }
+        boolean sortable = max - min >= 0 && max - min < 1L << 47;
+        for (int i = 0; i < blockRows; i++) {
+            order[i] = sortable ? (timestamps[i] - min) << 16 | i : i;
+        }
+        if (sortable) {
+            Arrays.sort(order, 0, blockRows);
+        }
+    }
+
+    private int row(int i) {
+        return (int) (order[i] & 0xffff);
+    }
+
+    private static void put(ByteBuffer buffer, int value, int width) {
+        switch (width) {
+            case 1:
+                buffer.put((byte) value);
+                break;
+            case 2:
+                buffer.putShort((short) value);
+                break;
+            default:
+                buffer.putInt(value);
+        }
+    }
+
+    /**
+     * Writes the last block, the dictionaries, the block index and the header, and moves the file in place. Entries
+     * can't be added afterwards.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            writeBlock();
+            long dictionaryOffset = channel.position();
+            writeDictionary(dictionary.getFoods());
+            writeDictionary(dictionary.getTimezones());
+
+            long indexOffset = channel.position();
+            ByteBuffer index = ByteBuffer.allocate(Long.BYTES * (blockOffsets.size() + 1))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for (long offset : blockOffsets) {
+                index.putLong(offset);
+            }
+            // The end of the last block.
+            index.putLong(dictionaryOffset);
+            writeFully(index);
+
+            ByteBuffer header = ByteBuffer.allocate(ColumnarFile.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(ColumnarFile.MAGIC);
+            header.putInt(ColumnarFile.VERSION);
+            header.putLong(rows);
+            header.putLong(dictionaryOffset);
+            header.putLong(indexOffset);
+            header.putInt(blockOffsets.size());
+            channel.position(0);
+            writeFully(header);
+        } finally {
+            channel.close();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Deletes the temporary file if {@link #finish()} was not called.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(temp);
+    }
+
+    private void writeDictionary(String[] dictionary) throws IOException {
+        int bytes = Integer.BYTES;
+        List<byte[]> values = new ArrayList<>();
+        for (String entry : dictionary) {
+            byte[] value = entry.getBytes(StandardCharsets.UTF_8);
+            values.add(value);
+            bytes += Integer.BYTES + value.length;
+        }
+        ByteBuffer dictionaryBuffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        dictionaryBuffer.putInt(values.size());
+        for (byte[] value : values) {
+            dictionaryBuffer.putInt(value.length);
+            dictionaryBuffer.put(value);
+        }
+        writeFully(dictionaryBuffer);
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
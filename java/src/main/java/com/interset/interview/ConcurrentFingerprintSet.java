@@ -0,0 +1,84 @@
+package com.interset.interview;
+
+/**
+ * Thread safe set of fingerprints, shared by the threads of a parallel read so that duplicates are found across them.
+ *
+ * Fingerprints are hash partitioned into {@link FingerprintSet}s, each one guarded by its own lock. With many more
+ * partitions than threads, two threads rarely wait on each other.
+ */
+public class ConcurrentFingerprintSet implements FingerprintStore {
+
+    private final FingerprintSet[] partitions;
+    private final int mask;
+
+    /**
+     * @param threads Number of threads that will be adding fingerprints.
+     */
+    public ConcurrentFingerprintSet(int threads) {
+        this(threads, 0);
+    }
+
+    /**
+     * @param threads Number of threads that will be adding fingerprints.
+     * @param expectedSize Number of unique fingerprints expected. The partitions are sized so that they don't need to
+     *                     grow.
+     */
+    public ConcurrentFingerprintSet(int threads, long expectedSize) {
+        int count = Integer.highestOneBit(Math.max(1, threads) * 64 - 1) << 1;
+        partitions = new FingerprintSet[count];
+        for (int i = 0; i < count; i++) {
+            partitions[i] = new FingerprintSet((int) Math.min(Integer.MAX_VALUE, expectedSize / count * 11 / 10));
+        }
+        mask = count - 1;
+    }
+
+    @Override
+    public boolean add(long hi, long lo) {
+        // FingerprintSet picks slots from the high bits of hi, so partition on different bits.
+        FingerprintSet partition = partitions[(int) lo & mask];
+        synchronized (partition) {
+            return partition.add(hi, lo);
+        }
+    }
+
+    @Override
+    public boolean contains(long hi, long lo) {
+        FingerprintSet partition = partitions[(int) lo & mask];
+        synchronized (partition) {
+            return partition.contains(hi, lo);
+        }
+    }
+
+    @Override
+    public void forEach(FingerprintConsumer consumer) {
+        for (FingerprintSet partition : partitions) {
+            synchronized (partition) {
+                partition.forEach(consumer);
+            }
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (FingerprintSet partition : partitions) {
+            synchronized (partition) {
+                size += partition.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public double bytesPerEntry() {
+        double bytes = 0;
+        long size = 0;
+        for (FingerprintSet partition : partitions) {
+            synchronized (partition) {
+                bytes += partition.bytesPerEntry() * partition.size();
+                size += partition.size();
+            }
+        }
+        return size == 0 ? 0 : bytes / size;
+    }
+}
@@ -0,0 +1,183 @@
+package com.interset.interview;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Follows an uncompressed CSV or newline delimited JSON file that is being appended to, adding the rows to an
+ * aggregator as they are written, like "tail -f".
+ *
+ * Each {@link #poll()} reads the bytes written since the last one into a reused buffer and parses the complete lines,
+ * so its cost only depends on what was appended. A line that is still being written is kept in the buffer until its
+ * line feed is. The file is read rather than mapped, since a mapped file that shrinks makes the reads crash.
+ *
+ * When the file shrinks (truncated in place, as logrotate's copytruncate does) or the path now leads to another file
+ * (moved away and recreated), the new file is read from its start, header included. What was left of a moved file is
+ * read first. The aggregator keeps the rows of every file, so the results cover everything written to the path. A
+ * truncated file is only noticed if it is polled before it grows back past where it was read up to.
+ */
+public class FileFollower implements Closeable {
+
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private final Path path;
+    private final boolean csv;
+    private final PopulationAggregator aggregator;
+    private final PopulationCsvParser parser = new PopulationCsvParser();
+    private final PopulationRecord record = new PopulationRecord();
+
+    private byte[] bytes = new byte[INITIAL_BUFFER_BYTES];
+    private ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    // Bytes at the start of the buffer that are the beginning of a line not written in full yet.
+    private int pending = 0;
+
+    private FileChannel channel;
+    private Object fileKey;
+    // Offset in the file of the next byte to read.
+    private long position = 0;
+    private boolean skipHeader;
+    private int restarts = 0;
+
+    /**
+     * @param filePath Path to an uncompressed CSV or newline delimited JSON file. It does not need to exist yet.
+     * @param aggregator Aggregator to add the rows to.
+     */
+    public FileFollower(String filePath, PopulationAggregator aggregator) {
+        this.path = Paths.get(filePath);
+        this.csv = Runner.getFormat(filePath).equals("csv");
+        this.aggregator = aggregator;
+        parser.setReadNames(aggregator.needsNames());
+    }
+
+    /**
+     * @return True if the file is in a format that can be followed.
+     */
+    public static boolean supports(String filePath) {
+        String lowerCase = filePath.toLowerCase();
+        return !lowerCase.endsWith(".gz") && (lowerCase.endsWith(".csv") || lowerCase.endsWith(".ndjson")
+                || lowerCase.endsWith(".jsonl"));
+    }
+
+    /**
+     * Reads what was written to the file since the last call.
+     *
+     * @return Number of rows read, duplicates included.
+     * @throws IOException If the file can't be read, or a complete line is malformed.
+     */
+    public long poll() throws IOException {
+        long rowsBefore = rows();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            // Moved away and not recreated yet.
+            if (channel != null) {
+                readAvailable();
+            }
+            return rows() - rowsBefore;
+        }
+
+        if (channel != null && !Objects.equals(attributes.fileKey(), fileKey)) {
+            readAvailable();
+            restart();
+        } else if (channel != null && attributes.size() < position) {
+            restart();
+        }
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            fileKey = attributes.fileKey();
+            position = 0;
+            pending = 0;
+            skipHeader = csv;
+        }
+        readAvailable();
+        return rows() - rowsBefore;
+    }
+
+    /**
+     * @return How many times the file was truncated or replaced, and read again from its start.
+     */
+    public int getRestarts() {
+        return restarts;
+    }
+
+    public PopulationAggregator getAggregator() {
+        return aggregator;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void restart() throws IOException {
+        close();
+        restarts++;
+    }
+
+    private void readAvailable() throws IOException {
+        while (true) {
+            if (pending == bytes.length) {
+                // A line longer than the buffer.
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                buffer = ByteBuffer.wrap(bytes);
+            }
+            buffer.clear().position(pending);
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return;
+            }
+            position += read;
+            int limit = pending + read;
+            int parsed = csv ? parseCsv(limit) : parseJson(limit);
+            System.arraycopy(bytes, parsed, bytes, 0, limit - parsed);
+            pending = limit - parsed;
+        }
+    }
+
+    /**
+     * @return Bytes of the buffer that were parsed.
+     */
+    private int parseCsv(int limit) throws IOException {
+        parser.reset(buffer, 0, limit, false, position - limit);
+        if (skipHeader) {
+            if (!parser.skipLine()) {
+                return 0;
+            }
+            skipHeader = false;
+        }
+        while (parser.next(record)) {
+            aggregator.add(record);
+        }
+        return parser.getPosition();
+    }
+
+    private int parseJson(int limit) throws IOException {
+        int end = limit;
+        while (end > 0 && bytes[end - 1] != '\n') {
+            end--;
+        }
+        if (end > 0) {
+            Runner.parseJson(new ByteArrayInputStream(bytes, 0, end), aggregator::add);
+        }
+        return end;
+    }
+
+    private long rows() {
+        return aggregator.getResult().getSize() + aggregator.getDuplicates();
+    }
+}
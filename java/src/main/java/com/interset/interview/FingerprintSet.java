@@ -0,0 +1,173 @@
+package com.interset.interview;
+
+/**
+ * Set of 128-bit fingerprints (see {@link PopulationFingerprint}), stored in a flat long[] with no object per entry.
+ *
+ * Open addressing with linear probing and Robin Hood insertion, which keeps probe sequences short enough to run the
+ * table at a high load. The capacity is not a power of two: slots are picked with a multiply-shift on the fingerprint,
+ * so the table can grow in small steps. At 16 bytes per slot this is between 18 and 22 bytes per unique entry.
+ *
+ * A fingerprint of (0, 0) marks an empty slot. It is stored as (0, 1) instead.
+ *
+ * Not thread safe.
+ */
+public class FingerprintSet implements FingerprintStore {
+
+    static final double MAX_LOAD = 0.9;
+    static final double GROWTH = 1.2;
+    static final int MIN_CAPACITY = 16;
+    static final int MAX_CAPACITY = (Integer.MAX_VALUE - 8) / 2;
+
+    private long[] table;
+    private int capacity;
+    private int size;
+    private int resizeAt;
+
+    public FingerprintSet() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize Number of unique fingerprints expected. The table is sized so that it doesn't need to grow.
+     */
+    public FingerprintSet(int expectedSize) {
+        allocate((int) Math.min(MAX_CAPACITY, Math.max(MIN_CAPACITY, (long) Math.ceil(expectedSize / MAX_LOAD))));
+    }
+
+    @Override
+    public boolean add(long hi, long lo) {
+        if (hi == 0 && lo == 0) {
+            lo = 1;
+        }
+        if (size >= resizeAt) {
+            grow();
+        }
+        return insert(hi, lo);
+    }
+
+    @Override
+    public boolean contains(long hi, long lo) {
+        if (hi == 0 && lo == 0) {
+            lo = 1;
+        }
+        int slot = home(hi);
+        for (int dist = 0; ; dist++) {
+            long slotHi = table[slot * 2];
+            long slotLo = table[slot * 2 + 1];
+            if (slotHi == hi && slotLo == lo) {
+                return true;
+            }
+            // Robin Hood invariant: had it been here, it would have taken this slot.
+            if ((slotHi == 0 && slotLo == 0) || distance(slot, home(slotHi)) < dist) {
+                return false;
+            }
+            slot = next(slot);
+        }
+    }
+
+    @Override
+    public void forEach(FingerprintConsumer consumer) {
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != 0 || table[i + 1] != 0) {
+                consumer.accept(table[i], table[i + 1]);
+            }
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public double bytesPerEntry() {
+        return size == 0 ? 0 : table.length * 8.0 / size;
+    }
+
+    private boolean insert(long hi, long lo) {
+        int slot = home(hi);
+        int dist = 0;
+        while (true) {
+            long slotHi = table[slot * 2];
+            long slotLo = table[slot * 2 + 1];
+            if (slotHi == 0 && slotLo == 0) {
+                table[slot * 2] = hi;
+                table[slot * 2 + 1] = lo;
+                size++;
+                return true;
+            }
+            if (slotHi == hi && slotLo == lo) {
+                return false;
+            }
+            int slotDist = distance(slot, home(slotHi));
+            if (slotDist < dist) {
+                // Not in the set (see contains). Take the slot from the richer entry and find a new place for it.
+                table[slot * 2] = hi;
+                table[slot * 2 + 1] = lo;
+                displace(slotHi, slotLo, next(slot), slotDist + 1);
+                size++;
+                return true;
+            }
+            slot = next(slot);
+            dist++;
+        }
+    }
+
+    private void displace(long hi, long lo, int slot, int dist) {
+        while (true) {
+            long slotHi = table[slot * 2];
+            long slotLo = table[slot * 2 + 1];
+            if (slotHi == 0 && slotLo == 0) {
+                table[slot * 2] = hi;
+                table[slot * 2 + 1] = lo;
+                return;
+            }
+            int slotDist = distance(slot, home(slotHi));
+            if (slotDist < dist) {
+                table[slot * 2] = hi;
+                table[slot * 2 + 1] = lo;
+                hi = slotHi;
+                lo = slotLo;
+                dist = slotDist;
+            }
+            slot = next(slot);
+            dist++;
+        }
+    }
+
+    private void grow() {
+        if (capacity == MAX_CAPACITY) {
+            throw new IllegalStateException("Fingerprint set is full at " + size + " entries");
+        }
+        long[] oldTable = table;
+        allocate((int) Math.min(MAX_CAPACITY, Math.max(capacity + 1L, (long) (capacity * GROWTH))));
+        for (int i = 0; i < oldTable.length; i += 2) {
+            if (oldTable[i] != 0 || oldTable[i + 1] != 0) {
+                insert(oldTable[i], oldTable[i + 1]);
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        table = new long[newCapacity * 2];
+        size = 0;
+        resizeAt = (int) Math.min(newCapacity - 1L, (long) (newCapacity * MAX_LOAD));
+    }
+
+    private int home(long hi) {
+        return (int) (((hi >>> 32) * capacity) >>> 32);
+    }
+
+    private int distance(int slot, int home) {
+        return slot >= home ? slot - home : slot + capacity - home;
+    }
+
+    private int next(int slot) {
+        return slot + 1 == capacity ? 0 : slot + 1;
+    }
+}
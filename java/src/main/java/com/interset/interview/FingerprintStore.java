@@ -0,0 +1,42 @@
+package com.interset.interview;
+
+/**
+ * Somewhere to keep the 128-bit fingerprints of unique population entries (see {@link PopulationFingerprint}).
+ */
+public interface FingerprintStore {
+
+    /**
+     * @return True if the fingerprint was not in the store yet.
+     */
+    boolean add(long hi, long lo);
+
+    boolean contains(long hi, long lo);
+
+    /**
+     * Hands every fingerprint stored to the consumer, in no particular order.
+     */
+    void forEach(FingerprintConsumer consumer);
+
+    /**
+     * @return Number of unique fingerprints stored.
+     */
+    long size();
+
+    /**
+     * @return Bytes of memory used per unique fingerprint stored.
+     */
+    double bytesPerEntry();
+
+    /**
+     * Probability that at least two different entries seen so far were given the same fingerprint, in which case one of
+     * them is wrongly counted as a duplicate. Birthday bound for {@link #size()} random 128-bit values.
+     */
+    default double collisionProbability() {
+        long entries = size();
+        return Math.min(1.0, Math.scalb((double) entries * (entries - 1), -129));
+    }
+
+    interface FingerprintConsumer {
+        void accept(long hi, long lo);
+    }
+}
@@ -0,0 +1,134 @@
+package com.interset.interview;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary ids of the favourite foods and birth timezones of the entries, for the aggregators that count them in
+ * arrays indexed by id.
+ *
+ * A favourite food is sanitized (see {@link PopulationEntryDto#sanitizeFood(String)}) the first time its value as read
+ * is seen, and gets the id of its sanitized value, so that foods only differing in case or spacing share an id. A
+ * timezone is validated and its {@link BirthMonthResolver.Zone} looked up the first time it is seen. Once every value
+ * has been seen, looking one up does not create any object.
+ *
+ * The ids of each kind are dense and handed out in the order the values are first seen, so a caller counting by id
+ * only has to grow its arrays when an id equals their length. Not thread safe.
+ */
+public class FoodZoneDictionary {
+
+    // Sanitized foods, and the id of the sanitized value of each food as read.
+    private final StringDictionary foods = new StringDictionary();
+    private final StringDictionary rawFoods = new StringDictionary();
+    private int[] rawFoodIds = new int[32];
+
+    private final StringDictionary timezones = new StringDictionary();
+    private BirthMonthResolver.Zone[] zones = new BirthMonthResolver.Zone[32];
+
+    /**
+     * @param favouriteFood Favourite food as read, it is sanitized here.
+     * @return The id of the sanitized food, added to the dictionary if it is not already in it.
+     */
+    public int foodId(String favouriteFood) {
+        int rawId = rawFoods.find(favouriteFood);
+        if (rawId < 0) {
+            int foodId = foods.id(PopulationEntryDto.sanitizeFood(favouriteFood));
+            rawId = rawFoods.id(favouriteFood);
+            if (rawId == rawFoodIds.length) {
+                rawFoodIds = Arrays.copyOf(rawFoodIds, rawId * 2);
+            }
+            rawFoodIds[rawId] = foodId;
+        }
+        return rawFoodIds[rawId];
+    }
+
+    /**
+     * @return The id of a food that is already sanitized, e.g. read from a checkpoint, added to the dictionary if it is
+     * not already in it.
+     */
+    public int sanitizedFoodId(String sanitizedFood) {
+        return foods.id(sanitizedFood);
+    }
+
+    /**
+     * @return The id of the sanitized food, or -1 if it is not in the dictionary.
+     */
+    public int findSanitizedFood(String sanitizedFood) {
+        return foods.find(sanitizedFood);
+    }
+
+    public String getFood(int foodId) {
+        return foods.get(foodId);
+    }
+
+    /**
+     * @return The number of distinct sanitized foods. Their ids go from 0 to this number, excluded.
+     */
+    public int getFoodCount() {
+        return foods.size();
+    }
+
+    /**
+     * @return The sanitized foods, indexed by id.
+     */
+    public String[] getFoods() {
+        return values(foods);
+    }
+
+    /**
+     * @return The number of distinct foods as read, before they are sanitized.
+     */
+    int getRawFoodCount() {
+        return rawFoods.size();
+    }
+
+    /**
+     * @return The id of the timezone, added to the dictionary if it is not already in it.
+     * @throws java.time.DateTimeException If the timezone is invalid. It is not added then.
+     */
+    public int zoneId(String birthTimezone) {
+        int zoneId = timezones.find(birthTimezone);
+        if (zoneId < 0) {
+            // Validates the timezone before it is added.
+            BirthMonthResolver.Zone zone = PopulationCalcUtil.getBirthZone(birthTimezone);
+            zoneId = timezones.id(birthTimezone);
+            if (zoneId == zones.length) {
+                zones = Arrays.copyOf(zones, zoneId * 2);
+            }
+            zones[zoneId] = zone;
+        }
+        return zoneId;
+    }
+
+    /**
+     * @return The months of the timezone with the given id.
+     */
+    public BirthMonthResolver.Zone getZone(int zoneId) {
+        return zones[zoneId];
+    }
+
+    public String getTimezone(int zoneId) {
+        return timezones.get(zoneId);
+    }
+
+    /**
+     * @return The number of distinct timezones. Their ids go from 0 to this number, excluded.
+     */
+    public int getTimezoneCount() {
+        return timezones.size();
+    }
+
+    /**
+     * @return The timezones, indexed by id.
+     */
+    public String[] getTimezones() {
+        return values(timezones);
+    }
+
+    private static String[] values(StringDictionary dictionary) {
+        String[] values = new String[dictionary.size()];
+        for (int id = 0; id < values.length; id++) {
+            values[id] = dictionary.get(id);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,324 @@
+package com.interset.interview;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Runs any number of {@link GroupByQuery}s over the unique entries, in a single pass.
+ *
+ * Each entry is de-duplicated like {@link PopulationAggregator} does, then the dimensions the queries need are worked
+ * out once: the foods and timezones become dictionary ids (see {@link FoodZoneDictionary}), the month comes from
+ * {@link BirthMonthResolver}, and the year and weekday from the local day, using the timezone's fixed offset when it
+ * has one. Each query then packs its dimensions into a long key and adds the entry to its {@link GroupTable}.
+ *
+ * The built-in queries (see {@link GroupByQuery#parse(String, int)}) give the same results as {@link PopulationResult}:
+ * the average of the siblings is rounded up, and every month is listed, with or without births.
+ *
+ * Not thread safe.
+ */
+public class GroupByEngine implements PopulationSink {
+
+    private static final GroupByQuery.Dimension[] DIMENSIONS = GroupByQuery.Dimension.values();
+    private static final long SECONDS_PER_DAY = 24L * 3600;
+    // ZoneOffset seconds are within +/-18 hours, this marks a timezone without a fixed offset.
+    private static final int NO_FIXED_OFFSET = Integer.MIN_VALUE;
+
+    private final List<GroupByQuery> queries;
+    private final GroupTable[] tables;
+    private final GroupByQuery.Dimension[][] queryDimensions;
+    private final PopulationDeduplicator deduplicator;
+
+    // Dimensions needed by any query, and their values for the entry being added.
+    private final boolean[] needed = new boolean[DIMENSIONS.length];
+    private final long[] values = new long[DIMENSIONS.length];
+
+    private final FoodZoneDictionary dictionary = new FoodZoneDictionary();
+    // Rules of the timezones, by zone id, for the ones seen so far.
+    private int zoneCount = 0;
+    private ZoneRules[] zoneRules = new ZoneRules[32];
+    private int[] fixedOffsetSeconds = new int[32];
+
+    public GroupByEngine(List<GroupByQuery> queries, PopulationDeduplicator deduplicator) {
+        this.queries = new ArrayList<>(queries);
+        this.deduplicator = deduplicator;
+        this.tables = new GroupTable[queries.size()];
+        this.queryDimensions = new GroupByQuery.Dimension[queries.size()][];
+        for (int i = 0; i < tables.length; i++) {
+            tables[i] = new GroupTable(queries.get(i));
+            queryDimensions[i] = queries.get(i).getDimensions().toArray(new GroupByQuery.Dimension[0]);
+            for (GroupByQuery.Dimension dimension : queryDimensions[i]) {
+                needed[dimension.ordinal()] = true;
+            }
+        }
+    }
+
+    @Override
+    public boolean add(PopulationEntryDto populationEntryDto) {
+        if (!deduplicator.add(populationEntryDto)) {
+            return false;
+        }
+        addEntry(populationEntryDto.getSiblings(), populationEntryDto.getFavouriteFood(),
+                populationEntryDto.getBirthTimezone(), populationEntryDto.getBirthTimeStamp());
+        return true;
+    }
+
+    @Override
+    public boolean add(PopulationRecord populationRecord) {
+        if (!deduplicator.add(populationRecord)) {
+            return false;
+        }
+        addEntry(populationRecord.getSiblings(), populationRecord.getFavouriteFood(),
+                populationRecord.getBirthTimezone(), populationRecord.getBirthTimeStamp());
+        return true;
+    }
+
+    @Override
+    public boolean needsNames() {
+        return deduplicator.isExactVerify();
+    }
+
+    public long getDuplicates() {
+        return deduplicator.getDuplicates();
+    }
+
+    private void addEntry(int siblings, String favouriteFood, String birthTimezone, long birthTimeStamp) {
+        // Every timezone is looked up, so that an invalid one fails as it does in PopulationResult.
+        int zoneId = zoneId(birthTimezone);
+        if (needed[GroupByQuery.Dimension.MONTH.ordinal()]) {
+            values[GroupByQuery.Dimension.MONTH.ordinal()] = dictionary.getZone(zoneId).getMonth(birthTimeStamp)
+                    .getValue();
+        }
+        if (needed[GroupByQuery.Dimension.YEAR.ordinal()] || needed[GroupByQuery.Dimension.WEEKDAY.ordinal()]) {
+            int offsetSeconds = fixedOffsetSeconds[zoneId];
+            if (offsetSeconds == NO_FIXED_OFFSET) {
+                offsetSeconds = zoneRules[zoneId].getOffset(Instant.ofEpochMilli(birthTimeStamp)).getTotalSeconds();
+            }
+            long epochDay = Math.floorDiv(Math.floorDiv(birthTimeStamp, 1000L) + offsetSeconds, SECONDS_PER_DAY);
+            if (needed[GroupByQuery.Dimension.YEAR.ordinal()]) {
+                values[GroupByQuery.Dimension.YEAR.ordinal()] = LocalDate.ofEpochDay(epochDay).getYear();
+            }
+            // The epoch was a Thursday.
+            values[GroupByQuery.Dimension.WEEKDAY.ordinal()] = Math.floorMod(epochDay + 3, 7) + 1;
+        }
+        values[GroupByQuery.Dimension.TIMEZONE.ordinal()] = zoneId;
+        if (needed[GroupByQuery.Dimension.FOOD.ordinal()]) {
+            values[GroupByQuery.Dimension.FOOD.ordinal()] = foodId(favouriteFood);
+        }
+        values[GroupByQuery.Dimension.SIBLINGS.ordinal()] = siblings;
+
+        for (int i = 0; i < tables.length; i++) {
+            long key = 0;
+            for (GroupByQuery.Dimension dimension : queryDimensions[i]) {
+                key = key << dimension.getBits() | (values[dimension.ordinal()] & mask(dimension));
+            }
+            tables[i].add(key, siblings, birthTimeStamp);
+        }
+    }
+
+    private int foodId(String favouriteFood) {
+        int foodId = dictionary.foodId(favouriteFood);
+        if (foodId > mask(GroupByQuery.Dimension.FOOD)) {
+            throw new IllegalStateException("More than " + mask(GroupByQuery.Dimension.FOOD) + " foods to group by");
+        }
+        return foodId;
+    }
+
+    private int zoneId(String birthTimezone) {
+        int zoneId = dictionary.zoneId(birthTimezone);
+        if (zoneId == zoneCount) {
+            // First entry in this timezone.
+            if (zoneId > mask(GroupByQuery.Dimension.TIMEZONE)) {
+                throw new IllegalStateException("More than " + mask(GroupByQuery.Dimension.TIMEZONE)
+                        + " timezones to group by");
+            }
+            ZoneRules rules = ZoneId.of(birthTimezone).getRules();
+            if (zoneId == zoneRules.length) {
+                zoneRules = Arrays.copyOf(zoneRules, zoneId * 2);
+                fixedOffsetSeconds = Arrays.copyOf(fixedOffsetSeconds, zoneId * 2);
+            }
+            zoneRules[zoneId] = rules;
+            fixedOffsetSeconds[zoneId] = rules.isFixedOffset()
+                    ? rules.getOffset(Instant.EPOCH).getTotalSeconds() : NO_FIXED_OFFSET;
+            zoneCount++;
+        }
+        return zoneId;
+    }
+
+    private static long mask(GroupByQuery.Dimension dimension) {
+        return -1L >>> (Long.SIZE - dimension.getBits());
+    }
+
+    /**
+     * @return The results of the queries, in the order they were given.
+     */
+    public List<Result> getResults() {
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < tables.length; i++) {
+            results.add(getResult(i));
+        }
+        return results;
+    }
+
+    private Result getResult(int query) {
+        GroupTable table = tables[query];
+        GroupByQuery.Dimension[] dimensions = queryDimensions[query];
+        int aggregates = queries.get(query).getAggregates().size();
+        boolean roundedUp = queries.get(query).isRoundedUp();
+
+        List<Row> rows = new ArrayList<>(table.size());
+        for (int group = 0; group < table.size(); group++) {
+            // Unpack the key, the last dimension being in the lowest bits.
+            long key = table.getKey(group);
+            long[] dimensionValues = new long[dimensions.length];
+            for (int i = dimensions.length - 1; i >= 0; i--) {
+                long value = key & mask(dimensions[i]);
+                key = dimensions[i].getBits() == Long.SIZE ? 0 : key >>> dimensions[i].getBits();
+                // The years and siblings were packed as 32-bit ints.
+                dimensionValues[i] = dimensions[i].getBits() == Integer.SIZE ? (int) value : value;
+            }
+            String[] labels = new String[dimensions.length];
+            for (int i = 0; i < dimensions.length; i++) {
+                labels[i] = label(dimensions[i], dimensionValues[i]);
+            }
+            Number[] aggregateValues = new Number[aggregates];
+            for (int i = 0; i < aggregates; i++) {
+                Number value = table.getValue(i, group);
+                aggregateValues[i] = roundedUp && value instanceof Double ? (long) Math.ceil((Double) value) : value;
+            }
+            rows.add(new Row(labels, dimensionValues, aggregateValues));
+        }
+        if (queries.get(query).hasEmptyGroups()) {
+            addEmptyGroups(queries.get(query), rows);
+        }
+
+        // The dimensions in order: dates and siblings by value, foods and timezones by name.
+        Comparator<Row> byDimensions = (row, other) -> {
+            for (int i = 0; i < dimensions.length; i++) {
+                boolean byName = dimensions[i] == GroupByQuery.Dimension.FOOD
+                        || dimensions[i] == GroupByQuery.Dimension.TIMEZONE;
+                int order = byName ? row.labels[i].compareTo(other.labels[i])
+                        : Long.compare(row.keys[i], other.keys[i]);
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return 0;
+        };
+        int top = queries.get(query).getTop();
+        if (top > 0) {
+            Comparator<Row> byFirstAggregate = (row, other) -> Double.compare(
+                    other.values[0].doubleValue(), row.values[0].doubleValue());
+            rows.sort(byFirstAggregate.thenComparing(byDimensions));
+            rows = new ArrayList<>(rows.subList(0, Math.min(top, rows.size())));
+        } else {
+            rows.sort(byDimensions);
+        }
+        return new Result(queries.get(query), rows);
+    }
+
+    /**
+     * Adds the groups without entries of a query grouped by month, or not at all, with aggregates of 0.
+     */
+    private void addEmptyGroups(GroupByQuery query, List<Row> rows) {
+        Number[] zeros = new Number[query.getAggregates().size()];
+        for (int i = 0; i < zeros.length; i++) {
+            boolean average = query.getAggregates().get(i).getFunction() == GroupByQuery.Function.AVG;
+            zeros[i] = average && !query.isRoundedUp() ? (Number) 0.0 : (Number) 0L;
+        }
+        if (query.getDimensions().isEmpty()) {
+            if (rows.isEmpty()) {
+                rows.add(new Row(new String[0], new long[0], zeros));
+            }
+            return;
+        }
+        if (!query.getDimensions().equals(Collections.singletonList(GroupByQuery.Dimension.MONTH))) {
+            throw new IllegalStateException("Empty groups are only listed by month or for all: " + query);
+        }
+        boolean[] present = new boolean[Month.values().length + 1];
+        for (Row row : rows) {
+            present[(int) row.keys[0]] = true;
+        }
+        for (Month month : Month.values()) {
+            if (!present[month.getValue()]) {
+                rows.add(new Row(new String[]{label(GroupByQuery.Dimension.MONTH, month.getValue())},
+                        new long[]{month.getValue()}, zeros.clone()));
+            }
+        }
+    }
+
+    private String label(GroupByQuery.Dimension dimension, long value) {
+        switch (dimension) {
+            case MONTH:
+                return PopulationCalcUtil.getMonthName(Month.of((int) value));
+            case WEEKDAY:
+                return PopulationCalcUtil.getDayName(DayOfWeek.of((int) value));
+            case TIMEZONE:
+                return dictionary.getTimezone((int) value);
+            case FOOD:
+                return dictionary.getFood((int) value);
+            default:
+                return Long.toString(value);
+        }
+    }
+
+    /**
+     * The groups of one query.
+     */
+    public static final class Result {
+
+        private final GroupByQuery query;
+        private final List<Row> rows;
+
+        Result(GroupByQuery query, List<Row> rows) {
+            this.query = query;
+            this.rows = Collections.unmodifiableList(rows);
+        }
+
+        public GroupByQuery getQuery() {
+            return query;
+        }
+
+        public List<Row> getRows() {
+            return rows;
+        }
+    }
+
+    /**
+     * One group: the labels of its dimensions, and its aggregates.
+     */
+    public static final class Row {
+
+        private final String[] labels;
+        private final long[] keys;
+        private final Number[] values;
+
+        Row(String[] labels, long[] keys, Number[] values) {
+            this.labels = labels;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        /**
+         * @return The value of each dimension, e.g. "January" or "pizza", in the order of the query.
+         */
+        public List<String> getLabels() {
+            return Arrays.asList(labels);
+        }
+
+        /**
+         * @return The value of each aggregate, in the order of the query: a Long, or a Double for an average.
+         */
+        public List<Number> getValues() {
+            return Arrays.asList(values);
+        }
+    }
+}
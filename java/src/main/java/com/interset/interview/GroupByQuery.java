@@ -0,0 +1,253 @@
+package com.interset.interview;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A group-by query run by {@link GroupByEngine}: the dimensions to group the unique entries by, the aggregates to
+ * compute per group, and optionally how many groups to keep.
+ *
+ * Written as {@code DIMENSIONS:AGGREGATES[:top=K]}, e.g. {@code month,food:count:top=10} or
+ * {@code year:count,avg(siblings),min(birth_timestamp)}. The dimensions are any of month, year, weekday, timezone, food
+ * and siblings, or {@code all} for a single group. The aggregates are count, and sum, min, max or avg of siblings or
+ * birth_timestamp. With top=K, the K groups with the largest first aggregate are kept, ties in the order of the
+ * dimensions; otherwise every group is kept, in the order of the dimensions.
+ *
+ * The dimensions of a group are packed into a single long key (see {@link GroupTable}), each in a fixed number of
+ * bits, so the dimensions of a query can take 64 bits at most.
+ */
+public class GroupByQuery {
+
+    /**
+     * What the entries can be grouped by. The dates are in each entry's birth timezone.
+     */
+    public enum Dimension {
+        MONTH(4),
+        YEAR(32),
+        WEEKDAY(3),
+        TIMEZONE(16),
+        FOOD(24),
+        SIBLINGS(32);
+
+        private final int bits;
+
+        Dimension(int bits) {
+            this.bits = bits;
+        }
+
+        /**
+         * @return Bits of the dimension in a group key.
+         */
+        int getBits() {
+            return bits;
+        }
+    }
+
+    public enum Function {
+        COUNT, SUM, MIN, MAX, AVG
+    }
+
+    /**
+     * Numeric fields that can be aggregated.
+     */
+    public enum Field {
+        SIBLINGS, BIRTH_TIMESTAMP
+    }
+
+    /**
+     * A function of a field, or a count, which has no field.
+     */
+    public static final class Aggregate {
+
+        private final Function function;
+        private final Field field;
+
+        Aggregate(Function function, Field field) {
+            this.function = function;
+            this.field = field;
+        }
+
+        public Function getFunction() {
+            return function;
+        }
+
+        /**
+         * @return The field aggregated, or null for a count.
+         */
+        public Field getField() {
+            return field;
+        }
+
+        @Override
+        public String toString() {
+            String name = function.name().toLowerCase(Locale.ROOT);
+            return field == null ? name : name + "(" + field.name().toLowerCase(Locale.ROOT) + ")";
+        }
+    }
+
+    public static final String AVERAGE_SIBLINGS = "average-siblings";
+    public static final String FAVOURITE_FOODS = "favourite-foods";
+    public static final String BIRTH_MONTHS = "birth-months";
+
+    private final List<Dimension> dimensions;
+    private final List<Aggregate> aggregates;
+    private final int top;
+
+    // Only set for the built-in queries, so that they give what the default output prints.
+    private final boolean roundedUp;
+    private final boolean emptyGroups;
+
+    private GroupByQuery(List<Dimension> dimensions, List<Aggregate> aggregates, int top, boolean roundedUp,
+                         boolean emptyGroups) {
+        this.dimensions = Collections.unmodifiableList(dimensions);
+        this.aggregates = Collections.unmodifiableList(aggregates);
+        this.top = top;
+        this.roundedUp = roundedUp;
+        this.emptyGroups = emptyGroups;
+    }
+
+    /**
+     * @param spec A query as described above, or the name of a built-in query: average-siblings, favourite-foods or
+     *             birth-months, which give the same results as the default output: the average is rounded up, and
+     *             the months without births are listed with a count of 0.
+     * @param topFoods Number of foods kept by favourite-foods.
+     * @throws IllegalArgumentException If the query is not valid.
+     */
+    public static GroupByQuery parse(String spec, int topFoods) {
+        switch (spec) {
+            case AVERAGE_SIBLINGS:
+                return parse("all:avg(siblings)", topFoods).asDefaultOutput(true);
+            case FAVOURITE_FOODS:
+                return parse("food:count:top=" + topFoods, topFoods);
+            case BIRTH_MONTHS:
+                return parse("month:count", topFoods).asDefaultOutput(false);
+            default:
+                break;
+        }
+
+        String[] parts = spec.split(":", -1);
+        if (parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("Expected DIMENSIONS:AGGREGATES[:top=K] in query: " + spec);
+        }
+        List<Dimension> dimensions = new ArrayList<>();
+        int bits = 0;
+        if (!parts[0].trim().equalsIgnoreCase("all")) {
+            for (String name : parts[0].split(",")) {
+                Dimension dimension = valueOf(Dimension.class, name, spec);
+                if (dimensions.contains(dimension)) {
+                    throw new IllegalArgumentException("Dimension " + name.trim() + " is repeated in query: " + spec);
+                }
+                dimensions.add(dimension);
+                bits += dimension.getBits();
+            }
+        }
+        if (bits > Long.SIZE) {
+            throw new IllegalArgumentException("Too many dimensions in query, they take " + bits
+                    + " bits of the 64 of a group key: " + spec);
+        }
+
+        List<Aggregate> aggregates = new ArrayList<>();
+        for (String aggregate : parts[1].split(",")) {
+            aggregate = aggregate.trim();
+            int open = aggregate.indexOf('(');
+            if (open < 0) {
+                Function function = valueOf(Function.class, aggregate, spec);
+                if (function != Function.COUNT) {
+                    throw new IllegalArgumentException(aggregate + " needs a field, e.g. " + aggregate
+                            + "(siblings), in query: " + spec);
+                }
+                aggregates.add(new Aggregate(function, null));
+            } else if (aggregate.endsWith(")")) {
+                Function function = valueOf(Function.class, aggregate.substring(0, open), spec);
+                if (function == Function.COUNT) {
+                    throw new IllegalArgumentException("count has no field, in query: " + spec);
+                }
+                Field field = valueOf(Field.class, aggregate.substring(open + 1, aggregate.length() - 1), spec);
+                aggregates.add(new Aggregate(function, field));
+            } else {
+                throw new IllegalArgumentException("Unknown aggregate " + aggregate + " in query: " + spec);
+            }
+        }
+
+        int top = 0;
+        if (parts.length == 3) {
+            String option = parts[2].trim();
+            try {
+                top = option.startsWith("top=") ? Integer.parseInt(option.substring("top=".length())) : 0;
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            if (top <= 0) {
+                throw new IllegalArgumentException("Expected top=K, with K positive, in query: " + spec);
+            }
+        }
+        return new GroupByQuery(dimensions, aggregates, top, false, false);
+    }
+
+    private GroupByQuery asDefaultOutput(boolean roundUp) {
+        return new GroupByQuery(dimensions, aggregates, top, roundUp, true);
+    }
+
+    private static <E extends Enum<E>> E valueOf(Class<E> type, String name, String spec) {
+        try {
+            return Enum.valueOf(type, name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName().toLowerCase(Locale.ROOT) + " "
+                    + name.trim() + " in query: " + spec);
+        }
+    }
+
+    /**
+     * @return The dimensions, in the order of the group labels. Empty for a single group.
+     */
+    public List<Dimension> getDimensions() {
+        return dimensions;
+    }
+
+    public List<Aggregate> getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * @return Number of groups to keep, or 0 to keep them all.
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * @return True if the averages are rounded up to a whole number, as {@link PopulationCalcUtil} does.
+     */
+    boolean isRoundedUp() {
+        return roundedUp;
+    }
+
+    /**
+     * @return True if the groups without entries are listed too, with aggregates of 0. Only the built-in queries
+     * grouped by month or not at all do.
+     */
+    boolean hasEmptyGroups() {
+        return emptyGroups;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder spec = new StringBuilder();
+        if (dimensions.isEmpty()) {
+            spec.append("all");
+        }
+        for (Dimension dimension : dimensions) {
+            spec.append(spec.length() > 0 ? "," : "").append(dimension.name().toLowerCase(Locale.ROOT));
+        }
+        spec.append(':');
+        for (int i = 0; i < aggregates.size(); i++) {
+            spec.append(i > 0 ? "," : "").append(aggregates.get(i));
+        }
+        if (top > 0) {
+            spec.append(":top=").append(top);
+        }
+        return spec.toString();
+    }
+}
@@ -0,0 +1,150 @@
+package com.interset.interview;
+
+import java.util.Arrays;
+
+/**
+ * The groups of one {@link GroupByQuery}, keyed by a long, with their aggregates in primitive arrays indexed by group:
+ * no object is created per group or per entry.
+ *
+ * The slots of the hash table only hold group indexes (plus one, 0 marking an empty slot), and the keys are kept by
+ * group, so the table can be at most half full and still take 4 bytes per slot. Open addressing with linear probing,
+ * the slot picked by a multiply-shift on the key.
+ *
+ * Not thread safe.
+ */
+class GroupTable {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final long MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    private final GroupByQuery.Aggregate[] aggregates;
+
+    private int[] slots = new int[MIN_CAPACITY];
+    private int shift = Long.SIZE - Integer.numberOfTrailingZeros(MIN_CAPACITY);
+    private int size = 0;
+
+    private long[] keys = new long[MIN_CAPACITY];
+    private long[] counts = new long[MIN_CAPACITY];
+    // By aggregate then group: the sum, min or max of the field. Nothing for a count.
+    private final long[][] values;
+
+    GroupTable(GroupByQuery query) {
+        this.aggregates = query.getAggregates().toArray(new GroupByQuery.Aggregate[0]);
+        this.values = new long[aggregates.length][];
+        for (int i = 0; i < aggregates.length; i++) {
+            if (aggregates[i].getFunction() != GroupByQuery.Function.COUNT) {
+                values[i] = new long[MIN_CAPACITY];
+            }
+        }
+    }
+
+    /**
+     * Adds an entry to its group, created if it is the first.
+     */
+    void add(long key, int siblings, long birthTimeStamp) {
+        int group = group(key);
+        counts[group]++;
+        for (int i = 0; i < aggregates.length; i++) {
+            GroupByQuery.Aggregate aggregate = aggregates[i];
+            long value = aggregate.getField() == GroupByQuery.Field.SIBLINGS ? siblings : birthTimeStamp;
+            switch (aggregate.getFunction()) {
+                case SUM:
+                case AVG:
+                    values[i][group] += value;
+                    break;
+                case MIN:
+                    values[i][group] = Math.min(values[i][group], value);
+                    break;
+                case MAX:
+                    values[i][group] = Math.max(values[i][group], value);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getKey(int group) {
+        return keys[group];
+    }
+
+    long getCount(int group) {
+        return counts[group];
+    }
+
+    /**
+     * @return The value of an aggregate for a group: a long, or a double for an average.
+     */
+    Number getValue(int aggregate, int group) {
+        switch (aggregates[aggregate].getFunction()) {
+            case COUNT:
+                return counts[group];
+            case AVG:
+                return (double) values[aggregate][group] / counts[group];
+            default:
+                return values[aggregate][group];
+        }
+    }
+
+    private int group(long key) {
+        int slot = slot(key);
+        while (true) {
+            int group = slots[slot] - 1;
+            if (group < 0) {
+                return create(key, slot);
+            }
+            if (keys[group] == key) {
+                return group;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+    }
+
+    private int create(long key, int slot) {
+        int group = size++;
+        if (group == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    values[i] = Arrays.copyOf(values[i], capacity);
+                }
+            }
+        }
+        keys[group] = key;
+        for (int i = 0; i < aggregates.length; i++) {
+            if (aggregates[i].getFunction() == GroupByQuery.Function.MIN) {
+                values[i][group] = Long.MAX_VALUE;
+            } else if (aggregates[i].getFunction() == GroupByQuery.Function.MAX) {
+                values[i][group] = Long.MIN_VALUE;
+            }
+        }
+        slots[slot] = group + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return group;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        shift--;
+        for (int group = 0; group < size; group++) {
+            int slot = slot(keys[group]);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = group + 1;
+        }
+    }
+
+    private int slot(long key) {
+        // Fold the high bits in first, the dimensions at the top of a key often vary the least.
+        return (int) (((key ^ (key >>> 32)) * MULTIPLIER) >>> shift);
+    }
+}
@@ -0,0 +1,139 @@
+package com.interset.interview;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Estimates the number of distinct entries from their 128-bit {@link PopulationFingerprint}s, in a fixed amount of
+ * memory: one byte per register, 2^precision registers.
+ *
+ * The first bits of the high half of the fingerprint pick the register, and the register keeps the longest run of
+ * leading zeros seen in the low half. The estimate is the HyperLogLog one (Flajolet et al.), with linear counting for
+ * small cardinalities. The relative standard error is about 1.04 / sqrt(2^precision), e.g. 0.2% for a precision of 18.
+ *
+ * Not thread safe.
+ */
+public class HyperLogLog {
+
+    static final int MIN_PRECISION = 4;
+    static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * @param precision Number of bits picking the register, between {@link #MIN_PRECISION} and {@link #MAX_PRECISION}.
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION
+                    + ": " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * @return The highest precision whose registers fit in the given number of bytes.
+     */
+    static int precisionFor(long bytes) {
+        int precision = MIN_PRECISION;
+        while (precision < MAX_PRECISION && (1L << (precision + 1)) <= bytes) {
+            precision++;
+        }
+        return precision;
+    }
+
+    public void add(long fingerprintHi, long fingerprintLo) {
+        int register = (int) (fingerprintHi >>> (64 - precision));
+        // Number of leading zeros plus one, up to 65 when the low half is 0.
+        byte rank = (byte) (Long.numberOfLeadingZeros(fingerprintLo) + 1);
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+    }
+
+    /**
+     * Adds the fingerprints counted by another sketch of the same precision to this one, as if they had been added
+     * here. The other sketch is not modified.
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Can't merge a sketch of precision " + other.precision + " into one of "
+                    + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Writes the precision and the registers, to be read back with {@link #read(DataInput)}.
+     */
+    void write(DataOutput output) throws IOException {
+        output.writeByte(precision);
+        output.write(registers);
+    }
+
+    /**
+     * @return A sketch with the registers written by {@link #write(DataOutput)}.
+     */
+    static HyperLogLog read(DataInput input) throws IOException {
+        int precision = input.readByte();
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IOException("Invalid sketch precision: " + precision);
+        }
+        HyperLogLog sketch = new HyperLogLog(precision);
+        input.readFully(sketch.registers);
+        return sketch;
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * (double) m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Linear counting is more accurate while some registers are still empty.
+            estimate = m * Math.log(m / (double) zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * @return The relative standard error of {@link #estimate()}.
+     */
+    public double getStandardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public long getMemoryBytes() {
+        return registers.length;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
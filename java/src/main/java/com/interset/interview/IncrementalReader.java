@@ -0,0 +1,289 @@
+package com.interset.interview;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads files that mostly stay the same from one run to the next, such as exports that are only ever appended to, by
+ * starting from the {@link Checkpoint} of the previous run and only reading what changed since.
+ *
+ * Compared to the checkpoint, each file is either:
+ * - new, or empty before: it is read whole, with {@link MultiFileReader}.
+ * - unchanged: it is not read at all.
+ * - appended to: only the new bytes are read. This works for uncompressed CSV and newline delimited JSON files whose
+ *   new bytes start a new line, and for GZIP compressed ones whose new bytes are new GZIP members (as written by
+ *   "gzip -c more.csv >> all.csv.gz"), each of them assumed to end with a line feed.
+ *
+ * Anything else means the counts of the checkpoint can't be reused, since they can't be subtracted from: a file that
+ * shrank, whose bytes read changed, that is no longer given, or a JSON array that grew. All the files are then read
+ * again from scratch, and {@link #getSummary()} says why. A file being written to while it is read is read up to
+ * its size when this started, as far as the checkpoint is concerned.
+ *
+ * The fingerprints of the checkpoint find the duplicates of entries counted by earlier runs, so the results are the
+ * same as reading all the files again.
+ */
+public class IncrementalReader {
+
+    private final int threads;
+    private final long minChunkBytes;
+    private String summary;
+
+    public IncrementalReader(int threads) {
+        this(threads, ParallelCsvReader.DEFAULT_MIN_CHUNK_BYTES);
+    }
+
+    IncrementalReader(int threads, long minChunkBytes) {
+        this.threads = threads;
+        this.minChunkBytes = minChunkBytes;
+    }
+
+    /**
+     * Aggregates the unique entries of the files, then replaces the checkpoint with one covering all of them.
+     *
+     * @param checkpointPath Checkpoint of the previous run. Created if there is none.
+     * @return Aggregated results of the unique entries of all the files.
+     * @throws Exception
+     */
+    public PopulationResult aggregate(List<String> filePaths, String checkpointPath) throws Exception {
+        Checkpoint previous = Checkpoint.read(checkpointPath, threads);
+        List<FileChange> changes = new ArrayList<>();
+        String rescanReason = null;
+        if (previous != null) {
+            rescanReason = compare(filePaths, previous, changes);
+            if (rescanReason != null) {
+                previous = null;
+                changes.clear();
+            }
+        }
+        if (previous == null) {
+            for (String filePath : filePaths) {
+                changes.add(new FileChange(filePath, 0));
+            }
+        }
+
+        FingerprintStore fingerprints = previous == null
+                ? new ConcurrentFingerprintSet(threads) : previous.getFingerprints();
+        PopulationResult result = new PopulationResult();
+        if (previous != null) {
+            result.merge(previous.getResult());
+        }
+
+        List<String> newFiles = new ArrayList<>();
+        int appended = 0;
+        int unchanged = 0;
+        long bytesRead = 0;
+        for (FileChange change : changes) {
+            if (change.from == 0) {
+                newFiles.add(change.filePath);
+            } else if (change.from < change.state.getOffset()) {
+                appended++;
+            } else {
+                unchanged++;
+            }
+            bytesRead += change.state.getOffset() - change.from;
+        }
+        if (!newFiles.isEmpty()) {
+            result.merge(new MultiFileReader(threads, minChunkBytes).aggregate(newFiles, fingerprints));
+        }
+        PopulationAggregator aggregator = new PopulationAggregator(new PopulationDeduplicator(fingerprints));
+        for (FileChange change : changes) {
+            if (change.from > 0 && change.from < change.state.getOffset()) {
+                readAppended(change, aggregator);
+            }
+        }
+        result.merge(aggregator.getResult());
+
+        Map<String, Checkpoint.FileState> files = new LinkedHashMap<>();
+        for (FileChange change : changes) {
+            files.put(change.realPath, change.state);
+        }
+        new Checkpoint(result, fingerprints, files).write(checkpointPath);
+
+        if (rescanReason != null) {
+            summary = "Checkpoint: read all " + changes.size() + " files again, " + rescanReason;
+        } else {
+            summary = String.format("Checkpoint: %d files unchanged, %d appended to, %d new (%,d bytes read)",
+                    unchanged, appended, newFiles.size(), bytesRead);
+        }
+        return result;
+    }
+
+    /**
+     * @return What the last {@link #aggregate(List, String)} read, or why it read everything again.
+     */
+    public String getSummary() {
+        return summary;
+    }
+
+    /**
+     * Finds what changed in each file since the checkpoint.
+     *
+     * @return Why the checkpoint can't be used, or null if it can.
+     */
+    private static String compare(List<String> filePaths, Checkpoint previous, List<FileChange> changes)
+            throws IOException {
+        Set<String> given = new HashSet<>();
+        for (String filePath : filePaths) {
+            String realPath = Paths.get(filePath).toRealPath().toString();
+            given.add(realPath);
+            Checkpoint.FileState state = previous.getFiles().get(realPath);
+            if (state == null || state.getOffset() == 0) {
+                changes.add(new FileChange(filePath, 0));
+                continue;
+            }
+
+            try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+                boolean grew = channel.size() > state.getOffset();
+                if (grew && !isAppendable(filePath)) {
+                    return filePath + " grew, and can only be read whole";
+                }
+                if (!state.matches(channel)) {
+                    return filePath + " changed";
+                }
+                if (grew) {
+                    String reason = appendReason(filePath, channel, state);
+                    if (reason != null) {
+                        return reason;
+                    }
+                }
+                changes.add(new FileChange(filePath, state.getOffset()));
+            }
+        }
+        for (String realPath : previous.getFiles().keySet()) {
+            if (!given.contains(realPath)) {
+                return realPath + " is no longer read";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Why the bytes appended to the file can't be read on their own, or null if they can.
+     */
+    private static String appendReason(String filePath, FileChannel channel, Checkpoint.FileState state)
+            throws IOException {
+        byte[] next = Checkpoint.readFully(channel, state.getOffset(),
+                (int) Math.min(2, channel.size() - state.getOffset()));
+        if (filePath.toLowerCase().endsWith(".gz")) {
+            if (next.length < 2 || next[0] != (byte) 0x1f || next[1] != (byte) 0x8b) {
+                return filePath + " grew without a new GZIP member";
+            }
+        } else if (!state.endsWithNewline() && next[0] != '\n') {
+            return "the last line of " + filePath + " grew";
+        }
+        return null;
+    }
+
+    private static boolean isAppendable(String filePath) {
+        String format = Runner.getFormat(filePath);
+        return format.equals("csv") || format.equals("ndjson") || format.equals("jsonl");
+    }
+
+    private static void readAppended(FileChange change, PopulationAggregator aggregator) throws Exception {
+        String filePath = change.filePath;
+        long from = change.from;
+        long to = change.state.getOffset();
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            if (MappedCsvReader.supports(filePath)) {
+                // Skip the line feed ending the last line read, if it was not read.
+                long start = Checkpoint.readFully(channel, from, 1)[0] == '\n' ? from + 1 : from;
+                new MappedCsvReader().read(channel, start, to, false, aggregator);
+                return;
+            }
+
+            InputStream inputStream = new RangeInputStream(Channels.newInputStream(channel.position(from)), to - from);
+            if (filePath.toLowerCase().endsWith(".gz")) {
+                inputStream = new GZIPInputStream(inputStream, 64 * 1024);
+            }
+            if (Runner.getFormat(filePath).equals("csv")) {
+                new PopulationCsvReader().read(inputStream, false, aggregator);
+            } else {
+                Runner.parseJson(inputStream, aggregator::add);
+            }
+        } catch (IOException e) {
+            throw new Exception("Failed to parse file", e);
+        }
+    }
+
+    /**
+     * Bytes of a file to read, from the checkpoint's offset to its current size.
+     */
+    private static class FileChange {
+
+        private final String filePath;
+        private final String realPath;
+        private final long from;
+        private final Checkpoint.FileState state;
+
+        FileChange(String filePath, long from) throws IOException {
+            this.filePath = filePath;
+            this.realPath = Paths.get(filePath).toRealPath().toString();
+            this.from = from;
+            try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+                this.state = Checkpoint.FileState.of(channel, channel.size());
+            }
+        }
+    }
+
+    /**
+     * Stream ending after a number of bytes of another, even if that one has more.
+     */
+    private static class RangeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read();
+            if (read >= 0) {
+                remaining--;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.interset.interview;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Expands the paths given to {@link Runner} into the files to read.
+ *
+ * A path can be a file, a directory, or a glob pattern such as "exports/2017-*.csv.gz" (see
+ * {@link FileSystems#getDefault()}'s getPathMatcher for the syntax), for when the shell does not expand it itself.
+ * Directories are read recursively. Only the files in a format {@link Runner} reads are kept from directories and
+ * patterns; a file given explicitly is always kept. Each file is only returned once, even if several paths match it.
+ */
+public class InputFiles {
+
+    private static final List<String> FORMATS = Arrays.asList("csv", "json", "ndjson", "jsonl");
+    private static final String GLOB_CHARS = "*?[{";
+
+    private InputFiles() {
+    }
+
+    /**
+     * @return The files, in the order of the paths. The files of a directory or pattern are sorted by path.
+     * @throws IllegalArgumentException If a pattern does not match any file.
+     */
+    public static List<String> expand(List<String> paths) throws IOException {
+        // By real path, so that the same file given twice is only read once.
+        Map<Path, String> files = new LinkedHashMap<>();
+        for (String path : paths) {
+            List<Path> expanded;
+            if (isGlob(path)) {
+                expanded = glob(path);
+                if (expanded.isEmpty()) {
+                    throw new IllegalArgumentException("No file matches " + path);
+                }
+            } else if (Files.isDirectory(Paths.get(path))) {
+                expanded = walk(Paths.get(path), Integer.MAX_VALUE, file -> true);
+            } else {
+                expanded = Arrays.asList(Paths.get(path));
+            }
+            for (Path file : expanded) {
+                files.putIfAbsent(Files.exists(file) ? file.toRealPath() : file.toAbsolutePath(), file.toString());
+            }
+        }
+        return new ArrayList<>(files.values());
+    }
+
+    /**
+     * @return True if the file's extension is one {@link Runner} reads, with or without ".gz".
+     */
+    public static boolean isSupported(String filePath) {
+        return FORMATS.contains(Runner.getFormat(filePath));
+    }
+
+    static boolean isGlob(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            if (GLOB_CHARS.indexOf(path.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Path> glob(String pattern) throws IOException {
+        // Walk from the last directory before the first special char, matching the rest of the pattern.
+        int firstGlobChar = 0;
+        while (GLOB_CHARS.indexOf(pattern.charAt(firstGlobChar)) < 0) {
+            firstGlobChar++;
+        }
+        int baseEnd = pattern.lastIndexOf('/', firstGlobChar) + 1;
+        Path base = Paths.get(baseEnd == 0 ? "." : pattern.substring(0, baseEnd));
+        String rest = pattern.substring(baseEnd);
+        if (!Files.isDirectory(base)) {
+            return new ArrayList<>();
+        }
+
+        int depth = rest.contains("**") ? Integer.MAX_VALUE : rest.split("/").length;
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + rest);
+        return walk(base, depth, file -> matcher.matches(base.relativize(file)))
+                .stream()
+                .map(file -> baseEnd == 0 ? base.relativize(file) : file)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Path> walk(Path directory, int depth, PathMatcher matcher) throws IOException {
+        try (Stream<Path> files = Files.walk(directory, depth)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> isSupported(file.toString()))
+                    .filter(matcher::matches)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.interset.interview;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads an uncompressed CSV file through memory mapping, parsing the mapped bytes with a {@link PopulationCsvParser}.
+ *
+ * Nothing is copied or decoded into chars on the way: the numbers are parsed from the bytes, and the only Strings
+ * created are the distinct foods and timezones. A mapping can't be bigger than 2GB, so larger files are mapped in
+ * windows. A row running over the end of a window is parsed again from the start of the next one.
+ */
+public class MappedCsvReader {
+
+    static final long DEFAULT_WINDOW_BYTES = 256 * 1024 * 1024;
+
+    private final long windowBytes;
+
+    public MappedCsvReader() {
+        this(DEFAULT_WINDOW_BYTES);
+    }
+
+    MappedCsvReader(long windowBytes) {
+        this.windowBytes = Math.min(windowBytes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return True if the file can be mapped, i.e. it is an uncompressed CSV file.
+     */
+    public static boolean supports(String filePath) {
+        return filePath.toLowerCase().endsWith(".csv");
+    }
+
+    /**
+     * Reads the whole file, skipping its header, and adds every row to the aggregator.
+     *
+     * @param filePath Path to an uncompressed CSV file.
+     * @param aggregator Aggregator to add the rows to.
+     * @throws IOException
+     */
+    public void read(String filePath, PopulationSink aggregator) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            read(channel, 0, channel.size(), true, aggregator);
+        }
+    }
+
+    /**
+     * Reads a region of a file and adds every row in it to the aggregator.
+     *
+     * @param channel File to read. Mapping does not move its position, so it can be shared between threads.
+     * @param start Offset of the first row, or of the header.
+     * @param end Offset right after the last row.
+     * @param skipHeader Whether the region starts with a header to skip.
+     * @param aggregator Aggregator to add the rows to.
+     * @throws IOException
+     */
+    public void read(FileChannel channel, long start, long end, boolean skipHeader, PopulationSink aggregator)
+            throws IOException {
+        PopulationCsvParser parser = new PopulationCsvParser();
+        parser.setReadNames(aggregator.needsNames());
+        PopulationRecord record = new PopulationRecord();
+
+        long windowStart = start;
+        while (windowStart < end) {
+            int length = (int) Math.min(windowBytes, end - windowStart);
+            boolean lastWindow = windowStart + length == end;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+            parser.reset(buffer, 0, length, lastWindow, windowStart);
+
+            if (skipHeader) {
+                if (!parser.skipLine()) {
+                    // The header runs past this window, the rows start in a later one.
+                    windowStart += length;
+                    continue;
+                }
+                skipHeader = false;
+            }
+            while (parser.next(record)) {
+                aggregator.add(record);
+            }
+
+            if (lastWindow) {
+                PopulationStats stats = PopulationStats.active();
+                if (stats != null) {
+                    stats.addBytes(end - start);
+                }
+                return;
+            }
+            if (parser.getPosition() == 0) {
+                throw new IOException("Row at byte " + windowStart + " is longer than the mapping window of "
+                        + windowBytes + " bytes");
+            }
+            windowStart += parser.getPosition();
+        }
+    }
+}
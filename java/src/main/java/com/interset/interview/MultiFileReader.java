@@ -0,0 +1,213 @@
+package com.interset.interview;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Reads several files of any format at once, into a single result.
+ *
+ * Each file is a task, except for uncompressed CSV files, which are split into chunks the way
+ * {@link ParallelCsvReader} does, each chunk being a task. All the tasks go to one ForkJoin pool, biggest first, so
+ * that a thread done with its tasks steals the waiting ones and the threads finish at about the same time, however
+ * uneven the files are. Every task aggregates into its own {@link PopulationResult}, and they all share a
+ * {@link ConcurrentFingerprintSet} so that duplicates are found across files. The partial results are merged at the
+ * end in the order of the files, so the result does not depend on which thread finished first.
+ *
+ * How many rows and duplicates were read from each file, and how long it took, is kept in a {@link FileReport} per
+ * file. Which of two identical rows in different files is counted as the duplicate depends on which one was read
+ * first.
+ */
+public class MultiFileReader {
+
+    private final int threads;
+    private final long minChunkBytes;
+    private final List<FileReport> reports = new ArrayList<>();
+
+    public MultiFileReader(int threads) {
+        this(threads, ParallelCsvReader.DEFAULT_MIN_CHUNK_BYTES);
+    }
+
+    MultiFileReader(int threads, long minChunkBytes) {
+        this.threads = threads;
+        this.minChunkBytes = minChunkBytes;
+    }
+
+    /**
+     * Reads all the files and aggregates their unique entries.
+     *
+     * @param fingerprints Fingerprints of the entries seen so far. Must be thread safe.
+     * @return Aggregated results of the unique entries that were not already in the fingerprints.
+     * @throws Exception
+     */
+    public PopulationResult aggregate(List<String> filePaths, FingerprintStore fingerprints) throws Exception {
+        reports.clear();
+        List<FileChannel> channels = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Task> tasks = new ArrayList<>();
+            ParallelCsvReader splitter = new ParallelCsvReader(threads, minChunkBytes);
+            for (String filePath : filePaths) {
+                FileReport report = new FileReport(filePath, Files.size(Paths.get(filePath)));
+                reports.add(report);
+                if (MappedCsvReader.supports(filePath)) {
+                    FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+                    channels.add(channel);
+                    boolean skipHeader = true;
+                    for (long[] chunk : splitter.split(channel)) {
+                        tasks.add(new Task(report, chunk[1] - chunk[0], new ChunkReader(channel, chunk, skipHeader)));
+                        skipHeader = false;
+                    }
+                } else {
+                    tasks.add(new Task(report, report.bytes, aggregator -> new Runner()
+                            .streamPopulation(filePath, aggregator)));
+                }
+            }
+
+            List<Task> biggestFirst = new ArrayList<>(tasks);
+            Collections.sort(biggestFirst, Comparator.comparingLong((Task task) -> task.bytes).reversed());
+            List<Future<PopulationResult>> futures = new ArrayList<>();
+            for (Task task : biggestFirst) {
+                futures.add(pool.submit(() -> task.run(fingerprints)));
+            }
+            for (Future<PopulationResult> future : futures) {
+                future.get();
+            }
+
+            PopulationResult result = new PopulationResult();
+            for (Task task : tasks) {
+                result.merge(task.result);
+            }
+            return result;
+        } catch (ExecutionException e) {
+            throw new Exception("Failed to parse file", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * @return A report per file read by the last {@link #aggregate(List, FingerprintStore)}, in the order of the files.
+     */
+    public List<FileReport> getReports() {
+        return reports;
+    }
+
+    private interface Reader {
+        void read(PopulationAggregator aggregator) throws Exception;
+    }
+
+    private static class ChunkReader implements Reader {
+
+        private final FileChannel channel;
+        private final long[] chunk;
+        private final boolean skipHeader;
+
+        ChunkReader(FileChannel channel, long[] chunk, boolean skipHeader) {
+            this.channel = channel;
+            this.chunk = chunk;
+            this.skipHeader = skipHeader;
+        }
+
+        @Override
+        public void read(PopulationAggregator aggregator) throws Exception {
+            new MappedCsvReader().read(channel, chunk[0], chunk[1], skipHeader, aggregator);
+        }
+    }
+
+    private static class Task {
+
+        private final FileReport report;
+        private final long bytes;
+        private final Reader reader;
+        private PopulationResult result;
+
+        Task(FileReport report, long bytes, Reader reader) {
+            this.report = report;
+            this.bytes = bytes;
+            this.reader = reader;
+        }
+
+        PopulationResult run(FingerprintStore fingerprints) throws Exception {
+            long start = System.nanoTime();
+            PopulationAggregator aggregator = new PopulationAggregator(new PopulationDeduplicator(fingerprints));
+            reader.read(aggregator);
+            result = aggregator.getResult();
+            report.add(result.getSize(), aggregator.getDuplicates(), start, System.nanoTime());
+            return result;
+        }
+    }
+
+    /**
+     * What was read from one file.
+     */
+    public static class FileReport {
+
+        private final String filePath;
+        private final long bytes;
+        private long unique = 0;
+        private long duplicates = 0;
+        private long startNanos = Long.MAX_VALUE;
+        private long endNanos = Long.MIN_VALUE;
+
+        FileReport(String filePath, long bytes) {
+            this.filePath = filePath;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Adds what a task read from the file. Several tasks of a file can finish at the same time.
+         */
+        synchronized void add(long unique, long duplicates, long startNanos, long endNanos) {
+            this.unique += unique;
+            this.duplicates += duplicates;
+            this.startNanos = Math.min(this.startNanos, startNanos);
+            this.endNanos = Math.max(this.endNanos, endNanos);
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        /**
+         * @return Size of the file, compressed if it is.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public synchronized long getRows() {
+            return unique + duplicates;
+        }
+
+        /**
+         * @return Rows that had not been seen in this file or any other before.
+         */
+        public synchronized long getUnique() {
+            return unique;
+        }
+
+        public synchronized long getDuplicates() {
+            return duplicates;
+        }
+
+        /**
+         * @return Time from the first task of the file starting to the last one finishing.
+         */
+        public synchronized long getNanos() {
+            return Math.max(0, endNanos - startNanos);
+        }
+    }
+}
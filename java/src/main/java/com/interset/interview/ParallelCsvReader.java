@@ -0,0 +1,125 @@
+package com.interset.interview;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Reads an uncompressed CSV file on several threads.
+ *
+ * The file is split into chunks at line boundaries, and each chunk is mapped and parsed (see {@link MappedCsvReader})
+ * on a ForkJoin pool into its own partial {@link PopulationResult}. The partials are merged at the end with
+ * {@link PopulationResult#merge(PopulationResult)}.
+ * Duplicates are found across chunks through a {@link ConcurrentFingerprintSet} shared by all of them.
+ *
+ * Rows are assumed not to contain line breaks inside quoted values, which holds for the population data.
+ */
+public class ParallelCsvReader {
+
+    static final long DEFAULT_MIN_CHUNK_BYTES = 4 * 1024 * 1024;
+
+    // A few chunks per thread so that a thread finishing early can pick up more work.
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final int threads;
+    private final long minChunkBytes;
+
+    public ParallelCsvReader(int threads) {
+        this(threads, DEFAULT_MIN_CHUNK_BYTES);
+    }
+
+    ParallelCsvReader(int threads, long minChunkBytes) {
+        this.threads = threads;
+        this.minChunkBytes = minChunkBytes;
+    }
+
+    /**
+     * @return True if the file can be split, i.e. it is an uncompressed CSV file.
+     */
+    public static boolean supports(String filePath) {
+        return filePath.toLowerCase().endsWith(".csv");
+    }
+
+    /**
+     * Reads the file and aggregates its unique entries.
+     *
+     * @param filePath Path to an uncompressed CSV file, with a header.
+     * @param fingerprints Fingerprints of the entries seen so far. Must be thread safe.
+     * @return Aggregated results of the unique entries that were not already in the fingerprints.
+     * @throws Exception
+     */
+    public PopulationResult aggregate(String filePath, FingerprintStore fingerprints) throws Exception {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            List<long[]> chunks = split(channel);
+
+            MappedCsvReader reader = new MappedCsvReader();
+            List<Callable<PopulationResult>> tasks = new ArrayList<>();
+            for (int i = 0; i < chunks.size(); i++) {
+                long[] chunk = chunks.get(i);
+                boolean skipHeader = i == 0;
+                tasks.add(() -> {
+                    PopulationAggregator aggregator = new PopulationAggregator(new PopulationDeduplicator(fingerprints));
+                    reader.read(channel, chunk[0], chunk[1], skipHeader, aggregator);
+                    return aggregator.getResult();
+                });
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                // Merge in chunk order, the result does not depend on which thread finished first.
+                PopulationResult result = new PopulationResult();
+                for (Future<PopulationResult> partial : pool.invokeAll(tasks)) {
+                    result.merge(partial.get());
+                }
+                return result;
+            } catch (ExecutionException e) {
+                throw new Exception("Failed to parse file", e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Splits the file into chunks of [start, end) byte offsets. Every chunk but the last ends right after a line break.
+     */
+    List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int count = (int) Math.max(1, Math.min((long) threads * CHUNKS_PER_THREAD, size / minChunkBytes));
+
+        List<long[]> chunks = new ArrayList<>();
+        long start = 0;
+        for (int i = 1; i <= count && start < size; i++) {
+            long end = i == count ? size : nextLineStart(channel, Math.max(start, size / count * i));
+            if (end > start) {
+                chunks.add(new long[]{start, end});
+            }
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long size = channel.size();
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,157 @@
+package com.interset.interview;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Month;
+import java.util.Arrays;
+
+/**
+ * Aggregates the unique entries of a slice of the input into a {@link PartialResult} file, for {@link PartialReducer}
+ * to merge with the files of the other slices.
+ *
+ * The entries are de-duplicated within the slice like {@link PopulationAggregator} does. Each unique entry is counted,
+ * and either written as a record right away, so that the file grows with the slice and the records never have to fit
+ * in memory, or only added to a {@link HyperLogLog} of the fingerprints. The file is written to a temporary file next
+ * to it and moved in place by {@link #finish()}, so that a failed run leaves no partial result behind.
+ *
+ * Not thread safe.
+ */
+public class PartialAggregator implements PopulationSink, Closeable {
+
+    private final Path path;
+    private final Path temp;
+    private final DataOutputStream output;
+    private final HyperLogLog sketch;
+
+    private final PopulationFingerprint fingerprint = new PopulationFingerprint();
+    private final FingerprintSet fingerprints = new FingerprintSet();
+    private long duplicates = 0;
+    private final SiblingHistogram siblingHistogram = new SiblingHistogram();
+    private long[] foodCounts = new long[32];
+    private final long[] birthMonthCounts = new long[Month.values().length];
+
+    private final FoodZoneDictionary dictionary = new FoodZoneDictionary();
+
+    private boolean finished = false;
+
+    /**
+     * @param sketch A sketch to add the fingerprints to instead of writing them, or null to write them.
+     */
+    public PartialAggregator(Path path, HyperLogLog sketch) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.sketch = sketch;
+        this.temp = Files.createTempFile(this.path.getParent(), this.path.getFileName().toString(), ".tmp");
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 20));
+        output.writeInt(PartialResult.MAGIC);
+        output.writeInt(PartialResult.VERSION);
+        output.writeByte(sketch == null ? PartialResult.FINGERPRINTS : PartialResult.SKETCH);
+    }
+
+    @Override
+    public boolean add(PopulationEntryDto populationEntryDto) {
+        fingerprint.hash(populationEntryDto);
+        return add(fingerprint.getHi(), fingerprint.getLo(), populationEntryDto.getSiblings(),
+                populationEntryDto.getFavouriteFood(), populationEntryDto.getBirthTimezone(),
+                populationEntryDto.getBirthTimeStamp());
+    }
+
+    @Override
+    public boolean add(PopulationRecord populationRecord) {
+        return add(populationRecord.getFingerprintHi(), populationRecord.getFingerprintLo(),
+                populationRecord.getSiblings(), populationRecord.getFavouriteFood(),
+                populationRecord.getBirthTimezone(), populationRecord.getBirthTimeStamp());
+    }
+
+    @Override
+    public boolean needsNames() {
+        return false;
+    }
+
+    private boolean add(long hi, long lo, int siblings, String favouriteFood, String birthTimezone,
+                        long birthTimeStamp) {
+        if (!fingerprints.add(hi, lo)) {
+            duplicates++;
+            return false;
+        }
+        int foodId = foodId(favouriteFood);
+        int month = dictionary.getZone(dictionary.zoneId(birthTimezone)).getMonth(birthTimeStamp).ordinal();
+        siblingHistogram.add(siblings);
+        foodCounts[foodId]++;
+        birthMonthCounts[month]++;
+        if (sketch != null) {
+            sketch.add(hi, lo);
+            return true;
+        }
+        try {
+            output.writeLong(hi);
+            output.writeLong(lo);
+            output.writeInt(siblings);
+            output.writeInt(foodId);
+            output.writeByte(month);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    private int foodId(String favouriteFood) {
+        int foodId = dictionary.foodId(favouriteFood);
+        if (foodId == foodCounts.length) {
+            foodCounts = Arrays.copyOf(foodCounts, foodId * 2);
+        }
+        return foodId;
+    }
+
+    /**
+     * Writes the trailer and moves the file in place. Entries can't be added afterwards.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        long records = sketch == null ? siblingHistogram.getCount() : 0;
+        long trailerOffset = PartialResult.HEADER_BYTES + records * PartialResult.RECORD_BYTES;
+        output.writeLong(duplicates);
+        output.writeLong(records);
+        siblingHistogram.write(output);
+        for (long count : birthMonthCounts) {
+            output.writeLong(count);
+        }
+        output.writeInt(dictionary.getFoodCount());
+        for (int id = 0; id < dictionary.getFoodCount(); id++) {
+            output.writeUTF(dictionary.getFood(id));
+            output.writeLong(foodCounts[id]);
+        }
+        if (sketch != null) {
+            sketch.write(output);
+        }
+        output.writeLong(trailerOffset);
+        output.writeInt(PartialResult.MAGIC);
+        output.close();
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getPeople() {
+        return siblingHistogram.getCount();
+    }
+
+    /**
+     * Deletes the temporary file if {@link #finish()} was not called.
+     */
+    @Override
+    public void close() throws IOException {
+        output.close();
+        Files.deleteIfExists(temp);
+    }
+}
@@ -0,0 +1,196 @@
+package com.interset.interview;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Merges the {@link PartialResult}s written for the slices of an input into the results of the whole input.
+ *
+ * The counts of the partial results are added up. When they hold the fingerprints of their entries, those are added
+ * to a {@link FingerprintSet}, in the order the partial results are given, and an entry already added by an earlier
+ * one is taken out of the counts again: the results are the same as reading the whole input at once. When they only
+ * hold sketches, the entries found in several slices are counted once per slice, and the merged sketch estimates how
+ * many distinct people there are.
+ *
+ * Usage: reduce_population.sh [--top=K] [--siblings] <path/to/partial>...
+ */
+public class PartialReducer {
+
+    static final String USAGE = "Usage: reduce_population.sh [--top=K] [--siblings] <path/to/partial>...";
+
+    private final FoodZoneDictionary dictionary = new FoodZoneDictionary();
+    private long[] foodCounts = new long[32];
+    private final long[] birthMonthCounts = new long[Month.values().length];
+    private final SiblingHistogram siblings = new SiblingHistogram();
+    private long duplicates = 0;
+    private long crossDuplicates = 0;
+    private int partials = 0;
+
+    private boolean sketched;
+    private FingerprintSet fingerprintSet;
+    private HyperLogLog sketch;
+
+    public static void main(String[] args) throws Exception {
+        int topFoods = 3;
+        boolean siblings = false;
+        List<Path> paths = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--top=")) {
+                try {
+                    topFoods = Integer.parseInt(arg.substring("--top=".length()));
+                } catch (NumberFormatException e) {
+                    topFoods = 0;
+                }
+                if (topFoods <= 0) {
+                    System.out.println("Expected a positive number: " + arg);
+                    System.exit(1);
+                }
+            } else if (arg.equals("--siblings")) {
+                siblings = true;
+            } else if (arg.startsWith("--")) {
+                System.out.println("Unknown option: " + arg);
+                System.out.println(USAGE);
+                System.exit(1);
+            } else {
+                paths.add(Paths.get(arg));
+            }
+        }
+        if (paths.isEmpty()) {
+            System.out.println(USAGE);
+            System.exit(1);
+        }
+
+        PartialReducer reducer = new PartialReducer();
+        List<PartialResult> partialResults = new ArrayList<>();
+        try {
+            for (Path path : paths) {
+                partialResults.add(PartialResult.read(path));
+            }
+            reducer.expect(partialResults);
+            for (PartialResult partialResult : partialResults) {
+                reducer.add(partialResult);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+        PopulationCalcUtil.printResults(reducer.getResult(), topFoods, siblings);
+        System.out.println(reducer.getSummary());
+    }
+
+    /**
+     * Sizes the fingerprint set for the partial results about to be added, so that it doesn't grow as they are.
+     */
+    public void expect(List<PartialResult> partialResults) {
+        if (partials == 0) {
+            long records = partialResults.stream().mapToLong(PartialResult::getRecords).sum();
+            fingerprintSet = new FingerprintSet((int) Math.min(records, FingerprintSet.MAX_CAPACITY - 1));
+        }
+    }
+
+    /**
+     * Adds the counts of a partial result, taking out those of its entries added by an earlier one if it holds
+     * fingerprints.
+     *
+     * @throws IllegalArgumentException If it doesn't hold fingerprints when the earlier ones did, or the other way
+     * round.
+     */
+    public void add(PartialResult partialResult) throws IOException {
+        if (partials == 0) {
+            sketched = !partialResult.hasFingerprints();
+        } else if (sketched == partialResult.hasFingerprints()) {
+            throw new IllegalArgumentException("Partial results with fingerprints and with sketches can't be merged: "
+                    + partialResult.getPath());
+        }
+        partials++;
+        duplicates += partialResult.getDuplicates();
+        for (int i = 0; i < birthMonthCounts.length; i++) {
+            birthMonthCounts[i] += partialResult.getBirthMonthCounts()[i];
+        }
+        String[] partialFoods = partialResult.getFoods();
+        int[] foodIds = new int[partialFoods.length];
+        for (int i = 0; i < partialFoods.length; i++) {
+            foodIds[i] = foodId(partialFoods[i]);
+            foodCounts[foodIds[i]] += partialResult.getFoodCounts()[i];
+        }
+
+        if (sketched) {
+            if (sketch == null) {
+                sketch = new HyperLogLog(partialResult.getSketch().getPrecision());
+            }
+            sketch.merge(partialResult.getSketch());
+            siblings.merge(partialResult.getSiblings());
+            return;
+        }
+        if (fingerprintSet == null) {
+            fingerprintSet = new FingerprintSet();
+        }
+        // The siblings are counted from the records, the first time an entry is seen.
+        partialResult.forEachRecord((hi, lo, recordSiblings, foodId, month) -> {
+            if (fingerprintSet.add(hi, lo)) {
+                siblings.add(recordSiblings);
+            } else {
+                foodCounts[foodIds[foodId]]--;
+                birthMonthCounts[month]--;
+                crossDuplicates++;
+            }
+        });
+    }
+
+    private int foodId(String sanitizedFood) {
+        int foodId = dictionary.sanitizedFoodId(sanitizedFood);
+        if (foodId == foodCounts.length) {
+            foodCounts = Arrays.copyOf(foodCounts, foodId * 2);
+        }
+        return foodId;
+    }
+
+    /**
+     * @return The counts of the partial results added so far.
+     */
+    public PopulationResult getResult() {
+        String[] sanitizedFoods = dictionary.getFoods();
+        PopulationResult result = new PopulationResult();
+        result.addCounts(siblings, sanitizedFoods, Arrays.copyOf(foodCounts, sanitizedFoods.length),
+                birthMonthCounts);
+        return result;
+    }
+
+    /**
+     * @return Duplicates found within the slices, plus those found across them if the partial results hold
+     * fingerprints.
+     */
+    public long getDuplicates() {
+        return duplicates + crossDuplicates;
+    }
+
+    /**
+     * @return Entries found in an earlier slice, only known if the partial results hold fingerprints.
+     */
+    public long getCrossDuplicates() {
+        return crossDuplicates;
+    }
+
+    /**
+     * @return The merged sketch, or null if the partial results hold fingerprints.
+     */
+    public HyperLogLog getSketch() {
+        return sketch;
+    }
+
+    public String getSummary() {
+        if (sketch == null) {
+            return String.format("Merged %,d partial results: %,d people, %,d duplicates, %,d of them across slices",
+                    partials, siblings.getCount(), getDuplicates(), crossDuplicates);
+        }
+        long distinct = sketch.estimate();
+        return String.format("Merged %,d sketched partial results: %,d people counted, about %,d distinct "
+                + "(+/- %.1f%%), %,d duplicates within slices", partials, siblings.getCount(), distinct,
+                sketch.getStandardError() * 100, duplicates);
+    }
+}
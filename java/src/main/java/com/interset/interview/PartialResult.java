@@ -0,0 +1,196 @@
+package com.interset.interview;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A partial result file, written by {@link PartialAggregator} for a slice of the input and merged with the others by
+ * {@link PartialReducer}.
+ *
+ * The file starts with a magic number, a version and its kind, then either holds one record per unique entry of the
+ * slice (its fingerprint, siblings, food id and birth month, {@link #RECORD_BYTES} bytes), so that the entries found
+ * in several slices can be counted once, or a {@link HyperLogLog} of the fingerprints, which only estimates how many
+ * there are. The records are written as the entries are read, and followed by a trailer: the duplicates within the
+ * slice, the number of records, the counts in the layout of {@link PopulationResult#write(java.io.DataOutput)} (the
+ * food ids of the records being the order of its foods), and the sketch if there is one. The file ends with the offset
+ * of the trailer and the magic number again, so that a file cut short is noticed.
+ */
+public class PartialResult {
+
+    static final int MAGIC = 0x504f5052;
+    static final int VERSION = 2;
+    static final byte FINGERPRINTS = 0;
+    static final byte SKETCH = 1;
+    static final int HEADER_BYTES = 2 * Integer.BYTES + 1;
+    static final int RECORD_BYTES = 2 * Long.BYTES + 2 * Integer.BYTES + 1;
+    static final int FOOTER_BYTES = Long.BYTES + Integer.BYTES;
+
+    private final Path path;
+    private final byte kind;
+    private final long duplicates;
+    private final long records;
+    private final SiblingHistogram siblings;
+    private final long[] birthMonthCounts;
+    private final String[] foods;
+    private final long[] foodCounts;
+    private final HyperLogLog sketch;
+
+    private PartialResult(Path path, byte kind, long duplicates, long records, SiblingHistogram siblings,
+                          long[] birthMonthCounts, String[] foods, long[] foodCounts, HyperLogLog sketch) {
+        this.path = path;
+        this.kind = kind;
+        this.duplicates = duplicates;
+        this.records = records;
+        this.siblings = siblings;
+        this.birthMonthCounts = birthMonthCounts;
+        this.foods = foods;
+        this.foodCounts = foodCounts;
+        this.sketch = sketch;
+    }
+
+    /**
+     * Reads the header and the trailer of a partial result, the records are only read by {@link #forEachRecord}.
+     *
+     * @throws IOException If the file is not a partial result of this version, or is incomplete.
+     */
+    public static PartialResult read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + FOOTER_BYTES) {
+                throw new IOException("Not a partial result: " + path);
+            }
+            ByteBuffer header = ByteBuffer.wrap(Checkpoint.readFully(channel, 0, HEADER_BYTES));
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a partial result: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported partial result version " + version + ": " + path);
+            }
+            byte kind = header.get();
+            if (kind != FINGERPRINTS && kind != SKETCH) {
+                throw new IOException("Unknown partial result kind " + kind + ": " + path);
+            }
+            ByteBuffer footer = ByteBuffer.wrap(Checkpoint.readFully(channel, size - FOOTER_BYTES, FOOTER_BYTES));
+            long trailerOffset = footer.getLong();
+            if (footer.getInt() != MAGIC || trailerOffset < HEADER_BYTES || trailerOffset > size - FOOTER_BYTES) {
+                throw new IOException("Incomplete partial result: " + path);
+            }
+
+            channel.position(trailerOffset);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            long duplicates = input.readLong();
+            long records = input.readLong();
+            if (records != (trailerOffset - HEADER_BYTES) / RECORD_BYTES
+                    || (trailerOffset - HEADER_BYTES) % RECORD_BYTES != 0) {
+                throw new IOException("Incomplete partial result: " + path);
+            }
+            SiblingHistogram siblings = SiblingHistogram.read(input);
+            long[] birthMonthCounts = new long[12];
+            for (int i = 0; i < birthMonthCounts.length; i++) {
+                birthMonthCounts[i] = input.readLong();
+            }
+            int foodCount = input.readInt();
+            String[] foods = new String[foodCount];
+            long[] foodCounts = new long[foodCount];
+            for (int i = 0; i < foodCount; i++) {
+                foods[i] = input.readUTF();
+                foodCounts[i] = input.readLong();
+            }
+            HyperLogLog sketch = kind == SKETCH ? HyperLogLog.read(input) : null;
+            return new PartialResult(path, kind, duplicates, records, siblings, birthMonthCounts, foods, foodCounts,
+                    sketch);
+        }
+    }
+
+    /**
+     * Streams the records, in the order they were written.
+     */
+    public void forEachRecord(RecordConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.position(HEADER_BYTES);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel),
+                    1 << 20));
+            for (long i = 0; i < records; i++) {
+                consumer.accept(input.readLong(), input.readLong(), input.readInt(), input.readInt(),
+                        input.readByte());
+            }
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return True if the file holds the fingerprints of its entries, false if it only holds a sketch of them.
+     */
+    public boolean hasFingerprints() {
+        return kind == FINGERPRINTS;
+    }
+
+    /**
+     * @return Duplicates found within the slice.
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * @return Unique entries of the slice.
+     */
+    public long getPeople() {
+        return siblings.getCount();
+    }
+
+    public long getSiblingSum() {
+        return siblings.getSum();
+    }
+
+    /**
+     * @return Siblings of the unique entries of the slice.
+     */
+    public SiblingHistogram getSiblings() {
+        return siblings;
+    }
+
+    /**
+     * @return Births in each month, from January.
+     */
+    public long[] getBirthMonthCounts() {
+        return birthMonthCounts;
+    }
+
+    /**
+     * @return Sanitized foods, by the food id of the records.
+     */
+    public String[] getFoods() {
+        return foods;
+    }
+
+    public long[] getFoodCounts() {
+        return foodCounts;
+    }
+
+    /**
+     * @return Sketch of the fingerprints, or null if the file holds the fingerprints themselves.
+     */
+    public HyperLogLog getSketch() {
+        return sketch;
+    }
+
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(long hi, long lo, int siblings, int foodId, int month) throws IOException;
+    }
+}
@@ -0,0 +1,378 @@
+package com.interset.interview;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Reads a GZIP file decompressed on other threads, so that inflating the file and parsing it overlap.
+ *
+ * The decompressed bytes go through a ring of reused buffers: a reader thread fills the free buffers in order and queues
+ * them, and {@link #read(byte[], int, int)} copies out of the queued buffers and hands them back once read. At most
+ * a fixed number of buffers exist, so the reader stays a few buffers ahead of the parser and the memory used does not
+ * depend on the file.
+ *
+ * A plain GZIP file, with one member or several, can only be inflated in order, so the reader thread inflates it
+ * itself. A BGZF file (blocked GZIP, as written by bgzip or {@link BgzfOutputStream}) gives the compressed size of each
+ * member in its header, so the reader thread only splits the file into members, and they are inflated in parallel on
+ * a pool of threads, each into its own buffer. The buffers are still handed out in the order of the file.
+ *
+ * Not thread safe: one thread reads the stream.
+ */
+public class PipelinedGzipInputStream extends InputStream {
+
+    static final int BUFFER_BYTES = 256 * 1024;
+    static final int BUFFERS = 4;
+
+    // Largest BGZF member, compressed or not.
+    private static final int MAX_BLOCK_BYTES = 64 * 1024;
+    // Size of a GZIP header with only an extra field, before the field itself.
+    private static final int HEADER_BYTES = 12;
+    private static final int TRAILER_BYTES = 8;
+
+    private static final Chunk END = new Chunk(0, false);
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final InputStream file;
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final BlockingQueue<Chunk> free;
+    private final BlockingQueue<Future<Chunk>> ready;
+    private final ExecutorService inflaters;
+    private final Thread reader;
+
+    private Chunk current = null;
+    private int position = 0;
+    private boolean end = false;
+    private volatile boolean closed = false;
+
+    /**
+     * @param threads Number of threads to inflate BGZF files on. Other GZIP files are inflated on one thread.
+     */
+    public PipelinedGzipInputStream(String filePath, int threads) throws IOException {
+        this.file = new BufferedInputStream(new FileInputStream(filePath), MAX_BLOCK_BYTES);
+        boolean bgzf;
+        try {
+            bgzf = isBgzf(file);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+
+        int buffers = bgzf ? Math.max(BUFFERS, threads * 4) : BUFFERS;
+        this.free = new ArrayBlockingQueue<>(buffers);
+        this.ready = new ArrayBlockingQueue<>(buffers + 1);
+        for (int i = 0; i < buffers; i++) {
+            Chunk chunk = new Chunk(bgzf ? MAX_BLOCK_BYTES : BUFFER_BYTES, bgzf);
+            chunks.add(chunk);
+            free.add(chunk);
+        }
+
+        this.inflaters = bgzf ? Executors.newFixedThreadPool(threads, runnable -> daemon(runnable, "gzip-inflater"))
+                : null;
+        this.reader = daemon(this::run, "gzip-reader");
+        this.reader.start();
+    }
+
+    /**
+     * @return Whether the stream starts with a BGZF header. The stream must support marks.
+     */
+    static boolean isBgzf(InputStream inputStream) throws IOException {
+        byte[] header = new byte[HEADER_BYTES + 6];
+        inputStream.mark(header.length);
+        int length = 0;
+        int read;
+        while (length < header.length && (read = inputStream.read(header, length, header.length - length)) > 0) {
+            length += read;
+        }
+        inputStream.reset();
+        return length == header.length && isGzipHeaderWithExtra(header)
+                && blockSize(header, HEADER_BYTES, Math.min(unsignedShort(header, 10), 6)) >= 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return current.data[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int length = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, length);
+        position += length;
+        return length;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        reader.interrupt();
+        try {
+            reader.join();
+            if (inflaters != null) {
+                inflaters.shutdownNow();
+                inflaters.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Chunk chunk : chunks) {
+                chunk.end();
+            }
+            file.close();
+        }
+    }
+
+    /**
+     * Makes sure the current chunk has bytes left to read, taking the next one if needed.
+     *
+     * @return false at the end of the file.
+     */
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (current == null || position == current.length) {
+            if (end) {
+                return false;
+            }
+            if (current != null) {
+                free.add(current);
+                current = null;
+            }
+
+            Chunk chunk;
+            try {
+                chunk = ready.take().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decompressing");
+            } catch (ExecutionException e) {
+                end = true;
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+            if (chunk == END) {
+                end = true;
+                return false;
+            }
+            current = chunk;
+            position = 0;
+        }
+        return true;
+    }
+
+    /**
+     * The reader thread.
+     */
+    private void run() {
+        try {
+            if (inflaters == null) {
+                inflate();
+            } else {
+                splitBlocks();
+            }
+            ready.put(CompletableFuture.completedFuture(END));
+        } catch (InterruptedException e) {
+            // Closed
+        } catch (IOException | RuntimeException e) {
+            CompletableFuture<Chunk> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            try {
+                ready.put(failed);
+            } catch (InterruptedException closed) {
+                // Nobody is reading anymore
+            }
+        }
+    }
+
+    private void inflate() throws IOException, InterruptedException {
+        InputStream gzip = new GZIPInputStream(file, MAX_BLOCK_BYTES);
+        boolean eof = false;
+        while (!eof) {
+            Chunk chunk = free.take();
+            int length = 0;
+            while (length < chunk.data.length) {
+                int read = gzip.read(chunk.data, length, chunk.data.length - length);
+                if (read < 0) {
+                    eof = true;
+                    break;
+                }
+                length += read;
+            }
+            chunk.length = length;
+            if (length > 0) {
+                ready.put(CompletableFuture.completedFuture(chunk));
+            } else {
+                free.put(chunk);
+            }
+        }
+    }
+
+    /**
+     * Reads the BGZF members one by one, and queues the inflation of each on the pool.
+     */
+    private void splitBlocks() throws IOException, InterruptedException {
+        DataInputStream in = new DataInputStream(file);
+        byte[] header = new byte[HEADER_BYTES];
+        long offset = 0;
+        while (true) {
+            int first = in.read();
+            if (first < 0) {
+                return;
+            }
+            header[0] = (byte) first;
+            in.readFully(header, 1, HEADER_BYTES - 1);
+            if (!isGzipHeaderWithExtra(header)) {
+                throw new ZipException("Not a BGZF member at offset " + offset);
+            }
+
+            Chunk chunk = free.take();
+            int extraLength = unsignedShort(header, 10);
+            if (extraLength > chunk.compressed.length) {
+                throw new ZipException("Not a BGZF member at offset " + offset);
+            }
+            in.readFully(chunk.compressed, 0, extraLength);
+            int blockSize = blockSize(chunk.compressed, 0, extraLength);
+            int rest = blockSize - HEADER_BYTES - extraLength;
+            if (blockSize < 0 || rest < TRAILER_BYTES || rest > chunk.compressed.length) {
+                throw new ZipException("Not a BGZF member at offset " + offset);
+            }
+            in.readFully(chunk.compressed, 0, rest);
+            chunk.compressedLength = rest;
+            offset += blockSize;
+            ready.put(inflaters.submit(chunk::inflate));
+        }
+    }
+
+    private static boolean isGzipHeaderWithExtra(byte[] header) {
+        return (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b && header[2] == 8 && (header[3] & 0x04) != 0;
+    }
+
+    /**
+     * @return Total size of the member, from the "BC" subfield of the extra field, or -1 if there is none.
+     */
+    private static int blockSize(byte[] extra, int offset, int length) {
+        int subfield = offset;
+        while (subfield + 4 <= offset + length) {
+            int subfieldLength = unsignedShort(extra, subfield + 2);
+            if (extra[subfield] == 'B' && extra[subfield + 1] == 'C' && subfieldLength == 2
+                    && subfield + 6 <= offset + length) {
+                return unsignedShort(extra, subfield + 4) + 1;
+            }
+            subfield += 4 + subfieldLength;
+        }
+        return -1;
+    }
+
+    private static int unsignedShort(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8;
+    }
+
+    private static int littleEndianInt(byte[] bytes, int offset) {
+        return unsignedShort(bytes, offset) | unsignedShort(bytes, offset + 2) << 16;
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name + "-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * One buffer of the ring. For BGZF files it also holds the compressed member, and what is needed to inflate it, so
+     * that inflating does not create any object.
+     */
+    private static final class Chunk {
+
+        final byte[] data;
+        int length;
+
+        final byte[] compressed;
+        int compressedLength;
+        private final Inflater inflater;
+        private final CRC32 crc;
+
+        Chunk(int bytes, boolean bgzf) {
+            data = new byte[bytes];
+            compressed = bgzf ? new byte[MAX_BLOCK_BYTES] : null;
+            inflater = bgzf ? new Inflater(true) : null;
+            crc = bgzf ? new CRC32() : null;
+        }
+
+        /**
+         * Inflates the compressed member into the data, and checks it against the trailer.
+         */
+        Chunk inflate() throws IOException {
+            int deflatedLength = compressedLength - TRAILER_BYTES;
+            inflater.reset();
+            // The trailer is given too, raw inflation needs a byte past the deflated data.
+            inflater.setInput(compressed, 0, compressedLength);
+            length = 0;
+            try {
+                while (!inflater.finished()) {
+                    int inflated = inflater.inflate(data, length, data.length - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()
+                            || length == data.length)) {
+                        throw new EOFException("Truncated BGZF member");
+                    }
+                    length += inflated;
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+
+            crc.reset();
+            crc.update(data, 0, length);
+            if ((int) crc.getValue() != littleEndianInt(compressed, deflatedLength)
+                    || length != littleEndianInt(compressed, deflatedLength + 4)) {
+                throw new ZipException("Corrupt BGZF member: wrong CRC or size");
+            }
+            return this;
+        }
+
+        void end() {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+}
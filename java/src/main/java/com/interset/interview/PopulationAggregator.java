@@ -0,0 +1,106 @@
+package com.interset.interview;
+
+/**
+ * Single pass aggregation of population entries.
+ *
+ * Each entry is checked against the entries seen so far, and only added to the running {@link PopulationResult} if it
+ * is not a duplicate (see the assumptions in {@link Runner}). The entry itself can be dropped by the caller right after,
+ * so the memory used only depends on the de-duplication state and not the whole data set.
+ *
+ * If {@link PopulationStats} are enabled when the aggregator is created, the entries are counted and a sample of them
+ * timed.
+ */
+public class PopulationAggregator implements PopulationSink {
+
+    private final PopulationResult populationResult = new PopulationResult();
+    private final PopulationDeduplicator deduplicator;
+    private final PopulationStats.Recorder recorder;
+
+    public PopulationAggregator() {
+        this(new PopulationDeduplicator());
+    }
+
+    public PopulationAggregator(PopulationDeduplicator deduplicator) {
+        this.deduplicator = deduplicator;
+        PopulationStats stats = PopulationStats.active();
+        this.recorder = stats == null ? null : stats.newRecorder(populationResult);
+    }
+
+    /**
+     * Adds an entry to the result, unless an identical entry was already added.
+     *
+     * @param populationEntryDto Entry to add. It is not modified.
+     * @return True if the entry was added, false if it was a duplicate.
+     */
+    @Override
+    public boolean add(PopulationEntryDto populationEntryDto) {
+        if (recorder != null && recorder.sample()) {
+            return addRecorded(populationEntryDto);
+        }
+        if (!deduplicator.add(populationEntryDto)) {
+            return false;
+        }
+        PopulationCalcUtil.addPopulationDtoToResult(populationResult, populationEntryDto);
+        return true;
+    }
+
+    /**
+     * Adds a record to the result, unless an identical entry was already added.
+     *
+     * @param populationRecord Record to add, with its fingerprint set. It is not kept, so it can be reused.
+     * @return True if the record was added, false if it was a duplicate.
+     */
+    @Override
+    public boolean add(PopulationRecord populationRecord) {
+        if (recorder != null && recorder.sample()) {
+            return addRecorded(populationRecord);
+        }
+        if (!deduplicator.add(populationRecord)) {
+            return false;
+        }
+        PopulationCalcUtil.addPopulationRecordToResult(populationResult, populationRecord);
+        return true;
+    }
+
+    private boolean addRecorded(PopulationEntryDto populationEntryDto) {
+        long start = System.nanoTime();
+        boolean added = deduplicator.add(populationEntryDto);
+        long deduplicated = System.nanoTime();
+        if (added) {
+            PopulationCalcUtil.addPopulationDtoToResult(populationResult, populationEntryDto);
+        }
+        recorder.record(start, deduplicated, System.nanoTime());
+        return added;
+    }
+
+    private boolean addRecorded(PopulationRecord populationRecord) {
+        long start = System.nanoTime();
+        boolean added = deduplicator.add(populationRecord);
+        long deduplicated = System.nanoTime();
+        if (added) {
+            PopulationCalcUtil.addPopulationRecordToResult(populationResult, populationRecord);
+        }
+        recorder.record(start, deduplicated, System.nanoTime());
+        return added;
+    }
+
+    /**
+     * @return True if the records added need their names to be set, see {@link PopulationDeduplicator#add(PopulationRecord)}.
+     */
+    @Override
+    public boolean needsNames() {
+        return deduplicator.isExactVerify();
+    }
+
+    public PopulationResult getResult() {
+        return populationResult;
+    }
+
+    public PopulationDeduplicator getDeduplicator() {
+        return deduplicator;
+    }
+
+    public long getDuplicates() {
+        return deduplicator.getDuplicates();
+    }
+}
@@ -1,10 +1,10 @@
 package com.interset.interview;
 
+import java.time.DayOfWeek;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.time.ZoneId;
-import java.time.format.TextStyle;
 import java.util.*;
 
 /**
@@ -15,6 +15,10 @@ import java.util.*;
  */
 public class PopulationCalcUtil {
 
+    private static final BirthMonthResolver BIRTH_MONTHS = new BirthMonthResolver();
+    private static final String[] MONTH_NAMES = displayNames(Month.values());
+    private static final String[] DAY_NAMES = displayNames(DayOfWeek.values());
+
     public static PopulationResult generateResult(Set<PopulationEntryDto> populationEntryDtos) {
         PopulationResult populationResult = new PopulationResult();
         for (PopulationEntryDto populationEntryDto : populationEntryDtos) {
@@ -24,67 +28,272 @@ public class PopulationCalcUtil {
     }
 
     public static void addPopulationDtoToResult(PopulationResult populationResult, PopulationEntryDto populationEntryDto) {
-        // add to sibling sum
-        populationResult.addToSiblingSum(populationEntryDto.getSiblings());
+        addToResult(populationResult, populationEntryDto.getSiblings(), populationEntryDto.getFavouriteFood(),
+                populationEntryDto.getBirthTimezone(), populationEntryDto.getBirthTimeStamp());
+    }
+
+    public static void addPopulationRecordToResult(PopulationResult populationResult, PopulationRecord populationRecord) {
+        addToResult(populationResult, populationRecord.getSiblings(), populationRecord.getFavouriteFood(),
+                populationRecord.getBirthTimezone(), populationRecord.getBirthTimeStamp());
+    }
 
-        // add to Food frequency map
-        String food = populationEntryDto.getSanitizedFavouriteFood();
+    private static void addToResult(PopulationResult populationResult, int siblings, String favouriteFood,
+                                    String birthTimezone, long birthTimeStamp) {
+        // add to sibling sum
+        populationResult.addToSiblingSum(siblings);
 
-        Map<String, Integer> favFoodFreq = populationResult.getFavouriteFoods();
-        int foodCount = favFoodFreq.containsKey(food) ? favFoodFreq.get(food) : 0;
-        favFoodFreq.put(food, foodCount + 1);
+        // add to Food frequency counts, the food is sanitized by the result
+        populationResult.addFavouriteFood(favouriteFood);
 
-        // add to Birth Month frequency map
-        LocalDateTime date = getLocalDateTime(populationEntryDto);
-        Month birthMonth = date.getMonth();
-        Map<Month, Integer> birthMonthFrequency = populationResult.getBirthMonthFrequency();
-        int birthCount = birthMonthFrequency.containsKey(date.getMonth()) ? birthMonthFrequency.get(birthMonth) : 0;
-        birthMonthFrequency.put(birthMonth, birthCount + 1);
+        // add to Birth Month frequency counts
+        populationResult.addBirth(birthTimeStamp, birthTimezone);
     }
 
     public static LocalDateTime getLocalDateTime(PopulationEntryDto populationEntryDto) {
-        LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(populationEntryDto.getBirthTimeStamp()),
-                ZoneId.of(populationEntryDto.getBirthTimezone()));
+        return getLocalDateTime(populationEntryDto.getBirthTimeStamp(), populationEntryDto.getBirthTimezone());
+    }
+
+    public static LocalDateTime getLocalDateTime(long birthTimeStamp, String birthTimezone) {
+        LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(birthTimeStamp), ZoneId.of(birthTimezone));
         return date;
     }
 
+    /**
+     * Same as {@code getLocalDateTime(birthTimeStamp, birthTimezone).getMonth()}, without creating anything once the
+     * timezone has been seen. See {@link BirthMonthResolver}.
+     */
+    public static Month getBirthMonth(long birthTimeStamp, String birthTimezone) {
+        return BIRTH_MONTHS.getMonth(birthTimeStamp, birthTimezone);
+    }
+
+    /**
+     * @return The months of a timezone, to keep instead of looking the timezone up for every entry.
+     */
+    public static BirthMonthResolver.Zone getBirthZone(String birthTimezone) {
+        return BIRTH_MONTHS.getZone(birthTimezone);
+    }
+
+    /**
+     * @return The English name of the month, e.g. "January", the same as
+     * {@code month.getDisplayName(TextStyle.FULL, Locale.CANADA)} without loading the locale data of the JDK, which
+     * takes longer than reading a small file.
+     */
+    public static String getMonthName(Month month) {
+        return MONTH_NAMES[month.ordinal()];
+    }
+
+    /**
+     * @return The English name of the day, e.g. "Monday", see {@link #getMonthName(Month)}.
+     */
+    public static String getDayName(DayOfWeek day) {
+        return DAY_NAMES[day.ordinal()];
+    }
+
+    private static String[] displayNames(Enum<?>[] values) {
+        String[] names = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            String name = values[i].name();
+            names[i] = name.charAt(0) + name.substring(1).toLowerCase(Locale.ROOT);
+        }
+        return names;
+    }
+
     public static void printResults(PopulationResult populationResult) {
+        printResults(populationResult, 3);
+    }
+
+    /**
+     * @param topFoods Number of favourite foods to print.
+     */
+    public static void printResults(PopulationResult populationResult, int topFoods) {
+        printResults(populationResult, topFoods, false);
+    }
+
+    /**
+     * @param topFoods Number of favourite foods to print.
+     * @param siblings True to also print the distribution of the siblings, see
+     *                 {@link #calculateSiblingDistribution(SiblingHistogram)}.
+     */
+    public static void printResults(PopulationResult populationResult, int topFoods, boolean siblings) {
         System.out.println("Average siblings: " + calculateAverageSiblings(populationResult));
-        System.out.println("Three favourite foods:" + calculateThreeFavouriteFoods(populationResult));
+        if (siblings) {
+            System.out.println("Siblings:" + calculateSiblingDistribution(populationResult.getSiblings()));
+        }
+        if (topFoods == 3) {
+            System.out.println("Three favourite foods:" + calculateThreeFavouriteFoods(populationResult));
+        } else {
+            System.out.println("Top " + topFoods + " favourite foods:"
+                    + calculateFavouriteFoods(populationResult, topFoods));
+        }
         System.out.println("Birth Months:" + calculateBirthMonthTotals(populationResult));
     }
 
+    /**
+     * Prints the groups of each query (see {@link GroupByEngine}), one per line after the query, e.g.
+     * "  January, pizza: 1234, 2.50". Averages have 2 decimals.
+     */
+    public static void printQueryResults(List<GroupByEngine.Result> results) {
+        for (GroupByEngine.Result result : results) {
+            System.out.println("Query " + result.getQuery() + ":");
+            for (GroupByEngine.Row row : result.getRows()) {
+                StringJoiner values = new StringJoiner(", ");
+                for (Number value : row.getValues()) {
+                    values.add(value instanceof Double ? String.format("%.2f", value) : value.toString());
+                }
+                String labels = row.getLabels().isEmpty() ? "all" : String.join(", ", row.getLabels());
+                System.out.println("  " + labels + ": " + values);
+            }
+        }
+    }
+
+    /**
+     * Prints what was read from each file, and how fast, when several files were read at once.
+     *
+     * @param nanos Time taken to read all the files.
+     */
+    public static void printFileReports(List<MultiFileReader.FileReport> reports, long nanos) {
+        long rows = 0;
+        long unique = 0;
+        long bytes = 0;
+        for (MultiFileReader.FileReport report : reports) {
+            rows += report.getRows();
+            unique += report.getUnique();
+            bytes += report.getBytes();
+        }
+        System.out.println("Files: " + reports.size() + ", " + rows + " rows (" + unique + " unique), "
+                + formatThroughput(rows, bytes, nanos));
+        for (MultiFileReader.FileReport report : reports) {
+            System.out.println("  " + report.getFilePath() + ": " + report.getRows() + " rows (" + report.getUnique()
+                    + " unique, " + report.getDuplicates() + " duplicates), "
+                    + formatThroughput(report.getRows(), report.getBytes(), report.getNanos()));
+        }
+    }
+
+    private static String formatThroughput(long rows, long bytes, long nanos) {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        return String.format("%.1f MB in %d ms, %.0f rows/s, %.1f MB/s", bytes / (1024.0 * 1024.0), nanos / 1_000_000,
+                rows / seconds, bytes / (1024.0 * 1024.0) / seconds);
+    }
+
+    /**
+     * Prints the results of the --approximate mode, with the error bound of each number.
+     *
+     * @param topFoods Number of favourite foods to print.
+     */
+    public static void printApproximateResults(ApproximateAggregator aggregator, int topFoods) {
+        System.out.println("Approximate results over " + aggregator.getRows() + " rows, duplicates included, using "
+                + String.format("%.1f", aggregator.getMemoryBytes() / (1024.0 * 1024.0)) + " MB");
+        System.out.println("Distinct people: " + aggregator.getDistinctPeople() + " (standard error "
+                + String.format("%.2f", aggregator.getDistinctPeopleError() * 100) + "%)");
+        long averageSiblings = aggregator.getRows() == 0 ? 0
+                : (long) Math.ceil(aggregator.getSiblingSum() / (double) aggregator.getRows());
+        System.out.println("Average siblings: " + averageSiblings + " (exact)");
+        System.out.println((topFoods == 3 ? "Three favourite foods:" : "Top " + topFoods + " favourite foods:")
+                + calculateApproximateFavouriteFoods(aggregator.getFoods(), topFoods));
+        System.out.println("Other foods: at most " + aggregator.getFoods().getMaxError() + " each");
+        StringJoiner months = new StringJoiner(",");
+        for (Month month : Month.values()) {
+            months.add(" " + getMonthName(month) + " (" + aggregator.getBirthMonthFrequency(month) + ")");
+        }
+        System.out.println("Birth Months (exact):" + months);
+    }
+
+    /**
+     * @return The k most frequent foods of the sketch, with the range their true count is in, e.g.
+     * " pizza (3200 to 3231), steak (3100)" when the count of steak is exact.
+     */
+    public static String calculateApproximateFavouriteFoods(SpaceSaving foods, int k) {
+        StringJoiner result = new StringJoiner(",");
+        for (int counter : foods.top(k)) {
+            long count = foods.getCount(counter);
+            long error = foods.getError(counter);
+            result.add(" " + foods.getLabel(counter) + " ("
+                    + (error == 0 ? String.valueOf(count) : (count - error) + " to " + count) + ")");
+        }
+        return result.toString();
+    }
+
+    /**
+     * @param topFoods Number of favourite foods to list.
+     * @return The results printed by {@link #printResults(PopulationResult, int)}, as maps and lists to write as JSON.
+     */
+    public static Map<String, Object> getResults(PopulationResult populationResult, int topFoods) {
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("people", populationResult.getSize());
+        results.put("averageSiblings", calculateAverageSiblings(populationResult));
+        SiblingHistogram histogram = populationResult.getSiblings();
+        Map<String, Object> siblings = new LinkedHashMap<>();
+        siblings.put("sum", histogram.getSum());
+        siblings.put("mean", histogram.getMean());
+        siblings.put("median", histogram.getMedian());
+        siblings.put("p90", histogram.getPercentile(0.9));
+        siblings.put("p99", histogram.getPercentile(0.99));
+        siblings.put("max", histogram.getMax());
+        siblings.put("mode", histogram.getMode());
+        results.put("siblings", siblings);
+        List<Map<String, Object>> favouriteFoods = new ArrayList<>();
+        for (int foodId : populationResult.getTopFoodIds(topFoods)) {
+            Map<String, Object> food = new LinkedHashMap<>();
+            food.put("food", populationResult.getFood(foodId));
+            food.put("count", populationResult.getFoodFrequency(foodId));
+            favouriteFoods.add(food);
+        }
+        results.put("favouriteFoods", favouriteFoods);
+        Map<String, Long> birthMonths = new LinkedHashMap<>();
+        for (Month month : Month.values()) {
+            birthMonths.put(getMonthName(month), populationResult.getBirthMonthFrequency(month));
+        }
+        results.put("birthMonths", birthMonths);
+        return results;
+    }
+
     public static int calculateAverageSiblings(PopulationResult populationResult) {
         if (populationResult.getSize() == 0) return 0;
         return (int) Math.ceil(populationResult.getSiblingSum() / ((double) populationResult.getSize()));
     }
 
+    /**
+     * @return The distribution of the siblings, e.g. " mean 2.49, median 2, p90 5, p99 8, max 10, mode 2", followed by
+     * the number of values out of the buckets of the histogram if there are any.
+     */
+    public static String calculateSiblingDistribution(SiblingHistogram histogram) {
+        String distribution = String.format(" mean %.2f, median %d, p90 %d, p99 %d, max %d, mode %d",
+                histogram.getMean(), histogram.getMedian(), histogram.getPercentile(0.9),
+                histogram.getPercentile(0.99), histogram.getMax(), histogram.getMode());
+        return histogram.getOverflow() == 0 ? distribution
+                : distribution + " (" + histogram.getOverflow() + " out of 0 to " + (SiblingHistogram.VALUES - 1) + ")";
+    }
+
     public static String calculateThreeFavouriteFoods(PopulationResult populationResult) {
-        List<String> topFoods = getTopFoods(populationResult);
+        return calculateFavouriteFoods(populationResult, 3);
+    }
+
+    /**
+     * @param k Number of foods to list.
+     * @return The k most frequent foods with their counts, most frequent first, e.g. " chicken (3), pizza (2)".
+     */
+    public static String calculateFavouriteFoods(PopulationResult populationResult, int k) {
         StringJoiner result = new StringJoiner(",");
-        for (String topFood : topFoods) {
-            result.add(" " + topFood + " (" + populationResult.getFavouriteFoods().get(topFood) + ")");
+        for (int foodId : populationResult.getTopFoodIds(k)) {
+            result.add(" " + populationResult.getFood(foodId) + " (" + populationResult.getFoodFrequency(foodId) + ")");
         }
 
         return result.toString();
     }
 
     public static List<String> getTopFoods(PopulationResult populationResult) {
-        // We could also sort here and iterate through the top 3.
-        // But since we're only grabbing the top 3, doing three passes through the unsorted array should be faster.
+        return getTopFoods(populationResult, 3);
+    }
+
+    /**
+     * @param k Number of foods to return.
+     * @return The k most frequent foods, most frequent first. Ties are in alphabetical order.
+     */
+    public static List<String> getTopFoods(PopulationResult populationResult, int k) {
+        // One pass over the counts with a heap of k foods, see TopK.
         List<String> topFoods = new ArrayList<>();
-        for (int i = 0; i < populationResult.getSize() && i < 3; i++) {
-            int maxFreq = 0;
-            String maxFood = null;
-            for (Map.Entry<String, Integer> entry : populationResult.getFavouriteFoods().entrySet()) {
-                if (!topFoods.contains(entry.getKey()) && entry.getValue() > maxFreq) {
-                    maxFreq = entry.getValue();
-                    maxFood = entry.getKey();
-                }
-            }
-            if (maxFood != null) {
-                topFoods.add(maxFood);
-            }
+        for (int foodId : populationResult.getTopFoodIds(k)) {
+            topFoods.add(populationResult.getFood(foodId));
         }
         return topFoods;
     }
@@ -92,9 +301,8 @@ public class PopulationCalcUtil {
     public static String calculateBirthMonthTotals(PopulationResult populationResult) {
         StringJoiner result = new StringJoiner(",");
         for (Month month : Month.values()) {
-            int birthFreq = populationResult.getBirthMonthFrequency().containsKey(month) ?
-                    populationResult.getBirthMonthFrequency().get(month) : 0;
-            result.add(" " + month.getDisplayName(TextStyle.FULL, Locale.CANADA) + " (" + birthFreq + ")");
+            long birthFreq = populationResult.getBirthMonthFrequency(month);
+            result.add(" " + getMonthName(month) + " (" + birthFreq + ")");
         }
         return result.toString();
     }
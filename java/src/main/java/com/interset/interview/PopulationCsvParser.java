@@ -0,0 +1,327 @@
+package com.interset.interview;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Parses population CSV rows straight from bytes into a reused {@link PopulationRecord}, without going through Jackson.
+ *
+ * The columns are expected in the order of the {@link PopulationEntryDto} @JsonPropertyOrder, as Jackson's schema does.
+ * Fields can be quoted, with quotes inside them doubled, as in RFC 4180. The siblings and birth timestamp are parsed
+ * as numbers straight from the bytes. The favourite food and birth timezone go through a {@link ByteStringCache}, so they
+ * are only decoded the first time a value is seen. The names are only hashed into the fingerprint, unless they are asked
+ * for with {@link #setReadNames(boolean)}.
+ *
+ * The parser works on a region of a buffer that may end in the middle of a row. {@link #next(PopulationRecord)} then
+ * stops at the start of that row, so that the caller can come back with more data.
+ *
+ * Not thread safe, use one instance per thread.
+ */
+public class PopulationCsvParser {
+
+    private static final int FIELDS = 6;
+    private static final int FIRST_NAME = 0;
+    private static final int LAST_NAME = 1;
+    private static final int SIBLINGS = 2;
+    private static final int FAVOURITE_FOOD = 3;
+    private static final int BIRTH_TIMEZONE = 4;
+    private static final int BIRTH_TIMESTAMP = 5;
+
+    private static final long COMMAS = 0x2c2c2c2c2c2c2c2cL;
+    private static final long CARRIAGE_RETURNS = 0x0d0d0d0d0d0d0d0dL;
+    private static final long LINE_FEEDS = 0x0a0a0a0a0a0a0a0aL;
+
+    private final ByteBuffer[] fieldBuffers = new ByteBuffer[FIELDS];
+    private final int[] fieldStarts = new int[FIELDS];
+    private final int[] fieldEnds = new int[FIELDS];
+
+    private final ByteStringCache foods = new ByteStringCache();
+    private final ByteStringCache timezones = new ByteStringCache();
+    private final PopulationFingerprint fingerprint = new PopulationFingerprint();
+
+    // Holds the fields that had doubled quotes in them, once unescaped.
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+    private ByteBuffer buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private long offset;
+
+    private boolean readNames = false;
+
+    /**
+     * @param readNames Whether the names should be decoded into the records, see {@link PopulationAggregator#needsNames()}.
+     */
+    public void setReadNames(boolean readNames) {
+        this.readNames = readNames;
+    }
+
+    /**
+     * Starts parsing a new region of bytes.
+     *
+     * @param buffer Bytes to parse, in big endian order. Only read with absolute gets, its position and limit are not
+     *               used.
+     * @param position Where to start.
+     * @param limit Where to stop.
+     * @param endOfInput Whether the input ends at the limit. If not, a row running into the limit is left for later.
+     * @param offset Offset of the buffer in the input, for error messages.
+     */
+    public void reset(ByteBuffer buffer, int position, int limit, boolean endOfInput, long offset) {
+        this.buffer = buffer;
+        this.position = position;
+        this.limit = limit;
+        this.endOfInput = endOfInput;
+        this.offset = offset;
+    }
+
+    /**
+     * @return Position right after the last row that was parsed or skipped.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Skips a line without parsing it, e.g. the header.
+     *
+     * @return False if the line did not end before the limit, in which case nothing was skipped.
+     */
+    public boolean skipLine() {
+        for (int p = position; p < limit; p++) {
+            if (buffer.get(p) == '\n') {
+                position = p + 1;
+                return true;
+            }
+        }
+        if (endOfInput) {
+            position = limit;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parses the next row. Empty lines are skipped.
+     *
+     * @param record Record to fill in.
+     * @return False if there is no complete row left before the limit.
+     * @throws IOException If the row is malformed.
+     */
+    public boolean next(PopulationRecord record) throws IOException {
+        while (position < limit && isLineBreak(buffer.get(position))) {
+            position++;
+        }
+        if (position >= limit) {
+            return false;
+        }
+
+        scratch.clear();
+        int p = position;
+        for (int field = 0; field < FIELDS; field++) {
+            if (p < limit && buffer.get(p) == '"') {
+                p = readQuoted(field, p + 1);
+                if (p < 0) {
+                    return false;
+                }
+            } else {
+                int start = p;
+                p = findDelimiter(p);
+                setField(field, buffer, start, p);
+            }
+
+            if (p >= limit) {
+                if (!endOfInput) {
+                    return false;
+                }
+                if (field < FIELDS - 1) {
+                    throw malformed(p, "expected " + FIELDS + " columns but found " + (field + 1));
+                }
+                break;
+            }
+            byte b = buffer.get(p);
+            if (field < FIELDS - 1) {
+                if (b != ',') {
+                    throw malformed(p, "expected " + FIELDS + " columns but found " + (field + 1));
+                }
+                p++;
+            } else if (b == ',') {
+                throw malformed(p, "expected " + FIELDS + " columns but found more");
+            } else if (!isLineBreak(b)) {
+                throw malformed(p, "unexpected character after quoted value");
+            }
+        }
+
+        fill(record, p);
+        position = p;
+        return true;
+    }
+
+    private void fill(PopulationRecord record, int p) throws IOException {
+        int siblings = (int) parseLong(SIBLINGS, p, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        long birthTimeStamp = parseLong(BIRTH_TIMESTAMP, p, Long.MIN_VALUE, Long.MAX_VALUE);
+        String favouriteFood = foods.get(fieldBuffers[FAVOURITE_FOOD], fieldStarts[FAVOURITE_FOOD], fieldEnds[FAVOURITE_FOOD]);
+        String birthTimezone = timezones.get(fieldBuffers[BIRTH_TIMEZONE], fieldStarts[BIRTH_TIMEZONE], fieldEnds[BIRTH_TIMEZONE]);
+
+        record.setSiblings(siblings);
+        record.setBirthTimeStamp(birthTimeStamp);
+        record.setFavouriteFood(favouriteFood);
+        record.setBirthTimezone(birthTimezone);
+        if (readNames) {
+            record.setFirstName(decode(FIRST_NAME));
+            record.setLastName(decode(LAST_NAME));
+        }
+
+        // Same fields, in the same order, as PopulationFingerprint.hash(PopulationEntryDto)
+        fingerprint.reset()
+                .putUtf8(fieldBuffers[FIRST_NAME], fieldStarts[FIRST_NAME], fieldEnds[FIRST_NAME])
+                .putUtf8(fieldBuffers[LAST_NAME], fieldStarts[LAST_NAME], fieldEnds[LAST_NAME])
+                .putLong(siblings)
+                .putSanitizedFood(favouriteFood)
+                .putString(birthTimezone)
+                .putLong(birthTimeStamp)
+                .finish();
+        record.setFingerprint(fingerprint.getHi(), fingerprint.getLo());
+    }
+
+    /**
+     * Reads a quoted field, starting after the opening quote.
+     *
+     * @return Position after the closing quote, or -1 if the field runs into the limit.
+     */
+    private int readQuoted(int field, int p) throws IOException {
+        int start = p;
+        int scratchStart = -1;
+        while (p < limit) {
+            byte b = buffer.get(p);
+            if (b == '"') {
+                if (p + 1 >= limit && !endOfInput) {
+                    return -1;
+                }
+                if (p + 1 < limit && buffer.get(p + 1) == '"') {
+                    // Doubled quote: from here on the value is copied without the escaping.
+                    if (scratchStart < 0) {
+                        scratchStart = scratch.position();
+                        for (int i = start; i < p; i++) {
+                            appendScratch(buffer.get(i));
+                        }
+                    }
+                    appendScratch((byte) '"');
+                    p += 2;
+                    continue;
+                }
+                if (scratchStart < 0) {
+                    setField(field, buffer, start, p);
+                } else {
+                    setField(field, scratch, scratchStart, scratch.position());
+                }
+                return p + 1;
+            }
+            if (scratchStart >= 0) {
+                appendScratch(b);
+            }
+            p++;
+        }
+        if (endOfInput) {
+            throw malformed(start - 1, "quoted value is not closed");
+        }
+        return -1;
+    }
+
+    private void appendScratch(byte b) {
+        if (!scratch.hasRemaining()) {
+            ByteBuffer bigger = ByteBuffer.allocate(scratch.capacity() * 2);
+            scratch.flip();
+            bigger.put(scratch);
+            // Fields already pointing at the old scratch buffer have to follow it.
+            for (int i = 0; i < FIELDS; i++) {
+                if (fieldBuffers[i] == scratch) {
+                    fieldBuffers[i] = bigger;
+                }
+            }
+            scratch = bigger;
+        }
+        scratch.put(b);
+    }
+
+    private void setField(int field, ByteBuffer fieldBuffer, int start, int end) {
+        fieldBuffers[field] = fieldBuffer;
+        fieldStarts[field] = start;
+        fieldEnds[field] = end;
+    }
+
+    private String decode(int field) {
+        return PopulationFingerprint.decodeUtf8(fieldBuffers[field], fieldStarts[field], fieldEnds[field]);
+    }
+
+    private long parseLong(int field, int p, long min, long max) throws IOException {
+        ByteBuffer fieldBuffer = fieldBuffers[field];
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+
+        boolean negative = false;
+        int i = start;
+        if (i < end && (fieldBuffer.get(i) == '-' || fieldBuffer.get(i) == '+')) {
+            negative = fieldBuffer.get(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            throw malformed(p, "not a number: " + decode(field));
+        }
+        // 18 digits always fit in a long, which is more than the columns need.
+        if (end - i > 18) {
+            throw malformed(p, "number out of range: " + decode(field));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = fieldBuffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw malformed(p, "not a number: " + decode(field));
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value < min || value > max) {
+            throw malformed(p, "number out of range: " + decode(field));
+        }
+        return value;
+    }
+
+    private IOException malformed(int p, String message) {
+        return new IOException("Malformed CSV row at byte " + (offset + p) + ": " + message);
+    }
+
+    /**
+     * @return Position of the first ',', '\r' or '\n' from p on, or the limit if there is none.
+     */
+    private int findDelimiter(int p) {
+        // 8 bytes at a time while there are enough left.
+        for (; p + 8 <= limit; p += 8) {
+            long word = buffer.getLong(p);
+            long found = zeroBytes(word ^ COMMAS) | zeroBytes(word ^ CARRIAGE_RETURNS) | zeroBytes(word ^ LINE_FEEDS);
+            if (found != 0) {
+                // Big endian: the first byte is the most significant one.
+                return p + (Long.numberOfLeadingZeros(found) >>> 3);
+            }
+        }
+        for (; p < limit; p++) {
+            byte b = buffer.get(p);
+            if (b == ',' || isLineBreak(b)) {
+                return p;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * @return A word with the high bit set in every byte that is zero in the given word, and nothing else set.
+     */
+    private static long zeroBytes(long word) {
+        long low7 = (word & 0x7f7f7f7f7f7f7f7fL) + 0x7f7f7f7f7f7f7f7fL;
+        return ~(low7 | word | 0x7f7f7f7f7f7f7f7fL);
+    }
+
+    private static boolean isLineBreak(byte b) {
+        return b == '\n' || b == '\r';
+    }
+}
@@ -0,0 +1,118 @@
+package com.interset.interview;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Reads population CSV rows from any stream (e.g. a decompressed GZIP file) with a {@link PopulationCsvParser}, instead
+ * of Jackson databind.
+ *
+ * The stream is read into one buffer that is reused for the whole input, and every row is parsed into the same
+ * {@link PopulationRecord}. Once the foods and timezones have all been seen, reading a row does not create any object.
+ *
+ * Not thread safe, use one reader per thread.
+ */
+public class PopulationCsvReader {
+
+    static final int DEFAULT_BUFFER_BYTES = 64 * 1024;
+
+    private final PopulationCsvParser parser = new PopulationCsvParser();
+    private final PopulationRecord record = new PopulationRecord();
+
+    private byte[] bytes;
+    private ByteBuffer buffer;
+
+    public PopulationCsvReader() {
+        this(DEFAULT_BUFFER_BYTES);
+    }
+
+    PopulationCsvReader(int bufferBytes) {
+        bytes = new byte[bufferBytes];
+        buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Reads the whole stream, skipping its header, and adds every row to the aggregator.
+     *
+     * @param inputStream Stream to a CSV file. It is not closed.
+     * @param aggregator Aggregator to add the rows to.
+     * @throws IOException
+     */
+    public void read(InputStream inputStream, PopulationSink aggregator) throws IOException {
+        read(inputStream, true, aggregator.needsNames(), aggregator::add);
+    }
+
+    /**
+     * Reads the whole stream and adds every row to the aggregator.
+     *
+     * @param inputStream Stream to a CSV file, or to rows of one. It is not closed.
+     * @param skipHeader Whether the stream starts with a header to skip.
+     * @param aggregator Aggregator to add the rows to.
+     * @throws IOException
+     */
+    public void read(InputStream inputStream, boolean skipHeader, PopulationSink aggregator) throws IOException {
+        read(inputStream, skipHeader, aggregator.needsNames(), aggregator::add);
+    }
+
+    /**
+     * Reads the whole stream, skipping its header, and hands every row to the consumer.
+     *
+     * @param inputStream Stream to a CSV file. It is not closed.
+     * @param readNames Whether the names should be decoded into the record.
+     * @param consumer Receives every row. The record is reused for the next row, so it must not be kept.
+     * @throws IOException
+     */
+    public void read(InputStream inputStream, boolean readNames, Consumer<PopulationRecord> consumer)
+            throws IOException {
+        read(inputStream, true, readNames, consumer);
+    }
+
+    private void read(InputStream inputStream, boolean skipHeader, boolean readNames,
+                      Consumer<PopulationRecord> consumer) throws IOException {
+        parser.setReadNames(readNames);
+
+        long offset = 0;
+        int start = 0;
+        int limit = 0;
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            // Keep the unparsed end of the buffer, and fill up the rest.
+            if (start > 0) {
+                System.arraycopy(bytes, start, bytes, 0, limit - start);
+                offset += start;
+                limit -= start;
+                start = 0;
+            } else if (limit == bytes.length) {
+                // A row doesn't fit in the buffer.
+                grow();
+            }
+            int read = inputStream.read(bytes, limit, bytes.length - limit);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                limit += read;
+            }
+
+            parser.reset(buffer, start, limit, endOfInput, offset);
+            if (skipHeader) {
+                if (!parser.skipLine()) {
+                    continue;
+                }
+                skipHeader = false;
+            }
+            while (parser.next(record)) {
+                consumer.accept(record);
+            }
+            start = parser.getPosition();
+        }
+    }
+
+    private void grow() {
+        byte[] bigger = new byte[bytes.length * 2];
+        System.arraycopy(bytes, 0, bigger, 0, bytes.length);
+        bytes = bigger;
+        buffer = ByteBuffer.wrap(bytes);
+    }
+}
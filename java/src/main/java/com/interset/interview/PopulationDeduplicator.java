@@ -0,0 +1,126 @@
+package com.interset.interview;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Detects duplicate population entries (see the assumptions in {@link Runner}).
+ *
+ * By default only a 128-bit fingerprint of each unique entry is kept, in a {@link FingerprintSet}. Two different
+ * entries with the same fingerprint would be counted as one, the odds of which are given by
+ * {@link #getCollisionProbability()}.
+ *
+ * In the exact-verify mode the unique entries are also kept, and are the ones deciding whether an entry is a duplicate.
+ * The fingerprints are still checked so that any collision is counted, see {@link #getCollisions()}. This costs as much
+ * memory as keeping every entry in a set, so it is meant for checking data sets, not for large ones.
+ *
+ * Not thread safe.
+ */
+public class PopulationDeduplicator {
+
+    private final FingerprintStore fingerprints;
+    private final PopulationFingerprint fingerprint = new PopulationFingerprint();
+    private final Set<PopulationEntryDto> exactEntries;
+
+    private long duplicates = 0;
+    private long collisions = 0;
+
+    public PopulationDeduplicator() {
+        this(false);
+    }
+
+    /**
+     * @param exactVerify Keep the unique entries to verify every fingerprint match.
+     */
+    public PopulationDeduplicator(boolean exactVerify) {
+        this.fingerprints = new FingerprintSet();
+        this.exactEntries = exactVerify ? new HashSet<>() : null;
+    }
+
+    /**
+     * @param fingerprints Where to keep the fingerprints. Can be shared with other de-duplicators, one per thread, if
+     *                     it is thread safe (see {@link ConcurrentFingerprintSet}).
+     */
+    public PopulationDeduplicator(FingerprintStore fingerprints) {
+        this.fingerprints = fingerprints;
+        this.exactEntries = null;
+    }
+
+    /**
+     * @param populationEntryDto Entry to check. It is only kept in the exact-verify mode, in which case it must not be
+     *                           modified afterwards.
+     * @return True if the entry was not seen before.
+     */
+    public boolean add(PopulationEntryDto populationEntryDto) {
+        fingerprint.hash(populationEntryDto);
+        boolean newFingerprint = fingerprints.add(fingerprint.getHi(), fingerprint.getLo());
+        if (exactEntries == null) {
+            if (!newFingerprint) {
+                duplicates++;
+            }
+            return newFingerprint;
+        }
+
+        boolean newEntry = exactEntries.add(populationEntryDto);
+        if (newEntry && !newFingerprint) {
+            collisions++;
+        }
+        if (!newEntry) {
+            duplicates++;
+        }
+        return newEntry;
+    }
+
+    /**
+     * @param populationRecord Record to check, with its fingerprint set. In the exact-verify mode the names must have
+     *                         been read as well.
+     * @return True if the entry was not seen before.
+     */
+    public boolean add(PopulationRecord populationRecord) {
+        if (exactEntries != null) {
+            return add(populationRecord.toDto());
+        }
+        boolean newFingerprint = fingerprints.add(populationRecord.getFingerprintHi(), populationRecord.getFingerprintLo());
+        if (!newFingerprint) {
+            duplicates++;
+        }
+        return newFingerprint;
+    }
+
+    public boolean isExactVerify() {
+        return exactEntries != null;
+    }
+
+    /**
+     * @return Number of unique entries. If the fingerprints are shared, this includes the ones seen by other
+     * de-duplicators.
+     */
+    public long getUniqueCount() {
+        return exactEntries == null ? fingerprints.size() : exactEntries.size();
+    }
+
+    /**
+     * @return Duplicate entries found by this de-duplicator.
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return Different entries that were found to share a fingerprint. Only counted in the exact-verify mode.
+     */
+    public long getCollisions() {
+        return collisions;
+    }
+
+    /**
+     * @return Probability that two of the unique entries seen so far share a fingerprint.
+     */
+    public double getCollisionProbability() {
+        return fingerprints.collisionProbability();
+    }
+
+    public double getBytesPerEntry() {
+        return fingerprints.bytesPerEntry();
+    }
+}
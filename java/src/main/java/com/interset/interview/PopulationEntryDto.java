@@ -3,6 +3,7 @@ package com.interset.interview;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
+import java.util.Locale;
 import java.util.Objects;
 
 /**
@@ -67,12 +68,95 @@ public class PopulationEntryDto {
      * @return the Property that has been trimmed and lower cased.
      */
     public String getSanitizedFavouriteFood() {
-        // trim whitespace and lowercase all for food
-        String result  = getFavouriteFood().trim();
-        result = result.toLowerCase();
+        return sanitizeFood(getFavouriteFood());
+    }
+
+    /**
+     * @return The food trimmed and lower cased, so that "Steak", "steak" and "steak " are all the same.
+     */
+    public static String sanitizeFood(String food) {
+        // trim whitespace and lowercase all for food, the same way whatever the default locale is
+        String result  = food.trim();
+        result = result.toLowerCase(Locale.ROOT);
         return result;
     }
 
+    /**
+     * Same as comparing the sanitized foods, without creating them unless one of the foods is not ASCII.
+     */
+    static boolean sanitizedFoodEquals(String food, String otherFood) {
+        if (food == null || otherFood == null) {
+            return food == otherFood;
+        }
+        int start = trimStart(food);
+        int end = trimEnd(food, start);
+        int otherStart = trimStart(otherFood);
+        int otherEnd = trimEnd(otherFood, otherStart);
+        if (!isAscii(food, start, end) || !isAscii(otherFood, otherStart, otherEnd)) {
+            // Lower casing outside of ASCII can change the length, or even turn a char into an ASCII one.
+            return sanitizeFood(food).equals(sanitizeFood(otherFood));
+        }
+        if (end - start != otherEnd - otherStart) {
+            return false;
+        }
+        for (int i = start, j = otherStart; i < end; i++, j++) {
+            if (toLowerCaseAscii(food.charAt(i)) != toLowerCaseAscii(otherFood.charAt(j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as the hash code of the sanitized food, without creating it unless the food is not ASCII.
+     */
+    static int sanitizedFoodHashCode(String food) {
+        if (food == null) {
+            return 0;
+        }
+        int start = trimStart(food);
+        int end = trimEnd(food, start);
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = food.charAt(i);
+            if (c >= 0x80) {
+                return sanitizeFood(food).hashCode();
+            }
+            hash = 31 * hash + toLowerCaseAscii(c);
+        }
+        return hash;
+    }
+
+    // Same bounds as String.trim()
+    private static int trimStart(String value) {
+        int start = 0;
+        while (start < value.length() && value.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String value, int start) {
+        int end = value.length();
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isAscii(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char toLowerCaseAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
     public String getBirthTimezone() {
         return birthTimezone;
     }
@@ -98,13 +182,22 @@ public class PopulationEntryDto {
                 birthTimeStamp == that.birthTimeStamp &&
                 Objects.equals(firstName, that.firstName) &&
                 Objects.equals(lastName, that.lastName) &&
-                Objects.equals(getSanitizedFavouriteFood(), that.getSanitizedFavouriteFood()) &&
+                sanitizedFoodEquals(favouriteFood, that.favouriteFood) &&
                 Objects.equals(birthTimezone, that.birthTimezone);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(firstName, lastName, siblings, getSanitizedFavouriteFood(), birthTimezone, birthTimeStamp);
+        // Same as Objects.hash(firstName, lastName, siblings, getSanitizedFavouriteFood(), birthTimezone,
+        // birthTimeStamp), without boxing or creating the sanitized food.
+        int result = 1;
+        result = 31 * result + Objects.hashCode(firstName);
+        result = 31 * result + Objects.hashCode(lastName);
+        result = 31 * result + Integer.hashCode(siblings);
+        result = 31 * result + sanitizedFoodHashCode(favouriteFood);
+        result = 31 * result + Objects.hashCode(birthTimezone);
+        result = 31 * result + Long.hashCode(birthTimeStamp);
+        return result;
     }
 }
 
@@ -0,0 +1,293 @@
+package com.interset.interview;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable 128-bit hash of a population entry, used to detect duplicates without keeping the entries around.
+ *
+ * The hash follows the same rules as {@link PopulationEntryDto#equals(Object)}: all fields are used, and the favourite
+ * food is trimmed and lower cased first. The sanitization is done char by char while hashing, so no Strings are
+ * created. Strings are hashed as UTF-8, so that the byte level readers can hash them straight from the input without
+ * decoding them (see {@link #putUtf8(ByteBuffer, int, int)}). The mixing is the one from MurmurHash3 (x64, 128-bit),
+ * applied to the fields packed into 64-bit words.
+ *
+ * Not thread safe, use one instance per thread.
+ */
+public class PopulationFingerprint {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final long NULL_MARKER = -1L;
+
+    private long h1;
+    private long h2;
+    private long length;
+
+    private long pendingWord;
+    private boolean hasPendingWord;
+
+    private long byteWord;
+    private int byteCount;
+
+    private long hi;
+    private long lo;
+
+    public PopulationFingerprint() {
+        reset();
+    }
+
+    /**
+     * Hashes all the fields of an entry. The result is available through {@link #getHi()} and {@link #getLo()}.
+     */
+    public PopulationFingerprint hash(PopulationEntryDto populationEntryDto) {
+        reset();
+        putString(populationEntryDto.getFirstName());
+        putString(populationEntryDto.getLastName());
+        putLong(populationEntryDto.getSiblings());
+        putSanitizedFood(populationEntryDto.getFavouriteFood());
+        putString(populationEntryDto.getBirthTimezone());
+        putLong(populationEntryDto.getBirthTimeStamp());
+        return finish();
+    }
+
+    public PopulationFingerprint reset() {
+        h1 = 0;
+        h2 = 0;
+        length = 0;
+        hasPendingWord = false;
+        byteWord = 0;
+        byteCount = 0;
+        return this;
+    }
+
+    public PopulationFingerprint putLong(long value) {
+        putWord(value);
+        return this;
+    }
+
+    /**
+     * Hashes a String field, as UTF-8. The length is hashed as well so that fields can't run into each other.
+     */
+    public PopulationFingerprint putString(CharSequence value) {
+        if (value == null) {
+            putWord(NULL_MARKER);
+            return this;
+        }
+        int byteLength = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                putByte(c);
+                byteLength++;
+            } else {
+                int codePoint = codePointAt(value, i, value.length());
+                i += Character.charCount(codePoint) - 1;
+                byteLength += putCodePoint(codePoint);
+            }
+        }
+        endString(byteLength);
+        return this;
+    }
+
+    /**
+     * Hashes a UTF-8 encoded String field, with the same result as {@link #putString(CharSequence)} on the decoded
+     * String. The bytes are hashed as they are, 8 at a time.
+     *
+     * @param buffer Buffer holding the field, in big endian order.
+     */
+    public PopulationFingerprint putUtf8(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        if (byteCount == 0) {
+            for (; i + 8 <= end; i += 8) {
+                putWord(buffer.getLong(i));
+            }
+        }
+        for (; i < end; i++) {
+            putByte(buffer.get(i));
+        }
+        endString(end - start);
+        return this;
+    }
+
+    /**
+     * Hashes the favourite food as {@link PopulationEntryDto#getSanitizedFavouriteFood()} would return it.
+     */
+    public PopulationFingerprint putSanitizedFood(CharSequence food) {
+        if (food == null) {
+            putWord(NULL_MARKER);
+            return this;
+        }
+        // Same bounds as String.trim()
+        int start = 0;
+        int end = food.length();
+        while (start < end && food.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && food.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int byteLength = 0;
+        for (int i = start; i < end; i++) {
+            char c = food.charAt(i);
+            if (c < 0x80) {
+                // ASCII shortcut, Character.toLowerCase gives the same
+                putByte(c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+                byteLength++;
+            } else {
+                int codePoint = codePointAt(food, i, end);
+                i += Character.charCount(codePoint) - 1;
+                byteLength += putCodePoint(Character.toLowerCase(codePoint));
+            }
+        }
+        endString(byteLength);
+        return this;
+    }
+
+    /**
+     * Marks the end of a string, once all its bytes were hashed.
+     */
+    private void endString(int byteLength) {
+        if (byteCount > 0) {
+            putWord(byteWord);
+            byteWord = 0;
+            byteCount = 0;
+        }
+        putWord(byteLength);
+    }
+
+    /**
+     * Packs bytes 8 to a word, the first one in the most significant bits, as a big endian ByteBuffer.getLong() does.
+     */
+    private void putByte(int b) {
+        byteWord = (byteWord << 8) | (b & 0xff);
+        if (++byteCount == 8) {
+            putWord(byteWord);
+            byteWord = 0;
+            byteCount = 0;
+        }
+    }
+
+    /**
+     * @return The number of bytes of the code point in UTF-8.
+     */
+    private int putCodePoint(int codePoint) {
+        if (codePoint < 0x80) {
+            putByte(codePoint);
+            return 1;
+        } else if (codePoint < 0x800) {
+            putByte(0xc0 | (codePoint >> 6));
+            putByte(0x80 | (codePoint & 0x3f));
+            return 2;
+        } else if (codePoint < 0x10000) {
+            if (Character.isSurrogate((char) codePoint)) {
+                // Lone surrogate, which String.getBytes(UTF_8) encodes as '?'
+                putByte('?');
+                return 1;
+            }
+            putByte(0xe0 | (codePoint >> 12));
+            putByte(0x80 | ((codePoint >> 6) & 0x3f));
+            putByte(0x80 | (codePoint & 0x3f));
+            return 3;
+        }
+        putByte(0xf0 | (codePoint >> 18));
+        putByte(0x80 | ((codePoint >> 12) & 0x3f));
+        putByte(0x80 | ((codePoint >> 6) & 0x3f));
+        putByte(0x80 | (codePoint & 0x3f));
+        return 4;
+    }
+
+    private static int codePointAt(CharSequence value, int index, int end) {
+        char c = value.charAt(index);
+        if (Character.isHighSurrogate(c) && index + 1 < end && Character.isLowSurrogate(value.charAt(index + 1))) {
+            return Character.toCodePoint(c, value.charAt(index + 1));
+        }
+        return c;
+    }
+
+    public PopulationFingerprint finish() {
+        long k1 = 0;
+        if (hasPendingWord) {
+            k1 = pendingWord;
+            hasPendingWord = false;
+        }
+        // Tail, as in MurmurHash3
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        long a = h1 ^ k1;
+        long b = h2;
+
+        a ^= length;
+        b ^= length;
+        a += b;
+        b += a;
+        a = fmix(a);
+        b = fmix(b);
+        a += b;
+        b += a;
+
+        // (0, 0) marks an empty slot in FingerprintSet, so it is never returned as a fingerprint.
+        if (a == 0 && b == 0) {
+            b = 1;
+        }
+        hi = a;
+        lo = b;
+        return this;
+    }
+
+    public long getHi() {
+        return hi;
+    }
+
+    public long getLo() {
+        return lo;
+    }
+
+    private void putWord(long word) {
+        length += 8;
+        if (!hasPendingWord) {
+            pendingWord = word;
+            hasPendingWord = true;
+            return;
+        }
+        hasPendingWord = false;
+        long k1 = pendingWord;
+        long k2 = word;
+
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        h1 ^= k1;
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        h2 ^= k2;
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    /**
+     * @return The bytes between start and end of the buffer, decoded as UTF-8. The buffer's position is not changed.
+     */
+    static String decodeUtf8(ByteBuffer buffer, int start, int end) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(end);
+        slice.position(start);
+        return StandardCharsets.UTF_8.decode(slice).toString();
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,418 @@
+package com.interset.interview;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes synthetic population files of any size, to test and benchmark at scale.
+ *
+ * The output only depends on the options (see {@link PopulationGeneratorOptions}): the random numbers come from
+ * SplitMix64, whose output is fully specified, and the food weights are computed with {@link StrictMath}, so the same
+ * options give the same bytes on any JVM. The GZIP files also depend on the zlib of the JVM; what they decompress to
+ * does not.
+ *
+ * Each person is generated from its own seed, derived from the seed and the person's number. A duplicate row picks an
+ * earlier person at random and generates it again, so duplicates don't need any memory, and can be anywhere in the
+ * file. The noise on the foods is drawn separately for each row, so a duplicate may differ from the original in the case
+ * or whitespace of its food, which still makes it a duplicate (see the assumptions in {@link Runner}).
+ *
+ * The rows are written straight as bytes into a buffer, from bytes prepared for every name, food and timezone, so
+ * writing does not create any object per row.
+ */
+public class PopulationGenerator {
+
+    static final String[] FOODS = {"Meatballs", "Pizza", "Ice Cream", "Grapes", "Chicken", "Steak", "Spaghetti",
+            "Quesadilla", "Turkey", "Apple Pie", "Asparagus", "Sweetcorn", "Waffles", "Pineapple", "Pumpkin Pie", "Kiwi",
+            "Yogurt", "Lobster", "Oysters", "Peanut Butter", "Macaroni and Cheese", "Pancakes", "Bread", "Beef",
+            "Sardines", "Pasta", "Bruschetta", "Cheddar Cheese", "Tuna", "Rice Pudding", "Eggs", "Mozzarella Cheese",
+            "Prawns", "Donuts", "Mango", "Noodles", "Banana", "Sweet Potato", "Soup", "Corned Beef", "Pomegranates",
+            "Watermelon", "Shrimp", "Edimame", "Strawberries", "Mushrooms", "Chocolate", "Artichokes", "Avocado",
+            "Bacon", "Sheperd's Pie", "Potato Chips", "Salmon", "Popcorn", "Lamb", "Ham", "Blueberries", "Halibut",
+            "Cashew Nuts", "Zucchini", "Sushi", "Mashed Potatoes", "French Toast", "Hamburgers", "Almonds", "Apples",
+            "Salsa", "Candy"};
+
+    static final int MAX_FOODS = 10_000_000;
+
+    // The mix of population.csv.
+    static final String[] TIMEZONES = {"-05:00", "-04:00", "+01:00", "-06:00", "-08:00", "+06:00", "+04:00", "-07:00",
+            "-03:00", "-12:00", "+08:30", "+14:00", "-09:00", "+03:30", "+09:30", "+05:30", "+07:00", "-10:00", "-03:30",
+            "-02:00", "+10:00", "+13:00", "+10:30", "+00:00", "+03:00", "+12:45", "+05:45", "+06:30", "-01:00"};
+    static final Double[] TIMEZONE_WEIGHTS = {12.0, 11.0, 9.0, 7.0, 7.0, 5.0, 5.0, 4.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0,
+            1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0};
+
+    private static final String[] FIRST_NAMES = {"DAVID", "ISOBEL", "BRADLEY", "DELIA", "EUGENE", "BERNARDINA",
+            "LEONEL", "SHANNA", "CARLI", "HAL", "LYLE", "MICKIE", "GERALDINE", "ANNAMARIA", "ELADIA", "BRITTANY", "MAYRA",
+            "LASHAUN", "CARMELO", "BELINDA", "REUBEN", "JOHN", "MARY", "PATRICIA", "ROBERT", "LINDA", "MICHAEL",
+            "BARBARA", "WILLIAM", "ELIZABETH", "JAMES", "JENNIFER", "RICHARD", "MARIA", "CHARLES", "SUSAN", "JOSEPH",
+            "MARGARET", "THOMAS", "DOROTHY", "CHRISTOPHER", "LISA", "DANIEL", "NANCY", "PAUL", "KAREN", "MARK", "BETTY",
+            "DONALD", "HELEN", "GEORGE", "SANDRA", "KENNETH", "DONNA", "STEVEN", "CAROL", "EDWARD", "RUTH", "BRIAN",
+            "SHARON", "RONALD", "MICHELLE", "ANTHONY", "LAURA"};
+    private static final String[] LAST_NAMES = {"XU", "DARE", "SIGEL", "MCCRAE", "VANDERSTEEN", "STWART", "BRIERE",
+            "BUROKER", "FERREL", "HILYER", "NEWKIRK", "SMITH", "JOHNSON", "WILLIAMS", "BROWN", "JONES", "GARCIA",
+            "MILLER", "DAVIS", "RODRIGUEZ", "MARTINEZ", "HERNANDEZ", "LOPEZ", "GONZALEZ", "WILSON", "ANDERSON", "TAYLOR",
+            "MOORE", "JACKSON", "MARTIN", "LEE", "PEREZ", "THOMPSON", "WHITE", "HARRIS", "SANCHEZ", "CLARK", "RAMIREZ",
+            "LEWIS", "ROBINSON", "WALKER", "YOUNG", "ALLEN", "KING", "WRIGHT", "SCOTT", "TORRES", "NGUYEN", "HILL",
+            "FLORES", "GREEN", "ADAMS", "NELSON", "BAKER", "HALL", "RIVERA", "CAMPBELL", "MITCHELL", "CARTER", "ROBERTS",
+            "GOMEZ", "PHILLIPS", "EVANS", "TURNER"};
+    // Siblings from 1 to 8, in about the proportions of population.csv.
+    private static final Double[] SIBLING_WEIGHTS = {23.0, 13.0, 5.7, 2.9, 2.2, 1.5, 0.75, 0.75};
+
+    // Variants of each food: as is, lower case, upper case, with a leading space, lower case with trailing spaces.
+    private static final int FOOD_VARIANTS = 5;
+    private static final int FOOD_CASES = 3;
+    private static final int[] VARIANT_CASES = {0, 1, 2, 0, 1};
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final PopulationGeneratorOptions options;
+    private final byte[][] firstNames;
+    private final byte[][] lastNames;
+    private final byte[][] foodCases;
+    private final byte[][] timezones;
+    private final WeightedChoice foodChoice;
+    private final WeightedChoice timezoneChoice;
+    private final WeightedChoice siblingChoice;
+    private final byte[] buffer;
+
+    private final SplitMix64 rowRandom = new SplitMix64();
+    private final SplitMix64 personRandom = new SplitMix64();
+    private int position = 0;
+    private long people = 0;
+
+    public PopulationGenerator(PopulationGeneratorOptions options) {
+        this.options = options;
+        this.firstNames = utf8(Arrays.asList(FIRST_NAMES));
+        this.lastNames = utf8(Arrays.asList(LAST_NAMES));
+        this.timezones = utf8(options.getTimezones());
+
+        // Past the known foods, numbered versions of them: "Pizza 2", "Pizza 3"... The number is written with the row.
+        this.foodCases = new byte[FOODS.length * FOOD_CASES][];
+        for (int food = 0; food < FOODS.length; food++) {
+            String[] cases = {FOODS[food], FOODS[food].toLowerCase(Locale.ROOT), FOODS[food].toUpperCase(Locale.ROOT)};
+            for (int foodCase = 0; foodCase < FOOD_CASES; foodCase++) {
+                foodCases[food * FOOD_CASES + foodCase] = cases[foodCase].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        int maxFood = maxLength(foodCases) + 24;
+
+        int foods = options.getFoods();
+        double[] foodWeights = new double[foods];
+        for (int food = 0; food < foods; food++) {
+            foodWeights[food] = 1 / StrictMath.pow(food + 1, options.getZipf());
+        }
+        this.foodChoice = new WeightedChoice(foodWeights);
+        this.timezoneChoice = new WeightedChoice(toArray(options.getTimezoneWeights()));
+        this.siblingChoice = new WeightedChoice(toArray(Arrays.asList(SIBLING_WEIGHTS)));
+
+        // Enough room for the longest row, in any format.
+        int maxRow = 256 + maxLength(firstNames) + maxLength(lastNames) + maxFood + maxLength(timezones);
+        this.buffer = new byte[Math.max(BUFFER_BYTES, maxRow * 2)];
+    }
+
+    public static void main(String[] args) throws IOException {
+        PopulationGeneratorOptions options = null;
+        try {
+            options = PopulationGeneratorOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(PopulationGeneratorOptions.USAGE);
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        PopulationGenerator generator = new PopulationGenerator(options);
+        long people = generator.write(options.getFilePath());
+        System.out.println("Wrote " + options.getRows() + " rows (" + people + " people) to " + options.getFilePath()
+                + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Writes the file, in the format given by its extension, GZIP compressed if it ends in ".gz" (as BGZF with
+     * --bgzf).
+     *
+     * @return Number of distinct people written.
+     */
+    public long write(String filePath) throws IOException {
+        OutputStream outputStream = new FileOutputStream(filePath);
+        try {
+            if (filePath.toLowerCase().endsWith(".gz") && options.isBgzf()) {
+                outputStream = new BgzfOutputStream(new BufferedOutputStream(outputStream, BUFFER_BYTES),
+                        options.getGzipLevel());
+            } else if (filePath.toLowerCase().endsWith(".gz")) {
+                outputStream = new LeveledGZIPOutputStream(outputStream, options.getGzipLevel());
+            }
+        } catch (IOException e) {
+            outputStream.close();
+            throw e;
+        }
+        try (OutputStream out = outputStream) {
+            return write(out, Runner.getFormat(filePath));
+        }
+    }
+
+    /**
+     * Writes all the rows. The stream is not closed.
+     *
+     * @param format "csv", "json", "ndjson" or "jsonl".
+     * @return Number of distinct people written.
+     */
+    public long write(OutputStream outputStream, String format) throws IOException {
+        boolean csv = format.equals("csv");
+        boolean jsonArray = format.equals("json");
+        if (!csv && !jsonArray && !format.equals("ndjson") && !format.equals("jsonl")) {
+            throw new IllegalArgumentException("Unknown file format: " + format);
+        }
+
+        position = 0;
+        people = 0;
+        rowRandom.seed(options.getSeed());
+        if (csv) {
+            put("first_name,last_name,siblings,favourite_food,birth_timezone,birth_timestamp\n");
+        } else if (jsonArray) {
+            put("[\n");
+        }
+
+        for (long row = 0; row < options.getRows(); row++) {
+            long person;
+            if (people > 0 && rowRandom.nextDouble() < options.getDuplicates()) {
+                person = (long) (rowRandom.nextDouble() * people);
+            } else {
+                person = people++;
+            }
+            int variant = rowRandom.nextDouble() < options.getNoise() ? 1 + rowRandom.nextInt(FOOD_VARIANTS - 1) : 0;
+
+            if (position > buffer.length / 2) {
+                outputStream.write(buffer, 0, position);
+                position = 0;
+            }
+            if (csv) {
+                putCsvRow(person, variant);
+            } else {
+                if (jsonArray && row > 0) {
+                    put(",\n");
+                }
+                putJsonRow(person, variant);
+                if (!jsonArray) {
+                    put("\n");
+                }
+            }
+        }
+
+        if (jsonArray) {
+            put(options.getRows() > 0 ? "\n]\n" : "]\n");
+        }
+        outputStream.write(buffer, 0, position);
+        position = 0;
+        return people;
+    }
+
+    private void putCsvRow(long person, int variant) {
+        personRandom.seed(options.getSeed() ^ SplitMix64.mix(person));
+        put(firstNames[personRandom.nextInt(firstNames.length)]);
+        put((byte) ',');
+        put(lastNames[personRandom.nextInt(lastNames.length)]);
+        put((byte) ',');
+        putLong(1 + siblingChoice.next(personRandom));
+        put((byte) ',');
+        putFood(foodChoice.next(personRandom), variant);
+        put((byte) ',');
+        put(timezones[timezoneChoice.next(personRandom)]);
+        put((byte) ',');
+        putLong(nextTimestamp());
+        put((byte) '\n');
+    }
+
+    /**
+     * Same layout as the JSON samples, with the numbers in strings.
+     */
+    private void putJsonRow(long person, int variant) {
+        personRandom.seed(options.getSeed() ^ SplitMix64.mix(person));
+        put("{ \"first_name\": \"");
+        put(firstNames[personRandom.nextInt(firstNames.length)]);
+        put("\", \"last_name\": \"");
+        put(lastNames[personRandom.nextInt(lastNames.length)]);
+        put("\", \"siblings\": \"");
+        putLong(1 + siblingChoice.next(personRandom));
+        put("\", \"favourite_food\": \"");
+        putFood(foodChoice.next(personRandom), variant);
+        put("\", \"birth_timezone\": \"");
+        put(timezones[timezoneChoice.next(personRandom)]);
+        put("\", \"birth_timestamp\": \"");
+        putLong(nextTimestamp());
+        put("\" }");
+    }
+
+    private void putFood(int food, int variant) {
+        if (variant == 3) {
+            put((byte) ' ');
+        }
+        put(foodCases[(food % FOODS.length) * FOOD_CASES + VARIANT_CASES[variant]]);
+        if (food >= FOODS.length) {
+            put((byte) ' ');
+            putLong(food / FOODS.length + 1);
+        }
+        if (variant == 4) {
+            put((byte) ' ');
+            put((byte) ' ');
+        }
+    }
+
+    private long nextTimestamp() {
+        return options.getFrom() + (long) (personRandom.nextDouble() * (options.getTo() - options.getFrom()));
+    }
+
+    private void put(byte b) {
+        buffer[position++] = b;
+    }
+
+    private void put(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    // Only used for ASCII constants.
+    private void put(String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            buffer[position++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    private void putLong(long value) {
+        if (value < 0) {
+            buffer[position++] = '-';
+            if (value == Long.MIN_VALUE) {
+                put("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    private static byte[][] utf8(List<String> values) {
+        byte[][] bytes = new byte[values.size()][];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = values.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    private static int maxLength(byte[][] values) {
+        int max = 0;
+        for (byte[] value : values) {
+            max = Math.max(max, value.length);
+        }
+        return max;
+    }
+
+    private static double[] toArray(List<Double> values) {
+        double[] array = new double[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * The SplitMix64 generator (Steele et al.), used instead of java.util.Random for its speed and because its output is
+     * specified.
+     */
+    private static final class SplitMix64 {
+
+        private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+        private long state;
+
+        void seed(long seed) {
+            state = seed;
+        }
+
+        long nextLong() {
+            state += GOLDEN_GAMMA;
+            return mix(state);
+        }
+
+        /**
+         * @return A number in [0, 1).
+         */
+        double nextDouble() {
+            return (nextLong() >>> 11) * 0x1.0p-53;
+        }
+
+        /**
+         * @return A number in [0, bound).
+         */
+        int nextInt(int bound) {
+            return (int) (((nextLong() >>> 32) * bound) >>> 32);
+        }
+
+        static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+
+    /**
+     * Picks indexes in proportion to their weights, by binary search in the cumulative weights.
+     */
+    private static final class WeightedChoice {
+
+        private final double[] cumulative;
+
+        WeightedChoice(double[] weights) {
+            cumulative = new double[weights.length];
+            double total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                total += weights[i];
+                cumulative[i] = total;
+            }
+            if (!(total > 0)) {
+                throw new IllegalArgumentException("The weights must not all be 0.");
+            }
+        }
+
+        int next(SplitMix64 random) {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int low = 0;
+            int high = cumulative.length - 1;
+            // First index whose cumulative weight is above the target.
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] > target) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * GZIPOutputStream with a given compression level instead of the default one, which is several times slower than
+     * the fastest level for little gain on this kind of data.
+     */
+    private static final class LeveledGZIPOutputStream extends GZIPOutputStream {
+
+        LeveledGZIPOutputStream(OutputStream outputStream, int level) throws IOException {
+            super(new BufferedOutputStream(outputStream, BUFFER_BYTES), BUFFER_BYTES);
+            def.setLevel(level);
+        }
+    }
+}
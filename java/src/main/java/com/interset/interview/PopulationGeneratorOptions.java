@@ -0,0 +1,242 @@
+package com.interset.interview;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line options of {@link PopulationGenerator}.
+ *
+ * Options start with "--" and can appear anywhere. The one other argument is the path of the file to write, whose
+ * extension gives the format.
+ */
+public class PopulationGeneratorOptions {
+
+    static final String USAGE = "Usage: generate_population.sh --rows=N [options] <path/to/output>\n"
+            + "The output is CSV, JSON or newline delimited JSON (.ndjson or .jsonl), GZIP compressed if it ends in .gz.\n"
+            + "Options:\n"
+            + "  --rows=N          Number of rows to write.\n"
+            + "  --seed=N          Seed of the random data (default: 42). The same options write the same file.\n"
+            + "  --duplicates=R    Share of rows that repeat an earlier person, between 0 and 1 (default: 0).\n"
+            + "  --foods=N         Number of distinct favourite foods (default: " + PopulationGenerator.FOODS.length
+            + ").\n"
+            + "  --zipf=S          Skew of the foods: the k-th most frequent food is picked in proportion to 1/k^S\n"
+            + "                    (default: 1, 0 for uniform).\n"
+            + "  --timezones=LIST  Comma separated timezones, each optionally weighted as in +01:00*3\n"
+            + "                    (default: the mix of population.csv).\n"
+            + "  --noise=R         Share of foods written with different case or surrounding whitespace (default: 0.1).\n"
+            + "  --from=DATE       Earliest birth date, as yyyy-MM-dd in UTC (default: 1970-01-01).\n"
+            + "  --to=DATE         Birth dates are before this date (default: 2000-01-01).\n"
+            + "  --gzip-level=N    Compression level of .gz files, 1 to 9 (default: 1).\n"
+            + "  --bgzf            Write .gz files as BGZF, whose members can be inflated in parallel.\n";
+
+    private String filePath;
+    private long rows = -1;
+    private long seed = 42;
+    private double duplicates = 0;
+    private int foods = PopulationGenerator.FOODS.length;
+    private double zipf = 1;
+    private final List<String> timezones = new ArrayList<>();
+    private final List<Double> timezoneWeights = new ArrayList<>();
+    private double noise = 0.1;
+    private long from = LocalDate.of(1970, 1, 1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+    private long to = LocalDate.of(2000, 1, 1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+    private int gzipLevel = 1;
+    private boolean bgzf = false;
+
+    /**
+     * @throws IllegalArgumentException If an option is unknown or the arguments don't make sense together.
+     */
+    public static PopulationGeneratorOptions parse(String[] args) {
+        PopulationGeneratorOptions options = new PopulationGeneratorOptions();
+        List<String> filePaths = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                filePaths.add(arg);
+            } else if (arg.startsWith("--rows=")) {
+                options.rows = parseLong(arg, 0);
+            } else if (arg.startsWith("--seed=")) {
+                options.seed = parseLong(arg, Long.MIN_VALUE);
+            } else if (arg.startsWith("--duplicates=")) {
+                options.duplicates = parseRatio(arg);
+            } else if (arg.startsWith("--foods=")) {
+                options.foods = (int) Math.min(parseLong(arg, 1), PopulationGenerator.MAX_FOODS);
+            } else if (arg.startsWith("--zipf=")) {
+                options.zipf = parseDouble(arg);
+            } else if (arg.startsWith("--timezones=")) {
+                options.parseTimezones(arg);
+            } else if (arg.startsWith("--noise=")) {
+                options.noise = parseRatio(arg);
+            } else if (arg.startsWith("--from=")) {
+                options.from = parseDate(arg);
+            } else if (arg.startsWith("--to=")) {
+                options.to = parseDate(arg);
+            } else if (arg.startsWith("--gzip-level=")) {
+                options.gzipLevel = (int) parseLong(arg, 1);
+                if (options.gzipLevel > 9) {
+                    throw new IllegalArgumentException("Expected a level from 1 to 9: " + arg);
+                }
+            } else if (arg.equals("--bgzf")) {
+                options.bgzf = true;
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        if (filePaths.size() != 1) {
+            throw new IllegalArgumentException("Expected 1 path to the file to write.");
+        }
+        options.filePath = filePaths.get(0);
+        if (options.rows < 0) {
+            throw new IllegalArgumentException("--rows is required.");
+        }
+        if (options.from >= options.to) {
+            throw new IllegalArgumentException("--from must be before --to.");
+        }
+        if (options.timezones.isEmpty()) {
+            for (int i = 0; i < PopulationGenerator.TIMEZONES.length; i++) {
+                options.timezones.add(PopulationGenerator.TIMEZONES[i]);
+                options.timezoneWeights.add(PopulationGenerator.TIMEZONE_WEIGHTS[i]);
+            }
+        }
+        return options;
+    }
+
+    private void parseTimezones(String arg) {
+        timezones.clear();
+        timezoneWeights.clear();
+        for (String timezone : value(arg).split(",")) {
+            double weight = 1;
+            int star = timezone.lastIndexOf('*');
+            if (star >= 0) {
+                weight = parseDouble(timezone.substring(star + 1), arg);
+                timezone = timezone.substring(0, star);
+            }
+            if (timezone.isEmpty() || timezone.indexOf('"') >= 0 || timezone.indexOf('\\') >= 0) {
+                throw new IllegalArgumentException("Invalid timezone in: " + arg);
+            }
+            timezones.add(timezone);
+            timezoneWeights.add(weight);
+        }
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    private static long parseLong(String arg, long min) {
+        try {
+            long result = Long.parseLong(value(arg));
+            if (result >= min) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Expected a number of at least " + min + ": " + arg);
+    }
+
+    private static double parseDouble(String arg) {
+        return parseDouble(value(arg), arg);
+    }
+
+    private static double parseDouble(String value, String arg) {
+        try {
+            double result = Double.parseDouble(value);
+            if (result >= 0 && !Double.isInfinite(result)) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Expected a non-negative number: " + arg);
+    }
+
+    private static double parseRatio(String arg) {
+        double result = parseDouble(arg);
+        if (result > 1) {
+            throw new IllegalArgumentException("Expected a number between 0 and 1: " + arg);
+        }
+        return result;
+    }
+
+    private static long parseDate(String arg) {
+        try {
+            return LocalDate.parse(value(arg)).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Expected a date as yyyy-MM-dd: " + arg);
+        }
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return Share of rows that repeat an earlier person.
+     */
+    public double getDuplicates() {
+        return duplicates;
+    }
+
+    public int getFoods() {
+        return foods;
+    }
+
+    public double getZipf() {
+        return zipf;
+    }
+
+    public List<String> getTimezones() {
+        return timezones;
+    }
+
+    /**
+     * @return Relative weight of each of {@link #getTimezones()}.
+     */
+    public List<Double> getTimezoneWeights() {
+        return timezoneWeights;
+    }
+
+    /**
+     * @return Share of foods written with different case or whitespace.
+     */
+    public double getNoise() {
+        return noise;
+    }
+
+    /**
+     * @return Earliest birth timestamp, in milliseconds.
+     */
+    public long getFrom() {
+        return from;
+    }
+
+    /**
+     * @return Birth timestamps are before this one, in milliseconds.
+     */
+    public long getTo() {
+        return to;
+    }
+
+    public int getGzipLevel() {
+        return gzipLevel;
+    }
+
+    /**
+     * @return Whether .gz files are written as BGZF, see {@link BgzfOutputStream}.
+     */
+    public boolean isBgzf() {
+        return bgzf;
+    }
+}
@@ -0,0 +1,118 @@
+package com.interset.interview;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Binds JSON objects to {@link PopulationEntryDto}s by walking the tokens of a Jackson streaming parser, instead of
+ * going through Jackson databind.
+ *
+ * Databind introspects the annotations of the class and builds its deserializers with reflection the first time it
+ * reads one, which costs more than parsing a small file: several hundred classes are loaded. Here the fields are
+ * matched by name, in any order, and converted the way databind does for the values found in population files: the
+ * siblings and birth timestamp can be numbers or strings of whole numbers, an empty string or null being 0, and the
+ * other fields can be any scalar, null staying null. Fields that are not part of an entry are rejected, as databind
+ * does by default.
+ *
+ * Thread safe, the {@link JsonFactory} is shared.
+ */
+public final class PopulationJsonParser {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private PopulationJsonParser() {
+    }
+
+    public static JsonParser createParser(InputStream inputStream) throws IOException {
+        return FACTORY.createParser(inputStream);
+    }
+
+    /**
+     * Reads one entry.
+     *
+     * @param parser Parser on the start of the entry object. It is left on its end.
+     * @throws JsonParseException If a field is unknown, or its value can't be converted.
+     */
+    public static PopulationEntryDto readEntry(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a population entry object but found "
+                    + parser.currentToken());
+        }
+        PopulationEntryDto populationEntryDto = new PopulationEntryDto();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "first_name":
+                    populationEntryDto.setFirstName(readString(parser, field));
+                    break;
+                case "last_name":
+                    populationEntryDto.setLastName(readString(parser, field));
+                    break;
+                case "siblings":
+                    long siblings = readLong(parser, field);
+                    if (siblings < Integer.MIN_VALUE || siblings > Integer.MAX_VALUE) {
+                        throw new JsonParseException(parser, "Value of \"siblings\" out of the int range: " + siblings);
+                    }
+                    populationEntryDto.setSiblings((int) siblings);
+                    break;
+                case "favourite_food":
+                    populationEntryDto.setFavouriteFood(readString(parser, field));
+                    break;
+                case "birth_timezone":
+                    populationEntryDto.setBirthTimezone(readString(parser, field));
+                    break;
+                case "birth_timestamp":
+                    populationEntryDto.setBirthTimeStamp(readLong(parser, field));
+                    break;
+                default:
+                    throw new JsonParseException(parser, "Unrecognized field \"" + field
+                            + "\" in a population entry");
+            }
+        }
+        if (parser.currentToken() != JsonToken.END_OBJECT) {
+            throw new JsonParseException(parser, "Expected a field name but found " + parser.currentToken());
+        }
+        return populationEntryDto;
+    }
+
+    private static String readString(JsonParser parser, String field) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new JsonParseException(parser, "Expected a value for \"" + field + "\" but found " + token);
+        }
+        return parser.getText();
+    }
+
+    private static long readLong(JsonParser parser, String field) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT:
+                return parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return (long) parser.getDoubleValue();
+            case VALUE_NULL:
+                return 0;
+            case VALUE_STRING:
+                String text = parser.getText().trim();
+                if (text.isEmpty() || text.equals("null")) {
+                    return 0;
+                }
+                try {
+                    return Long.parseLong(text);
+                } catch (NumberFormatException e) {
+                    throw new JsonParseException(parser, "Value of \"" + field + "\" is not a whole number: " + text);
+                }
+            default:
+                throw new JsonParseException(parser, "Expected a number for \"" + field + "\" but found "
+                        + parser.currentToken());
+        }
+    }
+}
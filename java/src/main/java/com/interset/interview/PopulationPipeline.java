@@ -0,0 +1,701 @@
+package com.interset.interview;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads files in stages running on threads of their own, so that reading, decompressing, parsing, de-duplicating and
+ * aggregating overlap instead of each waiting for the others.
+ *
+ * The stages pass batches to each other through bounded queues:
+ * <ol>
+ *     <li>read: one thread reads the files in order. GZIP files go to the decompress stage as they are, the others
+ *     straight to the parse stage.</li>
+ *     <li>decompress: one thread inflates the GZIP files, a GZIP stream can only be inflated in order.</li>
+ *     <li>parse: CSV files are cut into chunks of whole lines (rows are assumed not to contain line breaks, as in
+ *     {@link ParallelCsvReader}), which any parse thread can parse into a batch of records. A JSON file is parsed as a
+ *     stream by one of the parse threads, its bytes going through a queue of its own.</li>
+ *     <li>dedup: the fingerprints of a batch are looked up in a {@link FingerprintSet}, or a
+ *     {@link ConcurrentFingerprintSet} with more than one thread, and the duplicates marked.</li>
+ *     <li>aggregate: the unique records are added to a {@link PopulationResult} per thread, merged at the end.</li>
+ * </ol>
+ * A full queue blocks the stage feeding it, so a slow stage holds back those before it rather than letting batches
+ * pile up. The record batches are reused, from a fixed pool, so the records are not created per row either.
+ *
+ * Each queue records how full it was when a batch was taken from it, and each stage the time it waited for a batch and
+ * the time it was blocked on a full queue, see {@link #getStages()}.
+ *
+ * A pipeline reads one list of files, once.
+ */
+public class PopulationPipeline {
+
+    static final int DEFAULT_BATCH_ROWS = 4096;
+    static final int DEFAULT_QUEUE_BATCHES = 4;
+    static final int CHUNK_BYTES = 256 * 1024;
+
+    private static final Chunk END = new Chunk(-1, null, 0, 0, false, true);
+    private static final RecordBatch END_BATCH = new RecordBatch(0);
+
+    private final int parseThreads;
+    private final int dedupThreads;
+    private final int aggregateThreads;
+    private final int batchRows;
+    private final int queueBatches;
+
+    private final Stage read = new Stage("read", 1);
+    private final Stage decompress;
+    private final Stage parse;
+    private final Stage dedup;
+    private final Stage aggregate;
+
+    private final LongAdder duplicates = new LongAdder();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private List<String> filePaths;
+    private MeteredQueue<Chunk> raw;
+    private MeteredQueue<Chunk> text;
+    private MeteredQueue<RecordBatch> parsed;
+    private MeteredQueue<RecordBatch> unique;
+    private BlockingQueue<RecordBatch> freeBatches;
+    private FingerprintStore fingerprints;
+    private final AtomicInteger parsing = new AtomicInteger();
+    private final AtomicInteger deduplicating = new AtomicInteger();
+    private final List<PopulationResult> results = Collections.synchronizedList(new ArrayList<>());
+
+    public PopulationPipeline(int parseThreads, int dedupThreads, int aggregateThreads, int batchRows,
+                              int queueBatches) {
+        if (parseThreads < 1 || dedupThreads < 1 || aggregateThreads < 1 || batchRows < 1 || queueBatches < 1) {
+            throw new IllegalArgumentException("Pipeline threads, batch rows and queue batches must be positive");
+        }
+        this.parseThreads = parseThreads;
+        this.dedupThreads = dedupThreads;
+        this.aggregateThreads = aggregateThreads;
+        this.batchRows = batchRows;
+        this.queueBatches = queueBatches;
+        this.decompress = new Stage("decompress", 1);
+        this.parse = new Stage("parse", parseThreads);
+        this.dedup = new Stage("dedup", dedupThreads);
+        this.aggregate = new Stage("aggregate", aggregateThreads);
+    }
+
+    /**
+     * @param spec Comma separated settings, each optional: parse=N, dedup=N and aggregate=N threads, batch=ROWS per
+     *             record batch, and queue=BATCHES per queue. Empty for the defaults: a parse thread per core, one
+     *             dedup and one aggregate thread, {@link #DEFAULT_BATCH_ROWS} and {@link #DEFAULT_QUEUE_BATCHES}.
+     * @throws IllegalArgumentException If a setting is unknown or not a positive number.
+     */
+    public static PopulationPipeline parse(String spec) {
+        int[] settings = {Runtime.getRuntime().availableProcessors(), 1, 1, DEFAULT_BATCH_ROWS, DEFAULT_QUEUE_BATCHES};
+        List<String> names = Arrays.asList("parse", "dedup", "aggregate", "batch", "queue");
+        for (String setting : spec.split(",")) {
+            if (setting.trim().isEmpty()) {
+                continue;
+            }
+            String[] nameValue = setting.trim().split("=", 2);
+            int index = names.indexOf(nameValue[0]);
+            if (index < 0 || nameValue.length < 2) {
+                throw new IllegalArgumentException("Unknown pipeline setting: " + setting);
+            }
+            try {
+                settings[index] = Integer.parseInt(nameValue[1]);
+            } catch (NumberFormatException e) {
+                settings[index] = 0;
+            }
+            if (settings[index] <= 0) {
+                throw new IllegalArgumentException("Expected a positive number: " + setting);
+            }
+        }
+        return new PopulationPipeline(settings[0], settings[1], settings[2], settings[3], settings[4]);
+    }
+
+    /**
+     * @return True if the file is in a format the pipeline parses: CSV or JSON, compressed or not.
+     */
+    public static boolean supports(String filePath) {
+        String format = Runner.getFormat(filePath);
+        return isCsv(filePath) || format.equals("json") || format.equals("ndjson") || format.equals("jsonl");
+    }
+
+    private static boolean isCsv(String filePath) {
+        return Runner.getFormat(filePath).equals("csv");
+    }
+
+    private static boolean isGzip(String filePath) {
+        return filePath.toLowerCase().endsWith(".gz");
+    }
+
+    /**
+     * Reads the files and aggregates their unique entries.
+     *
+     * @throws Exception If a file can't be read or parsed, once every stage has stopped.
+     */
+    public PopulationResult aggregate(List<String> filePaths) throws Exception {
+        for (String filePath : filePaths) {
+            if (!supports(filePath)) {
+                throw new Exception("Could not read in file " + filePath);
+            }
+        }
+        this.filePaths = new ArrayList<>(filePaths);
+        raw = new MeteredQueue<>(queueBatches);
+        text = new MeteredQueue<>(queueBatches);
+        parsed = new MeteredQueue<>(queueBatches);
+        unique = new MeteredQueue<>(queueBatches);
+        // Enough batches for every queue and every thread holding one, so that taking one only waits on the stages
+        // after it.
+        int batches = 2 * queueBatches + parseThreads + dedupThreads + aggregateThreads;
+        freeBatches = new ArrayBlockingQueue<>(batches);
+        for (int i = 0; i < batches; i++) {
+            freeBatches.add(new RecordBatch(batchRows));
+        }
+        fingerprints = dedupThreads == 1 ? new FingerprintSet() : new ConcurrentFingerprintSet(dedupThreads);
+        parsing.set(parseThreads);
+        deduplicating.set(dedupThreads);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(task(this::runRead));
+        tasks.add(task(this::runDecompress));
+        for (int i = 0; i < parseThreads; i++) {
+            tasks.add(task(this::runParse));
+        }
+        for (int i = 0; i < dedupThreads; i++) {
+            tasks.add(task(this::runDedup));
+        }
+        for (int i = 0; i < aggregateThreads; i++) {
+            tasks.add(task(this::runAggregate));
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size(), runnable -> {
+            Thread thread = new Thread(runnable, "population-pipeline-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        return task.call();
+                    } catch (Throwable e) {
+                        // The first failure stops every stage, the others are most likely interruptions.
+                        if (failure.compareAndSet(null, e)) {
+                            executor.shutdownNow();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Throwable e = failure.get();
+        if (e instanceof IOException || e instanceof UncheckedIOException) {
+            throw new Exception("Failed to parse file", e instanceof UncheckedIOException ? e.getCause() : e);
+        } else if (e instanceof Exception) {
+            throw (Exception) e;
+        } else if (e != null) {
+            throw (Error) e;
+        }
+        PopulationResult result = new PopulationResult();
+        for (PopulationResult threadResult : results) {
+            result.merge(threadResult);
+        }
+        return result;
+    }
+
+    private static Callable<Void> task(StageTask task) {
+        return () -> {
+            task.run();
+            return null;
+        };
+    }
+
+    private void runRead() throws IOException, InterruptedException {
+        for (int file = 0; file < filePaths.size(); file++) {
+            String filePath = filePaths.get(file);
+            try (InputStream input = Files.newInputStream(Paths.get(filePath))) {
+                if (isGzip(filePath)) {
+                    long offset = 0;
+                    while (true) {
+                        byte[] bytes = new byte[CHUNK_BYTES];
+                        int length = fill(input, bytes, 0);
+                        raw.put(new Chunk(file, bytes, length, offset, false, length < bytes.length), read);
+                        offset += length;
+                        if (length < bytes.length) {
+                            break;
+                        }
+                    }
+                } else {
+                    split(file, input, read);
+                }
+            }
+        }
+        raw.put(END, read);
+    }
+
+    private void runDecompress() throws IOException, InterruptedException {
+        while (true) {
+            Chunk first = raw.take(decompress);
+            if (first == END) {
+                break;
+            }
+            ChunkInputStream compressed = new ChunkInputStream(raw, first, decompress);
+            split(first.file, new GZIPInputStream(compressed, 64 * 1024), decompress);
+            // Anything after the last GZIP member.
+            compressed.skipToEnd();
+        }
+        // The read stage has put all its chunks by now, and so has this one.
+        for (int i = 0; i < parseThreads; i++) {
+            text.put(END, decompress);
+        }
+    }
+
+    /**
+     * Cuts a CSV file into chunks of whole lines for the parse threads, or streams a JSON file to one of them.
+     */
+    private void split(int file, InputStream input, Stage stage) throws IOException, InterruptedException {
+        if (!isCsv(filePaths.get(file))) {
+            MeteredQueue<Chunk> stream = new MeteredQueue<>(queueBatches);
+            text.put(Chunk.stream(file, stream), stage);
+            long offset = 0;
+            while (true) {
+                byte[] bytes = new byte[CHUNK_BYTES];
+                int length = fill(input, bytes, 0);
+                stream.put(new Chunk(file, bytes, length, offset, false, length < bytes.length), stage);
+                offset += length;
+                if (length < bytes.length) {
+                    return;
+                }
+            }
+        }
+
+        byte[] bytes = new byte[CHUNK_BYTES];
+        int length = 0;
+        long offset = 0;
+        boolean header = true;
+        while (true) {
+            if (length == bytes.length) {
+                // A line doesn't fit in the chunk.
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            length = fill(input, bytes, length);
+            if (length < bytes.length) {
+                text.put(new Chunk(file, bytes, length, offset, header, true), stage);
+                return;
+            }
+            int end = length;
+            while (end > 0 && bytes[end - 1] != '\n') {
+                end--;
+            }
+            if (end == 0) {
+                continue;
+            }
+            byte[] next = new byte[Math.max(CHUNK_BYTES, (length - end) * 2)];
+            System.arraycopy(bytes, end, next, 0, length - end);
+            text.put(new Chunk(file, bytes, end, offset, header, false), stage);
+            offset += end;
+            header = false;
+            length -= end;
+            bytes = next;
+        }
+    }
+
+    /**
+     * Reads until the array is full or the input ends.
+     *
+     * @return The number of bytes in the array.
+     */
+    private static int fill(InputStream input, byte[] bytes, int length) throws IOException {
+        while (length < bytes.length) {
+            int read = input.read(bytes, length, bytes.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+
+    private void runParse() throws IOException, InterruptedException {
+        PopulationCsvParser parser = new PopulationCsvParser();
+        PopulationFingerprint fingerprint = new PopulationFingerprint();
+        RecordBatch[] batch = {freeBatches.take()};
+        while (true) {
+            Chunk chunk = text.take(parse);
+            if (chunk == END) {
+                break;
+            }
+            if (chunk.stream == null) {
+                parser.reset(ByteBuffer.wrap(chunk.bytes), 0, chunk.length, true, chunk.offset);
+                if (chunk.header) {
+                    parser.skipLine();
+                }
+                while (true) {
+                    if (batch[0].size == batchRows) {
+                        batch[0] = emit(batch[0]);
+                    }
+                    if (!parser.next(batch[0].records[batch[0].size])) {
+                        break;
+                    }
+                    batch[0].size++;
+                }
+                continue;
+            }
+
+            ChunkInputStream input = new ChunkInputStream(chunk.stream, null, parse);
+            Runner.parseJson(input, populationEntryDto -> {
+                if (batch[0].size == batchRows) {
+                    try {
+                        batch[0] = emit(batch[0]);
+                    } catch (InterruptedException e) {
+                        throw new UncheckedIOException(new InterruptedIOException());
+                    }
+                }
+                fingerprint.hash(populationEntryDto);
+                PopulationRecord record = batch[0].records[batch[0].size++];
+                record.setSiblings(populationEntryDto.getSiblings());
+                record.setFavouriteFood(populationEntryDto.getFavouriteFood());
+                record.setBirthTimezone(populationEntryDto.getBirthTimezone());
+                record.setBirthTimeStamp(populationEntryDto.getBirthTimeStamp());
+                record.setFingerprint(fingerprint.getHi(), fingerprint.getLo());
+            });
+            input.skipToEnd();
+        }
+        if (batch[0].size > 0) {
+            parsed.put(batch[0], parse);
+        } else {
+            freeBatches.put(batch[0]);
+        }
+        if (parsing.decrementAndGet() == 0) {
+            for (int i = 0; i < dedupThreads; i++) {
+                parsed.put(END_BATCH, parse);
+            }
+        }
+    }
+
+    /**
+     * Hands a full batch to the dedup stage.
+     *
+     * @return An empty batch to fill next.
+     */
+    private RecordBatch emit(RecordBatch batch) throws InterruptedException {
+        parsed.put(batch, parse);
+        return freeBatches.take();
+    }
+
+    private void runDedup() throws InterruptedException {
+        long batchDuplicates = 0;
+        while (true) {
+            RecordBatch batch = parsed.take(dedup);
+            if (batch == END_BATCH) {
+                break;
+            }
+            for (int i = 0; i < batch.size; i++) {
+                PopulationRecord record = batch.records[i];
+                batch.unique[i] = fingerprints.add(record.getFingerprintHi(), record.getFingerprintLo());
+                if (!batch.unique[i]) {
+                    batchDuplicates++;
+                }
+            }
+            unique.put(batch, dedup);
+        }
+        duplicates.add(batchDuplicates);
+        if (deduplicating.decrementAndGet() == 0) {
+            for (int i = 0; i < aggregateThreads; i++) {
+                unique.put(END_BATCH, dedup);
+            }
+        }
+    }
+
+    private void runAggregate() throws InterruptedException {
+        PopulationResult result = new PopulationResult();
+        while (true) {
+            RecordBatch batch = unique.take(aggregate);
+            if (batch == END_BATCH) {
+                break;
+            }
+            for (int i = 0; i < batch.size; i++) {
+                if (batch.unique[i]) {
+                    PopulationCalcUtil.addPopulationRecordToResult(result, batch.records[i]);
+                }
+            }
+            batch.size = 0;
+            freeBatches.put(batch);
+        }
+        results.add(result);
+    }
+
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * @return The metrics of each stage, in order.
+     */
+    public List<Stage> getStages() {
+        return Arrays.asList(read, decompress, parse, dedup, aggregate);
+    }
+
+    /**
+     * @return A line per stage: its threads, the batches it put out, how full its input queue was, and how long it
+     * waited for input and was blocked on output.
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder(String.format("Pipeline: %,d rows per batch, %d batches per queue",
+                batchRows, queueBatches));
+        for (Stage stage : getStages()) {
+            summary.append(String.format("%n  %-10s %d thread%s, %,d batches out", stage.name, stage.threads,
+                    stage.threads == 1 ? "" : "s", stage.getBatches()));
+            if (stage.getTaken() > 0) {
+                summary.append(String.format(", input queue %.1f full on average (max %d)",
+                        stage.getAverageQueueDepth(), stage.getMaxQueueDepth()));
+            }
+            summary.append(String.format(", %.2fs waiting for input, %.2fs blocked on output",
+                    stage.getWaitNanos() / 1e9, stage.getBlockedNanos() / 1e9));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Metrics of a stage, added to by all its threads.
+     */
+    public static final class Stage {
+
+        private final String name;
+        private final int threads;
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder taken = new LongAdder();
+        private final LongAdder queueDepthSum = new LongAdder();
+        private final AtomicLong maxQueueDepth = new AtomicLong();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAdder blockedNanos = new LongAdder();
+
+        Stage(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        /**
+         * @return Batches (chunks of bytes, or of records) the stage put out.
+         */
+        public long getBatches() {
+            return batches.sum();
+        }
+
+        /**
+         * @return Batches the stage took from its input queues.
+         */
+        public long getTaken() {
+            return taken.sum();
+        }
+
+        /**
+         * @return Batches in the input queue when the stage took one, on average. Near the capacity, the stage is the
+         * bottleneck; near 0, it waits on those before it.
+         */
+        public double getAverageQueueDepth() {
+            long count = taken.sum();
+            return count == 0 ? 0 : (double) queueDepthSum.sum() / count;
+        }
+
+        public long getMaxQueueDepth() {
+            return maxQueueDepth.get();
+        }
+
+        /**
+         * @return Time the threads of the stage waited on an empty input queue, added up.
+         */
+        public long getWaitNanos() {
+            return waitNanos.sum();
+        }
+
+        /**
+         * @return Time the threads of the stage were blocked on a full output queue, added up: the backpressure of the
+         * stages after it.
+         */
+        public long getBlockedNanos() {
+            return blockedNanos.sum();
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageTask {
+        void run() throws Exception;
+    }
+
+    /**
+     * A bounded queue between two stages, recording how full it is and how long the stages wait on it.
+     */
+    private static final class MeteredQueue<T> {
+
+        private final BlockingQueue<T> queue;
+
+        MeteredQueue(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void put(T item, Stage producer) throws InterruptedException {
+            if (!queue.offer(item)) {
+                long start = System.nanoTime();
+                queue.put(item);
+                producer.blockedNanos.add(System.nanoTime() - start);
+            }
+            if (item != (Object) END && item != (Object) END_BATCH) {
+                producer.batches.increment();
+            }
+        }
+
+        T take(Stage consumer) throws InterruptedException {
+            int depth = queue.size();
+            consumer.taken.increment();
+            consumer.queueDepthSum.add(depth);
+            consumer.maxQueueDepth.accumulateAndGet(depth, Math::max);
+            T item = queue.poll();
+            if (item == null) {
+                long start = System.nanoTime();
+                item = queue.take();
+                consumer.waitNanos.add(System.nanoTime() - start);
+            }
+            return item;
+        }
+    }
+
+    /**
+     * Bytes of a file, or for a JSON file the queue its bytes go through.
+     */
+    private static final class Chunk {
+
+        private final int file;
+        private final byte[] bytes;
+        private final int length;
+        private final long offset;
+        private final boolean header;
+        private final boolean last;
+        private MeteredQueue<Chunk> stream;
+
+        Chunk(int file, byte[] bytes, int length, long offset, boolean header, boolean last) {
+            this.file = file;
+            this.bytes = bytes;
+            this.length = length;
+            this.offset = offset;
+            this.header = header;
+            this.last = last;
+        }
+
+        static Chunk stream(int file, MeteredQueue<Chunk> stream) {
+            Chunk chunk = new Chunk(file, null, 0, 0, false, false);
+            chunk.stream = stream;
+            return chunk;
+        }
+    }
+
+    /**
+     * Records filled by the parse stage, marked unique or not by the dedup stage, and added up by the aggregate stage.
+     */
+    private static final class RecordBatch {
+
+        private final PopulationRecord[] records;
+        private final boolean[] unique;
+        private int size = 0;
+
+        RecordBatch(int rows) {
+            records = new PopulationRecord[rows];
+            for (int i = 0; i < rows; i++) {
+                records[i] = new PopulationRecord();
+            }
+            unique = new boolean[rows];
+        }
+    }
+
+    /**
+     * Reads the chunks of one file from a queue, up to its last one.
+     */
+    private static final class ChunkInputStream extends InputStream {
+
+        private final MeteredQueue<Chunk> queue;
+        private final Stage stage;
+        private Chunk current;
+        private int position = 0;
+
+        /**
+         * @param first First chunk, already taken from the queue, or null to take it from the queue.
+         */
+        ChunkInputStream(MeteredQueue<Chunk> queue, Chunk first, Stage stage) {
+            this.queue = queue;
+            this.current = first;
+            this.stage = stage;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (current == null || position == current.length) {
+                if (current != null && current.last) {
+                    return -1;
+                }
+                next();
+            }
+            int read = Math.min(length, current.length - position);
+            System.arraycopy(current.bytes, position, bytes, offset, read);
+            position += read;
+            return read;
+        }
+
+        /**
+         * Takes the chunks left, up to the last one.
+         */
+        void skipToEnd() throws IOException {
+            while (current == null || !current.last) {
+                next();
+            }
+            position = current.length;
+        }
+
+        private void next() throws IOException {
+            try {
+                current = queue.take(stage);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.interset.interview;
+
+/**
+ * Mutable population entry, reused from row to row by the byte level readers so that no object is created per row.
+ *
+ * Unlike {@link PopulationEntryDto}, the names are usually not decoded: the readers hash them straight from the bytes
+ * into the fingerprint, which is all the de-duplication needs. They are only set when the reader is asked to.
+ */
+public class PopulationRecord {
+
+    private String firstName;
+    private String lastName;
+    private int siblings;
+    private String favouriteFood;
+    private String birthTimezone;
+    private long birthTimeStamp;
+
+    private long fingerprintHi;
+    private long fingerprintLo;
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public int getSiblings() {
+        return siblings;
+    }
+
+    public void setSiblings(int siblings) {
+        this.siblings = siblings;
+    }
+
+    /**
+     * @return The favourite food as it was read, not sanitized.
+     */
+    public String getFavouriteFood() {
+        return favouriteFood;
+    }
+
+    public void setFavouriteFood(String favouriteFood) {
+        this.favouriteFood = favouriteFood;
+    }
+
+    public String getBirthTimezone() {
+        return birthTimezone;
+    }
+
+    public void setBirthTimezone(String birthTimezone) {
+        this.birthTimezone = birthTimezone;
+    }
+
+    public long getBirthTimeStamp() {
+        return birthTimeStamp;
+    }
+
+    public void setBirthTimeStamp(long birthTimeStamp) {
+        this.birthTimeStamp = birthTimeStamp;
+    }
+
+    /**
+     * @return High half of the {@link PopulationFingerprint} of the entry.
+     */
+    public long getFingerprintHi() {
+        return fingerprintHi;
+    }
+
+    /**
+     * @return Low half of the {@link PopulationFingerprint} of the entry.
+     */
+    public long getFingerprintLo() {
+        return fingerprintLo;
+    }
+
+    public void setFingerprint(long hi, long lo) {
+        this.fingerprintHi = hi;
+        this.fingerprintLo = lo;
+    }
+
+    /**
+     * @return A new DTO with the same values. The names are only set if they were read.
+     */
+    public PopulationEntryDto toDto() {
+        PopulationEntryDto populationEntryDto = new PopulationEntryDto();
+        populationEntryDto.setFirstName(firstName);
+        populationEntryDto.setLastName(lastName);
+        populationEntryDto.setSiblings(siblings);
+        populationEntryDto.setFavouriteFood(favouriteFood);
+        populationEntryDto.setBirthTimezone(birthTimezone);
+        populationEntryDto.setBirthTimeStamp(birthTimeStamp);
+        return populationEntryDto;
+    }
+}
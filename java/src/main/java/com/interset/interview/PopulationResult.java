@@ -1,5 +1,8 @@
 package com.interset.interview;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.time.Month;
 import java.util.*;
 
@@ -7,33 +10,223 @@ import java.util.*;
  * Stores running results of population data that are used in the result calculations.
  *
  * (In other words the aggregation of entry data)
+ *
+ * The foods and timezones are kept in a {@link FoodZoneDictionary}, with the food counts in a long[] indexed by food
+ * id, and the birth months in a long[] indexed by month. The favourite food of an entry is sanitized once per distinct
+ * value as read, and the timezone is looked up once per distinct value, so once those have been seen adding an entry
+ * does not create any object. The maps returned by {@link #getFavouriteFoods()} and {@link #getBirthMonthFrequency()}
+ * are copies, made when asked for. The siblings are kept in a {@link SiblingHistogram}, which also counts the entries.
  */
 public class PopulationResult {
 
-    private int siblingSum = 0;
-    private int size = 0;
+    private static final Month[] MONTHS = Month.values();
+
+    private final SiblingHistogram siblings = new SiblingHistogram();
+
+    private final FoodZoneDictionary dictionary = new FoodZoneDictionary();
+    // Counts of the sanitized foods, by food id.
+    private long[] foodCounts = new long[32];
 
-    Map<String, Integer> favouriteFoods = new HashMap<>();
-    Map<Month, Integer> birthMonthFrequency = new HashMap<>();
+    private final long[] birthMonthCounts = new long[MONTHS.length];
 
     public void addToSiblingSum(int siblings) {
-        siblingSum += siblings;
-        size++;
+        this.siblings.add(siblings);
+    }
+
+    /**
+     * Counts one more entry with the given favourite food.
+     *
+     * @param favouriteFood Favourite food as read, it is sanitized here.
+     */
+    public void addFavouriteFood(String favouriteFood) {
+        int foodId = countedFood(dictionary.foodId(favouriteFood));
+        foodCounts[foodId]++;
     }
 
-    public int getSiblingSum() {
-        return siblingSum;
+    /**
+     * Counts one more entry born in the month of the given timestamp, in the given timezone.
+     */
+    public void addBirth(long birthTimeStamp, String birthTimezone) {
+        birthMonthCounts[dictionary.getZone(dictionary.zoneId(birthTimezone)).getMonth(birthTimeStamp).ordinal()]++;
     }
 
-    public Map<String, Integer> getFavouriteFoods() {
+    public long getSiblingSum() {
+        return siblings.getSum();
+    }
+
+    /**
+     * @return A copy of the distribution of the siblings.
+     */
+    public SiblingHistogram getSiblings() {
+        return new SiblingHistogram().merge(siblings);
+    }
+
+    /**
+     * @return A copy of the count of each sanitized favourite food.
+     */
+    public Map<String, Long> getFavouriteFoods() {
+        Map<String, Long> favouriteFoods = new HashMap<>();
+        for (int id = 0; id < dictionary.getFoodCount(); id++) {
+            favouriteFoods.put(dictionary.getFood(id), foodCounts[id]);
+        }
         return favouriteFoods;
     }
 
-    public Map<Month, Integer> getBirthMonthFrequency() {
+    /**
+     * @return The number of distinct sanitized favourite foods. Their ids go from 0 to this number, excluded.
+     */
+    public int getFoodCount() {
+        return dictionary.getFoodCount();
+    }
+
+    /**
+     * @return The number of distinct favourite foods as read, before they are sanitized.
+     */
+    int getRawFoodCount() {
+        return dictionary.getRawFoodCount();
+    }
+
+    int getTimezoneCount() {
+        return dictionary.getTimezoneCount();
+    }
+
+    public String getFood(int foodId) {
+        return dictionary.getFood(foodId);
+    }
+
+    /**
+     * @return The number of entries with the given favourite food.
+     */
+    public long getFoodFrequency(int foodId) {
+        return foodCounts[foodId];
+    }
+
+    /**
+     * @param k Maximum number of foods to return.
+     * @return The ids of the k most frequent foods, most frequent first. Foods with the same count are in alphabetical
+     * order, whatever order they were added in.
+     */
+    public int[] getTopFoodIds(int k) {
+        return TopK.largest(foodCounts, dictionary.getFoodCount(), k,
+                (id, otherId) -> dictionary.getFood(id).compareTo(dictionary.getFood(otherId)));
+    }
+
+    /**
+     * @return The number of entries with the given sanitized favourite food, 0 if there are none.
+     */
+    public long getFoodFrequency(String sanitizedFood) {
+        int foodId = dictionary.findSanitizedFood(sanitizedFood);
+        return foodId < 0 ? 0 : foodCounts[foodId];
+    }
+
+    /**
+     * @return A copy of the count of each birth month. Months without any birth are left out.
+     */
+    public Map<Month, Long> getBirthMonthFrequency() {
+        Map<Month, Long> birthMonthFrequency = new EnumMap<>(Month.class);
+        for (Month month : MONTHS) {
+            if (birthMonthCounts[month.ordinal()] > 0) {
+                birthMonthFrequency.put(month, birthMonthCounts[month.ordinal()]);
+            }
+        }
         return birthMonthFrequency;
     }
 
-    public int getSize() {
-        return size;
+    /**
+     * @return The number of entries born in the given month.
+     */
+    public long getBirthMonthFrequency(Month month) {
+        return birthMonthCounts[month.ordinal()];
+    }
+
+    public long getSize() {
+        return siblings.getCount();
+    }
+
+    /**
+     * Adds the counts of another result to this one, as if its entries had been added here.
+     *
+     * Used to combine the partial results of a parallel read. The other result is not modified.
+     *
+     * @param other Result to add.
+     * @return This result.
+     */
+    public PopulationResult merge(PopulationResult other) {
+        siblings.merge(other.siblings);
+        for (int otherId = 0; otherId < other.dictionary.getFoodCount(); otherId++) {
+            int foodId = foodId(other.dictionary.getFood(otherId));
+            foodCounts[foodId] += other.foodCounts[otherId];
+        }
+        for (int i = 0; i < birthMonthCounts.length; i++) {
+            birthMonthCounts[i] += other.birthMonthCounts[i];
+        }
+        return this;
+    }
+
+    /**
+     * Adds the counts of entries that were aggregated elsewhere, e.g. by {@link ColumnarFile}.
+     *
+     * @param siblings Siblings of the entries, which also counts them.
+     * @param sanitizedFoods Foods, with their counts at the same index in foodCounts.
+     * @param monthCounts Births in each month, from January.
+     */
+    void addCounts(SiblingHistogram siblings, String[] sanitizedFoods, long[] foodCounts, long[] monthCounts) {
+        this.siblings.merge(siblings);
+        for (int i = 0; i < sanitizedFoods.length; i++) {
+            if (foodCounts[i] > 0) {
+                int foodId = foodId(sanitizedFoods[i]);
+                this.foodCounts[foodId] += foodCounts[i];
+            }
+        }
+        for (int i = 0; i < birthMonthCounts.length; i++) {
+            birthMonthCounts[i] += monthCounts[i];
+        }
+    }
+
+    /**
+     * Writes the counts, to be read back with {@link #read(DataInput)}. The foods are written sanitized, the foods as
+     * read and the timezones are not written, they are only caches.
+     */
+    void write(DataOutput output) throws IOException {
+        siblings.write(output);
+        for (long count : birthMonthCounts) {
+            output.writeLong(count);
+        }
+        output.writeInt(dictionary.getFoodCount());
+        for (int id = 0; id < dictionary.getFoodCount(); id++) {
+            output.writeUTF(dictionary.getFood(id));
+            output.writeLong(foodCounts[id]);
+        }
+    }
+
+    /**
+     * @return A result with the counts written by {@link #write(DataOutput)}.
+     */
+    static PopulationResult read(DataInput input) throws IOException {
+        PopulationResult result = new PopulationResult();
+        result.siblings.merge(SiblingHistogram.read(input));
+        for (int i = 0; i < result.birthMonthCounts.length; i++) {
+            result.birthMonthCounts[i] = input.readLong();
+        }
+        int foodCount = input.readInt();
+        for (int i = 0; i < foodCount; i++) {
+            int foodId = result.foodId(input.readUTF());
+            result.foodCounts[foodId] = input.readLong();
+        }
+        return result;
+    }
+
+    private int foodId(String sanitizedFood) {
+        return countedFood(dictionary.sanitizedFoodId(sanitizedFood));
+    }
+
+    /**
+     * @return The food id, once there is a count for it.
+     */
+    private int countedFood(int foodId) {
+        if (foodId == foodCounts.length) {
+            foodCounts = Arrays.copyOf(foodCounts, foodId * 2);
+        }
+        return foodId;
     }
 }
@@ -0,0 +1,206 @@
+package com.interset.interview;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Long-lived HTTP service aggregating the population files uploaded to it, so that the JVM start and JIT warm-up are
+ * paid once rather than once per file.
+ *
+ * POST /aggregate with a CSV, JSON or newline delimited JSON file as the body answers with the results as JSON, e.g.
+ * {"people":2,"averageSiblings":3,"favouriteFoods":[{"food":"pizza","count":2}],"birthMonths":{"January":1,...},
+ * "duplicates":0}. The format is given by the "format" query parameter ("csv", "json", "ndjson" or
+ * "jsonl", followed by ".gz" if compressed), or else by the Content-Type (text/csv, application/json or
+ * application/x-ndjson). A body sent with "Content-Encoding: gzip" is decompressed. The "top" query parameter sets the
+ * number of favourite foods (default: 3). The body is parsed as it arrives, with the same readers as {@link Runner},
+ * so only the de-duplication state of each upload is kept in memory. Each upload is counted on its own.
+ *
+ * Every request is handled on its own virtual thread, so hundreds of slow uploads blocked on the network cost little
+ * more than their buffers. GET /health answers "ok".
+ */
+public class PopulationServer {
+
+    static final int DEFAULT_PORT = 8080;
+    static final String USAGE = "Usage: serve_population.sh [--port=N]\n"
+            + "Options:\n"
+            + "  --port=N   Port to listen on (default: " + DEFAULT_PORT + ", 0 for any free one).\n";
+
+    private static final int BACKLOG = 1024;
+    private static final int DEFAULT_TOP_FOODS = 3;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * @param port Port to listen on, 0 for any free one. Nothing is accepted before {@link #start()}.
+     */
+    public PopulationServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/aggregate", this::aggregate);
+        server.createContext("/health", exchange -> {
+            try (exchange) {
+                send(exchange, 200, "text/plain", "ok".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = DEFAULT_PORT;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                try {
+                    port = Integer.parseInt(arg.substring("--port=".length()));
+                } catch (NumberFormatException e) {
+                    port = -1;
+                }
+            }
+            if (!arg.startsWith("--port=") || port < 0 || port > 65535) {
+                System.out.println("Invalid argument: " + arg);
+                System.out.println(USAGE);
+                System.exit(1);
+            }
+        }
+        PopulationServer server = new PopulationServer(port);
+        server.start();
+        System.out.println("Listening on http://localhost:" + server.getPort() + "/aggregate");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, and interrupts the ones still running.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return Port the server listens on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void aggregate(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendError(exchange, 405, "Expected a POST of a population file.");
+                return;
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String format = query.getOrDefault("format", formatOf(exchange.getRequestHeaders().getFirst(
+                    "Content-Type")));
+            boolean gzip = "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            if (format != null && format.endsWith(".gz")) {
+                format = format.substring(0, format.length() - ".gz".length());
+                gzip = true;
+            }
+            if (format == null || !InputFiles.isSupported("upload." + format)) {
+                sendError(exchange, 415, "Expected a format of csv, json, ndjson or jsonl, as ?format= or the "
+                        + "Content-Type.");
+                return;
+            }
+            int topFoods;
+            try {
+                topFoods = Integer.parseInt(query.getOrDefault("top", String.valueOf(DEFAULT_TOP_FOODS)));
+            } catch (NumberFormatException e) {
+                topFoods = -1;
+            }
+            if (topFoods <= 0) {
+                sendError(exchange, 400, "Expected a positive number of favourite foods: " + query.get("top"));
+                return;
+            }
+
+            PopulationAggregator aggregator = new PopulationAggregator();
+            try {
+                InputStream body = exchange.getRequestBody();
+                if (gzip) {
+                    body = new GZIPInputStream(body, 64 * 1024);
+                }
+                if (format.equals("csv")) {
+                    new PopulationCsvReader().read(body, aggregator);
+                } else {
+                    Runner.parseJson(body, aggregator::add);
+                }
+            } catch (IOException | RuntimeException e) {
+                sendError(exchange, 400, "Failed to parse the upload: " + e.getMessage());
+                return;
+            }
+
+            Map<String, Object> results = PopulationCalcUtil.getResults(aggregator.getResult(), topFoods);
+            results.put("duplicates", aggregator.getDuplicates());
+            send(exchange, 200, "application/json", mapper.writeValueAsBytes(results));
+        }
+    }
+
+    /**
+     * @return Format of the Content-Type, or null if it is not one of a population file.
+     */
+    private static String formatOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String mediaType = contentType.split(";")[0].trim().toLowerCase();
+        switch (mediaType) {
+            case "text/csv":
+                return "csv";
+            case "application/json":
+                return "json";
+            case "application/x-ndjson":
+            case "application/jsonl":
+                return "ndjson";
+            default:
+                return null;
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        Map<String, String> error = new LinkedHashMap<>();
+        error.put("error", message);
+        send(exchange, status, "application/json", mapper.writeValueAsBytes(error));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+}
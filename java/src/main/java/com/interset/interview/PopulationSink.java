@@ -0,0 +1,27 @@
+package com.interset.interview;
+
+/**
+ * Receives the entries read from a file, e.g. to aggregate them (see {@link PopulationAggregator} and
+ * {@link ApproximateAggregator}).
+ */
+public interface PopulationSink {
+
+    /**
+     * @param populationEntryDto Entry read. It is not modified.
+     * @return True if the entry was counted, false if it was dropped as a duplicate.
+     */
+    boolean add(PopulationEntryDto populationEntryDto);
+
+    /**
+     * @param populationRecord Record read, with its fingerprint set. It is reused for the next record, so it must not
+     *                         be kept.
+     * @return True if the record was counted, false if it was dropped as a duplicate.
+     */
+    boolean add(PopulationRecord populationRecord);
+
+    /**
+     * @return True if the records added need their names to be set. The byte level readers only decode the names if
+     * they are needed.
+     */
+    boolean needsNames();
+}
@@ -0,0 +1,353 @@
+package com.interset.interview;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where the time of a run goes, enabled by --stats: rows and bytes per second, the time spent waiting for input,
+ * parsing, de-duplicating and aggregating, the duplicate rate, the dictionary sizes, and the GC time and peak heap.
+ *
+ * Each {@link PopulationAggregator} created while the stats are enabled gets a {@link Recorder}, which counts the
+ * entries added and times a sample of them, into plain fields only written by the thread reading, so the threads never
+ * contend. The time between the entries is the parsing, less what was spent waiting for the input streams opened by
+ * {@link Runner}. When the stats are not enabled, an aggregator only checks that it has no recorder.
+ *
+ * The figures are exposed live through JMX (see {@link PopulationStatsMBean}), and printed at the end of the run.
+ * Read while threads are still adding entries, they may be slightly behind.
+ */
+public class PopulationStats implements PopulationStatsMBean {
+
+    static final String OBJECT_NAME = "com.interset.interview:type=PopulationStats";
+
+    private static volatile PopulationStats active;
+
+    private final long start = System.nanoTime();
+    private volatile long end = 0;
+    private final long gcCountAtStart;
+    private final long gcMillisAtStart;
+
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder inputNanos = new LongAdder();
+    private volatile PopulationResult finalResult;
+
+    private PopulationStats() {
+        gcCountAtStart = gcCount();
+        gcMillisAtStart = gcMillis();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Starts recording the aggregators created from now on, and registers the MBean.
+     */
+    public static synchronized PopulationStats enable() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        PopulationStats stats = new PopulationStats();
+        server.registerMBean(stats, name);
+        active = stats;
+        return stats;
+    }
+
+    /**
+     * Stops recording new aggregators, and unregisters the MBean.
+     */
+    public static synchronized void disable() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        active = null;
+    }
+
+    /**
+     * @return The stats being recorded, or null if they are not enabled.
+     */
+    static PopulationStats active() {
+        return active;
+    }
+
+    Recorder newRecorder(PopulationResult result) {
+        Recorder recorder = new Recorder(result);
+        recorders.add(recorder);
+        return recorder;
+    }
+
+    /**
+     * Counts bytes parsed by a reader that does not go through {@link #timed(InputStream)}.
+     */
+    void addBytes(long count) {
+        bytes.add(count);
+    }
+
+    /**
+     * @return The stream, counting the bytes read from it and the time spent waiting for them.
+     */
+    InputStream timed(InputStream inputStream) {
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                long readStart = System.nanoTime();
+                int b = super.read();
+                inputNanos.add(System.nanoTime() - readStart);
+                if (b >= 0) {
+                    bytes.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                long readStart = System.nanoTime();
+                int count = super.read(buffer, offset, length);
+                inputNanos.add(System.nanoTime() - readStart);
+                if (count > 0) {
+                    bytes.add(count);
+                }
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Stops the clock, and takes the dictionary sizes from the result of the run, which may have merged the results of
+     * several aggregators.
+     */
+    void finish(PopulationResult result) {
+        end = System.nanoTime();
+        finalResult = result;
+    }
+
+    /**
+     * @return Summary printed by --stats.
+     */
+    public String getSummary() {
+        double seconds = getElapsedSeconds();
+        return String.format("Stats: %,d rows (%,d unique, %.1f%% duplicates) in %.2fs: %,.0f rows/s, %.1f MB/s%n",
+                getRows(), getUniqueRows(), getDuplicateRatio() * 100, seconds, getRowsPerSecond(),
+                getBytesPerSecond() / 1e6)
+                + String.format("  Waiting for input %.2fs, parsing %.2fs, de-duplication %.2fs, aggregation %.2fs"
+                        + " (summed over threads)%n", getInputSeconds(), getParseSeconds(), getDeduplicationSeconds(),
+                getAggregationSeconds())
+                + String.format("  Dictionaries: %,d foods (%,d as read), %,d timezones%n", getFoodDictionarySize(),
+                getRawFoodDictionarySize(), getTimezoneDictionarySize())
+                + String.format("  GC: %,d collections in %.2fs, peak heap %,d MB", getGcCount(), getGcSeconds(),
+                getPeakHeapBytes() / (1024 * 1024));
+    }
+
+    @Override
+    public double getElapsedSeconds() {
+        long until = end;
+        return ((until == 0 ? System.nanoTime() : until) - start) / 1e9;
+    }
+
+    @Override
+    public long getRows() {
+        long rows = 0;
+        for (Recorder recorder : recorders) {
+            rows += recorder.rows;
+        }
+        return rows;
+    }
+
+    @Override
+    public long getUniqueRows() {
+        long unique = 0;
+        for (Recorder recorder : recorders) {
+            unique += recorder.result.getSize();
+        }
+        return unique;
+    }
+
+    @Override
+    public double getDuplicateRatio() {
+        long rows = getRows();
+        return rows == 0 ? 0 : (double) (rows - getUniqueRows()) / rows;
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        return getRows() / Math.max(1e-9, getElapsedSeconds());
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return getBytes() / Math.max(1e-9, getElapsedSeconds());
+    }
+
+    @Override
+    public double getInputSeconds() {
+        return inputNanos.sum() / 1e9;
+    }
+
+    @Override
+    public double getParseSeconds() {
+        long nanos = 0;
+        for (Recorder recorder : recorders) {
+            nanos += recorder.getParseNanos();
+        }
+        return Math.max(0, nanos / 1e9 - getInputSeconds());
+    }
+
+    @Override
+    public double getDeduplicationSeconds() {
+        long nanos = 0;
+        for (Recorder recorder : recorders) {
+            nanos += recorder.getDeduplicationNanos();
+        }
+        return nanos / 1e9;
+    }
+
+    @Override
+    public double getAggregationSeconds() {
+        long nanos = 0;
+        for (Recorder recorder : recorders) {
+            nanos += recorder.getAggregationNanos();
+        }
+        return nanos / 1e9;
+    }
+
+    @Override
+    public int getFoodDictionarySize() {
+        int size = finalResult == null ? 0 : finalResult.getFoodCount();
+        for (Recorder recorder : recorders) {
+            size = Math.max(size, recorder.result.getFoodCount());
+        }
+        return size;
+    }
+
+    @Override
+    public int getRawFoodDictionarySize() {
+        int size = finalResult == null ? 0 : finalResult.getRawFoodCount();
+        for (Recorder recorder : recorders) {
+            size = Math.max(size, recorder.result.getRawFoodCount());
+        }
+        return size;
+    }
+
+    @Override
+    public int getTimezoneDictionarySize() {
+        int size = finalResult == null ? 0 : finalResult.getTimezoneCount();
+        for (Recorder recorder : recorders) {
+            size = Math.max(size, recorder.result.getTimezoneCount());
+        }
+        return size;
+    }
+
+    @Override
+    public long getGcCount() {
+        return gcCount() - gcCountAtStart;
+    }
+
+    @Override
+    public double getGcSeconds() {
+        return (gcMillis() - gcMillisAtStart) / 1e3;
+    }
+
+    @Override
+    public long getPeakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Counts the entries added to one aggregator, which are all added by one thread at a time, and times one in
+     * {@link #SAMPLE_INTERVAL} of them: timing each one would cost more than a tenth of the fastest reads.
+     */
+    static final class Recorder {
+
+        static final int SAMPLE_INTERVAL = 32;
+
+        private final PopulationResult result;
+        private long rows = 0;
+        private long busyNanos = 0;
+        private long sampledDeduplicationNanos = 0;
+        private long sampledAggregationNanos = 0;
+        private long lastEnd = System.nanoTime();
+
+        private Recorder(PopulationResult result) {
+            this.result = result;
+        }
+
+        /**
+         * Counts an entry.
+         *
+         * @return True if it should be timed, and given to {@link #record(long, long, long)}.
+         */
+        boolean sample() {
+            return ++rows % SAMPLE_INTERVAL == 0;
+        }
+
+        /**
+         * @param start When the entry was received.
+         * @param deduplicated When it was found to be unique or not.
+         * @param end When it was added to the result.
+         */
+        void record(long start, long deduplicated, long end) {
+            busyNanos += end - lastEnd;
+            sampledDeduplicationNanos += deduplicated - start;
+            sampledAggregationNanos += end - deduplicated;
+            lastEnd = end;
+        }
+
+        long getDeduplicationNanos() {
+            return sampledDeduplicationNanos * SAMPLE_INTERVAL;
+        }
+
+        long getAggregationNanos() {
+            return sampledAggregationNanos * SAMPLE_INTERVAL;
+        }
+
+        /**
+         * @return Time spent between the entries, up to the last one timed.
+         */
+        long getParseNanos() {
+            return Math.max(0, busyNanos - getDeduplicationNanos() - getAggregationNanos());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.interset.interview;
+
+/**
+ * Management interface of {@link PopulationStats}, registered as {@link PopulationStats#OBJECT_NAME} while a run with
+ * --stats goes on, so that it can be watched with jconsole or any other JMX client.
+ *
+ * The stage times are summed over the threads reading, so with several threads they can add up to more than the
+ * elapsed time.
+ */
+public interface PopulationStatsMBean {
+
+    double getElapsedSeconds();
+
+    /**
+     * @return Rows read, duplicates included.
+     */
+    long getRows();
+
+    long getUniqueRows();
+
+    /**
+     * @return Share of the rows read that were duplicates.
+     */
+    double getDuplicateRatio();
+
+    /**
+     * @return Bytes parsed, after decompression.
+     */
+    long getBytes();
+
+    double getRowsPerSecond();
+
+    double getBytesPerSecond();
+
+    /**
+     * @return Time spent waiting for input streams: reading files and decompressing them. Mapped files are read as
+     * they are parsed, so their reading counts as parsing.
+     */
+    double getInputSeconds();
+
+    double getParseSeconds();
+
+    double getDeduplicationSeconds();
+
+    double getAggregationSeconds();
+
+    /**
+     * @return Distinct favourite foods, sanitized.
+     */
+    int getFoodDictionarySize();
+
+    /**
+     * @return Distinct favourite foods as read, before they are sanitized.
+     */
+    int getRawFoodDictionarySize();
+
+    int getTimezoneDictionarySize();
+
+    long getGcCount();
+
+    double getGcSeconds();
+
+    /**
+     * @return Sum of the peak usage of each heap memory pool since the stats were enabled. The pools peak at different
+     * times, so this is an upper bound of the peak heap.
+     */
+    long getPeakHeapBytes();
+}
@@ -1,9 +1,11 @@
 package com.interset.interview;
 
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.MappingIterator;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 
@@ -11,11 +13,13 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
 
 public class Runner {
@@ -42,7 +46,27 @@ public class Runner {
      * This is main method which is starting point for this application.
      * It requires 1 arguments to run successfully.
      *
-     * @param: args[0] : Path to JSON or CSV file to read. Also accepts GZIP's version of the JSON or CSV file.
+     * @param: args[0] : Path to JSON or CSV file to read. Also accepts newline delimited JSON (.ndjson or .jsonl), and
+     *                  GZIP's version of any of these files, or a columnar file written by convert_population.sh.
+     *
+     * More paths can follow, to count the entries of several files together. A path can also be a directory or a glob
+     * pattern (see {@link InputFiles}).
+     *
+     * Options (see {@link RunnerOptions}) can be given before or after the path:
+     *       --verify-dedup : Verify the duplicate detection against the full entries, and report fingerprint collisions.
+     *       --parallel[=N] : Split uncompressed CSV files into chunks parsed on N threads (default: one per core).
+     *       --checkpoint=PATH : Only read what changed since the run that saved the checkpoint at PATH.
+     *       --follow[=S] : Keep reading the rows appended to the file, printing the results every S seconds.
+     *       --stats : Print where the time of the run went (see {@link PopulationStats}).
+     *       --query=DIMENSIONS:AGGREGATES[:top=K] : Print the aggregates of each group instead (see
+     *                                               {@link GroupByQuery}).
+     *       --memory=MB : Remove duplicates within MB of memory, spilling to temporary files (see
+     *                     {@link SpillingAggregator}).
+     *       --partial=PATH [--sketch] : Write the results to PATH instead, to be merged with those of other files (see
+     *                                   {@link PartialReducer}).
+     *       --pipeline[=SETTINGS] : Run each stage of the read on threads of its own (see {@link PopulationPipeline}).
+     *       --siblings : Also print the median, percentiles, maximum and mode of the siblings (see
+     *                    {@link SiblingHistogram}).
      *
      * The JSON and CSV files must contain the following fields:
      *  name, siblings, favourite_food, birth_timezone, birth_timestamp
@@ -55,49 +79,259 @@ public class Runner {
      */
     public static void main(String args[]) throws Exception {
 
-        if (args.length != 1) {
-            System.out.println("We currently only expect 1 argument! A path to a JSON or CSV file to read.");
+        RunnerOptions options = null;
+        try {
+            options = RunnerOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(RunnerOptions.USAGE);
             System.exit(1);
         }
         Runner runner = new Runner();
-        String filePath = args[0];
+        List<String> filePaths = null;
+        try {
+            filePaths = InputFiles.expand(options.getFilePaths());
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+        String filePath = filePaths.get(0);
+
+        if (filePaths.stream().anyMatch(ColumnarFile::supports)) {
+            // Already unique entries, see ColumnarWriter.
+            if (filePaths.size() > 1 || options.isFollow() || options.isApproximate() || options.isVerifyDedup()
+                    || options.getCheckpointPath() != null || options.isStats() || !options.getQueries().isEmpty()
+                    || options.isSpilling() || options.getPartialPath() != null || options.getPipeline() != null) {
+                System.out.println("A columnar file is read on its own, without --follow, --approximate, "
+                        + "--verify-dedup, --checkpoint, --stats, --query, --memory, --partial or --pipeline.");
+                System.exit(1);
+            }
+            PopulationCalcUtil.printResults(ColumnarFile.aggregate(filePath, options.getFileThreads()),
+                    options.getTopFoods(), options.isSiblings());
+            return;
+        }
+
+        if (options.isFollow()) {
+            if (filePaths.size() != 1 || !FileFollower.supports(filePath)) {
+                System.out.println("--follow reads 1 uncompressed CSV or newline delimited JSON file.");
+                System.exit(1);
+            }
+            follow(filePath, new PopulationAggregator(new PopulationDeduplicator(options.isVerifyDedup())), options);
+            return;
+        }
+
+        if (!options.getQueries().isEmpty()) {
+            // Every query in the same pass, see GroupByEngine.
+            GroupByEngine engine = new GroupByEngine(options.getQueries(),
+                    new PopulationDeduplicator(options.isVerifyDedup()));
+            for (String path : filePaths) {
+                runner.streamPopulation(path, engine);
+            }
+            PopulationCalcUtil.printQueryResults(engine.getResults());
+            return;
+        }
+
+        if (options.isApproximate()) {
+            // Fixed memory estimates, see ApproximateAggregator.
+            ApproximateAggregator aggregator = new ApproximateAggregator(options.getApproximateBytes());
+            for (String path : filePaths) {
+                runner.streamPopulation(path, aggregator);
+            }
+            PopulationCalcUtil.printApproximateResults(aggregator, options.getTopFoods());
+            return;
+        }
+
+        if (options.getPartialPath() != null) {
+            // To be merged with the results of other files, see PartialAggregator and PartialReducer.
+            HyperLogLog sketch = options.isSketch() ? new HyperLogLog(HyperLogLog.MAX_PRECISION) : null;
+            try (PartialAggregator aggregator = new PartialAggregator(Paths.get(options.getPartialPath()), sketch)) {
+                for (String path : filePaths) {
+                    runner.streamPopulation(path, aggregator);
+                }
+                aggregator.finish();
+                System.out.println(String.format("Wrote %,d people (%,d duplicates dropped) to %s",
+                        aggregator.getPeople(), aggregator.getDuplicates(), options.getPartialPath()));
+            }
+            return;
+        }
+
+        if (options.isSpilling()) {
+            // Within a memory budget, see SpillingAggregator.
+            try (SpillingAggregator aggregator = new SpillingAggregator(options.getMemoryBytes(),
+                    Paths.get(System.getProperty("java.io.tmpdir")))) {
+                for (String path : filePaths) {
+                    runner.streamPopulation(path, aggregator);
+                }
+                PopulationCalcUtil.printResults(aggregator.getResult(), options.getTopFoods(), options.isSiblings());
+                System.out.println(aggregator.getSummary());
+            }
+            return;
+        }
 
-        // Map the data into POJOs and Eliminate duplicates (see notes above for assumptions on data)
-        Set<PopulationEntryDto> result = runner.parsePopulation(filePath);
+        PopulationStats stats = options.isStats() ? PopulationStats.enable() : null;
 
-        // Calculate the average siblings, top foods, and birth frequencies by month.
-        PopulationResult populationResult = PopulationCalcUtil.generateResult(result);
+        // Stream the data, eliminating duplicates (see notes above for assumptions on data), and calculate the
+        // average siblings, top foods, and birth frequencies by month in a single pass.
+        PopulationDeduplicator deduplicator = new PopulationDeduplicator(options.isVerifyDedup());
+        PopulationResult populationResult;
+        MultiFileReader multiFileReader = null;
+        IncrementalReader incrementalReader = null;
+        PopulationPipeline pipeline = options.getPipeline();
+        long start = System.nanoTime();
+        if (pipeline != null) {
+            // Every stage on threads of its own, see PopulationPipeline.
+            populationResult = pipeline.aggregate(filePaths);
+        } else if (options.getCheckpointPath() != null) {
+            // Only what changed since the checkpoint, see IncrementalReader.
+            incrementalReader = new IncrementalReader(options.getFileThreads());
+            populationResult = incrementalReader.aggregate(filePaths, options.getCheckpointPath());
+        } else if (filePaths.size() > 1 && !options.isVerifyDedup()) {
+            // Several files at once, see MultiFileReader.
+            multiFileReader = new MultiFileReader(options.getFileThreads());
+            populationResult = multiFileReader.aggregate(filePaths,
+                    new ConcurrentFingerprintSet(options.getFileThreads()));
+        } else if (options.isParallel() && filePaths.size() == 1 && ParallelCsvReader.supports(filePath)) {
+            populationResult = new ParallelCsvReader(options.getThreads())
+                    .aggregate(filePath, new ConcurrentFingerprintSet(options.getThreads()));
+        } else {
+            PopulationAggregator aggregator = new PopulationAggregator(deduplicator);
+            for (String path : filePaths) {
+                runner.streamPopulation(path, aggregator);
+            }
+            populationResult = aggregator.getResult();
+        }
 
         // Print out the results.
-        PopulationCalcUtil.printResults(populationResult);
+        PopulationCalcUtil.printResults(populationResult, options.getTopFoods(), options.isSiblings());
+        if (multiFileReader != null) {
+            PopulationCalcUtil.printFileReports(multiFileReader.getReports(), System.nanoTime() - start);
+        }
+        if (incrementalReader != null) {
+            System.out.println(incrementalReader.getSummary());
+        }
+        if (pipeline != null) {
+            System.out.println(pipeline.getSummary());
+        }
+        if (options.isVerifyDedup()) {
+            System.out.println("Duplicates: " + deduplicator.getDuplicates() + ", fingerprint collisions: "
+                    + deduplicator.getCollisions() + " (estimated probability "
+                    + String.format("%.3g", deduplicator.getCollisionProbability()) + ")");
+        }
+        if (stats != null) {
+            stats.finish(populationResult);
+            System.out.println(stats.getSummary());
+        }
     }
 
     /**
-     * Creates an input stream to the data, and routes the data to the correct parser based on file extension.
+     * Follows the file (see {@link FileFollower}) until the process is stopped, printing the results every interval in
+     * which rows were appended.
+     */
+    private static void follow(String filePath, PopulationAggregator aggregator, RunnerOptions options)
+            throws Exception {
+        try (FileFollower follower = new FileFollower(filePath, aggregator)) {
+            boolean first = true;
+            int restarts = 0;
+            while (true) {
+                long rows = follower.poll();
+                if (follower.getRestarts() > restarts) {
+                    restarts = follower.getRestarts();
+                    System.out.println(filePath + " was truncated or replaced, reading it from the start.");
+                }
+                if (rows > 0 || first) {
+                    System.out.println(String.format("%s: %,d new rows, %,d unique people in total", LocalDateTime.now()
+                            .withNano(0), rows, aggregator.getResult().getSize()));
+                    PopulationCalcUtil.printResults(aggregator.getResult(), options.getTopFoods(),
+                            options.isSiblings());
+                    first = false;
+                }
+                Thread.sleep(options.getFollowSeconds() * 1000L);
+            }
+        }
+    }
+
+    /**
+     * Reads the whole file into a set of entries. Duplicates are removed (see notes above for assumptions on data).
      *
      * @param filePath Path to file. (Absolute, or relative to working directory)
      * @return Mapped data.
      * @throws Exception
      */
     public Set<PopulationEntryDto> parsePopulation(String filePath) throws Exception {
-        int i = filePath.lastIndexOf('.');
-        String ext = filePath.substring(i + 1);
+        Set<PopulationEntryDto> result = new HashSet<>();
+        readPopulation(filePath, result::add);
+        return result;
+    }
 
-        InputStream inputStream =  new FileInputStream(filePath);
+    /**
+     * Streams the file through a {@link PopulationAggregator}, so that no more than the de-duplication state is kept
+     * in memory.
+     *
+     * @param filePath Path to file. (Absolute, or relative to working directory)
+     * @return Aggregated results of the unique entries.
+     * @throws Exception
+     */
+    public PopulationResult aggregatePopulation(String filePath) throws Exception {
+        return aggregatePopulation(filePath, new PopulationAggregator());
+    }
 
+    /**
+     * Streams the file through the given aggregator, which may already hold the results of other files.
+     *
+     * @param filePath Path to file. (Absolute, or relative to working directory)
+     * @param aggregator Aggregator to add the entries to.
+     * @return Aggregated results of the unique entries.
+     * @throws Exception
+     */
+    public PopulationResult aggregatePopulation(String filePath, PopulationAggregator aggregator) throws Exception {
+        streamPopulation(filePath, aggregator);
+        return aggregator.getResult();
+    }
 
-        if (ext.equalsIgnoreCase("GZ")) {
-            String[] split = filePath.split("\\.");
-            ext = split[split.length - 2];
-            inputStream = new GZIPInputStream(inputStream);
+    /**
+     * Streams every entry of the file to the sink, with the fastest reader for its format.
+     *
+     * @param filePath Path to file. (Absolute, or relative to working directory)
+     * @param sink Receives every entry of the file, in order.
+     * @throws Exception
+     */
+    public void streamPopulation(String filePath, PopulationSink sink) throws Exception {
+        try {
+            if (MappedCsvReader.supports(filePath)) {
+                // Uncompressed CSV files are parsed straight from the mapped bytes, which is much faster than Jackson.
+                new MappedCsvReader().read(filePath, sink);
+            } else if (getFormat(filePath).equals("csv")) {
+                // Compressed ones go through the same parser, reading from the decompressed stream.
+                try (InputStream inputStream = openInputStream(filePath)) {
+                    new PopulationCsvReader().read(inputStream, sink);
+                }
+            } else {
+                readPopulation(filePath, sink::add);
+            }
+        } catch (IOException e) {
+            throw new Exception("Failed to parse file", e);
         }
+    }
 
-        Set<PopulationEntryDto> result = null;
+    /**
+     * Creates an input stream to the data, and routes the data to the correct parser based on file extension.
+     *
+     * @param filePath Path to file. (Absolute, or relative to working directory)
+     * @param consumer Receives every entry of the file, in order. Duplicates are not removed.
+     * @throws Exception
+     */
+    public void readPopulation(String filePath, Consumer<PopulationEntryDto> consumer) throws Exception {
+        String ext = getFormat(filePath);
+        InputStream inputStream = openInputStream(filePath);
+
+        boolean parsed = false;
         try {
-            if (ext.equalsIgnoreCase("CSV")) {
-                result = parseCsv(inputStream);
-            } else if (ext.equalsIgnoreCase("JSON")) {
-                result = parseJson(inputStream);
+            if (ext.equals("csv")) {
+                parseCsv(inputStream, consumer);
+                parsed = true;
+            } else if (ext.equals("json") || ext.equals("ndjson") || ext.equals("jsonl")) {
+                parseJson(inputStream, consumer);
+                parsed = true;
             }
         } catch (Exception e) {
             throw new Exception("Failed to parse file", e);
@@ -106,10 +340,52 @@ public class Runner {
         }
 
 
-        if (result == null) {
+        if (!parsed) {
             throw new Exception("Could not read in file");
         }
-        return result;
+    }
+
+    /**
+     * @param filePath Path to file.
+     * @return Lower cased extension of the file, ignoring the ".gz" of GZIP files. E.g. "csv" for "data.csv.gz".
+     */
+    static String getFormat(String filePath) {
+        String[] split = filePath.toLowerCase().split("\\.");
+        String ext = split[split.length - 1];
+        if (ext.equals("gz") && split.length > 2) {
+            ext = split[split.length - 2];
+        }
+        return ext;
+    }
+
+    /**
+     * @param filePath Path to file.
+     * @return Stream to the file, decompressed if it is a GZIP file. With more than one core, the file is decompressed
+     * on other threads while it is parsed (see PipelinedGzipInputStream). If {@link PopulationStats} are enabled, the
+     * bytes read and the time spent waiting for them are recorded.
+     * @throws IOException
+     */
+    static InputStream openInputStream(String filePath) throws IOException {
+        InputStream inputStream = openFile(filePath);
+        PopulationStats stats = PopulationStats.active();
+        return stats == null ? inputStream : stats.timed(inputStream);
+    }
+
+    private static InputStream openFile(String filePath) throws IOException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (filePath.toLowerCase().endsWith(".gz") && cores > 1) {
+            return new PipelinedGzipInputStream(filePath, cores);
+        }
+        InputStream inputStream = new FileInputStream(filePath);
+        if (filePath.toLowerCase().endsWith(".gz")) {
+            try {
+                inputStream = new GZIPInputStream(inputStream);
+            } catch (IOException e) {
+                inputStream.close();
+                throw e;
+            }
+        }
+        return inputStream;
     }
 
     /**
@@ -120,29 +396,50 @@ public class Runner {
      * @throws IOException
      */
     public static Set<PopulationEntryDto> parseCsv(InputStream inputStream) throws IOException {
+        // Put the data into a set to avoid duplicates.
+        Set<PopulationEntryDto> populationEntryDtos = new HashSet<>();
+        parseCsv(inputStream, populationEntryDtos::add);
+        return populationEntryDtos;
+    }
 
-        // Ignore the header.
-        CsvMapper mapper = new CsvMapper();
-        CsvSchema schema = mapper
-                .schemaFor(PopulationEntryDto.class)
-                .withSkipFirstDataRow(true);
+    /**
+     * Parse the CSV using Jackson, handing each entry to the consumer as soon as it is read.
+     *
+     * @param inputStream Input stream to CSV file.
+     * @param consumer Receives every entry, duplicates included.
+     * @throws IOException
+     */
+    public static void parseCsv(InputStream inputStream, Consumer<PopulationEntryDto> consumer) throws IOException {
 
-        MappingIterator<PopulationEntryDto> it = mapper
-                .readerFor(PopulationEntryDto.class)
-                .with(schema)
-                .readValues(inputStream);
+        // Ignore the header.
+        MappingIterator<PopulationEntryDto> it = csvReader(true).readValues(inputStream);
 
-        // Put the data into a set to avoid duplicates.
-        Set<PopulationEntryDto> populationEntryDtos = new HashSet<>();
         while (it.hasNext()) {
-            PopulationEntryDto populationEntryDto = it.next();
-            populationEntryDtos.add(populationEntryDto);
-
-            // TODO: If performance is a major issue, we could start calling
-            // PopulationCalcUtil.addPopulationDtoToResult(..) to generate the results on the fly and avoid doing a
-            // second pass of all the data later on. We just need to be aware of dupes.
+            consumer.accept(it.next());
         }
-        return populationEntryDtos;
+    }
+
+    /**
+     * Jackson reader mapping CSV rows to entries. The readers are immutable, they are built the first time one is asked
+     * for and reused afterwards, since introspecting the entry class costs more than reading a small file.
+     *
+     * @param skipHeader Whether the first row is a header to ignore.
+     */
+    static ObjectReader csvReader(boolean skipHeader) {
+        return skipHeader ? CsvReaders.SKIPPING_HEADER : CsvReaders.NOT_SKIPPING_HEADER;
+    }
+
+    /**
+     * Holds the Jackson CSV readers, so that they are only built by the runs that use them.
+     */
+    private static final class CsvReaders {
+
+        private static final CsvMapper MAPPER = new CsvMapper();
+        private static final CsvSchema SCHEMA = MAPPER.schemaFor(PopulationEntryDto.class);
+        private static final ObjectReader SKIPPING_HEADER = MAPPER.readerFor(PopulationEntryDto.class)
+                .with(SCHEMA.withSkipFirstDataRow(true));
+        private static final ObjectReader NOT_SKIPPING_HEADER = MAPPER.readerFor(PopulationEntryDto.class)
+                .with(SCHEMA.withSkipFirstDataRow(false));
     }
 
     /**
@@ -153,18 +450,41 @@ public class Runner {
      * @throws IOException
      */
     public static Set<PopulationEntryDto> parseJson(InputStream inputStream) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
+        // Put the data into a set to avoid duplicates.
+        Set<PopulationEntryDto> populationEntryDtos = new HashSet<>();
+        parseJson(inputStream, populationEntryDtos::add);
+        return populationEntryDtos;
+    }
 
-        // Rely on Jackson's object model of PopulationEntryDto to do the mapping for us.
-        List<PopulationEntryDto> data = mapper.readValue(inputStream, new TypeReference<List<PopulationEntryDto>>(){});
+    /**
+     * Parse the JSON by walking the tokens with a Jackson streaming parser, binding one entry at a time with
+     * {@link PopulationJsonParser} rather than Jackson databind.
+     *
+     * Accepts either a regular JSON file (a single array of entries) or newline delimited JSON (one entry object per
+     * line, not wrapped in an array). Only the entry currently being read is kept in memory.
+     *
+     * @param inputStream Input stream to JSON or NDJSON file.
+     * @param consumer Receives every entry, duplicates included.
+     * @throws IOException
+     */
+    public static void parseJson(InputStream inputStream, Consumer<PopulationEntryDto> consumer) throws IOException {
+        JsonParser parser = PopulationJsonParser.createParser(inputStream);
 
-        // Put the data into a set to avoid duplicates.
-        Set<PopulationEntryDto> populationEntryDtos = new HashSet<>(data);
+        JsonToken token = parser.nextToken();
+        boolean inArray = token == JsonToken.START_ARRAY;
+        if (inArray) {
+            token = parser.nextToken();
+        }
 
-        // TODO: If performance is a major issue, we could start looking at a iterative way to retrieve each data entry
-        // and use PopulationCalcUtil.addPopulationDtoToResult(..) to generate the results on the fly to avoid doing a
-        // second pass of all the data later on. We just need to be aware of dupes.
+        // Each object is bound by name to a PopulationEntryDto, the parser is left on its end.
+        while (token == JsonToken.START_OBJECT) {
+            consumer.accept(PopulationJsonParser.readEntry(parser));
+            token = parser.nextToken();
+        }
 
-        return populationEntryDtos;
+        JsonToken expectedEnd = inArray ? JsonToken.END_ARRAY : null;
+        if (token != expectedEnd) {
+            throw new JsonParseException(parser, "Expected a population entry object but found " + token);
+        }
     }
 }
@@ -0,0 +1,305 @@
+package com.interset.interview;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line options of {@link Runner}.
+ *
+ * Options start with "--" and can appear anywhere. Everything else is a path to a file, directory or glob pattern to
+ * read (see {@link InputFiles}).
+ */
+public class RunnerOptions {
+
+    static final String USAGE = "Usage: stats_extractor.sh [options] <path/to/json_or_csv>...\n"
+            + "Several files, directories and glob patterns can be given, their entries are counted together.\n"
+            + "A columnar file written by convert_population.sh (.pcol) is read much faster, on its own.\n"
+            + "Options:\n"
+            + "  --verify-dedup    Keep every unique entry to verify the duplicate detection, and report collisions.\n"
+            + "  --parallel[=N]    Parse uncompressed CSV files on N threads (default: one per core). Several files\n"
+            + "                    are always read at once, on one thread per core unless N is given.\n"
+            + "  --top=K           Print the K favourite foods instead of 3.\n"
+            + "  --siblings        Also print the distribution of the siblings: mean, median, 90th and 99th\n"
+            + "                    percentiles, maximum and mode.\n"
+            + "  --approximate[=MB]\n"
+            + "                    Estimate the results in a fixed amount of memory (default: 4 MB), without removing\n"
+            + "                    duplicates. Each number is printed with its error bound.\n"
+            + "  --checkpoint=PATH Only read what changed since the run that saved the checkpoint at PATH, and save\n"
+            + "                    the new checkpoint there.\n"
+            + "  --follow[=S]      Keep reading the rows appended to the file, printing the results every S seconds\n"
+            + "                    (default: 5) in which rows were added, until stopped.\n"
+            + "  --stats           Print where the time went: rows and bytes per second, time per stage, duplicate\n"
+            + "                    rate, dictionary sizes, GC and heap. Also exposed through JMX while running.\n"
+            + "  --query=DIMENSIONS:AGGREGATES[:top=K]\n"
+            + "                    Print the aggregates of each group instead, e.g. --query=food:count:top=10 or\n"
+            + "                    --query='year:count,avg(siblings)'. Can be repeated, all queries run in one pass.\n"
+            + "                    Dimensions: month, year, weekday, timezone, food, siblings, or all. Aggregates:\n"
+            + "                    count, and sum, min, max or avg of siblings or birth_timestamp. Built-in queries:\n"
+            + "                    average-siblings, favourite-foods and birth-months.\n"
+            + "  --memory=MB       Remove duplicates within MB of memory (at least 16), spilling what doesn't fit to\n"
+            + "                    temporary files, for inputs with more unique entries than the heap can hold.\n"
+            + "  --partial=PATH    Write the results of these files to PATH instead, to be merged with those of other\n"
+            + "                    files by reduce_population.sh. Exact, the fingerprints of the entries are written.\n"
+            + "  --sketch          With --partial, write a sketch of the fingerprints instead: a few hundred KB, but\n"
+            + "                    duplicates across the partial results are not removed, only estimated.\n"
+            + "  --pipeline[=SETTINGS]\n"
+            + "                    Read, decompress, parse, de-duplicate and aggregate on threads of their own, passing\n"
+            + "                    batches through bounded queues, and print how busy each stage was. SETTINGS: e.g.\n"
+            + "                    parse=2,dedup=1,aggregate=1,batch=4096,queue=4 (default: a parse thread per core).\n";
+
+    static final int DEFAULT_FOLLOW_SECONDS = 5;
+
+    private final List<String> filePaths = new ArrayList<>();
+    private boolean verifyDedup = false;
+    private int threads = 1;
+    private int topFoods = 3;
+    private boolean siblings = false;
+    private long approximateBytes = 0;
+    private String checkpointPath;
+    private int followSeconds = 0;
+    private boolean stats = false;
+    private final List<String> querySpecs = new ArrayList<>();
+    private final List<GroupByQuery> queries = new ArrayList<>();
+    private long memoryBytes = 0;
+    private String partialPath;
+    private boolean sketch = false;
+    private String pipelineSpec;
+
+    /**
+     * @throws IllegalArgumentException If an option is unknown or the arguments don't make sense together.
+     */
+    public static RunnerOptions parse(String[] args) {
+        RunnerOptions options = new RunnerOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                options.filePaths.add(arg);
+            } else if (arg.equals("--verify-dedup")) {
+                options.verifyDedup = true;
+            } else if (arg.equals("--parallel")) {
+                options.threads = Runtime.getRuntime().availableProcessors();
+            } else if (arg.startsWith("--parallel=")) {
+                options.threads = parsePositiveInt(arg);
+            } else if (arg.equals("--approximate")) {
+                options.approximateBytes = ApproximateAggregator.DEFAULT_MEMORY_BYTES;
+            } else if (arg.startsWith("--approximate=")) {
+                options.approximateBytes = parsePositiveInt(arg) * 1024L * 1024L;
+            } else if (arg.startsWith("--checkpoint=") && arg.length() > "--checkpoint=".length()) {
+                options.checkpointPath = arg.substring("--checkpoint=".length());
+            } else if (arg.equals("--follow")) {
+                options.followSeconds = DEFAULT_FOLLOW_SECONDS;
+            } else if (arg.startsWith("--follow=")) {
+                options.followSeconds = parsePositiveInt(arg);
+            } else if (arg.equals("--stats")) {
+                options.stats = true;
+            } else if (arg.startsWith("--query=")) {
+                options.querySpecs.add(arg.substring("--query=".length()));
+            } else if (arg.startsWith("--memory=")) {
+                options.memoryBytes = parsePositiveInt(arg) * 1024L * 1024L;
+                if (options.memoryBytes < SpillingAggregator.MIN_MEMORY_BYTES) {
+                    throw new IllegalArgumentException("Expected at least "
+                            + SpillingAggregator.MIN_MEMORY_BYTES / (1024 * 1024) + " MB: " + arg);
+                }
+            } else if (arg.startsWith("--partial=") && arg.length() > "--partial=".length()) {
+                options.partialPath = arg.substring("--partial=".length());
+            } else if (arg.equals("--sketch")) {
+                options.sketch = true;
+            } else if (arg.equals("--pipeline")) {
+                options.pipelineSpec = "";
+            } else if (arg.startsWith("--pipeline=")) {
+                options.pipelineSpec = arg.substring("--pipeline=".length());
+                // Validates the settings.
+                PopulationPipeline.parse(options.pipelineSpec);
+            } else if (arg.startsWith("--top=")) {
+                options.topFoods = parsePositiveInt(arg);
+            } else if (arg.equals("--siblings")) {
+                options.siblings = true;
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        if (options.filePaths.isEmpty()) {
+            throw new IllegalArgumentException("Expected at least 1 path to a JSON or CSV file to read.");
+        }
+        if (options.verifyDedup && options.isParallel()) {
+            throw new IllegalArgumentException("--verify-dedup can't be used with --parallel.");
+        }
+        if (options.isApproximate() && (options.verifyDedup || options.isParallel())) {
+            throw new IllegalArgumentException("--approximate can't be used with --verify-dedup or --parallel.");
+        }
+        if (options.checkpointPath != null && (options.verifyDedup || options.isApproximate())) {
+            throw new IllegalArgumentException("--checkpoint can't be used with --verify-dedup or --approximate.");
+        }
+        if (options.isFollow() && (options.filePaths.size() > 1 || options.isParallel() || options.isApproximate()
+                || options.checkpointPath != null)) {
+            throw new IllegalArgumentException(
+                    "--follow reads 1 file, and can't be used with --parallel, --approximate or --checkpoint.");
+        }
+        if (options.stats && (options.isFollow() || options.isApproximate())) {
+            throw new IllegalArgumentException("--stats can't be used with --follow or --approximate.");
+        }
+        for (String spec : options.querySpecs) {
+            // After the loop, for --top to apply to favourite-foods wherever it is given.
+            options.queries.add(GroupByQuery.parse(spec, options.topFoods));
+        }
+        if (!options.queries.isEmpty() && (options.isParallel() || options.isApproximate() || options.isFollow()
+                || options.checkpointPath != null || options.stats)) {
+            throw new IllegalArgumentException("--query reads the files on one thread, and can't be used with "
+                    + "--parallel, --approximate, --follow, --checkpoint or --stats.");
+        }
+        if (options.isSpilling() && (options.isParallel() || options.isApproximate() || options.isFollow()
+                || options.checkpointPath != null || options.verifyDedup || options.stats
+                || !options.queries.isEmpty())) {
+            throw new IllegalArgumentException("--memory reads the files on one thread, and can't be used with "
+                    + "--parallel, --approximate, --follow, --checkpoint, --verify-dedup, --stats or --query.");
+        }
+        if (options.pipelineSpec != null && (options.isParallel() || options.isApproximate() || options.isFollow()
+                || options.checkpointPath != null || options.verifyDedup || options.stats
+                || !options.queries.isEmpty() || options.isSpilling() || options.partialPath != null)) {
+            throw new IllegalArgumentException("--pipeline can't be used with --parallel, --approximate, --follow, "
+                    + "--checkpoint, --verify-dedup, --stats, --query, --memory or --partial.");
+        }
+        if (options.siblings && (options.isApproximate() || !options.queries.isEmpty()
+                || options.partialPath != null)) {
+            throw new IllegalArgumentException("--siblings can't be used with --approximate, --query or --partial.");
+        }
+        if (options.sketch && options.partialPath == null) {
+            throw new IllegalArgumentException("--sketch only applies to --partial.");
+        }
+        if (options.partialPath != null && (options.isParallel() || options.isApproximate() || options.isFollow()
+                || options.checkpointPath != null || options.verifyDedup || options.stats
+                || !options.queries.isEmpty() || options.isSpilling())) {
+            throw new IllegalArgumentException("--partial reads the files on one thread, and can't be used with "
+                    + "--parallel, --approximate, --follow, --checkpoint, --verify-dedup, --stats, --query "
+                    + "or --memory.");
+        }
+        return options;
+    }
+
+    private static int parsePositiveInt(String arg) {
+        String value = arg.substring(arg.indexOf('=') + 1);
+        try {
+            int result = Integer.parseInt(value);
+            if (result > 0) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Expected a positive number: " + arg);
+    }
+
+    public List<String> getFilePaths() {
+        return filePaths;
+    }
+
+    public boolean isVerifyDedup() {
+        return verifyDedup;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return Number of threads to read several files on: the one given with --parallel, or one per core.
+     */
+    public int getFileThreads() {
+        return isParallel() ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public boolean isParallel() {
+        return threads > 1;
+    }
+
+    public boolean isApproximate() {
+        return approximateBytes > 0;
+    }
+
+    /**
+     * @return Memory to use in the --approximate mode.
+     */
+    public long getApproximateBytes() {
+        return approximateBytes;
+    }
+
+    /**
+     * @return Path of the checkpoint to start from and update, or null to read everything.
+     */
+    public String getCheckpointPath() {
+        return checkpointPath;
+    }
+
+    public boolean isFollow() {
+        return followSeconds > 0;
+    }
+
+    /**
+     * @return Seconds between two reads of the file in the --follow mode.
+     */
+    public int getFollowSeconds() {
+        return followSeconds;
+    }
+
+    /**
+     * @return True to print the distribution of the siblings with the results, see {@link SiblingHistogram}.
+     */
+    public boolean isSiblings() {
+        return siblings;
+    }
+
+    /**
+     * @return True to record and print where the time of the run went, see {@link PopulationStats}.
+     */
+    public boolean isStats() {
+        return stats;
+    }
+
+    /**
+     * @return Queries to run instead of the default results, see {@link GroupByEngine}. Empty if none were given.
+     */
+    public List<GroupByQuery> getQueries() {
+        return queries;
+    }
+
+    /**
+     * @return True to remove duplicates within a memory budget, see {@link SpillingAggregator}.
+     */
+    public boolean isSpilling() {
+        return memoryBytes > 0;
+    }
+
+    /**
+     * @return Memory to use in the --memory mode.
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * @return Path of the partial result to write instead of printing the results, see {@link PartialAggregator}, or
+     * null to print them.
+     */
+    public String getPartialPath() {
+        return partialPath;
+    }
+
+    /**
+     * @return True to write a sketch of the fingerprints in the partial result, rather than the fingerprints.
+     */
+    public boolean isSketch() {
+        return sketch;
+    }
+
+    /**
+     * @return A pipeline with the settings given with --pipeline, see {@link PopulationPipeline}, or null to read the
+     * files without one.
+     */
+    public PopulationPipeline getPipeline() {
+        return pipelineSpec == null ? null : PopulationPipeline.parse(pipelineSpec);
+    }
+
+    public int getTopFoods() {
+        return topFoods;
+    }
+}
@@ -0,0 +1,206 @@
+package com.interset.interview;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Distribution of the number of siblings of the entries: how many entries have each value, in a long[] indexed by
+ * value, so that the count, sum, median, percentiles, maximum and mode are exact whatever the number of entries.
+ *
+ * Values from 0 to {@link #VALUES}, excluded, have a bucket each. The others, which no real entry should have, go to
+ * an overflow bucket keeping their count, and the smallest and largest of them: a percentile falling among them is
+ * reported as the smallest one if they are negative, the largest one otherwise. The count and sum include every value.
+ *
+ * Adding a value doesn't create any object, and merging costs {@link #VALUES} additions. Not thread safe: each thread
+ * keeps a histogram of its own, merged at the end.
+ */
+public class SiblingHistogram {
+
+    static final int VALUES = 256;
+
+    private final long[] counts = new long[VALUES];
+    private long count = 0;
+    private long sum = 0;
+
+    // Overflow bucket: values below 0, values from VALUES, and the smallest and largest of them.
+    private long below = 0;
+    private long above = 0;
+    private long overflowMin = Long.MAX_VALUE;
+    private long overflowMax = Long.MIN_VALUE;
+
+    public void add(int siblings) {
+        if (siblings >= 0 && siblings < VALUES) {
+            counts[siblings]++;
+        } else {
+            addOverflow(siblings, 1);
+        }
+        count++;
+        sum += siblings;
+    }
+
+    private void addOverflow(long siblings, long entries) {
+        if (siblings < 0) {
+            below += entries;
+        } else {
+            above += entries;
+        }
+        overflowMin = Math.min(overflowMin, siblings);
+        overflowMax = Math.max(overflowMax, siblings);
+    }
+
+    /**
+     * Adds the values counted by another histogram to this one, as if they had been added here. The other histogram is
+     * not modified.
+     *
+     * @return This histogram.
+     */
+    public SiblingHistogram merge(SiblingHistogram other) {
+        for (int i = 0; i < VALUES; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        below += other.below;
+        above += other.above;
+        overflowMin = Math.min(overflowMin, other.overflowMin);
+        overflowMax = Math.max(overflowMax, other.overflowMax);
+        return this;
+    }
+
+    /**
+     * @return The number of entries.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * @return The mean number of siblings, 0 if there are no entries.
+     */
+    public double getMean() {
+        return count == 0 ? 0 : sum / (double) count;
+    }
+
+    /**
+     * @return The lower median, see {@link #getPercentile(double)}.
+     */
+    public long getMedian() {
+        return getPercentile(0.5);
+    }
+
+    /**
+     * @param fraction Fraction of the entries, between 0 and 1, e.g. 0.9 for the 90th percentile.
+     * @return The smallest value that at least the given fraction of the entries have or are below (nearest rank), 0
+     * if there are no entries.
+     */
+    public long getPercentile(double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("Expected a fraction between 0 and 1: " + fraction);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        if (rank <= below) {
+            return overflowMin;
+        }
+        long seen = below;
+        for (int i = 0; i < VALUES; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i;
+            }
+        }
+        return overflowMax;
+    }
+
+    /**
+     * @return The largest value, 0 if there are no entries.
+     */
+    public long getMax() {
+        if (above > 0) {
+            return overflowMax;
+        }
+        for (int i = VALUES - 1; i >= 0; i--) {
+            if (counts[i] > 0) {
+                return i;
+            }
+        }
+        return below > 0 ? overflowMax : 0;
+    }
+
+    /**
+     * @return The most frequent value with a bucket of its own, the smallest one if several are as frequent, 0 if there
+     * are none.
+     */
+    public int getMode() {
+        int mode = 0;
+        for (int i = 1; i < VALUES; i++) {
+            if (counts[i] > counts[mode]) {
+                mode = i;
+            }
+        }
+        return mode;
+    }
+
+    /**
+     * @return The number of entries with the given number of siblings, which must have a bucket of its own.
+     */
+    public long getFrequency(int siblings) {
+        return counts[siblings];
+    }
+
+    /**
+     * @return The number of entries with a value out of the buckets.
+     */
+    public long getOverflow() {
+        return below + above;
+    }
+
+    /**
+     * Writes the counts, to be read back with {@link #read(DataInput)}. Only the buckets up to the last one used are
+     * written.
+     */
+    void write(DataOutput output) throws IOException {
+        int used = VALUES;
+        while (used > 0 && counts[used - 1] == 0) {
+            used--;
+        }
+        output.writeLong(count);
+        output.writeLong(sum);
+        output.writeShort(used);
+        for (int i = 0; i < used; i++) {
+            output.writeLong(counts[i]);
+        }
+        output.writeLong(below);
+        output.writeLong(above);
+        output.writeLong(overflowMin);
+        output.writeLong(overflowMax);
+    }
+
+    /**
+     * @return A histogram with the counts written by {@link #write(DataOutput)}.
+     */
+    static SiblingHistogram read(DataInput input) throws IOException {
+        SiblingHistogram histogram = new SiblingHistogram();
+        histogram.count = input.readLong();
+        histogram.sum = input.readLong();
+        int used = input.readUnsignedShort();
+        if (used > VALUES) {
+            throw new IOException("Invalid sibling histogram: " + used + " buckets");
+        }
+        for (int i = 0; i < used; i++) {
+            histogram.counts[i] = input.readLong();
+        }
+        histogram.below = input.readLong();
+        histogram.above = input.readLong();
+        histogram.overflowMin = input.readLong();
+        histogram.overflowMax = input.readLong();
+        return histogram;
+    }
+}
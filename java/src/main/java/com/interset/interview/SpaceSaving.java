@@ -0,0 +1,233 @@
+package com.interset.interview;
+
+/**
+ * Approximate counts of the most frequent keys of a stream, in a fixed number of counters (the Space-Saving algorithm
+ * of Metwally et al.).
+ *
+ * A key that is already counted gets its counter incremented. A new key takes a free counter, or once they are all
+ * used, the counter with the lowest count: it inherits that count, which is kept as its error. The count of a key is
+ * then never lower than its true count, and at most its error higher, and the error is never more than the total
+ * divided by the number of counters. Any key without a counter appeared at most {@link #getMaxError()} times.
+ *
+ * The keys are 64-bit hashes, each counter can also hold a label for printing. The counters are kept in primitive
+ * arrays: a min-heap on the counts finds the counter to take over, and an open addressing table finds the counter of a
+ * key, so counting does not create any object.
+ *
+ * Not thread safe.
+ */
+public class SpaceSaving {
+
+    /**
+     * Memory used by a counter, with its share of the index and a label of a few dozen chars.
+     */
+    static final long BYTES_PER_COUNTER = 120;
+
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final String[] labels;
+
+    // Counters ordered by count, the lowest one at the root, and the position of each counter in it.
+    private final int[] heap;
+    private final int[] heapPositions;
+
+    // Counter of each key, plus one so that 0 is an empty slot.
+    private final int[] index;
+
+    private int size = 0;
+    private long total = 0;
+
+    /**
+     * @param capacity Number of counters.
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Need at least one counter: " + capacity);
+        }
+        keys = new long[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        labels = new String[capacity];
+        heap = new int[capacity];
+        heapPositions = new int[capacity];
+        index = new int[Integer.highestOneBit(capacity) * 4];
+    }
+
+    /**
+     * Counts the key once more.
+     *
+     * @return The counter of the key if it already had one. Otherwise -1 - the counter it was given, in which case the
+     * counter's label should be set again.
+     */
+    public int increment(long key) {
+        total++;
+        int counter = find(key);
+        if (counter >= 0) {
+            counts[counter]++;
+            siftDown(heapPositions[counter]);
+            return counter;
+        }
+
+        if (size < counts.length) {
+            counter = size++;
+            heap[counter] = counter;
+            heapPositions[counter] = counter;
+            errors[counter] = 0;
+            counts[counter] = 1;
+            siftUp(counter);
+        } else {
+            // Take over the lowest counter.
+            counter = heap[0];
+            remove(keys[counter]);
+            errors[counter] = counts[counter];
+            counts[counter]++;
+            siftDown(0);
+        }
+        keys[counter] = key;
+        labels[counter] = null;
+        insert(key, counter);
+        return -1 - counter;
+    }
+
+    public void setLabel(int counter, String label) {
+        labels[counter] = label;
+    }
+
+    public String getLabel(int counter) {
+        return labels[counter];
+    }
+
+    /**
+     * @return The count of a counter, at most {@link #getError(int)} more than the true count of its key.
+     */
+    public long getCount(int counter) {
+        return counts[counter];
+    }
+
+    public long getError(int counter) {
+        return errors[counter];
+    }
+
+    /**
+     * @return Number of counters used.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return counts.length;
+    }
+
+    /**
+     * @return Number of times {@link #increment(long)} was called.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The most a count can be off by, which is also the most times a key without a counter can have appeared.
+     */
+    public long getMaxError() {
+        return size < counts.length ? 0 : counts[heap[0]];
+    }
+
+    /**
+     * @param k Maximum number of counters to return.
+     * @return The k counters with the highest counts, highest first. Equal counts are ordered by label.
+     */
+    public int[] top(int k) {
+        return TopK.largest(counts, size, k, (counter, otherCounter) -> {
+            String label = labels[counter] == null ? "" : labels[counter];
+            String otherLabel = labels[otherCounter] == null ? "" : labels[otherCounter];
+            return label.compareTo(otherLabel);
+        });
+    }
+
+    public long getMemoryBytes() {
+        return counts.length * BYTES_PER_COUNTER;
+    }
+
+    private int find(long key) {
+        int mask = index.length - 1;
+        for (int slot = slot(key, mask); index[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[index[slot] - 1] == key) {
+                return index[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long key, int counter) {
+        int mask = index.length - 1;
+        int slot = slot(key, mask);
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = counter + 1;
+    }
+
+    /**
+     * Removes a key from the index, moving back the keys after it so that they can still be found.
+     */
+    private void remove(long key) {
+        int mask = index.length - 1;
+        int slot = slot(key, mask);
+        while (keys[index[slot] - 1] != key) {
+            slot = (slot + 1) & mask;
+        }
+        int next = (slot + 1) & mask;
+        while (index[next] != 0) {
+            int home = slot(keys[index[next] - 1], mask);
+            // The key at next can fill the hole if its home slot is not between the hole and next.
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                index[slot] = index[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index[slot] = 0;
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private void siftUp(int position) {
+        int counter = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[counter]) {
+                break;
+            }
+            move(heap[parent], position);
+            position = parent;
+        }
+        move(counter, position);
+    }
+
+    private void siftDown(int position) {
+        int counter = heap[position];
+        while (true) {
+            int child = position * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[counter] <= counts[heap[child]]) {
+                break;
+            }
+            move(heap[child], position);
+            position = child;
+        }
+        move(counter, position);
+    }
+
+    private void move(int counter, int position) {
+        heap[position] = counter;
+        heapPositions[counter] = position;
+    }
+}
@@ -0,0 +1,365 @@
+package com.interset.interview;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Month;
+import java.util.stream.Stream;
+
+/**
+ * Aggregates the unique entries like {@link PopulationAggregator}, with the fingerprints kept within a memory budget,
+ * so that inputs with more unique entries than the heap can hold still finish.
+ *
+ * Until the budget is reached, the entries are de-duplicated in a {@link FingerprintSet}, sized to the budget up front,
+ * and aggregated right away. The set is then frozen: it still drops the entries it holds, and every other entry is
+ * written to one of {@link #PARTITIONS} spill files, picked by the top bits of its fingerprint, along with what
+ * aggregating it needs (its siblings, food id and birth month, {@link #RECORD_BYTES} bytes in all). Two identical
+ * entries have the same fingerprint, so they always land in the same partition, and once the input ends each partition
+ * can be de-duplicated and counted on its own, with a set of its own, after the frozen set is dropped. A partition with
+ * more entries than the budget allows is split again by the next bits of the fingerprints, until each part fits or the
+ * bits run out, in which case its entries can only be duplicates of each other.
+ *
+ * The spill files are written and read through NIO channels, a buffer per partition. They are deleted as soon as they
+ * are read, and by {@link #close()}.
+ *
+ * Not thread safe.
+ */
+public class SpillingAggregator implements PopulationSink, Closeable {
+
+    static final int PARTITION_BITS = 6;
+    static final int PARTITIONS = 1 << PARTITION_BITS;
+    static final int RECORD_BYTES = 2 * Long.BYTES + 2 * Integer.BYTES + 1;
+    static final int MAX_DEPTH = Long.SIZE / PARTITION_BITS;
+    static final long MIN_MEMORY_BYTES = 16L * 1024 * 1024;
+    private static final int BUFFER_BYTES = 64 * 1024 / RECORD_BYTES * RECORD_BYTES;
+
+    private final long maxEntries;
+    private final Path spillParent;
+    private Path spillDirectory;
+
+    private final PopulationResult result = new PopulationResult();
+    private final PopulationFingerprint fingerprint = new PopulationFingerprint();
+    private FingerprintSet fingerprints;
+    private long duplicates = 0;
+
+    // Dictionaries of the spilled entries, whose ids are written to the spill files.
+    private final FoodZoneDictionary dictionary = new FoodZoneDictionary();
+
+    private Partitions spill;
+    private long spilledRows = 0;
+    private long spilledBytes = 0;
+    private int partitionsRead = 0;
+    private boolean finished = false;
+
+    /**
+     * @param memoryBytes Memory the fingerprints and spill buffers can take, at least {@link #MIN_MEMORY_BYTES}.
+     * @param spillParent Directory to create the spill files in, in a directory of their own.
+     */
+    public SpillingAggregator(long memoryBytes, Path spillParent) {
+        this(spillParent, maxEntries(memoryBytes));
+    }
+
+    /**
+     * @param maxEntries Fingerprints to hold in memory at most, e.g. a few to spill small inputs in tests.
+     */
+    SpillingAggregator(Path spillParent, long maxEntries) {
+        this.spillParent = spillParent;
+        this.maxEntries = maxEntries;
+        this.fingerprints = newFingerprintSet(maxEntries);
+    }
+
+    /**
+     * @return A set that holds the given number of fingerprints without growing.
+     */
+    private static FingerprintSet newFingerprintSet(long entries) {
+        return new FingerprintSet((int) Math.min(Integer.MAX_VALUE - 1, entries) + 1);
+    }
+
+    private static long maxEntries(long memoryBytes) {
+        if (memoryBytes < MIN_MEMORY_BYTES) {
+            throw new IllegalArgumentException("The memory budget must be at least "
+                    + MIN_MEMORY_BYTES / (1024 * 1024) + " MB");
+        }
+        // The set holds 16 bytes per slot and is at most MAX_LOAD full. It is sized up front, growing it would hold
+        // the old and the new table at once.
+        long setBytes = memoryBytes - (long) PARTITIONS * BUFFER_BYTES;
+        return (long) (setBytes / 16 * FingerprintSet.MAX_LOAD);
+    }
+
+    @Override
+    public boolean add(PopulationEntryDto populationEntryDto) {
+        fingerprint.hash(populationEntryDto);
+        return add(fingerprint.getHi(), fingerprint.getLo(), populationEntryDto.getSiblings(),
+                populationEntryDto.getFavouriteFood(), populationEntryDto.getBirthTimezone(),
+                populationEntryDto.getBirthTimeStamp());
+    }
+
+    @Override
+    public boolean add(PopulationRecord populationRecord) {
+        return add(populationRecord.getFingerprintHi(), populationRecord.getFingerprintLo(),
+                populationRecord.getSiblings(), populationRecord.getFavouriteFood(),
+                populationRecord.getBirthTimezone(), populationRecord.getBirthTimeStamp());
+    }
+
+    @Override
+    public boolean needsNames() {
+        return false;
+    }
+
+    /**
+     * @return True if the entry was counted, false if it was a duplicate of an entry counted already. Entries spilled
+     * to disk are not known to be unique yet, and return true.
+     */
+    private boolean add(long hi, long lo, int siblings, String favouriteFood, String birthTimezone,
+                        long birthTimeStamp) {
+        if (spill == null) {
+            if (!fingerprints.add(hi, lo)) {
+                duplicates++;
+                return false;
+            }
+            result.addToSiblingSum(siblings);
+            result.addFavouriteFood(favouriteFood);
+            result.addBirth(birthTimeStamp, birthTimezone);
+            if (fingerprints.size() >= maxEntries) {
+                startSpilling();
+            }
+            return true;
+        }
+
+        if (fingerprints.contains(hi, lo)) {
+            duplicates++;
+            return false;
+        }
+        int month = dictionary.getZone(dictionary.zoneId(birthTimezone)).getMonth(birthTimeStamp).ordinal();
+        spill.write(hi, lo, siblings, dictionary.foodId(favouriteFood), month);
+        spilledRows++;
+        return true;
+    }
+
+    private void startSpilling() {
+        try {
+            spillDirectory = Files.createTempDirectory(spillParent, "population-spill");
+            spill = new Partitions(spillDirectory, "0", 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ends the input: de-duplicates and counts the spilled entries, partition by partition. Entries can't be added
+     * afterwards.
+     *
+     * @return Aggregated results of the unique entries.
+     */
+    public PopulationResult getResult() throws IOException {
+        if (finished) {
+            return result;
+        }
+        finished = true;
+        if (spill != null) {
+            // The spilled entries are not in the frozen set, which can go.
+            fingerprints = null;
+            spill.close();
+            Counts counts = new Counts(dictionary.getFoodCount());
+            for (Path partition : spill.files) {
+                read(partition, 1, counts);
+            }
+            result.addCounts(counts.siblings, dictionary.getFoods(), counts.foodCounts, counts.birthMonthCounts);
+            duplicates += counts.duplicates;
+        }
+        return result;
+    }
+
+    /**
+     * Counts the unique entries of a partition file, splitting it first if it has too many entries, then deletes it.
+     *
+     * @param depth Number of times the entries were partitioned, the next bits of their fingerprints picking the next
+     *              partitions.
+     */
+    private void read(Path partition, int depth, Counts counts) throws IOException {
+        long rows = Files.size(partition) / RECORD_BYTES;
+        if (rows > maxEntries && depth < MAX_DEPTH) {
+            Partitions split = new Partitions(spillDirectory, partition.getFileName().toString(), depth);
+            forEachRecord(partition, split::write);
+            split.close();
+            Files.delete(partition);
+            for (Path part : split.files) {
+                read(part, depth + 1, counts);
+            }
+            return;
+        }
+
+        FingerprintSet partitionFingerprints = newFingerprintSet(Math.min(rows, maxEntries));
+        forEachRecord(partition, (hi, lo, siblings, foodId, month) -> {
+            if (partitionFingerprints.add(hi, lo)) {
+                counts.siblings.add(siblings);
+                counts.foodCounts[foodId]++;
+                counts.birthMonthCounts[month]++;
+            } else {
+                counts.duplicates++;
+            }
+        });
+        Files.delete(partition);
+        partitionsRead++;
+    }
+
+    private void forEachRecord(Path partition, RecordConsumer consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16 * BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(partition, StandardOpenOption.READ)) {
+            while (true) {
+                int read = channel.read(buffer);
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_BYTES) {
+                    consumer.accept(buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.getInt(),
+                            buffer.get());
+                }
+                if (read < 0) {
+                    if (buffer.hasRemaining()) {
+                        throw new IOException("Truncated spill file: " + partition);
+                    }
+                    return;
+                }
+                buffer.compact();
+            }
+        }
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return Entries written to the spill files, duplicates of each other included.
+     */
+    public long getSpilledRows() {
+        return spilledRows;
+    }
+
+    /**
+     * @return Bytes written to the spill files, those of the partitions split again included.
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    /**
+     * @return Partitions counted on their own, after splitting those with too many entries.
+     */
+    public int getPartitionsRead() {
+        return partitionsRead;
+    }
+
+    /**
+     * @return One line on the duplicates and what was spilled, once {@link #getResult()} was called.
+     */
+    public String getSummary() {
+        if (spill == null) {
+            return String.format("Duplicates: %,d, nothing spilled to disk", duplicates);
+        }
+        return String.format("Duplicates: %,d, spilled %,d rows (%,d MB) to disk, counted in %,d partitions",
+                duplicates, spilledRows, spilledBytes / (1024 * 1024), partitionsRead);
+    }
+
+    /**
+     * Deletes what is left of the spill files.
+     */
+    @Override
+    public void close() throws IOException {
+        if (spill != null) {
+            spill.close();
+        }
+        if (spillDirectory != null && Files.exists(spillDirectory)) {
+            try (Stream<Path> files = Files.list(spillDirectory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.delete(spillDirectory);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordConsumer {
+        void accept(long hi, long lo, int siblings, int foodId, int month);
+    }
+
+    /**
+     * Counts of the spilled entries.
+     */
+    private static class Counts {
+
+        private final SiblingHistogram siblings = new SiblingHistogram();
+        private long duplicates = 0;
+        private final long[] foodCounts;
+        private final long[] birthMonthCounts = new long[Month.values().length];
+
+        Counts(int foods) {
+            foodCounts = new long[foods];
+        }
+    }
+
+    /**
+     * One spill file per partition, each written through a buffer of its own.
+     */
+    private class Partitions implements Closeable {
+
+        private final int depth;
+        private final Path[] files = new Path[PARTITIONS];
+        private final FileChannel[] channels = new FileChannel[PARTITIONS];
+        private final ByteBuffer[] buffers = new ByteBuffer[PARTITIONS];
+        private boolean closed = false;
+
+        /**
+         * @param prefix Name of the partition being split, so that the files of each split are named apart.
+         */
+        Partitions(Path directory, String prefix, int depth) throws IOException {
+            this.depth = depth;
+            for (int i = 0; i < PARTITIONS; i++) {
+                files[i] = directory.resolve(prefix + "-" + i);
+                channels[i] = FileChannel.open(files[i], StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                buffers[i] = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        void write(long hi, long lo, int siblings, int foodId, int month) {
+            int partition = (int) (lo >>> (Long.SIZE - PARTITION_BITS * (depth + 1))) & (PARTITIONS - 1);
+            ByteBuffer buffer = buffers[partition];
+            if (buffer.remaining() < RECORD_BYTES) {
+                flush(partition);
+            }
+            buffer.putLong(hi).putLong(lo).putInt(siblings).putInt(foodId).put((byte) month);
+        }
+
+        private void flush(int partition) {
+            ByteBuffer buffer = buffers[partition];
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    spilledBytes += channels[partition].write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (int i = 0; i < PARTITIONS; i++) {
+                flush(i);
+                channels[i].close();
+                buffers[i] = null;
+            }
+        }
+    }
+}
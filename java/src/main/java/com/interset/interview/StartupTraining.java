@@ -0,0 +1,49 @@
+package com.interset.interview;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Training run for the AppCDS archive of stats_extractor.sh: runs {@link Runner} over a small generated file of each
+ * format, so that the archive written when the JVM exits (-XX:ArchiveClassesAtExit) holds the classes any short run
+ * loads, already parsed and verified.
+ *
+ * Short runs spend most of their time starting the JVM and loading classes, which the archive lets the JVM map from one
+ * file instead. The launcher rebuilds the archive whenever the jar is newer than it.
+ *
+ * Usage: java -XX:ArchiveClassesAtExit=ARCHIVE -cp JAR com.interset.interview.StartupTraining
+ */
+public class StartupTraining {
+
+    static final String[] FORMATS = {"csv", "csv.gz", "json", "json.gz", "ndjson"};
+    static final int ROWS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("population-training");
+        PrintStream out = System.out;
+        try {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            for (String format : FORMATS) {
+                String filePath = directory.resolve("population." + format).toString();
+                new PopulationGenerator(PopulationGeneratorOptions.parse(new String[]{"--rows=" + ROWS,
+                        "--duplicates=0.1", filePath})).write(filePath);
+                Runner.main(new String[]{filePath});
+                Runner.main(new String[]{"--top=5", "--siblings", filePath});
+            }
+        } finally {
+            System.setOut(out);
+            delete(directory);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        for (File file : directory.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory);
+    }
+}
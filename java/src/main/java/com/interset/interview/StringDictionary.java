@@ -0,0 +1,95 @@
+package com.interset.interview;
+
+import java.util.Arrays;
+
+/**
+ * Gives each distinct String a dense int id, in the order they are first seen, so that values can be counted in
+ * primitive arrays indexed by id instead of maps with boxed counts.
+ *
+ * Looking up a value that is already in the dictionary does not create anything. The readers hand out the same String
+ * instance for the same value (see {@link ByteStringCache}), in which case the lookup is one identity comparison.
+ *
+ * Not thread safe.
+ */
+public class StringDictionary {
+
+    private String[] keys = new String[64];
+    private int[] slotIds = new int[64];
+    private String[] values = new String[32];
+    private int size = 0;
+
+    /**
+     * @return The id of the value, added to the dictionary if it is not already in it.
+     */
+    public int id(String value) {
+        int mask = keys.length - 1;
+        int slot = mix(value.hashCode()) & mask;
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (key == value || key.equals(value)) {
+                return slotIds[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = size++;
+        keys[slot] = value;
+        slotIds[slot] = id;
+        if (id == values.length) {
+            values = Arrays.copyOf(values, id * 2);
+        }
+        values[id] = value;
+        if (size * 2 > keys.length) {
+            grow();
+        }
+        return id;
+    }
+
+    /**
+     * @return The id of the value, or -1 if it is not in the dictionary.
+     */
+    public int find(String value) {
+        int mask = keys.length - 1;
+        int slot = mix(value.hashCode()) & mask;
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (key == value || key.equals(value)) {
+                return slotIds[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return The value with the given id.
+     */
+    public String get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No value with id " + id);
+        }
+        return values[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        keys = new String[keys.length * 2];
+        slotIds = new int[keys.length];
+        int mask = keys.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(values[id].hashCode()) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = values[id];
+            slotIds[slot] = id;
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
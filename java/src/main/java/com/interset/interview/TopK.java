@@ -0,0 +1,119 @@
+package com.interset.interview;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Finds the K largest counts of a primitive array indexed by id, in a single pass with a bounded min-heap.
+ *
+ * The heap holds the K best ids seen so far, the worst of them at the root, so each id is either rejected with one
+ * comparison against the root or replaces it in O(log K). Finding the top K of N counts is then O(N log K) instead of
+ * the O(N * K) of one pass per place.
+ *
+ * Ties between equal counts are broken by a second ordering on the ids, e.g. by name, so that the result does not
+ * depend on the order in which the ids were handed out (which differs between a sequential and a parallel read).
+ */
+public class TopK {
+
+    /**
+     * Orders two ids, the same way as a {@link java.util.Comparator}.
+     */
+    @FunctionalInterface
+    public interface IdComparator {
+        int compare(int id, int otherId);
+    }
+
+    /**
+     * @param counts Count of each id.
+     * @param size Number of ids, from 0 to size excluded. The array can be bigger.
+     * @param k Maximum number of ids to return.
+     * @param tieBreak Order of ids with the same count, the first one ranking higher.
+     * @return The ids with the largest counts, largest first. Ids with a count of 0 or less are left out.
+     */
+    public static int[] largest(int[] counts, int size, int k, IdComparator tieBreak) {
+        return select(size, k, (id, otherId) -> {
+            int order = Integer.compare(counts[otherId], counts[id]);
+            return order != 0 ? order : tieBreak.compare(id, otherId);
+        }, id -> counts[id] > 0);
+    }
+
+    /**
+     * Same as {@link #largest(int[], int, int, IdComparator)}, for long counts.
+     */
+    public static int[] largest(long[] counts, int size, int k, IdComparator tieBreak) {
+        return select(size, k, (id, otherId) -> {
+            int order = Long.compare(counts[otherId], counts[id]);
+            return order != 0 ? order : tieBreak.compare(id, otherId);
+        }, id -> counts[id] > 0);
+    }
+
+    /**
+     * @param ranking Order of the ids, the ones coming first ranking higher.
+     * @param included Which ids can be returned.
+     * @return The first k included ids in the ranking order.
+     */
+    private static int[] select(int size, int k, IdComparator ranking, IntPredicate included) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k can't be negative: " + k);
+        }
+        int[] heap = new int[Math.min(k, size)];
+        int heapSize = 0;
+        for (int id = 0; id < size; id++) {
+            if (!included.test(id)) {
+                continue;
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = id;
+                siftUp(heap, heapSize++, ranking);
+            } else if (heapSize > 0 && ranking.compare(id, heap[0]) < 0) {
+                heap[0] = id;
+                siftDown(heap, heapSize, ranking);
+            }
+        }
+
+        // Taking the worst one out each time fills the result from the end.
+        int[] result = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i, ranking);
+        }
+        return result;
+    }
+
+    /**
+     * The root of the heap ranks lowest: every parent ranks lower than its children.
+     */
+    private static void siftUp(int[] heap, int index, IdComparator ranking) {
+        int id = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (ranking.compare(heap[parent], id) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = id;
+    }
+
+    private static void siftDown(int[] heap, int heapSize, IdComparator ranking) {
+        int index = 0;
+        int id = heap[0];
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            // Follow the lower ranked child.
+            if (child + 1 < heapSize && ranking.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (ranking.compare(id, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = id;
+    }
+}
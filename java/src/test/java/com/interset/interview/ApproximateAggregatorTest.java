@@ -0,0 +1,113 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Month;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class ApproximateAggregatorTest {
+
+    @Test
+    public void hyperLogLogWithinError() {
+        Random random = new Random(11);
+        HyperLogLog hyperLogLog = new HyperLogLog(14);
+        Assert.assertEquals(0, hyperLogLog.estimate());
+
+        long[] checkpoints = {10, 1000, 50_000, 1_000_000};
+        int checkpoint = 0;
+        for (long n = 1; n <= 1_000_000; n++) {
+            long hi = random.nextLong();
+            long lo = random.nextLong();
+            hyperLogLog.add(hi, lo);
+            // Duplicates don't count.
+            hyperLogLog.add(hi, lo);
+            if (n == checkpoints[checkpoint]) {
+                double error = Math.abs(hyperLogLog.estimate() - n) / (double) n;
+                Assert.assertTrue(n + ": " + hyperLogLog.estimate(), error < 4 * hyperLogLog.getStandardError());
+                checkpoint++;
+            }
+        }
+    }
+
+    @Test
+    public void spaceSavingBounds() {
+        Random random = new Random(5);
+        SpaceSaving sketch = new SpaceSaving(100);
+        Map<Long, Long> exact = new HashMap<>();
+        int total = 200_000;
+        for (int i = 0; i < total; i++) {
+            // Roughly Zipf: key k with a probability in 1/k.
+            long key = (long) Math.floor(Math.exp(random.nextDouble() * Math.log(10_000)));
+            exact.merge(key, 1L, Long::sum);
+            int counter = sketch.increment(key * 0x9e3779b97f4a7c15L);
+            if (counter < 0) {
+                sketch.setLabel(-1 - counter, "food " + key);
+            }
+        }
+
+        Assert.assertEquals(total, sketch.getTotal());
+        Assert.assertTrue(sketch.getMaxError() <= total / sketch.getCapacity());
+        Map<String, Long> counted = new HashMap<>();
+        for (int counter : sketch.top(sketch.size())) {
+            long trueCount = exact.get(Long.parseLong(sketch.getLabel(counter).substring(5)));
+            Assert.assertTrue(sketch.getCount(counter) >= trueCount);
+            Assert.assertTrue(sketch.getCount(counter) - sketch.getError(counter) <= trueCount);
+            Assert.assertTrue(sketch.getError(counter) <= sketch.getMaxError());
+            counted.put(sketch.getLabel(counter), sketch.getCount(counter));
+        }
+        for (Map.Entry<Long, Long> entry : exact.entrySet()) {
+            if (!counted.containsKey("food " + entry.getKey())) {
+                Assert.assertTrue(entry.getValue() <= sketch.getMaxError());
+            }
+        }
+        // The most frequent keys are well above the error, and come out in order.
+        int[] top = sketch.top(3);
+        Assert.assertEquals("food 1", sketch.getLabel(top[0]));
+        Assert.assertEquals("food 2", sketch.getLabel(top[1]));
+        Assert.assertEquals("food 3", sketch.getLabel(top[2]));
+    }
+
+    @Test
+    public void exactWhenEverythingFits() throws Exception {
+        String path = "src/main/resources/population.csv";
+        ApproximateAggregator aggregator = new ApproximateAggregator();
+        new Runner().streamPopulation(path, aggregator);
+
+        // Every row counts, duplicates included.
+        PopulationResult rows = new PopulationResult();
+        int[] siblingSum = new int[1];
+        new Runner().readPopulation(path, dto -> {
+            PopulationCalcUtil.addPopulationDtoToResult(rows, dto);
+            siblingSum[0] += dto.getSiblings();
+        });
+        Assert.assertEquals(rows.getSize(), aggregator.getRows());
+        Assert.assertEquals(siblingSum[0], aggregator.getSiblingSum());
+        for (Month month : Month.values()) {
+            Assert.assertEquals(rows.getBirthMonthFrequency(month), aggregator.getBirthMonthFrequency(month));
+        }
+
+        SpaceSaving foods = aggregator.getFoods();
+        Assert.assertEquals(0, foods.getMaxError());
+        Assert.assertEquals(rows.getFoodCount(), foods.size());
+        Assert.assertEquals(PopulationCalcUtil.calculateFavouriteFoods(rows, 20),
+                PopulationCalcUtil.calculateApproximateFavouriteFoods(foods, 20));
+
+        long unique = new Runner().aggregatePopulation(path).getSize();
+        double error = Math.abs(aggregator.getDistinctPeople() - unique) / (double) unique;
+        Assert.assertTrue(error < 4 * aggregator.getDistinctPeopleError());
+    }
+
+    @Test
+    public void memoryDoesNotDependOnInput() throws Exception {
+        ApproximateAggregator aggregator = new ApproximateAggregator(1024 * 1024);
+        long memory = aggregator.getMemoryBytes();
+        Assert.assertTrue(memory <= 1024 * 1024);
+        Assert.assertEquals(17, new HyperLogLog(HyperLogLog.precisionFor(1024 * 1024 / 8)).getPrecision());
+
+        new Runner().streamPopulation("src/main/resources/population.csv", aggregator);
+        Assert.assertEquals(memory, aggregator.getMemoryBytes());
+    }
+}
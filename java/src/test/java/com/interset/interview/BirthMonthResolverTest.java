@@ -0,0 +1,106 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Random;
+
+public class BirthMonthResolverTest {
+
+    // DST in the southern hemisphere, a half hour DST, a skipped day, and a change at midnight.
+    private static final String[] ZONES = {"-05:00", "+00:00", "+05:45", "Z", "UTC", "America/New_York",
+            "Europe/London", "America/Sao_Paulo", "Australia/Lord_Howe", "Pacific/Apia", "Asia/Kathmandu",
+            "America/Havana", "Africa/Casablanca", "Europe/Moscow"};
+
+    private static final long YEAR_MILLIS = 365L * 24 * 3600 * 1000;
+
+    @Test
+    public void matchesJavaTimeOnRandomTimestamps() {
+        BirthMonthResolver resolver = new BirthMonthResolver();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            String zone = ZONES[random.nextInt(ZONES.length)];
+            // 1870 to 2070, in a random order so that the tables grow both ways.
+            long timestamp = (long) ((random.nextDouble() * 200 - 100) * YEAR_MILLIS);
+            assertMonth(resolver, timestamp, zone);
+        }
+    }
+
+    @Test
+    public void matchesJavaTimeAroundTransitions() {
+        BirthMonthResolver resolver = new BirthMonthResolver();
+        for (String zone : ZONES) {
+            ZoneRules rules = ZoneId.of(zone).getRules();
+            ZoneOffsetTransition transition = rules.nextTransition(Instant.parse("1900-01-01T00:00:00Z"));
+            while (transition != null && transition.getInstant().isBefore(Instant.parse("2040-01-01T00:00:00Z"))) {
+                long instant = transition.getInstant().toEpochMilli();
+                for (long delta = -2; delta <= 2; delta++) {
+                    assertMonth(resolver, instant + delta, zone);
+                    assertMonth(resolver, instant + delta * 3600_000L, zone);
+                }
+                transition = rules.nextTransition(transition.getInstant());
+            }
+        }
+    }
+
+    @Test
+    public void matchesJavaTimeAroundMonthStarts() {
+        BirthMonthResolver resolver = new BirthMonthResolver();
+        for (String zone : ZoneId.getAvailableZoneIds()) {
+            for (int year = 1965; year < 2025; year += 3) {
+                for (int month = 1; month <= 12; month++) {
+                    long instant = LocalDateTime.of(year, month, 1, 0, 0).atZone(ZoneId.of(zone))
+                            .toInstant().toEpochMilli();
+                    assertMonth(resolver, instant - 1, zone);
+                    assertMonth(resolver, instant, zone);
+                    assertMonth(resolver, instant - 3600_000L, zone);
+                    assertMonth(resolver, instant + 3600_000L, zone);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void outsideTableYears() {
+        BirthMonthResolver resolver = new BirthMonthResolver();
+        assertMonth(resolver, Long.MIN_VALUE, "Europe/London");
+        assertMonth(resolver, Long.MAX_VALUE, "Europe/London");
+        assertMonth(resolver, -62_135_596_800_001L, "-05:00");
+        assertMonth(resolver, 253_402_300_800_000L, "+05:00");
+        assertMonth(resolver, 0, "Europe/London");
+        assertMonth(resolver, Long.MIN_VALUE, "Europe/London");
+        Assert.assertEquals(3, resolver.getZoneCount());
+    }
+
+    @Test
+    public void buildsTheTableOnceTheTimezoneIsUsedEnough() {
+        BirthMonthResolver resolver = new BirthMonthResolver();
+        BirthMonthResolver.Zone zone = resolver.getZone("Europe/London");
+        for (int i = 0; i < BirthMonthResolver.TABLE_LOOKUPS; i++) {
+            Assert.assertFalse(zone.hasTable());
+            assertMonth(resolver, (i * 7 - 200) * YEAR_MILLIS / 5, "Europe/London");
+        }
+        Assert.assertTrue(zone.hasTable());
+        // The table covers the years seen before it was built.
+        for (int i = 0; i < BirthMonthResolver.TABLE_LOOKUPS; i++) {
+            assertMonth(resolver, (i * 7 - 200) * YEAR_MILLIS / 5 + 3600_000L, "Europe/London");
+        }
+    }
+
+    @Test(expected = DateTimeException.class)
+    public void invalidTimezone() {
+        new BirthMonthResolver().getMonth(0, "Not/A_Zone");
+    }
+
+    private static void assertMonth(BirthMonthResolver resolver, long timestamp, String zone) {
+        Assert.assertEquals(zone + " " + timestamp,
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.of(zone)).getMonth(),
+                resolver.getMonth(timestamp, zone));
+    }
+}
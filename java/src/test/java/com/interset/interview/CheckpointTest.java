@@ -0,0 +1,159 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+public class CheckpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void onlyReadsWhatWasAppended() throws Exception {
+        String checkpoint = new File(folder.getRoot(), "population.checkpoint").getPath();
+        List<String> files = new ArrayList<>();
+        files.add(write("a.csv", TestPopulations.generate("csv", "--rows=5000", "--duplicates=0.1")));
+        files.add(write("b.ndjson", TestPopulations.generate("ndjson", "--rows=2000", "--seed=2")));
+        files.add(write("c.csv.gz", gzip(TestPopulations.generate("csv", "--rows=3000", "--seed=3"))));
+        files.add(write("d.json", TestPopulations.generate("json", "--rows=1000", "--seed=4")));
+
+        IncrementalReader reader = new IncrementalReader(2, 64 * 1024);
+        assertSameResults(files, reader.aggregate(files, checkpoint));
+        Assert.assertEquals("Checkpoint: 0 files unchanged, 0 appended to, 4 new", summaryStart(reader));
+
+        // Rows of the same people and new ones, and the last line of the CSV without its line feed.
+        append(files.get(0), rows(TestPopulations.generate("csv", "--rows=8000", "--duplicates=0.1")));
+        append(files.get(0), "EMMA,DOE,2,Pizza,+01:00,1000".getBytes("UTF-8"));
+        append(files.get(1), TestPopulations.generate("ndjson", "--rows=1000", "--seed=5"));
+        append(files.get(2), gzip(rows(TestPopulations.generate("csv", "--rows=4000", "--seed=6"))));
+        files.add(write("e.csv", TestPopulations.generate("csv", "--rows=500", "--seed=7")));
+        assertSameResults(files, reader.aggregate(files, checkpoint));
+        Assert.assertEquals("Checkpoint: 1 files unchanged, 3 appended to, 1 new", summaryStart(reader));
+
+        // The last line only gets its line feed, then nothing changes.
+        append(files.get(0), "\n".getBytes("UTF-8"));
+        assertSameResults(files, reader.aggregate(files, checkpoint));
+        Assert.assertEquals("Checkpoint: 4 files unchanged, 1 appended to, 0 new (1 bytes read)",
+                reader.getSummary());
+        assertSameResults(files, reader.aggregate(files, checkpoint));
+        Assert.assertEquals("Checkpoint: 5 files unchanged, 0 appended to, 0 new (0 bytes read)",
+                reader.getSummary());
+    }
+
+    @Test
+    public void readsEverythingAgainWhenTheCountsCantBeReused() throws Exception {
+        String checkpoint = new File(folder.getRoot(), "population.checkpoint").getPath();
+        List<String> files = new ArrayList<>();
+        files.add(write("a.csv", TestPopulations.generate("csv", "--rows=3000")));
+        files.add(write("b.json", TestPopulations.generate("json", "--rows=1000", "--seed=2")));
+        IncrementalReader reader = new IncrementalReader(1);
+        reader.aggregate(files, checkpoint);
+
+        // A JSON array can't be appended to.
+        write("b.json", TestPopulations.generate("json", "--rows=1200", "--seed=2"));
+        assertSameResults(files, reader.aggregate(files, checkpoint));
+        Assert.assertEquals("Checkpoint: read all 2 files again, " + files.get(1)
+                + " grew, and can only be read whole", reader.getSummary());
+
+        // Rows that were counted are gone. The last line has no line feed.
+        byte[] csv = TestPopulations.generate("csv", "--rows=3000", "--seed=3");
+        write("a.csv", Arrays.copyOf(csv, csv.length - 1));
+        assertSameResults(files, reader.aggregate(files, checkpoint));
+        Assert.assertEquals("Checkpoint: read all 2 files again, " + files.get(0) + " changed", reader.getSummary());
+
+        // The last line grew.
+        append(files.get(0), "7".getBytes("UTF-8"));
+        assertSameResults(files, reader.aggregate(files, checkpoint));
+        Assert.assertTrue(reader.getSummary().endsWith("the last line of " + files.get(0) + " grew"));
+
+        List<String> fewer = files.subList(0, 1);
+        assertSameResults(fewer, reader.aggregate(fewer, checkpoint));
+        Assert.assertTrue(reader.getSummary().endsWith("b.json is no longer read"));
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws Exception {
+        File notACheckpoint = folder.newFile();
+        Files.write(notACheckpoint.toPath(), "first_name,last_name\n".getBytes("UTF-8"));
+        try {
+            Checkpoint.read(notACheckpoint.getPath(), 1);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Not a checkpoint"));
+        }
+
+        // Cut short.
+        String checkpoint = new File(folder.getRoot(), "population.checkpoint").getPath();
+        List<String> files = Arrays.asList(write("a.csv", TestPopulations.generate("csv", "--rows=100")));
+        new IncrementalReader(1).aggregate(files, checkpoint);
+        byte[] bytes = Files.readAllBytes(new File(checkpoint).toPath());
+        Files.write(new File(checkpoint).toPath(), Arrays.copyOf(bytes, bytes.length - 20));
+        try {
+            Checkpoint.read(checkpoint, 1);
+            Assert.fail();
+        } catch (IOException e) {
+            // Expected
+        }
+
+        try {
+            RunnerOptions.parse(new String[]{"a.csv", "--checkpoint=a.checkpoint", "--approximate"});
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    private static void assertSameResults(List<String> files, PopulationResult result) throws Exception {
+        PopulationAggregator aggregator = new PopulationAggregator();
+        for (String file : files) {
+            new Runner().streamPopulation(file, aggregator);
+        }
+        TestPopulations.assertSameResults(aggregator.getResult(), result);
+    }
+
+    private static String summaryStart(IncrementalReader reader) {
+        return reader.getSummary().substring(0, reader.getSummary().indexOf(" ("));
+    }
+
+    private String write(String name, byte[] bytes) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), bytes);
+        return file.getPath();
+    }
+
+    private static void append(String file, byte[] bytes) throws IOException {
+        Files.write(new File(file).toPath(), bytes, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @return The CSV without its header.
+     */
+    private static byte[] rows(byte[] csv) {
+        int start = 0;
+        while (csv[start] != '\n') {
+            start++;
+        }
+        return Arrays.copyOfRange(csv, start + 1, csv.length);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(bytes)) {
+            outputStream.write(data);
+        }
+        return bytes.toByteArray();
+    }
+}
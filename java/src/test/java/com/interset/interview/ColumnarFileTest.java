@@ -0,0 +1,97 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class ColumnarFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameResultsAsTheOriginalFiles() throws Exception {
+        // More than one block, with duplicates to drop, and many foods so that their ids take 2 bytes.
+        String csv = TestPopulations.generate(folder.newFile("a.csv"), "--rows=200000", "--duplicates=0.2",
+                "--foods=1000", "--noise=0.3");
+        String json = "src/test/resources/population_sample.json.gz";
+        String columnar = new File(folder.getRoot(), "population.pcol").getPath();
+
+        PopulationAggregator expected = new PopulationAggregator();
+        PopulationDeduplicator deduplicator = new PopulationDeduplicator();
+        try (ColumnarWriter writer = new ColumnarWriter(columnar, deduplicator)) {
+            for (String file : new String[]{csv, json}) {
+                new Runner().streamPopulation(file, expected);
+                new Runner().streamPopulation(file, writer);
+            }
+            Assert.assertEquals(expected.getResult().getSize(), writer.getRows());
+            writer.finish();
+        }
+        Assert.assertEquals(expected.getDuplicates(), deduplicator.getDuplicates());
+        // A fraction of the CSV.
+        Assert.assertTrue(Files.size(new File(columnar).toPath()) * 5 < Files.size(new File(csv).toPath()));
+
+        for (int threads : new int[]{1, 3}) {
+            TestPopulations.assertSameResults(expected.getResult(), ColumnarFile.aggregate(columnar, threads));
+        }
+    }
+
+    @Test
+    public void wideAndUnsortableValues() throws Exception {
+        String csv = new File(folder.getRoot(), "wide.csv").getPath();
+        StringBuilder rows = new StringBuilder("first_name,last_name,siblings,favourite_food,birth_timezone,"
+                + "birth_timestamp\n");
+        rows.append("A,B,0,Pizza,+01:00,-62000000000000\n");
+        rows.append("A,B,100000,Steak,-05:00,62000000000000\n");
+        rows.append("C,D,3,steak ,+09:30,0\n");
+        Files.write(new File(csv).toPath(), rows.toString().getBytes("UTF-8"));
+        String columnar = new File(folder.getRoot(), "wide.pcol").getPath();
+        try (ColumnarWriter writer = new ColumnarWriter(columnar, new PopulationDeduplicator())) {
+            new Runner().streamPopulation(csv, writer);
+            writer.finish();
+        }
+        TestPopulations.assertSameResults(new Runner().aggregatePopulation(csv), ColumnarFile.aggregate(columnar, 2));
+
+        // Nothing at all.
+        String empty = new File(folder.getRoot(), "empty.pcol").getPath();
+        try (ColumnarWriter writer = new ColumnarWriter(empty, new PopulationDeduplicator())) {
+            writer.finish();
+        }
+        Assert.assertEquals(0, ColumnarFile.aggregate(empty, 2).getSize());
+    }
+
+    @Test
+    public void failedConversionLeavesNoFile() throws Exception {
+        String csv = new File(folder.getRoot(), "bad.csv").getPath();
+        Files.write(new File(csv).toPath(), ("first_name,last_name,siblings,favourite_food,birth_timezone,"
+                + "birth_timestamp\nA,B,1,Pizza,+01:00,0\nC,D,2,Steak,Not/AZone,0\n").getBytes("UTF-8"));
+        String columnar = new File(folder.getRoot(), "bad.pcol").getPath();
+        try (ColumnarWriter writer = new ColumnarWriter(columnar, new PopulationDeduplicator())) {
+            new Runner().streamPopulation(csv, writer);
+            writer.finish();
+            Assert.fail();
+        } catch (Exception e) {
+            // Expected
+        }
+        Assert.assertFalse(new File(columnar).exists());
+        // The temporary file is gone too.
+        Assert.assertArrayEquals(new String[]{"bad.csv"}, folder.getRoot().list());
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws Exception {
+        File notColumnar = folder.newFile("population.pcol");
+        Files.write(notColumnar.toPath(), "first_name,last_name\n".getBytes("UTF-8"));
+        try {
+            ColumnarFile.aggregate(notColumnar.getPath(), 1);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Not a columnar population file"));
+        }
+    }
+}
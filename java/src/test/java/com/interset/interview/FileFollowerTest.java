@@ -0,0 +1,115 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class FileFollowerTest {
+
+    private static final String HEADER = "first_name,last_name,siblings,favourite_food,birth_timezone,birth_timestamp\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsLinesAsTheyAreWritten() throws Exception {
+        File file = new File(folder.getRoot(), "population.csv");
+        try (FileFollower follower = new FileFollower(file.getPath(), new PopulationAggregator())) {
+            // Not there yet.
+            Assert.assertEquals(0, follower.poll());
+
+            append(file, "first_name,last_name,sib");
+            Assert.assertEquals(0, follower.poll());
+            append(file, HEADER.substring("first_name,last_name,sib".length())
+                    + "JOHN,DOE,2,Pizza,+01:00,1000\nJANE,DOE,3,Stea");
+            Assert.assertEquals(1, follower.poll());
+            Assert.assertEquals(0, follower.poll());
+
+            append(file, "k,-05:00,2000\nJOHN,DOE,2,pizza ,+01:00,1000\n");
+            Assert.assertEquals(2, follower.poll());
+            PopulationAggregator aggregator = follower.getAggregator();
+            Assert.assertEquals(2, aggregator.getResult().getSize());
+            Assert.assertEquals(1, aggregator.getDuplicates());
+            Assert.assertEquals(0, follower.getRestarts());
+        }
+    }
+
+    @Test
+    public void sameResultsAsReadingTheWholeFile() throws Exception {
+        byte[] csv = TestPopulations.generate("csv", "--rows=20000", "--duplicates=0.1");
+        byte[] ndjson = TestPopulations.generate("ndjson", "--rows=5000", "--seed=3");
+        for (String name : new String[]{"population.csv", "population.ndjson"}) {
+            byte[] bytes = name.endsWith(".csv") ? csv : ndjson;
+            File file = new File(folder.getRoot(), name);
+            try (FileFollower follower = new FileFollower(file.getPath(), new PopulationAggregator())) {
+                // Written in uneven pieces, cut anywhere.
+                for (int start = 0, step = 1; start < bytes.length; start += step, step = step * 7 % 100_003) {
+                    append(file, Arrays.copyOfRange(bytes, start, Math.min(bytes.length, start + step)));
+                    follower.poll();
+                }
+                TestPopulations.assertSameResults(new Runner().aggregatePopulation(file.getPath()),
+                        follower.getAggregator().getResult());
+            }
+        }
+    }
+
+    @Test
+    public void startsOverWhenTruncatedOrReplaced() throws Exception {
+        File file = new File(folder.getRoot(), "population.csv");
+        try (FileFollower follower = new FileFollower(file.getPath(), new PopulationAggregator())) {
+            append(file, HEADER + "JOHN,DOE,2,Pizza,+01:00,1000\nJANE,DOE,3,Steak,-05:00,2000\n");
+            Assert.assertEquals(2, follower.poll());
+
+            // Truncated in place, then written to again.
+            Files.write(file.toPath(), (HEADER + "AMY,ROE,1,Pizza,+01:00,3000\n").getBytes("UTF-8"));
+            Assert.assertEquals(1, follower.poll());
+            Assert.assertEquals(1, follower.getRestarts());
+
+            // Moved away after one last line, and replaced.
+            append(file, "BOB,ROE,4,Salad,+01:00,4000\n");
+            Files.move(file.toPath(), new File(folder.getRoot(), "population.csv.1").toPath());
+            Assert.assertEquals(1, follower.poll());
+            Files.write(file.toPath(), (HEADER + "JOHN,DOE,2,Pizza,+01:00,1000\nEVE,ROE,0,Salad,+01:00,5000\n")
+                    .getBytes("UTF-8"));
+            Assert.assertEquals(2, follower.poll());
+            Assert.assertEquals(2, follower.getRestarts());
+
+            PopulationResult result = follower.getAggregator().getResult();
+            Assert.assertEquals(5, result.getSize());
+            Assert.assertEquals(1, follower.getAggregator().getDuplicates());
+            Assert.assertEquals(Long.valueOf(2), result.getFavouriteFoods().get("salad"));
+        }
+    }
+
+    @Test
+    public void followOptions() {
+        Assert.assertEquals(RunnerOptions.DEFAULT_FOLLOW_SECONDS,
+                RunnerOptions.parse(new String[]{"a.csv", "--follow"}).getFollowSeconds());
+        Assert.assertEquals(30, RunnerOptions.parse(new String[]{"--follow=30", "a.csv"}).getFollowSeconds());
+        Assert.assertFalse(RunnerOptions.parse(new String[]{"a.csv"}).isFollow());
+        try {
+            RunnerOptions.parse(new String[]{"a.csv", "b.csv", "--follow"});
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        Assert.assertTrue(FileFollower.supports("a.jsonl"));
+        Assert.assertFalse(FileFollower.supports("a.csv.gz"));
+        Assert.assertFalse(FileFollower.supports("a.json"));
+    }
+
+    private static void append(File file, String text) throws IOException {
+        append(file, text.getBytes("UTF-8"));
+    }
+
+    private static void append(File file, byte[] bytes) throws IOException {
+        Files.write(file.toPath(), bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,190 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.format.TextStyle;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+public class GroupByEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void builtInQueriesGiveTheDefaultResults() throws Exception {
+        String csv = TestPopulations.generate(folder.newFile("population.csv"), "--rows=50000", "--duplicates=0.1",
+                "--foods=500", "--noise=0.3");
+        String json = "src/test/resources/population_sample.json.gz";
+        PopulationAggregator aggregator = new PopulationAggregator();
+        GroupByEngine engine = new GroupByEngine(Arrays.asList(
+                GroupByQuery.parse(GroupByQuery.AVERAGE_SIBLINGS, 5),
+                GroupByQuery.parse(GroupByQuery.FAVOURITE_FOODS, 5),
+                GroupByQuery.parse(GroupByQuery.BIRTH_MONTHS, 5)), new PopulationDeduplicator());
+        for (String file : new String[]{csv, json}) {
+            new Runner().streamPopulation(file, aggregator);
+            new Runner().streamPopulation(file, engine);
+        }
+        PopulationResult expected = aggregator.getResult();
+        Assert.assertEquals(aggregator.getDuplicates(), engine.getDuplicates());
+        List<GroupByEngine.Result> results = engine.getResults();
+
+        List<GroupByEngine.Row> average = results.get(0).getRows();
+        Assert.assertEquals(1, average.size());
+        Assert.assertEquals(Collections.emptyList(), average.get(0).getLabels());
+        Assert.assertEquals((long) PopulationCalcUtil.calculateAverageSiblings(expected),
+                average.get(0).getValues().get(0));
+
+        List<GroupByEngine.Row> foods = results.get(1).getRows();
+        List<String> topFoods = PopulationCalcUtil.getTopFoods(expected, 5);
+        Assert.assertEquals(topFoods.size(), foods.size());
+        for (int i = 0; i < foods.size(); i++) {
+            Assert.assertEquals(Collections.singletonList(topFoods.get(i)), foods.get(i).getLabels());
+            Assert.assertEquals((long) expected.getFoodFrequency(topFoods.get(i)), foods.get(i).getValues().get(0));
+        }
+
+        List<GroupByEngine.Row> months = results.get(2).getRows();
+        Assert.assertEquals(12, months.size());
+        for (GroupByEngine.Row row : months) {
+            Month month = Month.valueOf(row.getLabels().get(0).toUpperCase(Locale.ROOT));
+            Assert.assertEquals((long) expected.getBirthMonthFrequency(month), row.getValues().get(0));
+        }
+    }
+
+    @Test
+    public void builtInQueriesListTheEmptyGroups() throws Exception {
+        File csv = folder.newFile("a.csv");
+        Files.write(csv.toPath(), ("first_name,last_name,siblings,favourite_food,birth_timezone,birth_timestamp\n"
+                + "A,B,1,Pizza,+00:00,1000\nC,D,2,Steak,+00:00,2000\n").getBytes("UTF-8"));
+        GroupByEngine engine = new GroupByEngine(Arrays.asList(
+                GroupByQuery.parse(GroupByQuery.AVERAGE_SIBLINGS, 3),
+                GroupByQuery.parse(GroupByQuery.BIRTH_MONTHS, 3)), new PopulationDeduplicator());
+        new Runner().streamPopulation(csv.getPath(), engine);
+        // 1.5 rounded up.
+        Assert.assertEquals(Collections.singletonList(2L), engine.getResults().get(0).getRows().get(0).getValues());
+        List<GroupByEngine.Row> months = engine.getResults().get(1).getRows();
+        Assert.assertEquals(12, months.size());
+        Assert.assertEquals(Arrays.asList("January", "February"), Arrays.asList(months.get(0).getLabels().get(0),
+                months.get(1).getLabels().get(0)));
+        Assert.assertEquals(Collections.singletonList(2L), months.get(0).getValues());
+        Assert.assertEquals(Collections.singletonList(0L), months.get(11).getValues());
+
+        // No entries at all.
+        GroupByEngine empty = new GroupByEngine(Arrays.asList(
+                GroupByQuery.parse(GroupByQuery.AVERAGE_SIBLINGS, 3),
+                GroupByQuery.parse(GroupByQuery.BIRTH_MONTHS, 3)), new PopulationDeduplicator());
+        Assert.assertEquals(Collections.singletonList(0L), empty.getResults().get(0).getRows().get(0).getValues());
+        Assert.assertEquals(12, empty.getResults().get(1).getRows().size());
+        // A query typed in lists what it found.
+        Assert.assertEquals(0, new GroupByEngine(Collections.singletonList(GroupByQuery.parse("month:count", 3)),
+                new PopulationDeduplicator()).getResults().get(0).getRows().size());
+    }
+
+    @Test
+    public void datesAsJavaTimeGivesThem() throws Exception {
+        String csv = TestPopulations.generate(folder.newFile("population.csv"), "--rows=20000",
+                "--timezones=-05:00,+13:45,America/New_York,Asia/Kolkata,Australia/Lord_Howe");
+        Set<PopulationEntryDto> entries = new Runner().parsePopulation(csv);
+        Map<List<String>, Long> expected = new HashMap<>();
+        for (PopulationEntryDto entry : entries) {
+            LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getBirthTimeStamp()),
+                    ZoneId.of(entry.getBirthTimezone()));
+            expected.merge(Arrays.asList(Integer.toString(date.getYear()),
+                    date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.CANADA),
+                    date.getMonth().getDisplayName(TextStyle.FULL, Locale.CANADA), entry.getBirthTimezone()),
+                    1L, Long::sum);
+        }
+
+        GroupByEngine engine = new GroupByEngine(Collections.singletonList(
+                GroupByQuery.parse("year,weekday,month,timezone:count", 3)), new PopulationDeduplicator());
+        new Runner().streamPopulation(csv, engine);
+        List<GroupByEngine.Row> rows = engine.getResults().get(0).getRows();
+        Assert.assertEquals(expected.size(), rows.size());
+        int previousYear = Integer.MIN_VALUE;
+        for (GroupByEngine.Row row : rows) {
+            Assert.assertEquals(expected.get(row.getLabels()), row.getValues().get(0));
+            int year = Integer.parseInt(row.getLabels().get(0));
+            Assert.assertTrue(year >= previousYear);
+            previousYear = year;
+        }
+    }
+
+    @Test
+    public void aggregatesPerGroup() throws Exception {
+        File csv = folder.newFile("a.csv");
+        Files.write(csv.toPath(), ("first_name,last_name,siblings,favourite_food,birth_timezone,"
+                + "birth_timestamp\n"
+                + "A,B,2,Pizza,+00:00,100\n"
+                + "A,C,4,pizza ,+00:00,-300\n"
+                + "A,D,3,Steak,+00:00,200\n"
+                + "A,E,1,Steak,+00:00,50\n"
+                + "A,F,-2,Fish,+00:00,7\n"
+                + "A,F,-2,Fish,+00:00,7\n").getBytes("UTF-8"));
+        GroupByEngine engine = new GroupByEngine(Arrays.asList(
+                GroupByQuery.parse("food:count,sum(siblings),avg(siblings),min(birth_timestamp),"
+                        + "max(birth_timestamp)", 3),
+                GroupByQuery.parse("siblings,food:count:top=2", 3),
+                GroupByQuery.parse("food:min(siblings):top=2", 3)), new PopulationDeduplicator());
+        new Runner().streamPopulation(csv.getPath(), engine);
+        List<GroupByEngine.Result> results = engine.getResults();
+
+        List<GroupByEngine.Row> foods = results.get(0).getRows();
+        Assert.assertEquals(Arrays.asList("fish", "pizza", "steak"), Arrays.asList(foods.get(0).getLabels().get(0),
+                foods.get(1).getLabels().get(0), foods.get(2).getLabels().get(0)));
+        Assert.assertEquals(Arrays.<Number>asList(1L, -2L, -2.0, 7L, 7L), foods.get(0).getValues());
+        Assert.assertEquals(Arrays.<Number>asList(2L, 6L, 3.0, -300L, 100L), foods.get(1).getValues());
+        Assert.assertEquals(Arrays.<Number>asList(2L, 4L, 2.0, 50L, 200L), foods.get(2).getValues());
+
+        // All tied, in the order of the dimensions: negative siblings first.
+        List<GroupByEngine.Row> top = results.get(1).getRows();
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals(Arrays.asList("-2", "fish"), top.get(0).getLabels());
+        Assert.assertEquals(Arrays.asList("1", "steak"), top.get(1).getLabels());
+
+        List<GroupByEngine.Row> largestMin = results.get(2).getRows();
+        Assert.assertEquals(Arrays.asList("pizza", "steak"), Arrays.asList(largestMin.get(0).getLabels().get(0),
+                largestMin.get(1).getLabels().get(0)));
+    }
+
+    @Test
+    public void parsesQueries() {
+        Assert.assertEquals("month,food:count:top=10", GroupByQuery.parse("month, food:count:top=10", 3).toString());
+        Assert.assertEquals("all:avg(siblings),max(birth_timestamp)",
+                GroupByQuery.parse("ALL:avg(siblings), max(birth_timestamp)", 3).toString());
+        Assert.assertEquals("food:count:top=7", GroupByQuery.parse(GroupByQuery.FAVOURITE_FOODS, 7).toString());
+        Assert.assertEquals("month:count", GroupByQuery.parse(GroupByQuery.BIRTH_MONTHS, 7).toString());
+
+        for (String spec : new String[]{"month", "month:count:top=0", "day:count", "month:count(siblings)",
+                "month:avg", "month:avg(name)", "month,month:count", "year,siblings,food:count", "a:b:c:d"}) {
+            try {
+                GroupByQuery.parse(spec, 3);
+                Assert.fail(spec);
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().endsWith(spec));
+            }
+        }
+
+        Assert.assertEquals(2, RunnerOptions.parse(new String[]{"a.csv", "--query=month:count",
+                "--query=favourite-foods"}).getQueries().size());
+        try {
+            RunnerOptions.parse(new String[]{"a.csv", "--query=month:count", "--parallel=2"});
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().startsWith("--query reads the files on one thread"));
+        }
+    }
+}
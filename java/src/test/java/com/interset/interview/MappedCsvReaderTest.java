@@ -0,0 +1,98 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class MappedCsvReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Runner runner;
+
+    @Before
+    public void setUp() throws Exception {
+        this.runner = new Runner();
+    }
+
+    @Test
+    public void matchesJackson() throws Exception {
+        assertMatchesJackson("src/main/resources/population.csv", MappedCsvReader.DEFAULT_WINDOW_BYTES);
+        assertMatchesJackson("src/test/resources/small_population_dupes.csv", MappedCsvReader.DEFAULT_WINDOW_BYTES);
+        assertMatchesJackson("src/test/resources/empty_sample.csv", MappedCsvReader.DEFAULT_WINDOW_BYTES);
+    }
+
+    @Test
+    public void rowsAcrossWindows() throws Exception {
+        // Windows of a few rows each, so that most windows end in the middle of a row.
+        assertMatchesJackson("src/main/resources/population.csv", 200);
+    }
+
+    @Test
+    public void quotedValues() throws Exception {
+        File file = write("quoted.csv",
+                "first_name,last_name,siblings,favourite_food,birth_timezone,birth_timestamp\n"
+                        + "\"DAVID\",\"X\"\"U\",2,\"Steak, rare\",-05:00,\"318184494000\"\r\n"
+                        + "DAVID,\"X\"\"U\",2,\" steak, RARE\",-05:00,318184494000\r\n"
+                        + "JOHN,\"\",1,\"\"\"Pizza\"\"\",+01:00,0");
+        PopulationAggregator aggregator = assertMatchesJackson(file.getPath(), 64);
+        Assert.assertEquals(2, aggregator.getResult().getSize());
+        Assert.assertEquals(1, aggregator.getDuplicates());
+        Assert.assertEquals(1, (long) aggregator.getResult().getFavouriteFoods().get("\"pizza\""));
+    }
+
+    @Test
+    public void namesReadForExactVerify() throws Exception {
+        File file = write("unicode.csv",
+                "first_name,last_name,siblings,favourite_food,birth_timezone,birth_timestamp\n"
+                        + "ZOË,\"D\"\"ÉMO\",3,Crème brûlée,+02:00,1000\n"
+                        + "ZOË,\"D\"\"ÉMO\",3,crème brûlée ,+02:00,1000\n");
+        PopulationAggregator aggregator = new PopulationAggregator(new PopulationDeduplicator(true));
+        new MappedCsvReader().read(file.getPath(), aggregator);
+
+        Assert.assertEquals(1, aggregator.getResult().getSize());
+        Assert.assertEquals(0, aggregator.getDeduplicator().getCollisions());
+        Assert.assertEquals(1, (long) aggregator.getResult().getFavouriteFoods().get("crème brûlée"));
+        assertMatchesJackson(file.getPath(), 64);
+    }
+
+    @Test(expected = IOException.class)
+    public void missingColumns() throws Exception {
+        File file = write("missing.csv",
+                "first_name,last_name,siblings,favourite_food,birth_timezone,birth_timestamp\n"
+                        + "DAVID,XU,2,Steak,-05:00\n");
+        new MappedCsvReader().read(file.getPath(), new PopulationAggregator());
+    }
+
+    @Test(expected = IOException.class)
+    public void rowLongerThanWindow() throws Exception {
+        new MappedCsvReader(20).read("src/test/resources/small_population_sample.csv", new PopulationAggregator());
+    }
+
+    private PopulationAggregator assertMatchesJackson(String path, long windowBytes) throws Exception {
+        PopulationAggregator expected = new PopulationAggregator();
+        runner.readPopulation(path, expected::add);
+
+        PopulationAggregator aggregator = new PopulationAggregator();
+        new MappedCsvReader(windowBytes).read(path, aggregator);
+
+        PopulationResult result = aggregator.getResult();
+        TestPopulations.assertSameResults(expected.getResult(), result);
+        Assert.assertEquals(expected.getDuplicates(), aggregator.getDuplicates());
+        return aggregator;
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,105 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MultiFileReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameResultsAsOneFileAfterAnother() throws Exception {
+        List<String> files = new ArrayList<>();
+        // The same people in several formats, so most rows are duplicates across files.
+        files.add(TestPopulations.generate(folder.newFile("a.csv"), "--rows=20000", "--duplicates=0.1"));
+        files.add(TestPopulations.generate(folder.newFile("b.json.gz"), "--rows=5000", "--noise=0.5"));
+        files.add(TestPopulations.generate(folder.newFile("c.ndjson"), "--rows=3000", "--seed=3"));
+        files.add(TestPopulations.generate(folder.newFile("d.csv.gz"), "--rows=8000", "--seed=3", "--bgzf"));
+        files.add("src/test/resources/population_sample.csv");
+        files.add("src/test/resources/empty_sample.csv");
+
+        PopulationAggregator sequential = new PopulationAggregator();
+        for (String file : files) {
+            new Runner().streamPopulation(file, sequential);
+        }
+        PopulationResult expected = sequential.getResult();
+
+        for (int threads : new int[]{1, 3}) {
+            // Small chunks, so that the CSV files are split too.
+            MultiFileReader reader = new MultiFileReader(threads, 64 * 1024);
+            PopulationResult result = reader.aggregate(files, new ConcurrentFingerprintSet(threads));
+            TestPopulations.assertSameResults(expected, result);
+
+            List<MultiFileReader.FileReport> reports = reader.getReports();
+            Assert.assertEquals(files.size(), reports.size());
+            long unique = 0;
+            long duplicates = 0;
+            for (int i = 0; i < files.size(); i++) {
+                Assert.assertEquals(files.get(i), reports.get(i).getFilePath());
+                Assert.assertEquals(new File(files.get(i)).length(), reports.get(i).getBytes());
+                unique += reports.get(i).getUnique();
+                duplicates += reports.get(i).getDuplicates();
+            }
+            Assert.assertEquals(20000, reports.get(0).getRows());
+            Assert.assertEquals(5000, reports.get(1).getRows());
+            Assert.assertEquals(0, reports.get(5).getRows());
+            Assert.assertEquals(result.getSize(), unique);
+            Assert.assertEquals(sequential.getDuplicates(), duplicates);
+        }
+    }
+
+    @Test
+    public void expandDirectoriesAndPatterns() throws Exception {
+        File root = folder.newFolder("exports");
+        new File(root, "2017/01").mkdirs();
+        new File(root, "2017/02").mkdirs();
+        for (String name : new String[]{"2017/01/a.csv", "2017/01/b.json.gz", "2017/02/a.csv", "2017/02/notes.txt",
+                "2017/02/c.ndjson", "top.jsonl"}) {
+            new File(root, name).createNewFile();
+        }
+        String path = root.getPath();
+
+        Assert.assertEquals(Arrays.asList(path + "/2017/01/a.csv", path + "/2017/01/b.json.gz",
+                path + "/2017/02/a.csv", path + "/2017/02/c.ndjson", path + "/top.jsonl"),
+                InputFiles.expand(Collections.singletonList(path)));
+        Assert.assertEquals(Arrays.asList(path + "/2017/01/a.csv", path + "/2017/02/a.csv"),
+                InputFiles.expand(Collections.singletonList(path + "/2017/*/*.csv")));
+        Assert.assertEquals(Arrays.asList(path + "/2017/01/a.csv", path + "/2017/01/b.json.gz",
+                path + "/2017/02/a.csv", path + "/2017/02/c.ndjson"),
+                InputFiles.expand(Collections.singletonList(path + "/**/*.*")));
+        Assert.assertEquals(Collections.singletonList(path + "/2017/01/b.json.gz"),
+                InputFiles.expand(Collections.singletonList(path + "/2017/0[1-9]/*.{json,ndjson}.gz")));
+
+        // Files given more than once, or by several paths, are only read once. Explicit files are always kept.
+        Assert.assertEquals(Arrays.asList(path + "/2017/02/notes.txt", path + "/2017/01/a.csv",
+                path + "/2017/02/a.csv"),
+                InputFiles.expand(Arrays.asList(path + "/2017/02/notes.txt", path + "/2017/01/a.csv",
+                        path + "/2017/*/a.csv", path + "/2017/01/../01/a.csv")));
+
+        try {
+            InputFiles.expand(Collections.singletonList(path + "/*.json"));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void severalPathsOnTheCommandLine() {
+        RunnerOptions options = RunnerOptions.parse(new String[]{"a.csv", "--parallel=2", "dir", "*.json"});
+        Assert.assertEquals(Arrays.asList("a.csv", "dir", "*.json"), options.getFilePaths());
+        Assert.assertEquals(2, options.getFileThreads());
+        Assert.assertEquals(Runtime.getRuntime().availableProcessors(),
+                RunnerOptions.parse(new String[]{"a.csv", "b.csv"}).getFileThreads());
+    }
+}
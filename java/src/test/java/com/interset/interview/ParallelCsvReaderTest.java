@@ -0,0 +1,66 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public class ParallelCsvReaderTest {
+
+    private Runner runner;
+
+    @Before
+    public void setUp() throws Exception {
+        this.runner = new Runner();
+    }
+
+    @Test
+    public void matchesSequentialRead() throws Exception {
+        assertMatchesSequential("src/main/resources/population.csv", 64 * 1024);
+    }
+
+    @Test
+    public void findsDuplicatesAcrossChunks() throws Exception {
+        // Chunks of about one line, so that duplicates end up in different chunks.
+        PopulationResult result = assertMatchesSequential("src/test/resources/small_population_dupes.csv", 1);
+        Assert.assertEquals(6, result.getSize());
+    }
+
+    @Test
+    public void emptyFile() throws Exception {
+        PopulationResult result = assertMatchesSequential("src/test/resources/empty_sample.csv", 1);
+        Assert.assertEquals(0, result.getSize());
+    }
+
+    @Test
+    public void chunksEndOnLineBreaks() throws Exception {
+        String path = "src/main/resources/population.csv";
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            List<long[]> chunks = new ParallelCsvReader(8, 1024).split(channel);
+            Assert.assertEquals(32, chunks.size());
+            Assert.assertEquals(0, chunks.get(0)[0]);
+            Assert.assertEquals(channel.size(), chunks.get(chunks.size() - 1)[1]);
+            ByteBuffer previous = ByteBuffer.allocate(1);
+            for (int i = 1; i < chunks.size(); i++) {
+                Assert.assertEquals(chunks.get(i - 1)[1], chunks.get(i)[0]);
+                // Each chunk starts right after a line feed, so no line is split between two chunks.
+                previous.clear();
+                Assert.assertEquals(1, channel.read(previous, chunks.get(i)[0] - 1));
+                Assert.assertEquals('\n', previous.get(0));
+            }
+        }
+    }
+
+    private PopulationResult assertMatchesSequential(String path, long minChunkBytes) throws Exception {
+        PopulationResult expected = runner.aggregatePopulation(path);
+        PopulationResult result = new ParallelCsvReader(4, minChunkBytes).aggregate(path, new ConcurrentFingerprintSet(4));
+
+        TestPopulations.assertSameResults(expected, result);
+        return result;
+    }
+}
@@ -0,0 +1,174 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PartialReducerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void mergesPartialResultsOfSeveralProcesses() throws Exception {
+        List<String> slices = slice(TestPopulations.generate(folder.newFile("population.csv"), "--rows=30000",
+                "--duplicates=0.3", "--foods=200", "--noise=0.3"), 3);
+        slices.add("src/test/resources/population_sample.json.gz");
+
+        List<Process> processes = new ArrayList<>();
+        List<PartialResult> partialResults = new ArrayList<>();
+        for (int i = 0; i < slices.size(); i++) {
+            File partial = new File(folder.getRoot(), "slice" + i + ".partial");
+            processes.add(new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"), Runner.class.getName(),
+                    "--partial=" + partial.getPath(), slices.get(i))
+                    .redirectErrorStream(true).redirectOutput(new File(folder.getRoot(), "slice" + i + ".log"))
+                    .start());
+        }
+        for (int i = 0; i < slices.size(); i++) {
+            Assert.assertEquals(0, processes.get(i).waitFor());
+            partialResults.add(PartialResult.read(new File(folder.getRoot(), "slice" + i + ".partial").toPath()));
+        }
+
+        PartialReducer reducer = new PartialReducer();
+        reducer.expect(partialResults);
+        for (PartialResult partialResult : partialResults) {
+            Assert.assertTrue(partialResult.hasFingerprints());
+            reducer.add(partialResult);
+        }
+        PopulationAggregator aggregator = new PopulationAggregator();
+        for (String slice : slices) {
+            new Runner().streamPopulation(slice, aggregator);
+        }
+        TestPopulations.assertSameResults(aggregator.getResult(), reducer.getResult());
+        Assert.assertEquals(aggregator.getDuplicates(), reducer.getDuplicates());
+        Assert.assertTrue(reducer.getCrossDuplicates() > 0);
+    }
+
+    @Test
+    public void sketchesEstimateThePeople() throws Exception {
+        List<String> slices = slice(TestPopulations.generate(folder.newFile("population.csv"), "--rows=40000",
+                "--duplicates=0.2"), 2);
+        PartialReducer reducer = new PartialReducer();
+        PopulationResult sum = new PopulationResult();
+        for (int i = 0; i < slices.size(); i++) {
+            Path path = new File(folder.getRoot(), "slice" + i + ".partial").toPath();
+            try (PartialAggregator aggregator = new PartialAggregator(path,
+                    new HyperLogLog(HyperLogLog.MAX_PRECISION))) {
+                new Runner().streamPopulation(slices.get(i), aggregator);
+                aggregator.finish();
+            }
+            PartialResult partialResult = PartialResult.read(path);
+            Assert.assertFalse(partialResult.hasFingerprints());
+            Assert.assertEquals(0, partialResult.getRecords());
+            reducer.add(partialResult);
+            sum.merge(new Runner().aggregatePopulation(slices.get(i)));
+        }
+        // The duplicates across the slices are counted in each.
+        TestPopulations.assertSameResults(sum, reducer.getResult());
+
+        PopulationAggregator aggregator = new PopulationAggregator();
+        for (String slice : slices) {
+            new Runner().streamPopulation(slice, aggregator);
+        }
+        long people = aggregator.getResult().getSize();
+        Assert.assertEquals(people, reducer.getSketch().estimate(),
+                3 * reducer.getSketch().getStandardError() * people);
+    }
+
+    @Test
+    public void rejectsInvalidPartialResults() throws Exception {
+        String csv = TestPopulations.generate(folder.newFile("population.csv"), "--rows=1000");
+        Path exact = new File(folder.getRoot(), "exact.partial").toPath();
+        Path sketched = new File(folder.getRoot(), "sketched.partial").toPath();
+        for (Path path : new Path[]{exact, sketched}) {
+            try (PartialAggregator aggregator = new PartialAggregator(path,
+                    path == exact ? null : new HyperLogLog(HyperLogLog.MIN_PRECISION))) {
+                new Runner().streamPopulation(csv, aggregator);
+                aggregator.finish();
+            }
+        }
+        Assert.assertArrayEquals(new String[]{"exact.partial", "population.csv", "sketched.partial"},
+                sortedFiles(folder.getRoot()));
+
+        PartialReducer reducer = new PartialReducer();
+        reducer.add(PartialResult.read(exact));
+        try {
+            reducer.add(PartialResult.read(sketched));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Partial results with fingerprints and with sketches"));
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(exact.toFile(), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        assertInvalid(exact, "Incomplete partial result");
+        Files.write(exact, "name,siblings\n".getBytes(StandardCharsets.UTF_8));
+        assertInvalid(exact, "Not a partial result");
+        try (RandomAccessFile file = new RandomAccessFile(sketched.toFile(), "rw")) {
+            file.seek(Integer.BYTES);
+            file.writeInt(PartialResult.VERSION + 1);
+        }
+        assertInvalid(sketched, "Unsupported partial result version");
+
+        for (String[] args : new String[][]{{"a.csv", "--sketch"}, {"a.csv", "--partial=a.partial", "--parallel=2"},
+                {"a.csv", "--partial=a.partial", "--memory=64"}}) {
+            try {
+                RunnerOptions.parse(args);
+                Assert.fail(Arrays.toString(args));
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    private static void assertInvalid(Path path, String message) {
+        try {
+            PartialResult.read(path);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    private static String[] sortedFiles(File directory) {
+        String[] files = directory.list();
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * Deals the rows of a CSV file out to the given number of files, each with the header, so that the duplicates of
+     * a row are in several of them.
+     */
+    private List<String> slice(String csv, int slices) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(csv), StandardCharsets.UTF_8);
+        List<List<String>> sliceLines = new ArrayList<>();
+        for (int i = 0; i < slices; i++) {
+            sliceLines.add(new ArrayList<>(Arrays.asList(lines.get(0))));
+        }
+        for (int i = 1; i < lines.size(); i++) {
+            sliceLines.get(i % slices).add(lines.get(i));
+        }
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < slices; i++) {
+            Path path = new File(folder.getRoot(), "slice" + i + ".csv").toPath();
+            Files.write(path, sliceLines.get(i), StandardCharsets.UTF_8);
+            paths.add(path.toString());
+        }
+        return paths;
+    }
+}
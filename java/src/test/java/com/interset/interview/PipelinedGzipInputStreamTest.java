@@ -0,0 +1,183 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class PipelinedGzipInputStreamTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void singleMember() throws Exception {
+        byte[] data = population(20_000);
+        File file = folder.newFile("population.csv.gz");
+        try (OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(file))) {
+            outputStream.write(data);
+        }
+        Assert.assertFalse(isBgzf(file));
+        Assert.assertArrayEquals(data, readAll(file, 2));
+    }
+
+    @Test
+    public void multipleMembers() throws Exception {
+        byte[] first = population(3_000);
+        byte[] second = "and some more\n".getBytes("UTF-8");
+        File file = folder.newFile("population.csv.gz");
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(gzip(first));
+            outputStream.write(gzip(second));
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(first);
+        expected.write(second);
+        Assert.assertArrayEquals(expected.toByteArray(), readAll(file, 4));
+    }
+
+    @Test
+    public void bgzfMembersInParallel() throws Exception {
+        byte[] data = population(50_000);
+        File file = bgzf(data);
+        Assert.assertTrue(isBgzf(file));
+        Assert.assertTrue(data.length > 10 * BgzfOutputStream.BLOCK_BYTES);
+
+        // Any GZIP reader can read it.
+        try (InputStream inputStream = new GZIPInputStream(new FileInputStream(file))) {
+            Assert.assertArrayEquals(data, readAll(inputStream));
+        }
+        for (int threads : new int[]{1, 2, 5}) {
+            Assert.assertArrayEquals(data, readAll(file, threads));
+        }
+    }
+
+    @Test
+    public void bgzfIncompressible() throws Exception {
+        byte[] data = new byte[300_000];
+        new Random(3).nextBytes(data);
+        Assert.assertArrayEquals(data, readAll(bgzf(data), 3));
+        Assert.assertArrayEquals(new byte[0], readAll(bgzf(new byte[0]), 3));
+    }
+
+    @Test
+    public void corruptBgzfMember() throws Exception {
+        File file = bgzf(population(20_000));
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        // In the deflated data of the second member.
+        int second = ((bytes[16] & 0xff) | (bytes[17] & 0xff) << 8) + 1;
+        bytes[second + 100] ^= 0x55;
+        Files.write(file.toPath(), bytes);
+
+        try (InputStream inputStream = new PipelinedGzipInputStream(file.getPath(), 2)) {
+            readAll(inputStream);
+            Assert.fail();
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void sameResultsAsGzipInputStream() throws Exception {
+        String path = "src/test/resources/population_sample.csv.gz";
+        PopulationAggregator expected = new PopulationAggregator();
+        try (InputStream inputStream = new GZIPInputStream(new FileInputStream(path))) {
+            new PopulationCsvReader().read(inputStream, expected);
+        }
+        PopulationAggregator pipelined = new PopulationAggregator();
+        try (InputStream inputStream = new PipelinedGzipInputStream(path, 2)) {
+            new PopulationCsvReader().read(inputStream, pipelined);
+        }
+        TestPopulations.assertSameResults(expected.getResult(), pipelined.getResult());
+    }
+
+    @Test(timeout = 10_000)
+    public void closeBeforeTheEnd() throws Exception {
+        byte[] data = population(200_000);
+        for (File file : new File[]{bgzf(data), gzipFile(data)}) {
+            InputStream inputStream = new PipelinedGzipInputStream(file.getPath(), 3);
+            Assert.assertEquals('f', inputStream.read());
+            // The reader threads are now waiting for free buffers.
+            Thread.sleep(100);
+            inputStream.close();
+            try {
+                inputStream.read();
+                Assert.fail();
+            } catch (IOException e) {
+                // Expected
+            }
+        }
+    }
+
+    private File bgzf(byte[] data) throws IOException {
+        File file = folder.newFile();
+        try (OutputStream outputStream = new BgzfOutputStream(new FileOutputStream(file), 6)) {
+            outputStream.write(data, 0, Math.min(data.length, 1000));
+            for (int i = Math.min(data.length, 1000); i < data.length; i++) {
+                outputStream.write(data[i]);
+            }
+        }
+        return file;
+    }
+
+    private File gzipFile(byte[] data) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), gzip(data));
+        return file;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(bytes)) {
+            outputStream.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] population(int rows) throws IOException {
+        return TestPopulations.generate("csv", "--rows=" + rows);
+    }
+
+    private static boolean isBgzf(File file) throws IOException {
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+            return PipelinedGzipInputStream.isBgzf(inputStream);
+        }
+    }
+
+    private static byte[] readAll(File file, int threads) throws IOException {
+        try (InputStream inputStream = new PipelinedGzipInputStream(file.getPath(), threads)) {
+            // Single bytes as well as arrays.
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            int first = inputStream.read();
+            if (first < 0) {
+                return bytes.toByteArray();
+            }
+            bytes.write(first);
+            bytes.write(readAll(inputStream));
+            return bytes.toByteArray();
+        }
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[7919];
+        int read;
+        while ((read = inputStream.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+}
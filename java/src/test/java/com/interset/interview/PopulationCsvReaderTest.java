@@ -0,0 +1,84 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+
+public class PopulationCsvReaderTest {
+
+    private Runner runner;
+
+    @Before
+    public void setUp() throws Exception {
+        this.runner = new Runner();
+    }
+
+    @Test
+    public void matchesJacksonOnFixtures() throws Exception {
+        assertMatchesJackson("src/test/resources/empty_sample.csv", PopulationCsvReader.DEFAULT_BUFFER_BYTES);
+        assertMatchesJackson("src/test/resources/population_sample.csv", PopulationCsvReader.DEFAULT_BUFFER_BYTES);
+        assertMatchesJackson("src/test/resources/population_sample.csv.gz", PopulationCsvReader.DEFAULT_BUFFER_BYTES);
+        assertMatchesJackson("src/test/resources/small_population_sample.csv", PopulationCsvReader.DEFAULT_BUFFER_BYTES);
+        assertMatchesJackson("src/test/resources/small_population_dupes.csv", PopulationCsvReader.DEFAULT_BUFFER_BYTES);
+    }
+
+    @Test
+    public void rowsLongerThanBuffer() throws Exception {
+        // The buffer has to grow for the header and the first rows, and most reads end in the middle of a row.
+        assertMatchesJackson("src/test/resources/population_sample.csv.gz", 8);
+    }
+
+    @Test
+    public void aggregatesLikeMappedReader() throws Exception {
+        PopulationResult expected = runner.aggregatePopulation("src/test/resources/population_sample.csv");
+        PopulationResult result = runner.aggregatePopulation("src/test/resources/population_sample.csv.gz");
+
+        TestPopulations.assertSameResults(expected, result);
+    }
+
+    @Test
+    public void noAllocationPerRow() throws Exception {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+
+        byte[] data = Files.readAllBytes(Paths.get("src/main/resources/population.csv"));
+        PopulationCsvReader reader = new PopulationCsvReader();
+        long[] rows = new long[1];
+
+        // Warm up, so that the caches are full and the parser is compiled.
+        for (int i = 0; i < 5; i++) {
+            reader.read(new ByteArrayInputStream(data), false, record -> rows[0]++);
+        }
+
+        InputStream inputStream = new ByteArrayInputStream(data);
+        long threadId = Thread.currentThread().threadId();
+        rows[0] = 0;
+        long before = threads.getThreadAllocatedBytes(threadId);
+        reader.read(inputStream, false, record -> rows[0]++);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // A few objects are created once per read (and by the measuring itself), but nothing per row.
+        Assert.assertEquals(50_000, rows[0]);
+        Assert.assertTrue("Allocated " + allocated + " bytes", allocated < rows[0]);
+    }
+
+    private void assertMatchesJackson(String path, int bufferBytes) throws Exception {
+        Set<PopulationEntryDto> expected = runner.parsePopulation(path);
+
+        Set<PopulationEntryDto> result = new HashSet<>();
+        try (InputStream inputStream = Runner.openInputStream(path)) {
+            new PopulationCsvReader(bufferBytes).read(inputStream, true, record -> result.add(record.toDto()));
+        }
+        Assert.assertEquals(expected, result);
+    }
+}
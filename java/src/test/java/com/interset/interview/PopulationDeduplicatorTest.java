@@ -0,0 +1,134 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.Set;
+
+public class PopulationDeduplicatorTest {
+
+    private Runner runner;
+
+    @Before
+    public void setUp() throws Exception {
+        this.runner = new Runner();
+    }
+
+    @Test
+    public void fingerprintSetDetectsDuplicates() {
+        FingerprintSet fingerprints = new FingerprintSet();
+        Random random = new Random(42);
+        int count = 200_000;
+        long[] values = new long[count * 2];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextLong();
+        }
+
+        for (int i = 0; i < count; i++) {
+            Assert.assertTrue(fingerprints.add(values[i * 2], values[i * 2 + 1]));
+        }
+        // Every value must survive the table growing.
+        for (int i = 0; i < count; i++) {
+            Assert.assertFalse(fingerprints.add(values[i * 2], values[i * 2 + 1]));
+            Assert.assertTrue(fingerprints.contains(values[i * 2], values[i * 2 + 1]));
+        }
+        Assert.assertFalse(fingerprints.contains(1, 2));
+        Assert.assertEquals(count, fingerprints.size());
+        Assert.assertTrue(fingerprints.bytesPerEntry() < 22);
+    }
+
+    @Test
+    public void emptyFingerprintIsStored() {
+        FingerprintSet fingerprints = new FingerprintSet();
+        Assert.assertTrue(fingerprints.add(0, 0));
+        Assert.assertFalse(fingerprints.add(0, 0));
+        Assert.assertEquals(1, fingerprints.size());
+    }
+
+    @Test
+    public void fingerprintUsesSanitizedFood() {
+        PopulationEntryDto steak = entry("Steak");
+        PopulationEntryDto sanitizedSteak = entry(" steak  ");
+        PopulationEntryDto chicken = entry("chicken");
+
+        PopulationFingerprint fingerprint = new PopulationFingerprint();
+        fingerprint.hash(steak);
+        long hi = fingerprint.getHi();
+        long lo = fingerprint.getLo();
+
+        fingerprint.hash(sanitizedSteak);
+        Assert.assertEquals(hi, fingerprint.getHi());
+        Assert.assertEquals(lo, fingerprint.getLo());
+
+        fingerprint.hash(chicken);
+        Assert.assertFalse(hi == fingerprint.getHi() && lo == fingerprint.getLo());
+    }
+
+    @Test
+    public void bytesHashLikeStrings() {
+        PopulationEntryDto dto = entry("Crème brûlée");
+        dto.setFirstName("ZOË \uD83D\uDE00");
+        dto.setLastName("A LONGER LAST NAME");
+
+        PopulationFingerprint fingerprint = new PopulationFingerprint();
+        fingerprint.hash(dto);
+        long hi = fingerprint.getHi();
+        long lo = fingerprint.getLo();
+
+        fingerprint.reset()
+                .putUtf8(utf8(dto.getFirstName()), 0, utf8(dto.getFirstName()).limit())
+                .putUtf8(utf8(dto.getLastName()), 0, utf8(dto.getLastName()).limit())
+                .putLong(dto.getSiblings())
+                .putSanitizedFood(dto.getFavouriteFood())
+                .putString(dto.getBirthTimezone())
+                .putLong(dto.getBirthTimeStamp())
+                .finish();
+        Assert.assertEquals(hi, fingerprint.getHi());
+        Assert.assertEquals(lo, fingerprint.getLo());
+    }
+
+    @Test
+    public void matchesSetOfEntries() throws Exception {
+        String path = "src/test/resources/small_population_dupes.csv";
+        Set<PopulationEntryDto> population = runner.parsePopulation(path);
+
+        PopulationDeduplicator deduplicator = new PopulationDeduplicator();
+        PopulationResult result = runner.aggregatePopulation(path, new PopulationAggregator(deduplicator));
+
+        Assert.assertEquals(population.size(), result.getSize());
+        Assert.assertEquals(population.size(), deduplicator.getUniqueCount());
+        Assert.assertEquals(3, deduplicator.getDuplicates());
+    }
+
+    @Test
+    public void exactVerifyFindsNoCollisions() throws Exception {
+        String path = "src/test/resources/population_sample.csv";
+        Set<PopulationEntryDto> population = runner.parsePopulation(path);
+
+        PopulationDeduplicator deduplicator = new PopulationDeduplicator(true);
+        PopulationResult result = runner.aggregatePopulation(path, new PopulationAggregator(deduplicator));
+
+        Assert.assertEquals(population.size(), result.getSize());
+        Assert.assertEquals(0, deduplicator.getCollisions());
+        Assert.assertTrue(deduplicator.getCollisionProbability() < 1e-30);
+    }
+
+    private static ByteBuffer utf8(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static PopulationEntryDto entry(String food) {
+        PopulationEntryDto populationEntryDto = new PopulationEntryDto();
+        populationEntryDto.setFirstName("DAVID");
+        populationEntryDto.setLastName("XU");
+        populationEntryDto.setSiblings(2);
+        populationEntryDto.setFavouriteFood(food);
+        populationEntryDto.setBirthTimezone("-05:00");
+        populationEntryDto.setBirthTimeStamp(318184494000L);
+        return populationEntryDto;
+    }
+}
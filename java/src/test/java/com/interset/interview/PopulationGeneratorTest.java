@@ -0,0 +1,155 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class PopulationGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sameOptionsSameBytes() throws Exception {
+        String[] args = {"--rows=5000", "--duplicates=0.2", "--foods=500"};
+        byte[] bytes = TestPopulations.generate("csv", args);
+        Assert.assertArrayEquals(bytes, TestPopulations.generate("csv", args));
+        Assert.assertFalse(Arrays.equals(bytes, TestPopulations.generate("csv", "--seed=7", "--rows=5000",
+                "--duplicates=0.2", "--foods=500")));
+
+        // The exact output, so that a change of it does not go unnoticed.
+        Assert.assertEquals("first_name,last_name,siblings,favourite_food,birth_timezone,birth_timestamp\n"
+                        + "BETTY,NEWKIRK,1,Ice Cream,-05:00,821938322999\n"
+                        + "EDWARD,TAYLOR,4,Meatballs,-08:00,503395015069\n"
+                        + "WILLIAM,CLARK,2,meatballs  ,+01:00,488092654387\n",
+                new String(TestPopulations.generate("csv", "--rows=3"), "UTF-8"));
+    }
+
+    @Test
+    public void formatsHoldTheSameData() throws Exception {
+        String[] args = {"--rows=3000", "--duplicates=0.3", "--noise=0.5", "out"};
+        List<String> files = new ArrayList<>();
+        for (String extension : new String[]{"csv", "json", "ndjson", "csv.gz", "json.gz"}) {
+            File file = folder.newFile("population." + extension);
+            PopulationGeneratorOptions options = PopulationGeneratorOptions.parse(args);
+            Assert.assertTrue(new PopulationGenerator(options).write(file.getPath()) > 0);
+            files.add(file.getPath());
+        }
+
+        Runner runner = new Runner();
+        PopulationResult expected = runner.aggregatePopulation(files.get(0));
+        for (String file : files) {
+            List<PopulationEntryDto> rows = new ArrayList<>();
+            runner.readPopulation(file, rows::add);
+            Assert.assertEquals(file, 3000, rows.size());
+
+            PopulationResult result = runner.aggregatePopulation(file);
+            Assert.assertEquals(file, expected.getSize(), result.getSize());
+            Assert.assertEquals(file, expected.getFavouriteFoods(), result.getFavouriteFoods());
+            Assert.assertEquals(file, expected.getBirthMonthFrequency(), result.getBirthMonthFrequency());
+        }
+    }
+
+    @Test
+    public void duplicatesAndFoodsFollowTheOptions() throws Exception {
+        PopulationGeneratorOptions options = PopulationGeneratorOptions.parse(new String[]{"--rows=20000",
+                "--duplicates=0.25", "--foods=200", "--zipf=1.2", "--noise=0.3", "out.csv"});
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long people = new PopulationGenerator(options).write(bytes, "csv");
+        Assert.assertEquals(0.75, people / 20000.0, 0.02);
+
+        List<PopulationEntryDto> rows = new ArrayList<>();
+        Runner.parseCsv(new ByteArrayInputStream(bytes.toByteArray()), rows::add);
+        Assert.assertEquals(20000, rows.size());
+        // Duplicates with different noise on the food are still duplicates.
+        Assert.assertEquals(people, new HashSet<>(rows).size());
+
+        Set<String> rawFoods = new HashSet<>();
+        PopulationResult result = new PopulationResult();
+        for (PopulationEntryDto row : rows) {
+            rawFoods.add(row.getFavouriteFood());
+            PopulationCalcUtil.addPopulationDtoToResult(result, row);
+        }
+        Assert.assertTrue(rawFoods.contains(" Pizza"));
+        Assert.assertTrue(rawFoods.contains("MEATBALLS"));
+        Assert.assertTrue(result.getFoodCount() <= 200);
+        Assert.assertTrue(result.getFoodCount() > 150);
+        // Zipf: the k-th food is picked about 1/k^1.2 as often as the first one.
+        Assert.assertEquals(Arrays.asList("meatballs", "pizza", "ice cream"),
+                PopulationCalcUtil.getTopFoods(result, 3));
+        double ratio = result.getFoodFrequency("pizza") / (double) result.getFoodFrequency("meatballs");
+        Assert.assertEquals(Math.pow(2, -1.2), ratio, 0.05);
+        Assert.assertTrue(result.getFoodFrequency("pizza 3") > 0);
+    }
+
+    @Test
+    public void timezonesAndTimestampsFollowTheOptions() throws Exception {
+        PopulationGeneratorOptions options = PopulationGeneratorOptions.parse(new String[]{"--rows=5000",
+                "--timezones=America/Toronto*3,+05:30", "--from=1990-01-01", "--to=1990-02-01", "--noise=0",
+                "out.ndjson"});
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new PopulationGenerator(options).write(bytes, "ndjson");
+
+        List<PopulationEntryDto> rows = new ArrayList<>();
+        Runner.parseJson(new ByteArrayInputStream(bytes.toByteArray()), rows::add);
+        Assert.assertEquals(5000, rows.size());
+        long from = Instant.parse("1990-01-01T00:00:00Z").toEpochMilli();
+        long to = Instant.parse("1990-02-01T00:00:00Z").toEpochMilli();
+        int toronto = 0;
+        for (PopulationEntryDto row : rows) {
+            Assert.assertTrue(row.getBirthTimeStamp() >= from && row.getBirthTimeStamp() < to);
+            Assert.assertTrue(Arrays.asList("America/Toronto", "+05:30").contains(row.getBirthTimezone()));
+            Assert.assertTrue(Arrays.asList(PopulationGenerator.FOODS).contains(row.getFavouriteFood()));
+            Assert.assertTrue(row.getSiblings() >= 1 && row.getSiblings() <= 8);
+            if (row.getBirthTimezone().equals("America/Toronto")) {
+                toronto++;
+            }
+        }
+        Assert.assertEquals(0.75, toronto / 5000.0, 0.03);
+    }
+
+    @Test
+    public void invalidOptions() {
+        String[][] invalid = {
+                {"out.csv"},
+                {"--rows=10"},
+                {"--rows=-1", "out.csv"},
+                {"--rows=10", "--duplicates=1.5", "out.csv"},
+                {"--rows=10", "--from=2000-01-01", "--to=1990-01-01", "out.csv"},
+                {"--rows=10", "--from=yesterday", "out.csv"},
+                {"--rows=10", "--gzip-level=10", "out.csv"},
+                {"--rows=10", "--timezones=+01:00*x", "out.csv"},
+                {"--rows=10", "--unknown", "out.csv"},
+        };
+        for (String[] args : invalid) {
+            try {
+                PopulationGeneratorOptions.parse(args);
+                Assert.fail(Arrays.toString(args));
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void emptyFiles() throws Exception {
+        Assert.assertEquals("[\n]\n", new String(TestPopulations.generate("json", "--rows=0"), "UTF-8"));
+        File file = folder.newFile("empty.csv");
+        new PopulationGenerator(PopulationGeneratorOptions.parse(new String[]{"--rows=0", file.getPath()}))
+                .write(file.getPath());
+        Assert.assertEquals(0, new Runner().aggregatePopulation(file.getPath()).getSize());
+        Assert.assertEquals(1, Files.readAllLines(file.toPath()).size());
+    }
+}
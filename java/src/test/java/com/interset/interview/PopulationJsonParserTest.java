@@ -0,0 +1,70 @@
+package com.interset.interview;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PopulationJsonParserTest {
+
+    @Test
+    public void bindsLikeDatabind() throws Exception {
+        String sample = new String(Files.readAllBytes(Paths.get("src/test/resources/population_sample.json")),
+                StandardCharsets.UTF_8);
+        String[] entries = {
+                sample,
+                "[{\"siblings\": 3, \"birth_timestamp\": -1000, \"first_name\": \"A\", \"last_name\": \"B\", "
+                        + "\"favourite_food\": \"Pizza\", \"birth_timezone\": \"+01:00\"}]",
+                "[{\"siblings\": \" 2 \", \"birth_timestamp\": \"\", \"first_name\": null, \"last_name\": 12, "
+                        + "\"favourite_food\": true, \"birth_timezone\": \"Europe/London\"}]",
+                "[{\"siblings\": 2.7, \"birth_timestamp\": \"null\", \"favourite_food\": \"Salad\"}, {}]",
+                "[{\"siblings\": null, \"siblings\": 4, \"birth_timestamp\": 9007199254740993}]"};
+        for (String json : entries) {
+            Assert.assertEquals(json, readAll(json, true), readAll(json, false));
+        }
+    }
+
+    @Test
+    public void rejectsWhatDatabindRejects() {
+        String[] entries = {
+                "[{\"siblings\": 3, \"middle_name\": \"C\"}]",
+                "[{\"siblings\": \"three\"}]",
+                "[{\"birth_timestamp\": \"1.5e3\"}]",
+                "[{\"siblings\": 3000000000}]",
+                "[{\"siblings\": [3]}]",
+                "[{\"first_name\": {\"first\": \"A\"}}]"};
+        for (String json : entries) {
+            for (boolean databind : new boolean[]{true, false}) {
+                try {
+                    readAll(json, databind);
+                    Assert.fail(json);
+                } catch (IOException e) {
+                    // Expected
+                }
+            }
+        }
+    }
+
+    private static List<PopulationEntryDto> readAll(String json, boolean databind) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonParser parser = databind
+                ? mapper.getFactory().createParser(json.getBytes(StandardCharsets.UTF_8))
+                : PopulationJsonParser.createParser(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        List<PopulationEntryDto> populationEntryDtos = new ArrayList<>();
+        Assert.assertEquals(JsonToken.START_ARRAY, parser.nextToken());
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            populationEntryDtos.add(databind ? mapper.readValue(parser, PopulationEntryDto.class)
+                    : PopulationJsonParser.readEntry(parser));
+        }
+        return populationEntryDtos;
+    }
+}
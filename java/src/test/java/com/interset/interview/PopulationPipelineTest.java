@@ -0,0 +1,95 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PopulationPipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsEveryFormat() throws Exception {
+        List<String> files = Arrays.asList(
+                TestPopulations.generate(folder.newFile("a.csv"), "--rows=100000", "--duplicates=0.2", "--noise=0.3"),
+                TestPopulations.generate(folder.newFile("b.csv.gz"), "--rows=50000", "--duplicates=0.2", "--seed=7"),
+                TestPopulations.generate(folder.newFile("c.ndjson"), "--rows=3000", "--seed=8"),
+                "src/test/resources/population_sample.json",
+                "src/test/resources/population_sample.json.gz",
+                "src/test/resources/population_sample.ndjson",
+                "src/test/resources/empty_sample.csv");
+        PopulationAggregator aggregator = new PopulationAggregator();
+        for (String file : files) {
+            new Runner().streamPopulation(file, aggregator);
+        }
+        PopulationResult expected = aggregator.getResult();
+
+        for (String spec : new String[]{"", "parse=3,dedup=2,aggregate=2,batch=100,queue=2", "batch=7,queue=1"}) {
+            PopulationPipeline pipeline = PopulationPipeline.parse(spec);
+            TestPopulations.assertSameResults(expected, pipeline.aggregate(files));
+            Assert.assertEquals(spec, aggregator.getDuplicates(), pipeline.getDuplicates());
+
+            List<PopulationPipeline.Stage> stages = pipeline.getStages();
+            Assert.assertEquals(Arrays.asList("read", "decompress", "parse", "dedup", "aggregate"),
+                    Arrays.asList(stages.get(0).getName(), stages.get(1).getName(), stages.get(2).getName(),
+                            stages.get(3).getName(), stages.get(4).getName()));
+            // The records go through the dedup and aggregate stages in the same batches.
+            Assert.assertEquals(stages.get(2).getBatches(), stages.get(3).getBatches());
+            for (PopulationPipeline.Stage stage : stages.subList(1, stages.size())) {
+                Assert.assertTrue(stage.getMaxQueueDepth() <= (spec.endsWith("queue=1") ? 1
+                        : spec.isEmpty() ? PopulationPipeline.DEFAULT_QUEUE_BATCHES : 2));
+            }
+            Assert.assertEquals(6, pipeline.getSummary().split("\n").length);
+        }
+    }
+
+    @Test
+    public void stopsEveryStageOnAnError() throws Exception {
+        String valid = TestPopulations.generate(folder.newFile("a.csv"), "--rows=20000");
+        File invalid = folder.newFile("invalid.csv");
+        Files.write(invalid.toPath(), ("first_name,last_name,siblings,favourite_food,birth_timezone,"
+                + "birth_timestamp\nA,B,two,Pizza,+00:00,100\n").getBytes(StandardCharsets.UTF_8));
+        File invalidJson = folder.newFile("invalid.json");
+        Files.write(invalidJson.toPath(), "[{\"siblings\": ".getBytes(StandardCharsets.UTF_8));
+
+        for (String file : new String[]{invalid.getPath(), invalidJson.getPath()}) {
+            try {
+                PopulationPipeline.parse("parse=2,batch=10,queue=1").aggregate(Arrays.asList(valid, file, valid));
+                Assert.fail(file);
+            } catch (Exception e) {
+                Assert.assertEquals("Failed to parse file", e.getMessage());
+            }
+        }
+        try {
+            PopulationPipeline.parse("").aggregate(Collections.singletonList("population.xml"));
+            Assert.fail();
+        } catch (Exception e) {
+            Assert.assertTrue(e.getMessage().startsWith("Could not read in file"));
+        }
+    }
+
+    @Test
+    public void parsesTheSettings() {
+        Assert.assertNotNull(RunnerOptions.parse(new String[]{"a.csv", "--pipeline"}).getPipeline());
+        Assert.assertNull(RunnerOptions.parse(new String[]{"a.csv"}).getPipeline());
+        for (String[] args : new String[][]{{"a.csv", "--pipeline=parse=0"}, {"a.csv", "--pipeline=read=2"},
+                {"a.csv", "--pipeline=batch"}, {"a.csv", "--pipeline", "--parallel=2"},
+                {"a.csv", "--pipeline", "--memory=64"}}) {
+            try {
+                RunnerOptions.parse(args);
+                Assert.fail(Arrays.toString(args));
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Month;
+
+public class PopulationResultTest {
+
+    private static final String[] FOODS = {"Steak", " steak ", "STEAK", "Pizza", "pizza\t", "Crème Brûlée",
+            "crème brûlée", "K", "k", "K", "İ", "i", "", " ", "Ice Cream", "ice  cream"};
+
+    @Test
+    public void dictionaryIds() {
+        StringDictionary dictionary = new StringDictionary();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i, dictionary.id("food " + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i, dictionary.id("food " + i));
+            Assert.assertEquals(i, dictionary.find("food " + i));
+            Assert.assertEquals("food " + i, dictionary.get(i));
+        }
+        Assert.assertEquals(-1, dictionary.find("food 1000"));
+        Assert.assertEquals(1000, dictionary.size());
+    }
+
+    @Test
+    public void foodsCountedBySanitizedValue() {
+        PopulationResult result = new PopulationResult();
+        for (String food : FOODS) {
+            result.addFavouriteFood(food);
+        }
+
+        Assert.assertEquals(3, result.getFoodFrequency("steak"));
+        Assert.assertEquals(2, result.getFoodFrequency("pizza"));
+        Assert.assertEquals(2, result.getFoodFrequency("crème brûlée"));
+        Assert.assertEquals(3, result.getFoodFrequency("k"));
+        Assert.assertEquals(0, result.getFoodFrequency("Steak"));
+        for (int foodId = 0; foodId < result.getFoodCount(); foodId++) {
+            String food = result.getFood(foodId);
+            Assert.assertEquals(food, PopulationEntryDto.sanitizeFood(food));
+            Assert.assertEquals((long) result.getFavouriteFoods().get(food), result.getFoodFrequency(foodId));
+        }
+    }
+
+    @Test
+    public void mergeFoodsInAnotherOrder() {
+        PopulationResult result = new PopulationResult();
+        PopulationResult other = new PopulationResult();
+        PopulationResult expected = new PopulationResult();
+        for (int i = 0; i < FOODS.length; i++) {
+            result.addFavouriteFood(FOODS[i]);
+            other.addFavouriteFood(FOODS[FOODS.length - 1 - i]);
+            other.addFavouriteFood(FOODS[i]);
+            expected.addFavouriteFood(FOODS[i]);
+            expected.addFavouriteFood(FOODS[i]);
+            expected.addFavouriteFood(FOODS[i]);
+        }
+        result.addBirth(0, "+00:00");
+        other.addBirth(0, "-05:00");
+
+        result.merge(other);
+        Assert.assertEquals(expected.getFavouriteFoods(), result.getFavouriteFoods());
+        Assert.assertEquals(1, result.getBirthMonthFrequency(Month.JANUARY));
+        Assert.assertEquals(1, result.getBirthMonthFrequency(Month.DECEMBER));
+        Assert.assertNull(result.getBirthMonthFrequency().get(Month.JUNE));
+    }
+
+    @Test
+    public void sanitizedFoodEqualsMatchesSanitizeFood() {
+        for (String food : FOODS) {
+            for (String otherFood : FOODS) {
+                boolean equal = PopulationEntryDto.sanitizeFood(food).equals(PopulationEntryDto.sanitizeFood(otherFood));
+                Assert.assertEquals(food + " / " + otherFood, equal,
+                        PopulationEntryDto.sanitizedFoodEquals(food, otherFood));
+                Assert.assertEquals(PopulationEntryDto.sanitizeFood(food).hashCode(),
+                        PopulationEntryDto.sanitizedFoodHashCode(food));
+            }
+        }
+    }
+
+    @Test
+    public void noAllocationOnceWarm() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+
+        String[] timezones = {"+00:00", "-05:00", "Europe/London", "+09:30"};
+        PopulationRecord[] records = new PopulationRecord[FOODS.length * timezones.length];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = new PopulationRecord();
+            records[i].setSiblings(i % 5);
+            records[i].setFavouriteFood(FOODS[i % FOODS.length]);
+            records[i].setBirthTimezone(timezones[i % timezones.length]);
+            records[i].setBirthTimeStamp(i * 86_400_000L * 29);
+        }
+
+        PopulationResult result = new PopulationResult();
+        int rows = 100_000;
+        addAll(result, records, rows);
+
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        addAll(result, records, rows);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        Assert.assertEquals(rows * 2, result.getSize());
+        Assert.assertTrue("Allocated " + allocated + " bytes", allocated < rows);
+    }
+
+    private static void addAll(PopulationResult result, PopulationRecord[] records, int rows) {
+        for (int i = 0; i < rows; i++) {
+            PopulationCalcUtil.addPopulationRecordToResult(result, records[i % records.length]);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.interset.interview;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class PopulationServerTest {
+
+    private PopulationServer server;
+    private HttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new PopulationServer(0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void sameResultsAsRunner() throws Exception {
+        String csv = "src/test/resources/population_sample.csv";
+        HttpResponse<String> response = post("?top=5", "text/csv", null, csv);
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals("application/json", response.headers().firstValue("Content-Type").get());
+        assertJsonResults(new Runner().aggregatePopulation(csv), 5, response.body());
+
+        // JSON arrays, compressed or not, and newline delimited JSON.
+        String json = "src/test/resources/population_sample.json";
+        PopulationResult expected = new Runner().aggregatePopulation(json);
+        assertJsonResults(expected, 3, post("", "application/json", null, json).body());
+        assertJsonResults(expected, 3, post("", "application/json", "gzip", json + ".gz").body());
+        assertJsonResults(expected, 3, post("?format=json.gz", null, null, json + ".gz").body());
+        String ndjson = "src/test/resources/population_sample.ndjson";
+        assertJsonResults(new Runner().aggregatePopulation(ndjson), 3,
+                post("?format=ndjson", null, null, ndjson).body());
+    }
+
+    @Test
+    public void rejectsBadRequests() throws Exception {
+        String csv = "src/test/resources/population_sample.csv";
+        Assert.assertEquals(415, post("", "text/plain", null, csv).statusCode());
+        Assert.assertEquals(400, post("?format=csv&top=0", null, null, csv).statusCode());
+        HttpResponse<String> response = post("?format=json", null, null, csv);
+        Assert.assertEquals(400, response.statusCode());
+        Assert.assertTrue(response.body().startsWith("{\"error\":\"Failed to parse the upload"));
+
+        HttpResponse<String> get = client.send(HttpRequest.newBuilder(uri("/aggregate")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(405, get.statusCode());
+        Assert.assertEquals("ok", client.send(HttpRequest.newBuilder(uri("/health")).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    @Test(timeout = 60_000)
+    public void concurrentUploads() throws Exception {
+        String csv = "src/test/resources/population_sample.csv";
+        String expected = post("?format=csv", null, null, csv).body();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                responses.add(executor.submit(() -> post("?format=csv", null, null, csv)));
+            }
+            for (Future<HttpResponse<String>> response : responses) {
+                Assert.assertEquals(200, response.get().statusCode());
+                Assert.assertEquals(expected, response.get().body());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void assertJsonResults(PopulationResult expected, int topFoods, String body) throws Exception {
+        Map<String, Object> results = new ObjectMapper().readValue(body, Map.class);
+        Assert.assertEquals(expected.getSize(), ((Number) results.get("people")).longValue());
+        Assert.assertEquals(expected.getSiblings().getMedian(),
+                ((Number) ((Map<String, Object>) results.get("siblings")).get("median")).longValue());
+        Assert.assertEquals(PopulationCalcUtil.calculateAverageSiblings(expected), results.get("averageSiblings"));
+        List<Map<String, Object>> foods = (List<Map<String, Object>>) results.get("favouriteFoods");
+        Assert.assertEquals(PopulationCalcUtil.getTopFoods(expected, topFoods).size(), foods.size());
+        for (int i = 0; i < foods.size(); i++) {
+            String food = PopulationCalcUtil.getTopFoods(expected, topFoods).get(i);
+            Assert.assertEquals(food, foods.get(i).get("food"));
+            Assert.assertEquals(expected.getFoodFrequency(food), ((Number) foods.get(i).get("count")).longValue());
+        }
+        Map<String, Object> birthMonths = (Map<String, Object>) results.get("birthMonths");
+        Assert.assertEquals(expected.getBirthMonthFrequency(Month.JANUARY),
+                ((Number) birthMonths.get("January")).longValue());
+        Assert.assertEquals(12, birthMonths.size());
+    }
+
+    private HttpResponse<String> post(String query, String contentType, String contentEncoding, String filePath)
+            throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri("/aggregate" + query))
+                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> {
+                    try {
+                        return Files.newInputStream(Paths.get(filePath));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+        if (contentType != null) {
+            request.header("Content-Type", contentType);
+        }
+        if (contentEncoding != null) {
+            request.header("Content-Encoding", contentEncoding);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+}
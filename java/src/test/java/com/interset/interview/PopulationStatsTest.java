@@ -0,0 +1,96 @@
+package com.interset.interview;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+public class PopulationStatsTest {
+
+    @After
+    public void tearDown() throws Exception {
+        PopulationStats.disable();
+    }
+
+    @Test
+    public void countsEveryReader() throws Exception {
+        String csv = "src/test/resources/population_sample.csv";
+        String json = "src/test/resources/population_sample.json.gz";
+        PopulationAggregator expected = new PopulationAggregator();
+        new Runner().streamPopulation(csv, expected);
+        new Runner().streamPopulation(json, expected);
+        long rows = expected.getResult().getSize() + expected.getDuplicates();
+
+        PopulationStats stats = PopulationStats.enable();
+        PopulationAggregator aggregator = new PopulationAggregator();
+        new Runner().streamPopulation(csv, aggregator);
+        new Runner().streamPopulation(json, aggregator);
+        stats.finish(aggregator.getResult());
+
+        Assert.assertEquals(rows, stats.getRows());
+        Assert.assertEquals(expected.getResult().getSize(), stats.getUniqueRows());
+        Assert.assertEquals((double) expected.getDuplicates() / rows, stats.getDuplicateRatio(), 1e-9);
+        // The CSV file as mapped, and the JSON file decompressed.
+        Assert.assertTrue(stats.getBytes() > new File(csv).length());
+        // Estimated from a sample, so on this few rows only the busy time as a whole is certain to show.
+        Assert.assertTrue(stats.getParseSeconds() + stats.getDeduplicationSeconds() + stats.getAggregationSeconds()
+                > 0);
+        Assert.assertEquals(expected.getResult().getFoodCount(), stats.getFoodDictionarySize());
+        Assert.assertTrue(stats.getPeakHeapBytes() > 0);
+        Assert.assertTrue(stats.getSummary().startsWith(String.format("Stats: %,d rows", rows)));
+
+        // The clock is stopped.
+        Assert.assertEquals(stats.getElapsedSeconds(), stats.getElapsedSeconds(), 0);
+    }
+
+    @Test
+    public void sharedAcrossThreads() throws Exception {
+        String csv = "src/test/resources/population_sample.csv";
+        PopulationAggregator expected = new PopulationAggregator();
+        new Runner().streamPopulation(csv, expected);
+        long rows = expected.getResult().getSize() + expected.getDuplicates();
+
+        PopulationStats stats = PopulationStats.enable();
+        PopulationResult result = new MultiFileReader(3).aggregate(Arrays.asList(csv, csv, csv),
+                new ConcurrentFingerprintSet(3));
+        Assert.assertEquals(expected.getResult().getSize(), result.getSize());
+        Assert.assertEquals(rows * 3, stats.getRows());
+        Assert.assertEquals(result.getSize(), stats.getUniqueRows());
+    }
+
+    @Test
+    public void exposedThroughJmx() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(PopulationStats.OBJECT_NAME);
+        Assert.assertFalse(server.isRegistered(name));
+
+        PopulationStats.enable();
+        new Runner().aggregatePopulation("src/test/resources/population_sample.csv");
+        Assert.assertEquals(PopulationStats.active().getRows(), server.getAttribute(name, "Rows"));
+        Assert.assertTrue((Long) server.getAttribute(name, "Rows") > 0);
+        Assert.assertTrue((Double) server.getAttribute(name, "RowsPerSecond") > 0);
+
+        PopulationStats.disable();
+        Assert.assertFalse(server.isRegistered(name));
+        Assert.assertNull(PopulationStats.active());
+    }
+
+    @Test
+    public void notWithFollowOrApproximate() {
+        Assert.assertTrue(RunnerOptions.parse(new String[]{"a.csv", "--stats"}).isStats());
+        Assert.assertFalse(RunnerOptions.parse(new String[]{"a.csv"}).isStats());
+        for (String option : new String[]{"--follow", "--approximate"}) {
+            try {
+                RunnerOptions.parse(new String[]{"a.csv", "--stats", option});
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                Assert.assertEquals("--stats can't be used with --follow or --approximate.", e.getMessage());
+            }
+        }
+    }
+}
@@ -7,6 +7,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -36,6 +38,19 @@ public class RunnerIOParseTest {
         Assert.assertFalse(population.isEmpty());
     }
 
+    @Test
+    public void readNdjsonMatchesJson() throws Exception {
+        Set<PopulationEntryDto> json = runner.parsePopulation("src/test/resources/population_sample.json");
+        Set<PopulationEntryDto> ndjson = runner.parsePopulation("src/test/resources/population_sample.ndjson");
+        Assert.assertFalse(ndjson.isEmpty());
+        Assert.assertEquals(json, ndjson);
+    }
+
+    @Test(expected = Exception.class)
+    public void readJsonRejectsUnexpectedTokens() throws Exception {
+        Runner.parseJson(new ByteArrayInputStream("[1, 2]".getBytes(StandardCharsets.UTF_8)));
+    }
+
     @Test
     public void readCsvAndPrint() throws Exception {
         Set<PopulationEntryDto> population = runner.parsePopulation("src/test/resources/population_sample.csv");
@@ -9,9 +9,12 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.time.format.TextStyle;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -43,29 +46,40 @@ public class RunnerResultCalculationsTest {
     public void topFoods() {
         List<String> topFoods = PopulationCalcUtil.getTopFoods(populationResult);
         Assert.assertEquals(topFoods.get(0).toLowerCase(), "chicken");
-        Assert.assertEquals((int) populationResult.getFavouriteFoods().get(topFoods.get(0).toLowerCase()), 3);
+        Assert.assertEquals((long) populationResult.getFavouriteFoods().get(topFoods.get(0).toLowerCase()), 3);
 
         Assert.assertEquals(topFoods.get(1).toLowerCase(), "peanut butter");
-        Assert.assertEquals((int) populationResult.getFavouriteFoods().get(topFoods.get(1).toLowerCase()), 2);
+        Assert.assertEquals((long) populationResult.getFavouriteFoods().get(topFoods.get(1).toLowerCase()), 2);
 
         Assert.assertEquals(topFoods.get(2).toLowerCase(), "mozzarella cheese");
-        Assert.assertEquals((int) populationResult.getFavouriteFoods().get(topFoods.get(2).toLowerCase()), 1);
+        Assert.assertEquals((long) populationResult.getFavouriteFoods().get(topFoods.get(2).toLowerCase()), 1);
     }
 
     @Test
     public void birthMonths() {
         // march, october, october, december, april, january
-        Map<Month, Integer> birthMonthFrequency = populationResult.getBirthMonthFrequency();
+        Map<Month, Long> birthMonthFrequency = populationResult.getBirthMonthFrequency();
 
-        Assert.assertEquals((int) birthMonthFrequency.get(Month.MARCH), 1);
-        Assert.assertEquals((int) birthMonthFrequency.get(Month.OCTOBER), 2);
-        Assert.assertEquals((int) birthMonthFrequency.get(Month.DECEMBER), 1);
-        Assert.assertEquals((int) birthMonthFrequency.get(Month.APRIL), 1);
-        Assert.assertEquals((int) birthMonthFrequency.get(Month.JANUARY), 1);
+        Assert.assertEquals((long) birthMonthFrequency.get(Month.MARCH), 1);
+        Assert.assertEquals((long) birthMonthFrequency.get(Month.OCTOBER), 2);
+        Assert.assertEquals((long) birthMonthFrequency.get(Month.DECEMBER), 1);
+        Assert.assertEquals((long) birthMonthFrequency.get(Month.APRIL), 1);
+        Assert.assertEquals((long) birthMonthFrequency.get(Month.JANUARY), 1);
 
         Assert.assertNull(birthMonthFrequency.get(Month.JUNE));
    }
 
+    @Test
+    public void monthAndDayNamesMatchTheLocaleData() {
+        for (Month month : Month.values()) {
+            Assert.assertEquals(month.getDisplayName(TextStyle.FULL, Locale.CANADA),
+                    PopulationCalcUtil.getMonthName(month));
+        }
+        for (DayOfWeek day : DayOfWeek.values()) {
+            Assert.assertEquals(day.getDisplayName(TextStyle.FULL, Locale.CANADA), PopulationCalcUtil.getDayName(day));
+        }
+    }
+
     @Test
     public void testTimezoneConversion() {
         // The test sample for David has birth time: Friday, February 1, 1980 1:34:54 AM in GMT
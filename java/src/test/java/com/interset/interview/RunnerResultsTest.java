@@ -36,9 +36,9 @@ public class RunnerResultsTest {
 
         int populationCount = population.size();
 
-        int birthCount = 0;
-        Map<Month, Integer> birthMonthFrequency = populationResult.getBirthMonthFrequency();
-        for (Map.Entry<Month, Integer> birthFreq : birthMonthFrequency.entrySet()) {
+        long birthCount = 0;
+        Map<Month, Long> birthMonthFrequency = populationResult.getBirthMonthFrequency();
+        for (Map.Entry<Month, Long> birthFreq : birthMonthFrequency.entrySet()) {
             birthCount += birthFreq.getValue();
         }
 
@@ -54,6 +54,19 @@ public class RunnerResultsTest {
         Assert.assertEquals(population.size(), 6);
     }
 
+    @Test
+    public void streamingAggregationMatchesSet() throws Exception {
+        population = runner.parsePopulation("src/test/resources/small_population_dupes.csv");
+        populationResult = PopulationCalcUtil.generateResult(population);
+
+        PopulationResult streamed = runner.aggregatePopulation("src/test/resources/small_population_dupes.csv");
+
+        Assert.assertEquals(populationResult.getSize(), streamed.getSize());
+        Assert.assertEquals(populationResult.getSiblingSum(), streamed.getSiblingSum());
+        Assert.assertEquals(populationResult.getFavouriteFoods(), streamed.getFavouriteFoods());
+        Assert.assertEquals(populationResult.getBirthMonthFrequency(), streamed.getBirthMonthFrequency());
+    }
+
     @Test
     public void basicPrintResults() throws Exception{
         // check for exceptions thrown
@@ -0,0 +1,133 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+public class SiblingHistogramTest {
+
+    @Test
+    public void matchesTheSortedValues() {
+        Random random = new Random(42);
+        int[] values = new int[10001];
+        SiblingHistogram histogram = new SiblingHistogram();
+        SiblingHistogram[] threads = {new SiblingHistogram(), new SiblingHistogram(), new SiblingHistogram()};
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (int) Math.min(Math.abs(random.nextGaussian()) * 3, 40);
+            histogram.add(values[i]);
+            threads[i % threads.length].add(values[i]);
+            sum += values[i];
+        }
+        Arrays.sort(values);
+
+        SiblingHistogram merged = new SiblingHistogram();
+        for (SiblingHistogram thread : threads) {
+            merged.merge(thread);
+        }
+        for (SiblingHistogram result : new SiblingHistogram[]{histogram, merged}) {
+            Assert.assertEquals(values.length, result.getCount());
+            Assert.assertEquals(sum, result.getSum());
+            Assert.assertEquals(values[5000], result.getMedian());
+            Assert.assertEquals(values[9000], result.getPercentile(0.9));
+            Assert.assertEquals(values[9900], result.getPercentile(0.99));
+            Assert.assertEquals(values[0], result.getPercentile(0));
+            Assert.assertEquals(values[values.length - 1], result.getMax());
+            Assert.assertEquals(0, result.getMode());
+            Assert.assertEquals(0, result.getOverflow());
+        }
+
+        SiblingHistogram empty = new SiblingHistogram();
+        Assert.assertEquals(0, empty.getMedian());
+        Assert.assertEquals(0, empty.getMax());
+        Assert.assertEquals(0, empty.getMean(), 0);
+    }
+
+    @Test
+    public void keepsTheValuesOutOfTheBuckets() throws Exception {
+        SiblingHistogram histogram = new SiblingHistogram();
+        for (int siblings : new int[]{-3, 2, 2, 5, 1000, 300}) {
+            histogram.add(siblings);
+        }
+        Assert.assertEquals(6, histogram.getCount());
+        Assert.assertEquals(1306, histogram.getSum());
+        Assert.assertEquals(3, histogram.getOverflow());
+        Assert.assertEquals(-3, histogram.getPercentile(0.1));
+        Assert.assertEquals(2, histogram.getMedian());
+        Assert.assertEquals(1000, histogram.getPercentile(0.9));
+        Assert.assertEquals(1000, histogram.getMax());
+        Assert.assertEquals(2, histogram.getMode());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histogram.write(new DataOutputStream(bytes));
+        SiblingHistogram read = SiblingHistogram.read(new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertEquals(histogram.getCount(), read.getCount());
+        Assert.assertEquals(histogram.getSum(), read.getSum());
+        Assert.assertEquals(histogram.getFrequency(2), read.getFrequency(2));
+        Assert.assertEquals(histogram.getPercentile(0.1), read.getPercentile(0.1));
+        Assert.assertEquals(histogram.getMax(), read.getMax());
+
+        try {
+            histogram.getPercentile(1.5);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void countsPastTheIntRange() {
+        PopulationResult result = new PopulationResult();
+        result.addToSiblingSum(3);
+        result.addToSiblingSum(4);
+        result.addToSiblingSum(200);
+        // Each merge with itself doubles the counts: 3 * 2^31 entries.
+        for (int i = 0; i < 31; i++) {
+            result.merge(result);
+        }
+        Assert.assertEquals(3L << 31, result.getSize());
+        Assert.assertEquals(207L << 31, result.getSiblingSum());
+        Assert.assertEquals(69, PopulationCalcUtil.calculateAverageSiblings(result));
+
+        SiblingHistogram siblings = result.getSiblings();
+        Assert.assertEquals(1L << 31, siblings.getFrequency(200));
+        Assert.assertEquals(4, siblings.getMedian());
+        Assert.assertEquals(200, siblings.getPercentile(0.99));
+        Assert.assertEquals(200, siblings.getMax());
+
+        Map<String, Object> siblingResults = (Map<String, Object>) PopulationCalcUtil.getResults(result, 3)
+                .get("siblings");
+        Assert.assertEquals(4L, siblingResults.get("median"));
+        Assert.assertEquals(3, siblingResults.get("mode"));
+    }
+
+    @Test
+    public void printsTheDistributionWhenAsked() {
+        Assert.assertTrue(RunnerOptions.parse(new String[]{"a.csv", "--siblings"}).isSiblings());
+        Assert.assertFalse(RunnerOptions.parse(new String[]{"a.csv"}).isSiblings());
+        try {
+            RunnerOptions.parse(new String[]{"a.csv", "--siblings", "--approximate"});
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        SiblingHistogram histogram = new SiblingHistogram();
+        for (int siblings : new int[]{1, 2, 2, 3, 9}) {
+            histogram.add(siblings);
+        }
+        Assert.assertEquals(String.format(" mean %.2f, median 2, p90 9, p99 9, max 9, mode 2", 3.4),
+                PopulationCalcUtil.calculateSiblingDistribution(histogram));
+        histogram.add(-1);
+        Assert.assertTrue(PopulationCalcUtil.calculateSiblingDistribution(histogram).endsWith("(1 out of 0 to 255)"));
+    }
+}
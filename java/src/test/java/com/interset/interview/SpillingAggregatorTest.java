@@ -0,0 +1,72 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class SpillingAggregatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void spillingGivesTheSameResults() throws Exception {
+        String csv = TestPopulations.generate(folder.newFile("population.csv"), "--rows=60000", "--duplicates=0.3",
+                "--foods=300", "--noise=0.3", "--timezones=-05:00,America/New_York,Asia/Kolkata");
+        String json = "src/test/resources/population_sample.json.gz";
+        PopulationAggregator aggregator = new PopulationAggregator();
+        Path spillParent = folder.newFolder("spill").toPath();
+        // 60,000 entries over 64 partitions: about 700 unique entries each, split again above 300.
+        try (SpillingAggregator spilling = new SpillingAggregator(spillParent, 300)) {
+            for (String file : new String[]{csv, json}) {
+                new Runner().streamPopulation(file, aggregator);
+                new Runner().streamPopulation(file, spilling);
+            }
+            PopulationResult expected = aggregator.getResult();
+            PopulationResult result = spilling.getResult();
+
+            Assert.assertTrue(spilling.getSpilledRows() > 50000);
+            Assert.assertTrue(spilling.getPartitionsRead() > SpillingAggregator.PARTITIONS);
+            Assert.assertEquals(aggregator.getDuplicates(), spilling.getDuplicates());
+            TestPopulations.assertSameResults(expected, result);
+            Assert.assertTrue(spilling.getSummary().startsWith("Duplicates: "));
+        }
+        Assert.assertArrayEquals(new String[0], spillParent.toFile().list());
+    }
+
+    @Test
+    public void withinTheBudgetNothingIsSpilled() throws Exception {
+        String csv = TestPopulations.generate(folder.newFile("population.csv"), "--rows=20000", "--duplicates=0.2");
+        PopulationAggregator aggregator = new PopulationAggregator();
+        Path spillParent = folder.newFolder("spill").toPath();
+        try (SpillingAggregator spilling = new SpillingAggregator(SpillingAggregator.MIN_MEMORY_BYTES, spillParent)) {
+            new Runner().streamPopulation(csv, aggregator);
+            new Runner().streamPopulation(csv, spilling);
+            TestPopulations.assertSameResults(aggregator.getResult(), spilling.getResult());
+            Assert.assertEquals(aggregator.getDuplicates(), spilling.getDuplicates());
+            Assert.assertEquals(0, spilling.getSpilledRows());
+        }
+        Assert.assertArrayEquals(new String[0], spillParent.toFile().list());
+    }
+
+    @Test
+    public void parsesTheMemoryOption() {
+        RunnerOptions options = RunnerOptions.parse(new String[]{"a.csv", "--memory=64"});
+        Assert.assertTrue(options.isSpilling());
+        Assert.assertEquals(64L * 1024 * 1024, options.getMemoryBytes());
+
+        for (String[] args : new String[][]{{"a.csv", "--memory=8"}, {"a.csv", "--memory=64", "--parallel=2"},
+                {"a.csv", "--memory=64", "--stats"}, {"a.csv", "--memory=64", "--query=month:count"}}) {
+            try {
+                RunnerOptions.parse(args);
+                Assert.fail(Arrays.toString(args));
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+}
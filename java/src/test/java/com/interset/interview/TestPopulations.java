@@ -0,0 +1,54 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.time.Month;
+import java.util.Arrays;
+
+/**
+ * Generated populations, and the comparison of the results of two ways of counting them, shared by the tests.
+ */
+public class TestPopulations {
+
+    /**
+     * Asserts that both results counted the same entries: the people, siblings, favourite foods and birth months.
+     */
+    public static void assertSameResults(PopulationResult expected, PopulationResult result) {
+        Assert.assertEquals(expected.getSize(), result.getSize());
+        Assert.assertEquals(expected.getSiblingSum(), result.getSiblingSum());
+        Assert.assertEquals(expected.getFavouriteFoods(), result.getFavouriteFoods());
+        Assert.assertEquals(PopulationCalcUtil.getTopFoods(expected, 10), PopulationCalcUtil.getTopFoods(result, 10));
+        for (Month month : Month.values()) {
+            Assert.assertEquals(expected.getBirthMonthFrequency(month), result.getBirthMonthFrequency(month));
+        }
+    }
+
+    /**
+     * Writes a population to the file, in the format of its extension.
+     *
+     * @param args Options of generate_population.sh, without the path.
+     * @return The path of the file.
+     */
+    public static String generate(File file, String... args) throws IOException {
+        String[] allArgs = Arrays.copyOf(args, args.length + 1);
+        allArgs[args.length] = file.getPath();
+        new PopulationGenerator(PopulationGeneratorOptions.parse(allArgs)).write(file.getPath());
+        return file.getPath();
+    }
+
+    /**
+     * @param format csv, json or ndjson.
+     * @param args Options of generate_population.sh, without the path.
+     * @return The bytes of a population, in the given format.
+     */
+    public static byte[] generate(String format, String... args) throws IOException {
+        String[] allArgs = Arrays.copyOf(args, args.length + 1);
+        allArgs[args.length] = "out." + format;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new PopulationGenerator(PopulationGeneratorOptions.parse(allArgs)).write(bytes, format);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,100 @@
+package com.interset.interview;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringJoiner;
+
+public class TopKTest {
+
+    @Test
+    public void matchesSorting() {
+        Random random = new Random(3);
+        for (int size : new int[]{0, 1, 5, 100, 10_000}) {
+            int[] counts = new int[size + 7];
+            long[] longCounts = new long[size + 7];
+            for (int id = 0; id < size; id++) {
+                // Lots of ties, and some empty counts.
+                counts[id] = random.nextInt(20);
+                longCounts[id] = counts[id] * 10_000_000_000L;
+            }
+            for (int k : new int[]{0, 1, 3, 50, 500, size, size + 1}) {
+                int[] expected = sortedIds(counts, size, k);
+                Assert.assertArrayEquals(expected, TopK.largest(counts, size, k, Integer::compare));
+                Assert.assertArrayEquals(expected, TopK.largest(longCounts, size, k, Integer::compare));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeK() {
+        TopK.largest(new int[]{1}, 1, -1, Integer::compare);
+    }
+
+    @Test
+    public void tiesInAlphabeticalOrder() {
+        String[] foods = {"pizza", "bacon", "steak", "apple", "candy", "bacon", "steak", "candy", "pizza"};
+        PopulationResult result = new PopulationResult();
+        PopulationResult reversed = new PopulationResult();
+        for (int i = 0; i < foods.length; i++) {
+            result.addFavouriteFood(foods[i]);
+            reversed.addFavouriteFood(foods[foods.length - 1 - i]);
+        }
+
+        List<String> expected = Arrays.asList("bacon", "candy", "pizza", "steak", "apple");
+        Assert.assertEquals(expected, PopulationCalcUtil.getTopFoods(result, 10));
+        Assert.assertEquals(expected, PopulationCalcUtil.getTopFoods(reversed, 10));
+        Assert.assertEquals(expected.subList(0, 3), PopulationCalcUtil.getTopFoods(result));
+        Assert.assertEquals(" bacon (2), candy (2)", PopulationCalcUtil.calculateFavouriteFoods(reversed, 2));
+    }
+
+    @Test
+    public void sameAsThreePasses() throws Exception {
+        PopulationResult result = new Runner().aggregatePopulation("src/main/resources/population.csv");
+
+        Assert.assertEquals(threePasses(result), PopulationCalcUtil.calculateThreeFavouriteFoods(result));
+        Assert.assertEquals(PopulationCalcUtil.calculateThreeFavouriteFoods(result),
+                PopulationCalcUtil.calculateFavouriteFoods(result, 3));
+    }
+
+    /**
+     * The three linear passes getTopFoods used to make, which keep the first food found for equal counts.
+     */
+    private static String threePasses(PopulationResult result) {
+        Map<String, Long> favouriteFoods = result.getFavouriteFoods();
+        List<String> topFoods = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            long maxFreq = 0;
+            String maxFood = null;
+            for (Map.Entry<String, Long> entry : favouriteFoods.entrySet()) {
+                if (!topFoods.contains(entry.getKey()) && entry.getValue() > maxFreq) {
+                    maxFreq = entry.getValue();
+                    maxFood = entry.getKey();
+                }
+            }
+            if (maxFood != null) {
+                topFoods.add(maxFood);
+            }
+        }
+        StringJoiner joiner = new StringJoiner(",");
+        for (String topFood : topFoods) {
+            joiner.add(" " + topFood + " (" + favouriteFoods.get(topFood) + ")");
+        }
+        return joiner.toString();
+    }
+
+    private static int[] sortedIds(int[] counts, int size, int k) {
+        Integer[] ids = new Integer[size];
+        for (int id = 0; id < size; id++) {
+            ids[id] = id;
+        }
+        Arrays.sort(ids, Comparator.<Integer>comparingInt(id -> -counts[id]).thenComparingInt(id -> id));
+        return Arrays.stream(ids).filter(id -> counts[id] > 0).limit(k).mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -1,2 +1,18 @@
 #!/usr/bin/env bash
-java -jar "$(dirname $0)/target/interview-1.0-SNAPSHOT.jar" "$@"
+# The JVM starts from an AppCDS archive of the classes a run loads, written next to the jar by a training run (see
+# StartupTraining) the first time, and again whenever the jar is rebuilt. Without it, the run starts as usual.
+jar="$(dirname $0)/target/interview-1.0-SNAPSHOT.jar"
+archive="${jar%.jar}.jsa"
+if [ ! -f "$archive" ] || [ "$jar" -nt "$archive" ]; then
+    if java -XX:ArchiveClassesAtExit="$archive.$$" -Xlog:cds=off -Xlog:cds+dynamic=off -cp "$jar" \
+            com.interset.interview.StartupTraining > /dev/null 2>&1; then
+        mv -f "$archive.$$" "$archive"
+    else
+        rm -f "$archive.$$"
+    fi
+fi
+if [ -f "$archive" ]; then
+    java -XX:SharedArchiveFile="$archive" -Xlog:cds=off -Xlog:cds+dynamic=off -jar "$jar" "$@"
+else
+    java -jar "$jar" "$@"
+fi